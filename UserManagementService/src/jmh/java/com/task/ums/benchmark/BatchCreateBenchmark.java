@@ -0,0 +1,114 @@
+package com.task.ums.benchmark;
+
+import com.task.ums.models.User;
+import com.task.ums.services.UserCache;
+import com.task.ums.services.UserPartitions;
+import com.task.ums.services.UserService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Compares creating many users with createAll (one transaction, inserts flushed in chunks) to creating them one by one,
+ * each in its own transaction like a single POST, against an embedded H2 database, with and without JDBC batching
+ * ("hibernate.jdbc.batch_size" 50 as in persistence.xml, or 1). Besides the time, the number of prepared statements
+ * per operation is reported as secondary result "statements": it contains the inserts (one per batch if batched) and
+ * the calls of the ID sequence, one per 50 users thanks to its allocation size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BatchCreateBenchmark {
+
+    /** Number of users created per operation. */
+    @Param({"1000"})
+    public int users;
+
+    /** The JDBC batch size of Hibernate; 1 sends every insert on its own. */
+    @Param({"1", "50"})
+    public String batchSize;
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private UserService userService;
+    private Statistics statistics;
+    private long created;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.quietLogging();
+        emf = BenchmarkSupport.createEntityManagerFactory(Map.of(
+                "hibernate.jdbc.batch_size", batchSize,
+                "hibernate.generate_statistics", "true"));
+        em = emf.createEntityManager();
+        userService = new UserService();
+        BenchmarkSupport.inject(userService, "em", em);
+        BenchmarkSupport.inject(userService, "cache", new UserCache(0, 0, System::nanoTime));
+        BenchmarkSupport.inject(userService, "events", new BenchmarkSupport.NoEvents());
+        BenchmarkSupport.inject(userService, "partitions", new UserPartitions(0, null, null, 0));
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        em.close();
+        emf.close();
+    }
+
+    /**
+     * The number of prepared statements of the last operation.
+     * The counter is set rather than incremented, so it isn't multiplied by the number of operations;
+     * JMH adds the counters of the measurement iterations, so divide the result by their number.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Statements {
+        public long statements;
+    }
+
+    @Benchmark
+    public List<User> createAll(Statements statements) {
+        List<User> newUsers = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            newUsers.add(BenchmarkSupport.newUser(created++));
+        }
+        statistics.clear();
+        List<User> result = inTransaction(() -> userService.createAll(newUsers, 50));
+        statements.statements = statistics.getPrepareStatementCount();
+        return result;
+    }
+
+    @Benchmark
+    public long createEach(Statements statements) {
+        statistics.clear();
+        long id = 0;
+        for (int i = 0; i < users; i++) {
+            User user = BenchmarkSupport.newUser(created++);
+            id += inTransaction(() -> userService.create(user)).getId();
+        }
+        statements.statements = statistics.getPrepareStatementCount();
+        return id;
+    }
+
+    private <T> T inTransaction(Supplier<T> operation) {
+        em.getTransaction().begin();
+        try {
+            T result = operation.get();
+            em.getTransaction().commit();
+            return result;
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.clear();
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.task.ums.benchmark;
+
+import com.task.ums.models.User;
+import com.task.ums.services.UserChange;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.NotificationOptions;
+import jakarta.enterprise.util.TypeLiteral;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.TimeoutHandler;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Helpers replacing the application server in the benchmarks.
+ */
+final class BenchmarkSupport {
+    /** Kept referenced, so the level isn't lost when the logger is garbage collected. */
+    private static final Logger APPLICATION_LOGGER = Logger.getLogger("com.task.ums");
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Turns off the info messages of the application, which would otherwise dominate the measurements
+     * and flood the benchmark output.
+     */
+    static void quietLogging() {
+        APPLICATION_LOGGER.setLevel(Level.WARNING);
+    }
+
+    /**
+     * Creates a valid user.
+     *
+     * @param i a number making the email address unique.
+     * @return the user.
+     */
+    static User newUser(long i) {
+        User user = new User();
+        user.setFirstname("Max");
+        user.setLastname("Mustermann");
+        user.setEmail("max.mustermann." + i + "@example.com");
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        user.setPassword("password123");
+        user.setPasswordHash("$pbkdf2-sha256$1000$c2FsdA$aGFzaA");
+        return user;
+    }
+
+    /**
+     * Creates the entity manager factory of the persistence unit "UserPU" as configured in persistence.xml,
+     * but with local transactions on the embedded H2 database instead of the JTA datasource of the server.
+     *
+     * @return the entity manager factory.
+     */
+    static EntityManagerFactory createEntityManagerFactory() {
+        return createEntityManagerFactory(Map.of());
+    }
+
+    /**
+     * Creates the entity manager factory of the persistence unit "UserPU" like {@link #createEntityManagerFactory()},
+     * with further or changed properties.
+     *
+     * @param properties the properties replacing those of persistence.xml, e.g. "hibernate.jdbc.batch_size".
+     * @return the entity manager factory.
+     */
+    static EntityManagerFactory createEntityManagerFactory(Map<String, String> properties) {
+        Map<String, String> all = new HashMap<>(Map.of(
+                "jakarta.persistence.transactionType", "RESOURCE_LOCAL",
+                "jakarta.persistence.jdbc.url", "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                "hibernate.show_sql", "false"));
+        all.putAll(properties);
+        return Persistence.createEntityManagerFactory("UserPU", all);
+    }
+
+    /**
+     * Sets a field, like the container injects a dependency.
+     *
+     * @param target the object.
+     * @param name the name of the field.
+     * @param value the value.
+     */
+    static void inject(Object target, String name, Object value) {
+        for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(name);
+                field.setAccessible(true);
+                field.set(target, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                // look in the superclass
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        throw new IllegalArgumentException("No field " + name + " in " + target.getClass());
+    }
+
+    /**
+     * An event that isn't observed by anyone.
+     */
+    static final class NoEvents implements Event<UserChange> {
+        @Override
+        public void fire(UserChange event) {
+        }
+
+        @Override
+        public <U extends UserChange> CompletionStage<U> fireAsync(U event) {
+            return CompletableFuture.completedFuture(event);
+        }
+
+        @Override
+        public <U extends UserChange> CompletionStage<U> fireAsync(U event, NotificationOptions options) {
+            return CompletableFuture.completedFuture(event);
+        }
+
+        @Override
+        public Event<UserChange> select(Annotation... qualifiers) {
+            return this;
+        }
+
+        @Override
+        public <U extends UserChange> Event<U> select(Class<U> subtype, Annotation... qualifiers) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <U extends UserChange> Event<U> select(TypeLiteral<U> subtype, Annotation... qualifiers) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * A suspended response that captures the response it is resumed with.
+     */
+    static final class CapturedResponse implements AsyncResponse {
+        private final CompletableFuture<Object> response = new CompletableFuture<>();
+
+        /**
+         * Waits for the response.
+         *
+         * @return the response or the exception it was resumed with.
+         */
+        Object await() {
+            try {
+                return response.get(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException | TimeoutException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public boolean resume(Object response) {
+            return this.response.complete(response);
+        }
+
+        @Override
+        public boolean resume(Throwable response) {
+            return this.response.complete(response);
+        }
+
+        @Override
+        public boolean cancel() {
+            return response.cancel(false);
+        }
+
+        @Override
+        public boolean cancel(int retryAfter) {
+            return cancel();
+        }
+
+        @Override
+        public boolean cancel(Date retryAfter) {
+            return cancel();
+        }
+
+        @Override
+        public boolean isSuspended() {
+            return !response.isDone();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return response.isCancelled();
+        }
+
+        @Override
+        public boolean isDone() {
+            return response.isDone();
+        }
+
+        @Override
+        public boolean setTimeout(long time, TimeUnit unit) {
+            return true;
+        }
+
+        @Override
+        public void setTimeoutHandler(TimeoutHandler handler) {
+        }
+
+        @Override
+        public Collection<Class<?>> register(Class<?> callback) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<Class<?>, Collection<Class<?>>> register(Class<?> callback, Class<?>... callbacks) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Collection<Class<?>> register(Object callback) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<Class<?>, Collection<Class<?>>> register(Object callback, Object... callbacks) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.task.ums.benchmark;
+
+import com.task.ums.encoding.CborReader;
+import com.task.ums.encoding.CborWriter;
+import com.task.ums.encoding.UserCbor;
+import com.task.ums.models.User;
+import com.task.ums.models.UserView;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares the representations of users on the wire: JSON (JSON-B, written element by element like the stream
+ * of all users) against CBOR, each uncompressed and with gzip at level 1 and 6. Measured are the encoding and
+ * decoding of a single user and of a list of 100000 users, the time including compression;
+ * the encoded size of each encoding is reported as secondary result "bytes" ({@link EncodedSize}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EncodingBenchmark {
+    private static final Type USER_LIST = new ArrayList<User>() { }.getClass().getGenericSuperclass();
+
+    /** Number of users in the list. */
+    @Param({"100000"})
+    public int users;
+
+    /** Representation: "json" or "cbor". */
+    @Param({"json", "cbor"})
+    public String format;
+
+    /** Compression: 0 for none, else the gzip level. */
+    @Param({"0", "1", "6"})
+    public int gzipLevel;
+
+    private Jsonb jsonb;
+    private UserView user;
+    private List<UserView> list;
+    private byte[] encodedUser;
+    private byte[] encodedList;
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream(1 << 24);
+
+    @Setup
+    public void setup() throws IOException {
+        jsonb = JsonbBuilder.create();
+        list = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            User newUser = BenchmarkSupport.newUser(i);
+            newUser.setId((long) i + 1);
+            newUser.setVersion(0L);
+            list.add(UserView.of(newUser));
+        }
+        user = list.get(0);
+        EncodedSize size = new EncodedSize();
+        encodedUser = encodeUser(size).toByteArray();
+        encodedList = encodeList(size).toByteArray();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        jsonb.close();
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream encodeUser(EncodedSize size) throws IOException {
+        output.reset();
+        OutputStream out = compress(output);
+        if (format.equals("json")) {
+            jsonb.toJson(user, out);
+        } else {
+            CborWriter writer = new CborWriter(out);
+            UserCbor.write(writer, user);
+            writer.flush();
+        }
+        out.close();
+        size.bytes = output.size();
+        return output;
+    }
+
+    @Benchmark
+    public User decodeUser() throws IOException {
+        try (InputStream in = decompress(encodedUser)) {
+            return format.equals("json") ? jsonb.fromJson(in, User.class) : UserCbor.read(new CborReader(in));
+        }
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream encodeList(EncodedSize size) throws IOException {
+        output.reset();
+        OutputStream out = compress(output);
+        if (format.equals("json")) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writer.write('[');
+            for (int i = 0; i < list.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(jsonb.toJson(list.get(i)));
+            }
+            writer.write(']');
+            writer.flush();
+        } else {
+            CborWriter writer = new CborWriter(out);
+            writer.writeArrayStart();
+            for (UserView view : list) {
+                UserCbor.write(writer, view);
+            }
+            writer.writeBreak();
+            writer.flush();
+        }
+        out.close();
+        size.bytes = output.size();
+        return output;
+    }
+
+    @Benchmark
+    public List<User> decodeList() throws IOException {
+        try (InputStream in = decompress(encodedList)) {
+            return format.equals("json") ? jsonb.fromJson(in, USER_LIST) : UserCbor.readList(new CborReader(in));
+        }
+    }
+
+    /**
+     * The size of the last encoding in bytes, a secondary result of the encoding benchmarks in target/jmh-result.json.
+     * The counter is set rather than incremented, so it isn't multiplied by the number of operations.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EncodedSize {
+        public long bytes;
+    }
+
+    private OutputStream compress(OutputStream out) throws IOException {
+        if (gzipLevel == 0) {
+            return out;
+        }
+        return new GZIPOutputStream(out, 8192) {
+            {
+                def.setLevel(gzipLevel);
+            }
+        };
+    }
+
+    private InputStream decompress(byte[] data) throws IOException {
+        InputStream in = new ByteArrayInputStream(data);
+        return gzipLevel == 0 ? in : new GZIPInputStream(in, 8192);
+    }
+}
@@ -0,0 +1,91 @@
+package com.task.ums.benchmark;
+
+import com.task.ums.models.User;
+import com.task.ums.services.UserCache;
+import com.task.ums.services.UserPartitions;
+import com.task.ums.services.UserService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Measures the lookup of a user by email address through the unique index on the email column with 10000,
+ * 100000 and 1 million users against an embedded H2 database, like the UserServiceBenchmark. The addresses are
+ * drawn at random, so the lookups don't profit from neighbouring index pages; with the index, the time grows
+ * with the depth of the B-tree (logarithmically) instead of with the number of users.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FindByEmailBenchmark {
+
+    /** Number of users in the database. */
+    @Param({"10000", "100000", "1000000"})
+    public int users;
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private UserService userService;
+    private SplittableRandom random;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.quietLogging();
+        emf = BenchmarkSupport.createEntityManagerFactory();
+        em = emf.createEntityManager();
+        userService = new UserService();
+        BenchmarkSupport.inject(userService, "em", em);
+        BenchmarkSupport.inject(userService, "cache", new UserCache(0, 0, System::nanoTime));
+        BenchmarkSupport.inject(userService, "events", new BenchmarkSupport.NoEvents());
+        BenchmarkSupport.inject(userService, "partitions", new UserPartitions(0, null, null, 0));
+
+        // created in chunks, so the persistence context stays small
+        for (int from = 0; from < users; from += 10000) {
+            List<User> newUsers = new ArrayList<>(10000);
+            for (int i = from; i < Math.min(users, from + 10000); i++) {
+                newUsers.add(BenchmarkSupport.newUser(i));
+            }
+            inTransaction(() -> userService.createAll(newUsers, 50));
+        }
+        random = new SplittableRandom(42);
+    }
+
+    @TearDown
+    public void tearDown() {
+        em.close();
+        emf.close();
+    }
+
+    @Benchmark
+    public User findByEmail() {
+        return inTransaction(() -> userService.findByEmail("max.mustermann." + random.nextInt(users) + "@example.com"));
+    }
+
+    /**
+     * An unknown address, which is rejected by the index alone.
+     */
+    @Benchmark
+    public User findByEmailMissing() {
+        return inTransaction(() -> userService.findByEmail("erika.musterfrau." + random.nextInt(users) + "@example.com"));
+    }
+
+    private <T> T inTransaction(Supplier<T> operation) {
+        em.getTransaction().begin();
+        try {
+            T result = operation.get();
+            em.getTransaction().commit();
+            return result;
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.clear();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.task.ums.benchmark;
+
+import com.task.ums.models.PartialUser;
+import com.task.ums.models.User;
+import com.task.ums.services.UserFields;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the JSON-B serialization and deserialization of single users and of user lists,
+ * and the serialization of lists with a sparse fieldset (id, firstname, lastname).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonBenchmark {
+    private static final Type USER_LIST = new ArrayList<User>() { }.getClass().getGenericSuperclass();
+
+    private Jsonb jsonb;
+    private User user;
+    private String userJson;
+
+    /**
+     * A list of users, as returned by a page or the export of all users.
+     */
+    @State(Scope.Benchmark)
+    public static class UserList {
+        /** Number of users in the list. */
+        @Param({"1000", "10000"})
+        public int size;
+
+        private List<User> users;
+        private List<PartialUser> partialUsers;
+        private String json;
+
+        @Setup
+        public void setup(JsonBenchmark benchmark) {
+            users = new ArrayList<>(size);
+            partialUsers = new ArrayList<>(size);
+            UserFields fields = UserFields.parse("id,firstname,lastname");
+            for (int i = 0; i < size; i++) {
+                User user = BenchmarkSupport.newUser(i);
+                user.setId((long) i);
+                user.setVersion(0L);
+                user.setPassword(null);
+                users.add(user);
+                partialUsers.add(fields.toPartialUser(new Object[]{user.getId(), user.getVersion(), user.getFirstname(), user.getLastname()}));
+            }
+            json = benchmark.jsonb.toJson(users);
+        }
+    }
+
+    @Setup
+    public void setup() {
+        jsonb = JsonbBuilder.create();
+        user = BenchmarkSupport.newUser(1);
+        user.setId(1L);
+        user.setVersion(0L);
+        userJson = jsonb.toJson(user);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        jsonb.close();
+    }
+
+    @Benchmark
+    public String serializeUser() {
+        return jsonb.toJson(user);
+    }
+
+    @Benchmark
+    public User deserializeUser() {
+        return jsonb.fromJson(userJson, User.class);
+    }
+
+    @Benchmark
+    public String serializeUserList(UserList list) {
+        return jsonb.toJson(list.users);
+    }
+
+    @Benchmark
+    public String serializePartialUserList(UserList list) {
+        return jsonb.toJson(list.partialUsers);
+    }
+
+    @Benchmark
+    public List<User> deserializeUserList(UserList list) {
+        return jsonb.fromJson(list.json, USER_LIST);
+    }
+}
@@ -0,0 +1,102 @@
+package com.task.ums.benchmark;
+
+import com.task.ums.models.User;
+import com.task.ums.services.DatabaseExecutor;
+import com.task.ums.services.UserCache;
+import com.task.ums.services.UserPartitions;
+import com.task.ums.services.UserService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write scaling of the partitioned users table: 8 threads create users, each in its own transaction, in 1, 2 or 4
+ * partitions on embedded H2 databases. As the embedded databases commit in memory, the time a database needs to
+ * write a commit to its log can be added ("commitMicros"): it is spent holding a lock per partition, like the single
+ * log writer of a database server, so one database commits one transaction after the other. Besides the creates,
+ * the throughput of pages read from all partitions (scatter-gather) is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(8)
+public class PartitionBenchmark {
+
+    /** Number of partitions. */
+    @Param({"1", "2", "4"})
+    public int partitions;
+
+    /** Simulated time to write a commit to the log of a partition in microseconds (0 for the embedded database only). */
+    @Param({"0", "200"})
+    public long commitMicros;
+
+    /** Number of users in the partitions before the benchmark. */
+    @Param({"10000"})
+    public int users;
+
+    private UserPartitions userPartitions;
+    private DatabaseExecutor database;
+    private UserService userService;
+    private Object[] logWriters;
+    private long[] ids;
+    private final AtomicLong created = new AtomicLong();
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.quietLogging();
+        database = new DatabaseExecutor(64, 1000, true);
+        database.start();
+        userPartitions = new UserPartitions(partitions, "jdbc:h2:mem:partition-benchmark-{n};DB_CLOSE_DELAY=-1", null, 0);
+        BenchmarkSupport.inject(userPartitions, "database", database);
+        userPartitions.start();
+        userService = new UserService();
+        BenchmarkSupport.inject(userService, "cache", new UserCache(0, 0, System::nanoTime));
+        BenchmarkSupport.inject(userService, "events", new BenchmarkSupport.NoEvents());
+        BenchmarkSupport.inject(userService, "partitions", userPartitions);
+        logWriters = new Object[partitions];
+        for (int i = 0; i < partitions; i++) {
+            logWriters[i] = new Object();
+        }
+
+        List<User> newUsers = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            newUsers.add(BenchmarkSupport.newUser(i));
+        }
+        ids = userPartitions.inTransaction(() -> userService.createAll(newUsers, 50)).stream().mapToLong(User::getId).toArray();
+        created.set(users);
+    }
+
+    @TearDown
+    public void tearDown() {
+        userPartitions.stop();
+        database.stop();
+    }
+
+    @Benchmark
+    public User create() {
+        User user = BenchmarkSupport.newUser(created.getAndIncrement());
+        return userPartitions.inTransaction(() -> {
+            User result = userService.create(user);
+            commit(userPartitions.partitionOfEmail(user.getEmail()));
+            return result;
+        });
+    }
+
+    @Benchmark
+    public List<User> findPage() {
+        return userService.findPage(ids[ThreadLocalRandom.current().nextInt(ids.length)], 100);
+    }
+
+    private void commit(int partition) {
+        if (commitMicros > 0) {
+            synchronized (logWriters[partition]) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(commitMicros));
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.task.ums.benchmark;
+
+import com.task.ums.models.User;
+import com.task.ums.models.UserView;
+import com.task.ums.services.UserCache;
+import com.task.ums.services.UserPartitions;
+import com.task.ums.services.UserReadModel;
+import com.task.ums.services.UserService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Compares the throughput of the GET operations served by the UserReadModel with the same reads through
+ * the UserService (JPA, without cache) against an embedded H2 database, like the UserServiceBenchmark.
+ * Every JPA read runs in its own transaction, like a request calling the stateless session bean.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReadModelBenchmark {
+
+    /** Number of users in the database and the read model. */
+    @Param({"100000"})
+    public int users;
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private UserService userService;
+    private UserReadModel readModel;
+    private long[] ids;
+    private int next;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.quietLogging();
+        emf = BenchmarkSupport.createEntityManagerFactory();
+        em = emf.createEntityManager();
+        userService = new UserService();
+        BenchmarkSupport.inject(userService, "em", em);
+        BenchmarkSupport.inject(userService, "cache", new UserCache(0, 0, System::nanoTime));
+        BenchmarkSupport.inject(userService, "events", new BenchmarkSupport.NoEvents());
+        BenchmarkSupport.inject(userService, "partitions", new UserPartitions(0, null, null, 0));
+
+        List<User> newUsers = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            newUsers.add(BenchmarkSupport.newUser(i));
+        }
+        ids = inTransaction(() -> userService.createAll(newUsers, 50)).stream().mapToLong(User::getId).toArray();
+
+        readModel = new UserReadModel(true);
+        BenchmarkSupport.inject(readModel, "userService", userService);
+        inTransaction(() -> {
+            readModel.build();
+            return null;
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        em.close();
+        emf.close();
+    }
+
+    @Benchmark
+    public User getJpa() {
+        return inTransaction(() -> userService.find(nextId()));
+    }
+
+    @Benchmark
+    public UserView getReadModel() {
+        return readModel.get(nextId());
+    }
+
+    @Benchmark
+    public User findByEmailJpa() {
+        return inTransaction(() -> userService.findByEmail(nextEmail()));
+    }
+
+    @Benchmark
+    public UserView findByEmailReadModel() {
+        return readModel.findByEmail(nextEmail());
+    }
+
+    @Benchmark
+    public List<User> pageJpa() {
+        return inTransaction(() -> userService.findPage(nextId(), 100));
+    }
+
+    @Benchmark
+    public List<UserView> pageReadModel() {
+        return readModel.page(nextId(), 100);
+    }
+
+    private long nextId() {
+        return ids[next++ % ids.length];
+    }
+
+    private String nextEmail() {
+        return "max.mustermann." + (next++ % users) + "@example.com";
+    }
+
+    private <T> T inTransaction(Supplier<T> operation) {
+        em.getTransaction().begin();
+        try {
+            T result = operation.get();
+            em.getTransaction().commit();
+            return result;
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.clear();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.task.ums.benchmark;
+
+import com.task.ums.models.UserSearchHit;
+import com.task.ums.services.UserSearchIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the typeahead search of the UserSearchIndex for prefixes of one, two and three characters and for
+ * a query with two tokens, and the cost of adding, replacing and removing a user, with 100000 and 1 million users.
+ * The names are drawn from common first and last names, so short prefixes match a large share of the users
+ * like in a real user base.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchIndexBenchmark {
+
+    private static final String[] FIRSTNAMES = {
+            "Max", "Maria", "Marie", "Markus", "Martin", "Matthias", "Michael", "Monika", "Anna", "Andreas",
+            "Alexander", "Julia", "Jonas", "Katharina", "Klaus", "Laura", "Lukas", "Sabine", "Stefan", "Thomas",
+            "Ursula", "Paul", "Petra", "Sophie", "Felix", "Emma", "Erika", "Hans", "Lena", "Tobias"};
+    private static final String[] LASTNAMES = {
+            "Mustermann", "Müller", "Schmidt", "Schneider", "Fischer", "Meyer", "Weber", "Schulz", "Wagner", "Becker",
+            "Hoffmann", "Schäfer", "Koch", "Bauer", "Richter", "Klein", "Wolf", "Schröder", "Neumann", "Schwarz",
+            "Zimmermann", "Braun", "Krüger", "Hofmann", "Hartmann", "Lange", "Schmitt", "Werner", "Krause", "Meier"};
+
+    /** Number of users in the index. */
+    @Param({"100000", "1000000"})
+    public int users;
+
+    private UserSearchIndex index;
+    private SplittableRandom random;
+    private long version;
+
+    @Setup
+    public void setup() {
+        random = new SplittableRandom(42);
+        index = new UserSearchIndex();
+        for (long id = 1; id <= users; id++) {
+            index.put(id, 0, firstname(), lastname());
+        }
+    }
+
+    /**
+     * A typeahead query with the default limit of the REST API.
+     */
+    @Benchmark
+    public List<UserSearchHit> search(Query query) {
+        return index.search(query.text, 10);
+    }
+
+    /**
+     * Replaces the names of an indexed user, which removes its old terms and adds the new ones.
+     */
+    @Benchmark
+    public void put() {
+        index.put(1 + random.nextInt(users), ++version, firstname(), lastname());
+    }
+
+    /**
+     * Removes an indexed user and adds it again, so the index keeps its size.
+     */
+    @Benchmark
+    public void removeAndPut() {
+        long id = 1 + random.nextInt(users);
+        index.remove(id);
+        index.put(id, 0, firstname(), lastname());
+    }
+
+    private String firstname() {
+        return FIRSTNAMES[random.nextInt(FIRSTNAMES.length)];
+    }
+
+    private String lastname() {
+        return LASTNAMES[random.nextInt(LASTNAMES.length)];
+    }
+
+    /**
+     * The search text, a separate state so only the search runs once per query.
+     */
+    @State(Scope.Benchmark)
+    public static class Query {
+        /** Prefixes of one, two and three characters and two tokens. */
+        @Param({"m", "ma", "mar", "mar sch"})
+        public String text;
+    }
+}
@@ -0,0 +1,165 @@
+package com.task.ums.benchmark;
+
+import com.task.ums.models.User;
+import com.task.ums.services.SingleFlight;
+import com.task.ums.services.UserCache;
+import com.task.ums.services.UserPartitions;
+import com.task.ums.services.UserService;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Contention benchmark of the SingleFlight: 16 threads read users by ID from an embedded H2 database (JPA, without
+ * cache) and serialize them as JSON, once every thread on its own and once coalesced. The IDs follow a Zipf
+ * distribution, so a few hot users get most of the reads, like during a traffic spike. As the embedded database answers
+ * within microseconds, the network round trip to a database server can be added to every query ("roundTripMicros").
+ * Besides the reads per millisecond, the database queries per millisecond are reported ("queries").
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(16)
+public class SingleFlightBenchmark {
+
+    /** Number of users in the database. */
+    @Param({"10000"})
+    public int users;
+
+    /** Exponent of the Zipf distribution of the IDs (0 for uniform). */
+    @Param({"0.99"})
+    public double skew;
+
+    /** Simulated network round trip per query in microseconds (0 for the embedded database only). */
+    @Param({"0", "500"})
+    public long roundTripMicros;
+
+    private EntityManagerFactory emf;
+    private Jsonb jsonb;
+    private SingleFlight singleFlight;
+    private long[] ids;
+    private double[] cumulative;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.quietLogging();
+        emf = BenchmarkSupport.createEntityManagerFactory();
+        jsonb = JsonbBuilder.create();
+        singleFlight = new SingleFlight(true, 5000);
+
+        List<User> newUsers = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            newUsers.add(BenchmarkSupport.newUser(i));
+        }
+        Session session = new Session();
+        session.setup(this);
+        ids = session.inTransaction(() -> session.userService.createAll(newUsers, 50)).stream().mapToLong(User::getId).toArray();
+        session.tearDown();
+
+        // the probability of the user of rank k is proportional to 1 / k^skew
+        cumulative = new double[users];
+        double sum = 0;
+        for (int k = 0; k < users; k++) {
+            sum += 1 / Math.pow(k + 1, skew);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < users; k++) {
+            cumulative[k] /= sum;
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        jsonb.close();
+        emf.close();
+    }
+
+    /**
+     * The entity manager and UserService of a thread, like a request calling the stateless session bean.
+     */
+    @State(Scope.Thread)
+    public static class Session {
+        private EntityManager em;
+        private UserService userService;
+
+        @Setup
+        public void setup(SingleFlightBenchmark benchmark) {
+            em = benchmark.emf.createEntityManager();
+            userService = new UserService();
+            BenchmarkSupport.inject(userService, "em", em);
+            BenchmarkSupport.inject(userService, "cache", new UserCache(0, 0, System::nanoTime));
+            BenchmarkSupport.inject(userService, "events", new BenchmarkSupport.NoEvents());
+            BenchmarkSupport.inject(userService, "partitions", new UserPartitions(0, null, null, 0));
+        }
+
+        @TearDown
+        public void tearDown() {
+            em.close();
+        }
+
+        private <T> T inTransaction(Supplier<T> operation) {
+            em.getTransaction().begin();
+            try {
+                T result = operation.get();
+                em.getTransaction().commit();
+                return result;
+            } finally {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                em.clear();
+            }
+        }
+    }
+
+    /**
+     * The database queries of a thread, reported by JMH as rate next to the reads.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Queries {
+        public long queries;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            queries = 0;
+        }
+    }
+
+    @Benchmark
+    public byte[] getDirect(Session session, Queries queries) {
+        return load(session, queries, nextId());
+    }
+
+    @Benchmark
+    public byte[] getCoalesced(Session session, Queries queries) {
+        long id = nextId();
+        return singleFlight.execute(id, () -> CompletableFuture.completedFuture(load(session, queries, id))).join();
+    }
+
+    private byte[] load(Session session, Queries queries, long id) {
+        queries.queries++;
+        User user = session.inTransaction(() -> session.userService.find(id));
+        if (roundTripMicros > 0) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(roundTripMicros));
+        }
+        return jsonb.toJson(user).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private long nextId() {
+        int rank = Arrays.binarySearch(cumulative, ThreadLocalRandom.current().nextDouble());
+        return ids[Math.min(rank < 0 ? -rank - 1 : rank, ids.length - 1)];
+    }
+}
@@ -0,0 +1,155 @@
+package com.task.ums.benchmark;
+
+import com.task.ums.models.User;
+import com.task.ums.models.UserChangeEntry;
+import com.task.ums.services.UserCache;
+import com.task.ums.services.UserPartitions;
+import com.task.ums.services.UserSearchIndex;
+import com.task.ums.services.UserService;
+import com.task.ums.services.UserSnapshotFile;
+import com.task.ums.services.UserSnapshotStore;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time from an empty database to a service ready for requests (users in the database and the
+ * search index built), with and without a snapshot, against an embedded H2 database configured like the
+ * persistence unit of the application. Without a snapshot the users are inserted through the UserService in
+ * transactions of 1000 users together with their change log entries, which is a lower bound for re-seeding through
+ * the REST API (no HTTP, no validation, no password hashing).
+ * Every operation is measured once per iteration on an empty database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class SnapshotBenchmark {
+
+    /** Number of users in the snapshot. */
+    @Param({"1000000"})
+    public int users;
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private JdbcDataSource dataSource;
+    private UserService userService;
+    private UserSnapshotStore store;
+    private Path file;
+    private final Jsonb jsonb = JsonbBuilder.create();
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkSupport.quietLogging();
+        emf = BenchmarkSupport.createEntityManagerFactory();
+        em = emf.createEntityManager();
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        dataSource.setPassword("sa");
+
+        userService = new UserService();
+        BenchmarkSupport.inject(userService, "em", em);
+        BenchmarkSupport.inject(userService, "cache", new UserCache(0, 0, System::nanoTime));
+        BenchmarkSupport.inject(userService, "events", new BenchmarkSupport.NoEvents());
+        BenchmarkSupport.inject(userService, "partitions", new UserPartitions(0, null, null, 0));
+
+        file = Files.createTempFile("ums-benchmark", ".snapshot");
+        store = new UserSnapshotStore(file, 0);
+        BenchmarkSupport.inject(store, "dataSource", dataSource);
+        try (UserSnapshotFile.Writer writer = UserSnapshotFile.create(file)) {
+            for (int i = 1; i <= users; i++) {
+                User user = BenchmarkSupport.newUser(i);
+                user.setId((long) i);
+                user.setVersion(0L);
+                writer.write(user);
+            }
+            writer.commit();
+        }
+    }
+
+    /**
+     * Empties the database before every operation; the snapshot is saved from a restored database.
+     *
+     * @param params the benchmark about to run.
+     */
+    @Setup(Level.Invocation)
+    public void prepare(BenchmarkParams params) throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE TABLE user_changes");
+            statement.execute("TRUNCATE TABLE users");
+        }
+        if (params.getBenchmark().endsWith("saveSnapshot")) {
+            store.restore();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        em.close();
+        emf.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public UserSearchIndex startWithSnapshot() throws Exception {
+        store.restore();
+        return buildSearchIndex();
+    }
+
+    @Benchmark
+    public UserSearchIndex startWithoutSnapshot() {
+        for (int i = 0; i < users; i += 1000) {
+            List<User> chunk = new ArrayList<>(1000);
+            for (int j = i; j < Math.min(users, i + 1000); j++) {
+                User user = BenchmarkSupport.newUser(j);
+                user.setPassword(null);
+                chunk.add(user);
+            }
+            em.getTransaction().begin();
+            userService.createAll(chunk, 50);
+            Instant now = Instant.now();
+            for (User user : chunk) {
+                // what the UserChangeLog writes for every created user
+                UserChangeEntry entry = new UserChangeEntry();
+                entry.setUserId(user.getId());
+                entry.setType("CREATED");
+                entry.setData(jsonb.toJson(user));
+                entry.setCreatedAt(now);
+                em.persist(entry);
+            }
+            em.getTransaction().commit();
+            em.clear();
+        }
+        return buildSearchIndex();
+    }
+
+    @Benchmark
+    public long saveSnapshot() throws Exception {
+        return store.save();
+    }
+
+    private UserSearchIndex buildSearchIndex() {
+        UserSearchIndex searchIndex = new UserSearchIndex();
+        BenchmarkSupport.inject(searchIndex, "userService", userService);
+        em.getTransaction().begin();
+        searchIndex.build();
+        em.getTransaction().commit();
+        em.clear();
+        return searchIndex;
+    }
+}
@@ -0,0 +1,185 @@
+package com.task.ums.benchmark;
+
+import com.task.ums.UserResource;
+import com.task.ums.metrics.Metrics;
+import com.task.ums.models.User;
+import com.task.ums.services.DatabaseExecutor;
+import com.task.ums.services.GroupCommit;
+import com.task.ums.services.PasswordHasher;
+import com.task.ums.services.SingleFlight;
+import com.task.ums.services.UserReadModel;
+import com.task.ums.services.UserService;
+import com.task.ums.services.UserValidator;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the request path through the UserResource: reading the JSON body, validation,
+ * password hashing, the hand-over to the database executor and writing the JSON response.
+ * The container is replaced by plain objects and the UserService by a stub without database,
+ * so only the costs of the resource layer are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserResourceBenchmark {
+
+    /** PBKDF2 iterations of the password hasher, low so the hashing doesn't dominate the request path. */
+    @Param({"1000"})
+    public int iterations;
+
+    private ValidatorFactory validatorFactory;
+    private PasswordHasher passwordHasher;
+    private DatabaseExecutor database;
+    private Jsonb jsonb;
+    private UserResource resource;
+    private String newUserJson;
+    private JsonObject patch;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.quietLogging();
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        passwordHasher = new PasswordHasher(iterations, Runtime.getRuntime().availableProcessors(), 256);
+        passwordHasher.start();
+        database = new DatabaseExecutor(20, 1000, true);
+        database.start();
+        jsonb = JsonbBuilder.create();
+
+        resource = new UserResource();
+        BenchmarkSupport.inject(resource, "userService", new StubUserService());
+        BenchmarkSupport.inject(resource, "validator", new UserValidator(validatorFactory.getValidator()));
+        BenchmarkSupport.inject(resource, "passwordHasher", passwordHasher);
+        BenchmarkSupport.inject(resource, "database", database);
+        BenchmarkSupport.inject(resource, "metrics", new Metrics());
+        // the GET requests read from the (stubbed) database, not from the read model
+        BenchmarkSupport.inject(resource, "readModel", new UserReadModel(false));
+        BenchmarkSupport.inject(resource, "singleFlight", new SingleFlight(true, 5000));
+        BenchmarkSupport.inject(resource, "groupCommit", new GroupCommit(false, 2, 100, 10000));
+        BenchmarkSupport.inject(resource, "httpHeaders", Proxy.newProxyInstance(HttpHeaders.class.getClassLoader(),
+                new Class<?>[]{HttpHeaders.class}, (proxy, method, arguments) ->
+                        method.getName().equals("getAcceptableMediaTypes") ? List.of(MediaType.APPLICATION_JSON_TYPE) : null));
+
+        newUserJson = jsonb.toJson(BenchmarkSupport.newUser(1));
+        patch = Json.createObjectBuilder().add("firstname", "Maria").build();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        database.stop();
+        passwordHasher.stop();
+        validatorFactory.close();
+        jsonb.close();
+    }
+
+    @Benchmark
+    public String getUser() {
+        BenchmarkSupport.CapturedResponse response = new BenchmarkSupport.CapturedResponse();
+        resource.getUserById(1L, null, null, response);
+        return write(response);
+    }
+
+    @Benchmark
+    public String getUserNotModified() {
+        BenchmarkSupport.CapturedResponse response = new BenchmarkSupport.CapturedResponse();
+        resource.getUserById(1L, null, "\"3\"", response);
+        return write(response);
+    }
+
+    @Benchmark
+    public String addUser() {
+        BenchmarkSupport.CapturedResponse response = new BenchmarkSupport.CapturedResponse();
+        resource.addUser(jsonb.fromJson(newUserJson, User.class), response);
+        return write(response);
+    }
+
+    @Benchmark
+    public String patchUser() {
+        BenchmarkSupport.CapturedResponse response = new BenchmarkSupport.CapturedResponse();
+        resource.patchUser(1L, patch, "\"3\"", response);
+        return write(response);
+    }
+
+    /**
+     * Waits for the response and writes its entity as JSON, like the container does.
+     */
+    private String write(BenchmarkSupport.CapturedResponse captured) {
+        Object result = captured.await();
+        if (!(result instanceof Response)) {
+            throw new IllegalStateException("Request failed: " + result);
+        }
+        Response response = (Response) result;
+        Object entity = response.getEntity();
+        if (entity instanceof byte[]) {
+            // already serialized by the resource
+            return new String((byte[]) entity, StandardCharsets.UTF_8);
+        }
+        return entity == null || entity instanceof String ? String.valueOf(response.getStatus()) : jsonb.toJson(entity);
+    }
+
+    /**
+     * A UserService answering from memory.
+     */
+    private static final class StubUserService extends UserService {
+        private final User user;
+
+        private StubUserService() {
+            user = BenchmarkSupport.newUser(1);
+            user.setId(1L);
+            user.setVersion(3L);
+            user.setPassword(null);
+        }
+
+        @Override
+        public User find(Long id) {
+            return copy();
+        }
+
+        @Override
+        public Long findVersion(Long id) {
+            return user.getVersion();
+        }
+
+        @Override
+        public User findByEmail(String email) {
+            return null;
+        }
+
+        @Override
+        public User create(User newUser) {
+            newUser.setId(2L);
+            newUser.setVersion(0L);
+            return newUser;
+        }
+
+        @Override
+        public boolean patch(Long id, Map<String, Object> changes, Long expectedVersion) {
+            return true;
+        }
+
+        private User copy() {
+            User copy = new User();
+            copy.setId(user.getId());
+            copy.setFirstname(user.getFirstname());
+            copy.setLastname(user.getLastname());
+            copy.setEmail(user.getEmail());
+            copy.setBirthday(user.getBirthday());
+            copy.setVersion(user.getVersion());
+            return copy;
+        }
+    }
+}
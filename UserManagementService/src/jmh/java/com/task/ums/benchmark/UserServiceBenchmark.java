@@ -0,0 +1,126 @@
+package com.task.ums.benchmark;
+
+import com.task.ums.models.User;
+import com.task.ums.services.UserCache;
+import com.task.ums.services.UserPartitions;
+import com.task.ums.services.UserService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Benchmarks the CRUD operations of the UserService against an embedded H2 database, configured like
+ * the persistence unit of the application (persistence.xml) but with local transactions. Every
+ * operation runs in its own transaction, like a request calling the stateless session bean.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserServiceBenchmark {
+
+    /** Number of users in the database before the benchmark. */
+    @Param({"10000"})
+    public int users;
+
+    /** Maximum number of cached users, 0 disables the cache. */
+    @Param({"0", "10000"})
+    public int cacheSize;
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private UserService userService;
+    private long[] ids;
+    private int next;
+    private long created;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.quietLogging();
+        emf = BenchmarkSupport.createEntityManagerFactory();
+        em = emf.createEntityManager();
+        userService = new UserService();
+        BenchmarkSupport.inject(userService, "em", em);
+        BenchmarkSupport.inject(userService, "cache", new UserCache(cacheSize, 0, System::nanoTime));
+        BenchmarkSupport.inject(userService, "events", new BenchmarkSupport.NoEvents());
+        BenchmarkSupport.inject(userService, "partitions", new UserPartitions(0, null, null, 0));
+
+        List<User> newUsers = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            newUsers.add(BenchmarkSupport.newUser(i));
+        }
+        List<User> createdUsers = inTransaction(() -> userService.createAll(newUsers, 50));
+        ids = createdUsers.stream().mapToLong(User::getId).toArray();
+        created = users;
+    }
+
+    @TearDown
+    public void tearDown() {
+        em.close();
+        emf.close();
+    }
+
+    @Benchmark
+    public User find() {
+        return inTransaction(() -> userService.find(nextId()));
+    }
+
+    @Benchmark
+    public User findByEmail() {
+        return inTransaction(() -> userService.findByEmail("max.mustermann." + (next++ % users) + "@example.com"));
+    }
+
+    @Benchmark
+    public List<User> findPage() {
+        return inTransaction(() -> userService.findPage(nextId(), 100));
+    }
+
+    @Benchmark
+    public User create() {
+        return inTransaction(() -> userService.create(BenchmarkSupport.newUser(created++)));
+    }
+
+    @Benchmark
+    public User update() {
+        long id = nextId();
+        return inTransaction(() -> {
+            User changes = userService.find(id);
+            changes.setFirstname("Maria");
+            return userService.update(id, changes, null);
+        });
+    }
+
+    @Benchmark
+    public boolean patch() {
+        return inTransaction(() -> userService.patch(nextId(), Map.of("firstname", "Maria"), null));
+    }
+
+    @Benchmark
+    public boolean createAndDelete() {
+        User user = inTransaction(() -> userService.create(BenchmarkSupport.newUser(created++)));
+        return inTransaction(() -> userService.delete(user.getId()));
+    }
+
+    private long nextId() {
+        return ids[next++ % ids.length];
+    }
+
+    private <T> T inTransaction(Supplier<T> operation) {
+        em.getTransaction().begin();
+        try {
+            T result = operation.get();
+            em.getTransaction().commit();
+            return result;
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.clear();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.task.ums.benchmark;
+
+import com.task.ums.models.User;
+import com.task.ums.services.UserValidator;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Benchmarks the validation of users as done by the UserResource for every POST and PUT:
+ * the generic Bean Validation against the specialized {@link UserValidator}, including the
+ * joining of the messages into the error text.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ValidationBenchmark {
+
+    private ValidatorFactory factory;
+    private Validator validator;
+    private UserValidator userValidator;
+    private User validUser;
+    private User invalidUser;
+
+    @Setup
+    public void setup() {
+        factory = Validation.buildDefaultValidatorFactory();
+        validator = factory.getValidator();
+        userValidator = new UserValidator(validator);
+        validUser = BenchmarkSupport.newUser(1);
+        invalidUser = BenchmarkSupport.newUser(2);
+        invalidUser.setEmail("max.mustermann");
+        invalidUser.setPassword("123");
+    }
+
+    @TearDown
+    public void tearDown() {
+        factory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<User>> validateValidUser() {
+        return validator.validate(validUser);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<User>> validateInvalidUser() {
+        return validator.validate(invalidUser);
+    }
+
+    @Benchmark
+    public String validateInvalidUserMessages() {
+        return validator.validate(invalidUser).stream().map(ConstraintViolation::getMessage).collect(Collectors.joining());
+    }
+
+    @Benchmark
+    public List<String> fastValidateValidUser() {
+        return userValidator.validate(validUser);
+    }
+
+    @Benchmark
+    public List<String> fastValidateInvalidUser() {
+        return userValidator.validate(invalidUser);
+    }
+
+    @Benchmark
+    public String fastValidateInvalidUserMessages() {
+        return String.join("", userValidator.validate(invalidUser));
+    }
+}
@@ -0,0 +1,188 @@
+package com.task.ums;
+
+import com.task.ums.admission.AdmissionControl;
+import com.task.ums.models.AdmissionStatistics;
+import com.task.ums.models.CacheStatistics;
+import com.task.ums.models.DatabaseExecutorStatistics;
+import com.task.ums.models.GroupCommitStatistics;
+import com.task.ums.models.ImportProgress;
+import com.task.ums.models.PartitionStatistics;
+import com.task.ums.models.PasswordHasherStatistics;
+import com.task.ums.models.ReadModelStatistics;
+import com.task.ums.models.SearchIndexStatistics;
+import com.task.ums.models.SingleFlightStatistics;
+import com.task.ums.services.DatabaseExecutor;
+import com.task.ums.services.GroupCommit;
+import com.task.ums.services.PasswordHasher;
+import com.task.ums.services.SingleFlight;
+import com.task.ums.services.UserCache;
+import com.task.ums.services.UserImportExport;
+import com.task.ums.services.UserPartitions;
+import com.task.ums.services.UserReadModel;
+import com.task.ums.services.UserSearchIndex;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+import java.util.List;
+
+/**
+ * REST API resource for runtime diagnostics of the User Management Service.
+ *
+ * @see UserCache
+ * @see UserSearchIndex
+ * @see UserReadModel
+ * @see PasswordHasher
+ * @see DatabaseExecutor
+ * @see SingleFlight
+ * @see GroupCommit
+ * @see UserPartitions
+ * @see UserImportExport
+ * @see AdmissionControl
+ */
+@Path("/diagnostics")
+@Produces(MediaType.APPLICATION_JSON)
+public class DiagnosticsResource {
+
+    @Inject
+    private UserCache userCache;
+
+    @Inject
+    private UserSearchIndex searchIndex;
+
+    @Inject
+    private UserReadModel readModel;
+
+    @Inject
+    private PasswordHasher passwordHasher;
+
+    @Inject
+    private DatabaseExecutor databaseExecutor;
+
+    @Inject
+    private SingleFlight singleFlight;
+
+    @Inject
+    private GroupCommit groupCommit;
+
+    @Inject
+    private UserPartitions partitions;
+
+    @Inject
+    private UserImportExport importExport;
+
+    @Inject
+    private AdmissionControl admissionControl;
+
+    /**
+     * Retrieves the hit, miss and eviction counters of the user cache.
+     *
+     * @return the cache statistics.
+     */
+    @GET
+    @Path("/cache")
+    public CacheStatistics getCacheStatistics() {
+        return userCache.getStatistics();
+    }
+
+    /**
+     * Retrieves the size and the estimated memory footprint of the user search index.
+     *
+     * @return the search index statistics.
+     */
+    @GET
+    @Path("/search-index")
+    public SearchIndexStatistics getSearchIndexStatistics() {
+        return searchIndex.getStatistics();
+    }
+
+    /**
+     * Retrieves the size and the estimated memory footprint of the user read model.
+     *
+     * @return the read model statistics.
+     */
+    @GET
+    @Path("/read-model")
+    public ReadModelStatistics getReadModelStatistics() {
+        return readModel.getStatistics();
+    }
+
+    /**
+     * Retrieves the queue depth, throughput and latency of the password hashing pool.
+     *
+     * @return the password hasher statistics.
+     */
+    @GET
+    @Path("/password-hasher")
+    public PasswordHasherStatistics getPasswordHasherStatistics() {
+        return passwordHasher.getStatistics();
+    }
+
+    /**
+     * Retrieves the concurrency and waiting times of the executor running the database work of requests.
+     *
+     * @return the database executor statistics.
+     */
+    @GET
+    @Path("/database")
+    public DatabaseExecutorStatistics getDatabaseExecutorStatistics() {
+        return databaseExecutor.getStatistics();
+    }
+
+    /**
+     * Retrieves how many reads of users and pages were coalesced with a load already in flight.
+     *
+     * @return the single flight statistics.
+     */
+    @GET
+    @Path("/single-flight")
+    public SingleFlightStatistics getSingleFlightStatistics() {
+        return singleFlight.getStatistics();
+    }
+
+    /**
+     * Retrieves the queue depth, group sizes and waiting times of the writes committed together.
+     *
+     * @return the group commit statistics.
+     */
+    @GET
+    @Path("/group-commit")
+    public GroupCommitStatistics getGroupCommitStatistics() {
+        return groupCommit.getStatistics();
+    }
+
+    /**
+     * Retrieves the number of users per partition and the reads merged from all partitions.
+     *
+     * @return the partition statistics.
+     */
+    @GET
+    @Path("/partitions")
+    public PartitionStatistics getPartitionStatistics() {
+        return partitions.getStatistics();
+    }
+
+    /**
+     * Retrieves the progress of the running user imports.
+     *
+     * @return the progress of every running import.
+     */
+    @GET
+    @Path("/imports")
+    public List<ImportProgress> getImportProgress() {
+        return importExport.getProgress();
+    }
+
+    /**
+     * Retrieves the adaptive concurrency limit, the requests in flight and the requests rejected by the admission control.
+     *
+     * @return the admission statistics.
+     */
+    @GET
+    @Path("/admission")
+    public AdmissionStatistics getAdmissionStatistics() {
+        return admissionControl.getStatistics();
+    }
+}
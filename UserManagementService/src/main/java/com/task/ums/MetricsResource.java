@@ -0,0 +1,243 @@
+package com.task.ums;
+
+import com.task.ums.admission.AdmissionControl;
+import com.task.ums.admission.EndpointAdmission;
+import com.task.ums.metrics.EndpointMetrics;
+import com.task.ums.metrics.LatencyHistogram;
+import com.task.ums.metrics.Metrics;
+import com.task.ums.metrics.OperationMetrics;
+import com.task.ums.models.CacheStatistics;
+import com.task.ums.models.DatabaseExecutorStatistics;
+import com.task.ums.models.GroupCommitStatistics;
+import com.task.ums.models.PasswordHasherStatistics;
+import com.task.ums.models.ReadModelStatistics;
+import com.task.ums.models.SearchIndexStatistics;
+import com.task.ums.models.SingleFlightStatistics;
+import com.task.ums.services.DatabaseExecutor;
+import com.task.ums.services.GroupCommit;
+import com.task.ums.services.PasswordHasher;
+import com.task.ums.services.SingleFlight;
+import com.task.ums.services.UserCache;
+import com.task.ums.services.UserReadModel;
+import com.task.ums.services.UserSearchIndex;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+
+import java.util.Map;
+
+/**
+ * REST API resource exposing the metrics of the User Management Service in the Prometheus text format.
+ * <p>
+ * Latencies are exported as summaries with the quantiles 0.5, 0.99 and 0.999 (in seconds),
+ * the responses of every endpoint are counted per status code.
+ * </p>
+ *
+ * @see Metrics
+ */
+@Path("/metrics")
+@Produces(MetricsResource.PROMETHEUS_TEXT)
+public class MetricsResource {
+
+    /** Media type of the Prometheus text format. */
+    public static final String PROMETHEUS_TEXT = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+
+    @Inject
+    private Metrics metrics;
+
+    @Inject
+    private AdmissionControl admissionControl;
+
+    @Inject
+    private UserCache userCache;
+
+    @Inject
+    private UserSearchIndex searchIndex;
+
+    @Inject
+    private UserReadModel readModel;
+
+    @Inject
+    private PasswordHasher passwordHasher;
+
+    @Inject
+    private DatabaseExecutor databaseExecutor;
+
+    @Inject
+    private SingleFlight singleFlight;
+
+    @Inject
+    private GroupCommit groupCommit;
+
+    /**
+     * Retrieves all metrics.
+     *
+     * @return the metrics in the Prometheus text format.
+     */
+    @GET
+    public String getMetrics() {
+        StringBuilder out = new StringBuilder(8192);
+        writeEndpoints(out);
+        writeServices(out);
+        writeAdmission(out);
+
+        OperationMetrics validation = metrics.validation();
+        header(out, "ums_validation_duration_seconds", "summary", "Time spent validating users.");
+        summary(out, "ums_validation_duration_seconds", "", validation.getLatency().snapshot());
+        header(out, "ums_validation_failures_total", "counter", "Number of validations that found violations.");
+        sample(out, "ums_validation_failures_total", "", validation.getFailures());
+
+        CacheStatistics cache = userCache.getStatistics();
+        gauge(out, "ums_cache_size", "Number of cached users.", cache.getSize());
+        counter(out, "ums_cache_hits_total", "Number of lookups served from the cache.", cache.getHits());
+        counter(out, "ums_cache_misses_total", "Number of lookups loading the user.", cache.getMisses());
+        counter(out, "ums_cache_evictions_total", "Number of users evicted from the cache.", cache.getEvictions());
+
+        SearchIndexStatistics index = searchIndex.getStatistics();
+        gauge(out, "ums_search_index_users", "Number of users in the search index.", index.getUsers());
+        gauge(out, "ums_search_index_terms", "Number of terms in the search index.", index.getTerms());
+
+        ReadModelStatistics model = readModel.getStatistics();
+        gauge(out, "ums_read_model_users", "Number of users in the read model.", model.getUsers());
+        gauge(out, "ums_read_model_bytes", "Estimated heap used by the read model in bytes.", model.getEstimatedBytes());
+
+        PasswordHasherStatistics hasher = passwordHasher.getStatistics();
+        gauge(out, "ums_password_hasher_queue_depth", "Number of waiting password hashing tasks.", hasher.getQueueDepth());
+        counter(out, "ums_password_hasher_completed_total", "Number of finished password hashing tasks.", hasher.getCompleted());
+        counter(out, "ums_password_hasher_rejected_total", "Number of rejected password hashing tasks.", hasher.getRejected());
+
+        DatabaseExecutorStatistics database = databaseExecutor.getStatistics();
+        gauge(out, "ums_database_active", "Number of tasks accessing the database.", database.getActive());
+        gauge(out, "ums_database_waiting", "Number of tasks waiting for access to the database.", database.getWaiting());
+        counter(out, "ums_database_rejected_total", "Number of tasks rejected while waiting for the database.", database.getRejected());
+
+        SingleFlightStatistics flights = singleFlight.getStatistics();
+        counter(out, "ums_single_flight_calls_total", "Number of reads of users and pages that may be coalesced.", flights.getCalls());
+        counter(out, "ums_single_flight_loads_total", "Number of those reads that loaded from the database.", flights.getLoads());
+        counter(out, "ums_single_flight_coalesced_total", "Number of those reads that shared a load in flight.", flights.getCoalesced());
+        counter(out, "ums_single_flight_failures_total", "Number of failed shared loads.", flights.getFailures());
+        counter(out, "ums_single_flight_timeouts_total", "Number of reads that gave up waiting for a shared load.", flights.getTimeouts());
+
+        writeGroupCommit(out);
+        return out.toString();
+    }
+
+    private void writeGroupCommit(StringBuilder out) {
+        GroupCommitStatistics statistics = groupCommit.getStatistics();
+        gauge(out, "ums_group_commit_queue_depth", "Number of writes waiting for their group.", statistics.getQueueDepth());
+        counter(out, "ums_group_commit_fallbacks_total", "Number of failed groups whose writes were applied one by one.", statistics.getFallbacks());
+        counter(out, "ums_group_commit_rejected_total", "Number of writes rejected because the queue was full.", statistics.getRejected());
+
+        header(out, "ums_group_commit_batch_size", "histogram", "Number of writes committed per transaction.");
+        int[] bounds = groupCommit.getBatchSizeBounds();
+        long[] counts = groupCommit.getBatchSizeCounts();
+        long cumulative = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            cumulative += counts[i];
+            sample(out, "ums_group_commit_batch_size_bucket", "le=\"" + bounds[i] + "\"", cumulative);
+        }
+        sample(out, "ums_group_commit_batch_size_bucket", "le=\"+Inf\"", cumulative);
+        sample(out, "ums_group_commit_batch_size_sum", "", statistics.getWrites());
+        sample(out, "ums_group_commit_batch_size_count", "", statistics.getGroups());
+
+        header(out, "ums_group_commit_queue_wait_seconds", "summary", "Time a write waited until the transaction of its group started.");
+        summary(out, "ums_group_commit_queue_wait_seconds", "", groupCommit.getQueueWait());
+    }
+
+    private void writeEndpoints(StringBuilder out) {
+        Map<String, EndpointMetrics> endpoints = metrics.getEndpoints();
+
+        header(out, "ums_http_requests_total", "counter", "Number of responses per endpoint and status code.");
+        for (EndpointMetrics endpoint : endpoints.values()) {
+            for (int status = 0; status <= EndpointMetrics.getMaxStatus(); status++) {
+                long responses = endpoint.getResponses(status);
+                if (responses > 0) {
+                    sample(out, "ums_http_requests_total", endpointLabels(endpoint) + ",status=\"" + status + "\"", responses);
+                }
+            }
+        }
+
+        header(out, "ums_http_request_duration_seconds", "summary", "Time from receiving a request to sending its response.");
+        for (EndpointMetrics endpoint : endpoints.values()) {
+            summary(out, "ums_http_request_duration_seconds", endpointLabels(endpoint), endpoint.getLatency().snapshot());
+        }
+    }
+
+    private void writeServices(StringBuilder out) {
+        Map<String, OperationMetrics> services = metrics.getServices();
+
+        header(out, "ums_service_duration_seconds", "summary", "Time spent in the UserService methods (JPA and cache).");
+        for (Map.Entry<String, OperationMetrics> service : services.entrySet()) {
+            summary(out, "ums_service_duration_seconds", "method=\"" + service.getKey() + "\"", service.getValue().getLatency().snapshot());
+        }
+
+        header(out, "ums_service_errors_total", "counter", "Number of UserService calls that threw an exception.");
+        for (Map.Entry<String, OperationMetrics> service : services.entrySet()) {
+            sample(out, "ums_service_errors_total", "method=\"" + service.getKey() + "\"", service.getValue().getFailures());
+        }
+    }
+
+    private void writeAdmission(StringBuilder out) {
+        gauge(out, "ums_admission_concurrency_limit", "Current limit of concurrently processed requests.",
+                admissionControl.getConcurrencyLimit().getLimit());
+        gauge(out, "ums_admission_in_flight", "Number of requests processed under the concurrency limit.",
+                admissionControl.getConcurrencyLimit().getInFlight());
+
+        Map<String, EndpointAdmission> endpoints = admissionControl.getEndpoints();
+        header(out, "ums_admission_rejected_total", "counter", "Number of requests rejected with 429 per endpoint and reason.");
+        for (EndpointAdmission endpoint : endpoints.values()) {
+            String labels = "method=\"" + endpoint.getMethod() + "\",endpoint=\"" + endpoint.getPath() + "\"";
+            sample(out, "ums_admission_rejected_total", labels + ",reason=\"rate\"", endpoint.getRateRejected());
+            sample(out, "ums_admission_rejected_total", labels + ",reason=\"concurrency\"", endpoint.getConcurrencyRejected());
+        }
+
+        header(out, "ums_admission_clients", "gauge", "Number of clients with a token bucket per endpoint.");
+        for (EndpointAdmission endpoint : endpoints.values()) {
+            sample(out, "ums_admission_clients", "method=\"" + endpoint.getMethod() + "\",endpoint=\"" + endpoint.getPath() + "\"",
+                    endpoint.getBuckets().getClients());
+        }
+    }
+
+    private static String endpointLabels(EndpointMetrics endpoint) {
+        return "method=\"" + endpoint.getMethod() + "\",endpoint=\"" + endpoint.getPath() + "\"";
+    }
+
+    private static void summary(StringBuilder out, String name, String labels, LatencyHistogram.Snapshot snapshot) {
+        String separator = labels.isEmpty() ? "" : ",";
+        for (double quantile : QUANTILES) {
+            sample(out, name, labels + separator + "quantile=\"" + quantile + "\"", seconds(snapshot.getValueAtQuantile(quantile)));
+        }
+        sample(out, name + "_sum", labels, seconds(snapshot.getSumNanos()));
+        sample(out, name + "_count", labels, snapshot.getCount());
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, long value) {
+        header(out, name, "gauge", help);
+        sample(out, name, "", value);
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        header(out, name, "counter", help);
+        sample(out, name, "", value);
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, Object value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+}
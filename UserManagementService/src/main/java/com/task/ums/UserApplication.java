@@ -8,9 +8,13 @@ import jakarta.ws.rs.core.Application;
  * to define the base URI for all JAX-RS web services in this application.
  * <p>
  * The web service in this project is the {@link UserResource} that is accessible under the path "/api/users".
+ * Runtime diagnostics are provided by the {@link DiagnosticsResource} under the path "/api/diagnostics",
+ * metrics in the Prometheus text format by the {@link MetricsResource} under the path "/api/metrics".
  * </p>
  *
  * @see UserResource
+ * @see DiagnosticsResource
+ * @see MetricsResource
  * @see Application
  */
 @ApplicationPath("/api")
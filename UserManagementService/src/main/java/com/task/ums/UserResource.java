@@ -1,107 +1,877 @@
 package com.task.ums;
 
+import com.task.ums.admission.RateLimit;
+import com.task.ums.admission.UnhandledExceptionMapper;
+import com.task.ums.encoding.CborWriter;
+import com.task.ums.encoding.UserCbor;
+import com.task.ums.metrics.Metrics;
+import com.task.ums.models.BatchItemResult;
+import com.task.ums.models.BatchResult;
+import com.task.ums.models.ChangeFeedEntry;
+import com.task.ums.models.ChangeFeedPage;
+import com.task.ums.models.DeleteResult;
+import com.task.ums.models.ImportResult;
+import com.task.ums.models.PartialUser;
 import com.task.ums.models.User;
+import com.task.ums.models.UserView;
+import com.task.ums.services.ChangeFeed;
+import com.task.ums.services.DatabaseExecutor;
+import com.task.ums.services.EmailConflictException;
+import com.task.ums.services.GroupCommit;
+import com.task.ums.services.PasswordHasher;
+import com.task.ums.services.SingleFlight;
+import com.task.ums.services.UserChangeLog;
+import com.task.ums.services.UserFields;
+import com.task.ums.services.UserImportExport;
+import com.task.ums.services.UserReadModel;
+import com.task.ums.services.UserSearchIndex;
+import com.task.ums.services.UserStatisticsTracker;
 import com.task.ums.services.UserService;
+import com.task.ums.services.UserValidator;
+import com.task.ums.services.VersionConflictException;
 import jakarta.inject.Inject;
-import jakarta.transaction.Transactional;
-import jakarta.validation.ConstraintViolation;
-import jakarta.validation.Validator;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
 import jakarta.ws.rs.*;
-import jakarta.ws.rs.core.MediaType;
-import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.Suspended;
+import jakarta.ws.rs.core.*;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 /**
  * REST API resource for managing users.
  * This class handles the CRUD operations for the User entity.
+ * <p>
+ * The endpoints accessing the database complete asynchronously: the blocking work runs on the
+ * {@link DatabaseExecutor}, so the worker threads of the server are not held while waiting for the database.
+ * The GET requests for users are answered from the in-memory {@link UserReadModel} if it is enabled; otherwise
+ * concurrent requests for the same user or page share one database load and one serialized body ({@link SingleFlight}).
+ * If enabled, concurrent creates and updates of single users are committed together ({@link GroupCommit}).
+ * </p>
+ * <p>
+ * All endpoints are under admission control ({@link RateLimit}): a client exceeding its rate, or any client while the
+ * service is at its concurrency limit, gets "429 Too Many Requests" with a Retry-After header. Unexpected failures
+ * are answered by the {@link UnhandledExceptionMapper}, so the response filters release the slot of the request.
+ * </p>
+ * <p>
+ * Users and lists of users are read and written as JSON or, if the client asks for it with "Accept" and
+ * "Content-Type", as CBOR ({@link UserCbor}); responses are compressed as negotiated with "Accept-Encoding".
+ * </p>
  *
  * @see User
  * @see UserService
+ * @see UserSearchIndex
+ * @see PasswordHasher
+ * @see DatabaseExecutor
+ * @see UserImportExport
+ * @see UserReadModel
+ * @see UserStatisticsTracker
+ * @see SingleFlight
+ * @see GroupCommit
  */
 @Path("/users")
 @Consumes(MediaType.APPLICATION_JSON)
 @Produces(MediaType.APPLICATION_JSON)
+@RateLimit
 public class UserResource {
 
+    /** Name of the response header that carries the cursor for the next page. */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /** Number of users per page if only a cursor is given. */
+    static final int DEFAULT_PAGE_SIZE = 100;
+
+    /** Maximum number of users per page. */
+    static final int MAX_PAGE_SIZE = 1000;
+
+    /** Number of users kept in the persistence context while streaming all users. */
+    static final int STREAM_CHUNK_SIZE = 500;
+
+    /** Media type of a JSON Merge Patch (RFC 7396). */
+    public static final String MERGE_PATCH_JSON = "application/merge-patch+json";
+
+    /** Media type of newline-delimited JSON, used by the export and import. */
+    public static final String NDJSON = "application/x-ndjson";
+
+    /** Maximum number of users in a batch request. */
+    static final int MAX_BATCH_SIZE = 10000;
+
+    /** Fields of a user that can be changed with PATCH. */
+    static final Set<String> PATCHABLE_FIELDS = Set.of("firstname", "lastname", "email", "birthday", "password");
+
+    /** Maximum time in seconds an asynchronous request may take. */
+    static final long ASYNC_TIMEOUT_SECONDS = 30;
+
+    /** Maximum number of hits of a name search. */
+    static final int MAX_SEARCH_HITS = 50;
+
+    /** Maximum number of users in a bulk delete request. */
+    static final int MAX_DELETE_SIZE = 1000;
+
+    /** Number of users inserted together within a batch request (system property "ums.batch.chunkSize"). */
+    static final int BATCH_CHUNK_SIZE = Integer.getInteger("ums.batch.chunkSize", 50);
+
+    private static final Jsonb JSONB = JsonbBuilder.create();
+
     private final Logger logger = Logger.getLogger(MethodHandles.lookup().lookupClass().getName());
 
     @Inject
     private UserService userService;
 
     @Inject
-    private Validator validator;
+    private UserSearchIndex searchIndex;
+
+    @Inject
+    private UserValidator validator;
+
+    @Inject
+    private PasswordHasher passwordHasher;
+
+    @Inject
+    private DatabaseExecutor database;
+
+    @Inject
+    private Metrics metrics;
+
+    @Inject
+    private UserChangeLog changeLog;
+
+    @Inject
+    private ChangeFeed changeFeed;
+
+    @Inject
+    private UserImportExport importExport;
+
+    @Inject
+    private UserReadModel readModel;
+
+    @Inject
+    private UserStatisticsTracker statistics;
+
+    @Inject
+    private SingleFlight singleFlight;
+
+    @Inject
+    private GroupCommit groupCommit;
+
+    @Context
+    private UriInfo uriInfo;
+
+    @Context
+    private HttpHeaders httpHeaders;
 
     /**
-     * Retrieves a list of all users.
+     * Retrieves the users.
+     * <p>
+     * Without query parameters all users are streamed as one JSON array, chunk by chunk,
+     * so the whole table is never held in memory. With {@code limit} and/or {@code after}
+     * one page of users ordered by ID is returned. If there are more users, the ID to pass as
+     * {@code after} for the next page is sent in the {@value #NEXT_CURSOR_HEADER} header and as "next" link.
+     * </p>
+     *
+     * With {@code email} only the user with this email address is returned (as list with one or no user),
+     * which is looked up by the unique index on the email column.
      *
-     * @return a list of User objects.
+     * With {@code fields} only the given fields of the users are selected and returned (sparse fieldset),
+     * e.g. {@code ?fields=id,firstname,lastname}.
+     *
+     * The users are written as JSON or CBOR, as requested by the Accept header.
+     *
+     * @param limit the maximum number of users per page (1-1000, default 100).
+     * @param after the ID of the last user of the previous page.
+     * @param email the email address of the user to find (case-insensitive).
+     * @param fields the comma separated fields to return, see {@link UserFields#SELECTABLE}; all fields if absent.
+     * @return a Response containing the users or a BAD_REQUEST status if the limit or the fields are invalid.
      */
     @GET
-    public List<User> listAllUsers() {
-        logger.info("GET users/: Getting all users");
-        return userService.findAll();
+    @Produces({MediaType.APPLICATION_JSON, UserCbor.MEDIA_TYPE})
+    public void listAllUsers(@QueryParam("limit") Integer limit, @QueryParam("after") Long after,
+                             @QueryParam("email") String email, @QueryParam("fields") String fields,
+                             @Suspended AsyncResponse asyncResponse) {
+        UserFields projection;
+        try {
+            projection = UserFields.parse(fields);
+        } catch (IllegalArgumentException e) {
+            logger.info("Fields are invalid.");
+            asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+                    .entity(e.getMessage())
+                    .build());
+            return;
+        }
+
+        if (email != null) {
+            logger.info("GET users/: Getting user by email");
+            if (readModel.isEnabled()) {
+                UserView user = readModel.findByEmail(email);
+                asyncResponse.resume(Response
+                        .ok(user == null ? List.of() : List.of(projection == null ? user : projection.toPartialUser(user)))
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                        .build());
+                return;
+            }
+            resume(asyncResponse, database.supply(() -> {
+                Object user = projection == null ? userService.findByEmail(email) : userService.findByEmail(email, projection);
+                return Response
+                        .ok(user == null ? List.of() : List.of(user))
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                        .build();
+            }));
+            return;
+        }
+
+        if (limit == null && after == null) {
+            logger.info("GET users/: Streaming all users");
+            // the response is written by the thread resuming it, so the export doesn't block a worker thread
+            boolean cbor = prefersCbor();
+            StreamingOutput body = output -> {
+                if (cbor) {
+                    writeAllUsersCbor(output, projection);
+                } else {
+                    writeAllUsers(output, projection);
+                }
+            };
+            resume(asyncResponse, database.offloadRequest(() -> Response
+                    .ok(body, cbor ? UserCbor.MEDIA_TYPE : MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                    .build()));
+            return;
+        }
+
+        logger.info("GET users/: Getting page of users after " + after);
+
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            logger.info("Page size is invalid.");
+            asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+                    .entity("The limit must be between 1 and " + MAX_PAGE_SIZE + ".")
+                    .build());
+            return;
+        }
+
+        // the request URI is only available on the request thread
+        UriBuilder nextPage = uriInfo.getRequestUriBuilder();
+        if (readModel.isEnabled()) {
+            List<UserView> users = readModel.page(after, pageSize + 1);
+            asyncResponse.resume(projection == null
+                    ? page(users, pageSize, UserView::getId, nextPage)
+                    : page(users.stream().map(projection::toPartialUser).collect(Collectors.toList()), pageSize, PartialUser::getId, nextPage));
+            return;
+        }
+        // concurrent requests for the same page share one query and one serialized body
+        boolean cbor = prefersCbor();
+        List<Object> key = SingleFlight.pageKey(after == null ? 0L : after, pageSize, projection == null ? "" : projection.getSelect(), cbor);
+        resume(asyncResponse, singleFlight.execute(key, () -> database.supply(() -> {
+            // fetch one more user to know whether there is a next page
+            if (projection == null) {
+                return pageBody(userService.findPage(after, pageSize + 1), pageSize, User::getId, cbor);
+            }
+            return pageBody(userService.findPage(after, pageSize + 1, projection), pageSize, PartialUser::getId, cbor);
+        }).thenApply(SharedBody::serialize)).thenApply(body -> page(body.getBytes(), body.getMediaType(), body.getTag(), pageSize, nextPage)));
+    }
+
+    /**
+     * Splits a page of users fetched with one user more than the page size into the users of the page
+     * and the cursor of the next page.
+     *
+     * @param users the users of the page and the first user of the next page, if any.
+     * @param pageSize the number of users per page.
+     * @param id returns the ID of a user.
+     * @param cbor whether the page is to be serialized as CBOR instead of JSON.
+     * @return the page to serialize, with the cursor of the next page as tag (null for the last page).
+     */
+    private static <T> SharedBody pageBody(List<T> users, int pageSize, Function<T, Long> id, boolean cbor) {
+        if (users.size() <= pageSize) {
+            return new SharedBody(users, null, cbor);
+        }
+        return new SharedBody(users.subList(0, pageSize), id.apply(users.get(pageSize - 1)), cbor);
+    }
+
+    /**
+     * Builds the response for a page of users fetched with one user more than the page size.
+     *
+     * @param users the users of the page and the first user of the next page, if any.
+     * @param pageSize the number of users per page.
+     * @param id returns the ID of a user.
+     * @param nextPage the URI of the request, used for the "next" link.
+     * @return the response with the users of the page and the cursor of the next page.
+     */
+    private static <T> Response page(List<T> users, int pageSize, Function<T, Long> id, UriBuilder nextPage) {
+        if (users.size() <= pageSize) {
+            return page(users, null, null, pageSize, nextPage);
+        }
+        return page(users.subList(0, pageSize), null, id.apply(users.get(pageSize - 1)), pageSize, nextPage);
+    }
+
+    /**
+     * Builds the response for a page of users.
+     *
+     * @param entity the users of the page, or their serialized form.
+     * @param mediaType the media type of a serialized entity, or null to negotiate it.
+     * @param nextCursor the ID of the last user of the page if there is a next page, else null.
+     * @param pageSize the number of users per page.
+     * @param nextPage the URI of the request, used for the "next" link.
+     * @return the response with the users of the page and the cursor of the next page.
+     */
+    private static Response page(Object entity, MediaType mediaType, Long nextCursor, int pageSize, UriBuilder nextPage) {
+        if (nextCursor == null) {
+            return Response
+                    .ok(entity, mediaType)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                    .build();
+        }
+
+        return Response
+                .ok(entity, mediaType)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .header(NEXT_CURSOR_HEADER, nextCursor)
+                .links(Link.fromUriBuilder(nextPage
+                                .replaceQueryParam("limit", pageSize)
+                                .replaceQueryParam("after", nextCursor))
+                        .rel("next")
+                        .build())
+                .build();
+    }
+
+    /**
+     * Writes all users as a JSON array to the given stream.
+     *
+     * @param output the response stream.
+     * @param projection the fields to write, or null for whole users.
+     * @throws IOException if the response can't be written.
+     */
+    private void writeAllUsers(OutputStream output, UserFields projection) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        writer.write('[');
+        forEachUser(projection, arrayElements(writer));
+        writer.write(']');
+        writer.flush();
+    }
+
+    /**
+     * Writes all users as a CBOR array of unknown length to the given stream.
+     *
+     * @param output the response stream.
+     * @param projection the fields to write, or null for whole users.
+     * @throws IOException if the response can't be written.
+     */
+    private void writeAllUsersCbor(OutputStream output, UserFields projection) throws IOException {
+        CborWriter writer = new CborWriter(output);
+        writer.writeArrayStart();
+        forEachUser(projection, user -> {
+            try {
+                UserCbor.write(writer, user);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.writeBreak();
+        writer.flush();
+    }
+
+    /**
+     * Passes all users ordered by ID to the action, from the read model if it is enabled, else from the database.
+     *
+     * @param projection the fields to pass, or null for whole users.
+     * @param action receives each user.
+     */
+    private void forEachUser(UserFields projection, Consumer<Object> action) {
+        if (readModel.isEnabled()) {
+            readModel.forEach(STREAM_CHUNK_SIZE, projection == null ? action::accept : user -> action.accept(projection.toPartialUser(user)));
+        } else if (projection == null) {
+            database.call(() -> userService.forEach(STREAM_CHUNK_SIZE, action::accept));
+        } else {
+            database.call(() -> userService.forEach(STREAM_CHUNK_SIZE, projection, action::accept));
+        }
+    }
+
+    /**
+     * Checks whether the client prefers CBOR to JSON, according to the Accept header of the request.
+     *
+     * @return true if the response is written as CBOR.
+     */
+    private boolean prefersCbor() {
+        // the acceptable media types are ordered by preference; a wildcard means JSON
+        for (MediaType acceptable : httpHeaders.getAcceptableMediaTypes()) {
+            if (acceptable.isCompatible(MediaType.APPLICATION_JSON_TYPE)) {
+                return false;
+            }
+            if (acceptable.isCompatible(MediaType.valueOf(UserCbor.MEDIA_TYPE))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns an action that writes each object it is given as element of a JSON array, separated by commas.
+     *
+     * @param writer the writer of the array.
+     * @return the action.
+     */
+    private static <T> Consumer<T> arrayElements(Writer writer) {
+        return new Consumer<>() {
+            private boolean first = true;
+
+            @Override
+            public void accept(T element) {
+                try {
+                    if (!first) {
+                        writer.write(',');
+                    }
+                    first = false;
+                    writer.write(JSONB.toJson(element));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Searches users by their first and last names (typeahead). The search is answered from the
+     * in-memory {@link UserSearchIndex}; every word of the query must be the beginning of a name.
+     *
+     * @param query the search text, e.g. "max mu".
+     * @param limit the maximum number of hits (1-50, default 10).
+     * @return a Response containing the best matching users or a BAD_REQUEST status if the parameters are invalid.
+     */
+    @GET
+    @Path("/search")
+    public Response searchUsers(@QueryParam("q") String query, @QueryParam("limit") @DefaultValue("10") int limit) {
+        logger.info("GET users/search: Searching users by name");
+
+        if (query == null || query.isBlank() || limit < 1 || limit > MAX_SEARCH_HITS) {
+            logger.info("Search parameters are invalid.");
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("A query and a limit between 1 and " + MAX_SEARCH_HITS + " are required.")
+                    .build();
+        }
+
+        return Response
+                .ok(searchIndex.search(query, limit))
+                .build();
+    }
+
+    /**
+     * Retrieves the statistics of all users for dashboards: the number of users, the signups per day,
+     * the users per decade of birth and the email domains with the most users. The statistics are maintained
+     * with every change by the {@link UserStatisticsTracker}, so the users aren't scanned.
+     *
+     * @param days the number of days of signups up to today (1-366, default 30).
+     * @param domains the number of email domains (1-32, default 10).
+     * @return a Response containing the statistics or a BAD_REQUEST status if the parameters are invalid.
+     */
+    @GET
+    @Path("/stats")
+    public Response getStatistics(@QueryParam("days") @DefaultValue("30") int days,
+                                  @QueryParam("domains") @DefaultValue("10") int domains) {
+        logger.info("GET users/stats: Getting user statistics");
+
+        try {
+            return Response
+                    .ok(statistics.getStatistics(days, domains))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            logger.info("Statistics parameters are invalid.");
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(e.getMessage())
+                    .build();
+        }
+    }
+
+    /**
+     * Recounts the statistics of all users from the database, to correct drift of the incrementally maintained counts.
+     *
+     * @param asyncResponse the suspended response, resumed with the rebuilt statistics (30 days, 10 domains).
+     */
+    @POST
+    @Path("/stats/rebuild")
+    @RateLimit(perSecond = 1.0 / 60, burst = 1, concurrencyLimited = false)
+    public void rebuildStatistics(@Suspended AsyncResponse asyncResponse) {
+        logger.info("POST users/stats/rebuild: Rebuilding user statistics");
+
+        // a rebuild scans all users, so it may take longer than a request
+        resume(asyncResponse, database.supply(() -> {
+            statistics.rebuild();
+            return Response
+                    .ok(statistics.getStatistics(30, 10))
+                    .build();
+        }), 0);
+    }
+
+    /**
+     * Retrieves the changes of users after a sequence number from the change log, for consumers mirroring the users.
+     * A consumer starts with {@code since=0}, which replays the compacted log, and continues with the
+     * "next" sequence number of each page. If changes it hasn't read were removed after their retention
+     * period, GONE is returned and the consumer has to start over with {@code since=0}.
+     *
+     * @param since the sequence number of the last change read (default 0).
+     * @param limit the maximum number of changes (1-1000, default 100).
+     * @param asyncResponse the suspended response, resumed with the page of changes, a BAD_REQUEST status
+     *                      if the parameters are invalid, or a GONE status if the consumer has to start over.
+     */
+    @GET
+    @Path("/changes")
+    public void getChanges(@QueryParam("since") @DefaultValue("0") long since, @QueryParam("limit") Integer limit,
+                           @Suspended AsyncResponse asyncResponse) {
+        logger.info("GET users/changes: Getting changes after " + since);
+
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (since < 0 || pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            logger.info("Change feed parameters are invalid.");
+            asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+                    .entity("The sequence number must not be negative and the limit must be between 1 and " + MAX_PAGE_SIZE + ".")
+                    .build());
+            return;
+        }
+        if (!changeLog.canResume(since)) {
+            asyncResponse.resume(changesGone(since));
+            return;
+        }
+
+        resume(asyncResponse, database.supply(() -> {
+            List<ChangeFeedEntry> changes = changeLog.read(since, pageSize);
+            long next = changes.isEmpty() ? since : changes.get(changes.size() - 1).getSeq();
+            return Response
+                    .ok(new ChangeFeedPage(changes, next, changes.size() == pageSize))
+                    .build();
+        }));
+    }
+
+    /**
+     * Subscribes to the changes of users as Server-Sent Events (event "change", the sequence number as event ID).
+     * The stream starts after the "Last-Event-ID" of a reconnecting client, else after {@code since},
+     * else with the next change.
+     *
+     * @param since the sequence number of the last change read, 0 to replay the compacted log.
+     * @param lastEventId the ID of the last event received before reconnecting.
+     * @param sink the event stream.
+     * @param sse the factory for events.
+     */
+    @GET
+    @Path("/changes/stream")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @RateLimit(perSecond = 1, burst = 5, concurrencyLimited = false)
+    public void streamChanges(@QueryParam("since") Long since, @HeaderParam(HttpHeaders.LAST_EVENT_ID_HEADER) String lastEventId,
+                              @Context SseEventSink sink, @Context Sse sse) {
+        logger.info("GET users/changes/stream: Subscribing to changes");
+
+        Long start = since;
+        if (lastEventId != null) {
+            try {
+                start = Long.parseLong(lastEventId.trim());
+            } catch (NumberFormatException e) {
+                throw new BadRequestException("The Last-Event-ID must be a sequence number.");
+            }
+        }
+        if (start != null && (start < 0 || !changeLog.canResume(start))) {
+            throw new WebApplicationException(changesGone(start));
+        }
+
+        long cursor = start != null ? start : database.call(changeLog::getHead);
+        changeFeed.subscribe(sink, sse, cursor);
+    }
+
+    /**
+     * Exports all users ordered by ID as newline-delimited JSON, one user per line. The password hashes are
+     * only included if enabled by the system property "ums.export.passwordHashes".
+     * The users are streamed from the database, so the export needs constant memory.
+     *
+     * @param asyncResponse the suspended response, resumed with the streamed users.
+     */
+    @GET
+    @Path("/export")
+    @Produces(NDJSON)
+    @RateLimit(perSecond = 1.0 / 60, burst = 2, concurrencyLimited = false)
+    public void exportUsers(@Suspended AsyncResponse asyncResponse) {
+        logger.info("GET users/export: Exporting all users");
+        // the response is written by the thread resuming it, so the export doesn't block a worker thread
+        StreamingOutput body = importExport::export;
+        resume(asyncResponse, database.offloadRequest(() -> Response
+                .ok(body, NDJSON)
+                .build()));
+    }
+
+    /**
+     * Imports users from newline-delimited JSON, one user per line, read incrementally from the request body
+     * or, with {@code file}, from a file in the import directory of the server. Each line holds a user with
+     * a "password" or with a "passwordHash" of an export. The users are inserted in batched transactions;
+     * invalid lines and lines with an email address in use are reported with their line number and skipped.
+     * The progress of running imports is available at /diagnostics/imports.
+     *
+     * @param file the name of the file to import, relative to the import directory; the request body if absent.
+     * @param body the request body.
+     * @param asyncResponse the suspended response, resumed with the {@link ImportResult}, a BAD_REQUEST status
+     *                      if the file is not allowed, or a NOT_FOUND status if the file doesn't exist.
+     */
+    @POST
+    @Path("/import")
+    @Consumes({NDJSON, MediaType.TEXT_PLAIN, MediaType.APPLICATION_OCTET_STREAM})
+    @RateLimit(perSecond = 1.0 / 60, burst = 2, concurrencyLimited = false)
+    public void importUsers(@QueryParam("file") String file, InputStream body, @Suspended AsyncResponse asyncResponse) {
+        logger.info("POST users/import: Importing users from " + (file != null ? file : "the request"));
+        // an import takes as long as it takes: no timeout
+        resume(asyncResponse, database.offloadRequest(() -> {
+            try {
+                ImportResult result = file != null ? importExport.importFile(file) : importExport.importStream(body);
+                return Response
+                        .ok(result)
+                        .build();
+            } catch (IllegalArgumentException e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(e.getMessage())
+                        .build();
+            } catch (NoSuchFileException e) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity("There is no file " + file + " in the import directory.")
+                        .build();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }), 0);
     }
 
     /**
      * Retrieves a user by their ID.
+     * <p>
+     * The response carries the version of the user as strong ETag, together with the selected fields and the
+     * media type, as these are different representations of the user ("Vary: Accept"). If the client sends
+     * this ETag in the If-None-Match header and the user wasn't changed, NOT_MODIFIED is
+     * returned without loading the user. With {@code fields} only the given fields of the user are selected.
+     * </p>
      *
      * @param id the ID of the user.
-     * @return a Response containing the User object or a NOT_FOUND status if the user does not exist.
+     * @param fields the comma separated fields to return, see {@link UserFields#SELECTABLE}; all fields if absent.
+     * @param ifNoneMatch the If-None-Match header of the request.
+     * @param asyncResponse the suspended response, resumed with the User object, a NOT_MODIFIED status
+     *                      if the user wasn't changed, a NOT_FOUND status if the user does not exist,
+     *                      or a BAD_REQUEST status if the fields are invalid.
      */
     @GET
     @Path("/{id}")
-    public Response getUserById(@PathParam("id") Long id) {
+    @Produces({MediaType.APPLICATION_JSON, UserCbor.MEDIA_TYPE})
+    public void getUserById(@PathParam("id") Long id, @QueryParam("fields") String fields,
+                            @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+                            @Suspended AsyncResponse asyncResponse) {
         logger.info("GET users/" + id + ": Getting user by id");
 
-        User user = userService.find(id);
+        UserFields projection;
+        try {
+            projection = UserFields.parse(fields);
+        } catch (IllegalArgumentException e) {
+            logger.info("Fields are invalid.");
+            asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+                    .entity(e.getMessage())
+                    .build());
+            return;
+        }
+
+        // the request headers are only available on the request thread
+        boolean cbor = prefersCbor();
+        if (readModel.isEnabled()) {
+            asyncResponse.resume(getUser(readModel.get(id), id, projection, cbor, ifNoneMatch));
+            return;
+        }
 
-        // user not found
-        if (user == null) {
+        if (ifNoneMatch == null) {
+            resume(asyncResponse, loadUser(id, projection, cbor).thenApply(body -> userResponse(body, id, projection, cbor)));
+            return;
+        }
+
+        // conditional request: compare the version only, load the user if it was modified
+        resume(asyncResponse, database.supply(() -> userService.findVersion(id)).thenCompose(version -> {
+            if (version == null) {
+                logger.info("User doesn't exist in database.");
+                return CompletableFuture.completedFuture(userNotFound(id));
+            }
+            EntityTag tag = entityTag(version, projection, cbor);
+            if (matchesAny(ifNoneMatch, tag)) {
+                logger.info("User hasn't been modified.");
+                return CompletableFuture.completedFuture(Response
+                        .notModified(tag)
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                        .build());
+            }
+            return loadUser(id, projection, cbor).thenApply(body -> userResponse(body, id, projection, cbor));
+        }));
+    }
+
+    /**
+     * Loads a user from the database and serializes it. Concurrent requests for the same user, fields and
+     * media type share one load and one serialized body ({@link SingleFlight}).
+     *
+     * @param id the ID of the user.
+     * @param projection the fields to return, or null for all fields.
+     * @param cbor whether to serialize the user as CBOR instead of JSON.
+     * @return the future serialized user, with its version as tag; without bytes if the user does not exist.
+     */
+    private CompletableFuture<SharedBody> loadUser(Long id, UserFields projection, boolean cbor) {
+        List<Object> key = SingleFlight.userKey(id, projection == null ? "" : projection.getSelect(), cbor);
+        return singleFlight.execute(key, () -> database.supply(() -> {
+            if (projection != null) {
+                PartialUser user = userService.find(id, projection);
+                return user == null ? null : new SharedBody(user, user.getVersion(), cbor);
+            }
+            User user = userService.find(id);
+            if (user != null) {
+                logger.info(user.toString());
+            }
+            return user == null ? null : new SharedBody(user, user.getVersion(), cbor);
+        }).thenApply(body -> body == null ? SharedBody.NOT_FOUND : body.serialize()));
+    }
+
+    /**
+     * Builds the response for a user loaded by {@link #loadUser(Long, UserFields, boolean)}.
+     *
+     * @param body the serialized user.
+     * @param id the requested ID.
+     * @param projection the returned fields, or null for all fields.
+     * @param cbor whether the user is serialized as CBOR.
+     * @return the Response with the user and its ETag, or NOT_FOUND.
+     */
+    private Response userResponse(SharedBody body, Long id, UserFields projection, boolean cbor) {
+        if (body.getBytes() == null) {
             logger.info("User doesn't exist in database.");
-            return Response.status(Response.Status.NOT_FOUND)
-                    .entity("There is no user with the ID " + id + ".")
-                    .build();
+            return userNotFound(id);
         }
+        return Response
+                .ok(body.getBytes(), body.getMediaType())
+                .tag(entityTag(body.getTag(), projection, cbor))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .build();
+    }
 
-        // user found
-        logger.info(user.toString());
+    /**
+     * Builds the response for a user of the read model.
+     *
+     * @param user the user or null if not found.
+     * @param id the requested ID.
+     * @param projection the fields to return, or null for all fields.
+     * @param cbor whether the user is written as CBOR (negotiated from the Accept header).
+     * @param ifNoneMatch the If-None-Match header of the request.
+     * @return the Response with the user, NOT_MODIFIED or NOT_FOUND.
+     */
+    private Response getUser(UserView user, Long id, UserFields projection, boolean cbor, String ifNoneMatch) {
+        if (user == null) {
+            logger.info("User doesn't exist in read model.");
+            return userNotFound(id);
+        }
+        EntityTag tag = entityTag(user.getVersion(), projection, cbor);
+        if (ifNoneMatch != null && matchesAny(ifNoneMatch, tag)) {
+            logger.info("User hasn't been modified.");
+            return Response
+                    .notModified(tag)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                    .build();
+        }
         return Response
-                .ok(user)
+                .ok(projection == null ? user : projection.toPartialUser(user))
+                .tag(tag)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
                 .build();
     }
 
     /**
-     * Adds a new user to the database. The user creation is carried out as a transaction.
+     * Adds a new user to the database. The password is hashed on the {@link PasswordHasher} pool, then
+     * the user is created on the {@link DatabaseExecutor}.
      *
      * @param user the User object to add.
-     * @return a Response indicating the outcome of the operation.
+     * @param asyncResponse the suspended response, resumed with the outcome of the operation.
      */
     @POST
-    @Transactional
-    public Response addUser(User user) {
+    @Consumes({MediaType.APPLICATION_JSON, UserCbor.MEDIA_TYPE})
+    @Produces({MediaType.APPLICATION_JSON, UserCbor.MEDIA_TYPE})
+    public void addUser(User user, @Suspended AsyncResponse asyncResponse) {
         logger.info("POST users: Add user to database.");
 
         // validate user information
-        Set<ConstraintViolation<User>> violations = validator.validate(user);
+        List<String> violations = validate(user);
         if (!violations.isEmpty()) {
             logger.info("User data is invalid.");
 
-            String violationMessages = violations.stream().map(ConstraintViolation::getMessage).collect(Collectors.joining());
+            String violationMessages = String.join("", violations);
 
-            return Response.status(Response.Status.BAD_REQUEST)
+            asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
                     .entity("Validation errors: " + violationMessages)
-                    .build();
+                    .build());
+            return;
         }
 
-        // create user in database
-        User createdUser = userService.create(user);
+        // the request headers are only available on the request thread
+        boolean cbor = prefersCbor();
+        resume(asyncResponse, passwordHasher.hash(user.getPassword()).thenCompose(passwordHash -> {
+            user.setPasswordHash(passwordHash);
+            user.setPassword(null);
 
-        if(createdUser == null) {
+            if (groupCommit.isEnabled()) {
+                // the email address is checked within the transaction of the group
+                return groupCommit.create(user).handle((createdUser, failure) -> failure == null
+                        ? created(createdUser, cbor) : writeConflict(failure, null));
+            }
+
+            return database.supply(() -> {
+                if (userService.findByEmail(user.getEmail()) != null) {
+                    return emailConflict(user.getEmail());
+                }
+
+                // create user in database; a concurrent sign-up with the same address may still win the unique index
+                try {
+                    return created(userService.create(user), cbor);
+                } catch (RuntimeException e) {
+                    if (EmailConflictException.isCausedBy(e)) {
+                        return emailConflict(user.getEmail());
+                    }
+                    throw e;
+                }
+            });
+        }));
+    }
+
+    /**
+     * Builds the response for a created user.
+     *
+     * @param createdUser the created user, or null if it couldn't be created.
+     * @param cbor whether the user is written as CBOR (negotiated from the Accept header).
+     * @return the Response with the user and its ETag, or BAD_REQUEST.
+     */
+    private Response created(User createdUser, boolean cbor) {
+        if (createdUser == null) {
             logger.info("User can't be created in database.");
             return Response
                     .status(Response.Status.BAD_REQUEST)
@@ -112,83 +882,730 @@ public class UserResource {
         return Response
                 .status(Response.Status.CREATED)
                 .entity(createdUser)
+                .tag(entityTag(createdUser.getVersion(), null, cbor))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
                 .build();
     }
 
+    /**
+     * Adds several new users to the database within one transaction.
+     * Every user is validated; the valid users are inserted in chunks, the invalid ones are reported.
+     * The passwords are hashed on the {@link PasswordHasher} pool, the database work runs on the {@link DatabaseExecutor}.
+     *
+     * @param users the User objects to add.
+     * @param asyncResponse the suspended response, resumed with the outcome for every user: CREATED if all users
+     *                      were created, MULTI-STATUS (207) if only some of them were created and BAD_REQUEST if none was created.
+     */
+    @POST
+    @Path("/batch")
+    @Consumes({MediaType.APPLICATION_JSON, UserCbor.MEDIA_TYPE})
+    public void addUsers(List<User> users, @Suspended AsyncResponse asyncResponse) {
+        logger.info("POST users/batch: Add users to database.");
+
+        if (users == null || users.isEmpty() || users.size() > MAX_BATCH_SIZE) {
+            logger.info("Batch size is invalid.");
+            asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+                    .entity("The batch must contain between 1 and " + MAX_BATCH_SIZE + " users.")
+                    .build());
+            return;
+        }
+
+        // validate user information
+        BatchItemResult[] results = new BatchItemResult[users.size()];
+        List<User> validUsers = new ArrayList<>(users.size());
+        List<Integer> validIndexes = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            if (user == null) {
+                results[i] = new BatchItemResult(i, Response.Status.BAD_REQUEST.getStatusCode(), null, "The user is missing.");
+                continue;
+            }
+
+            List<String> violations = validate(user);
+            if (!violations.isEmpty()) {
+                String violationMessages = String.join("", violations);
+                results[i] = new BatchItemResult(i, Response.Status.BAD_REQUEST.getStatusCode(), null, "Validation errors: " + violationMessages);
+                continue;
+            }
+            validUsers.add(user);
+            validIndexes.add(i);
+        }
+
+        resume(asyncResponse, database.supply(() -> rejectUsedEmails(validUsers, validIndexes, results))
+                .thenCompose(newUsers -> database.offloadRequest(() -> hashPasswords(newUsers)))
+                .thenCompose(newUsers -> database.supply(() -> userService.createAll(newUsers, BATCH_CHUNK_SIZE)))
+                .thenApply(createdUsers -> {
+                    for (int i = 0; i < createdUsers.size(); i++) {
+                        int index = validIndexes.get(i);
+                        results[index] = new BatchItemResult(index, Response.Status.CREATED.getStatusCode(), createdUsers.get(i).getId(), null);
+                    }
+
+                    int created = createdUsers.size();
+                    int failed = users.size() - created;
+                    logger.info(created + " users have been created in database, " + failed + " users were rejected.");
+
+                    int status = failed == 0 ? Response.Status.CREATED.getStatusCode()
+                            : created == 0 ? Response.Status.BAD_REQUEST.getStatusCode()
+                            : 207; // Multi-Status
+                    return Response
+                            .status(status)
+                            .entity(new BatchResult(created, failed, List.of(results)))
+                            .build();
+                }));
+    }
+
+    /**
+     * Rejects the users of a batch whose email address is already used, in the database or earlier in the batch.
+     *
+     * @param users the valid users of the batch, the rejected users are removed.
+     * @param indexes the positions of the users in the batch, the positions of the rejected users are removed.
+     * @param results the results of the batch, the rejected users are reported.
+     * @return the users that can be created.
+     */
+    private List<User> rejectUsedEmails(List<User> users, List<Integer> indexes, BatchItemResult[] results) {
+        Set<String> usedEmails = new HashSet<>(userService.findExistingEmails(
+                users.stream().map(User::getEmail).collect(Collectors.toList())));
+        for (int i = users.size() - 1; i >= 0; i--) {
+            if (usedEmails.contains(users.get(i).getEmail())) {
+                int index = indexes.get(i);
+                results[index] = new BatchItemResult(index, Response.Status.CONFLICT.getStatusCode(), null,
+                        "There is already a user with the email address " + users.get(i).getEmail() + ".");
+                users.remove(i);
+                indexes.remove(i);
+            }
+        }
+        Set<String> batchEmails = new HashSet<>();
+        for (int i = 0; i < users.size(); i++) {
+            if (!batchEmails.add(users.get(i).getEmail())) {
+                int index = indexes.get(i);
+                results[index] = new BatchItemResult(index, Response.Status.CONFLICT.getStatusCode(), null,
+                        "The email address " + users.get(i).getEmail() + " is used more than once in the batch.");
+                users.remove(i);
+                indexes.remove(i);
+                i--;
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Replaces the passwords of the users by their hashes. Blocks until all passwords are hashed.
+     *
+     * @param users the users.
+     * @return the users.
+     */
+    private List<User> hashPasswords(List<User> users) {
+        List<String> passwordHashes = passwordHasher.hashAll(
+                users.stream().map(User::getPassword).collect(Collectors.toList()));
+        for (int i = 0; i < users.size(); i++) {
+            users.get(i).setPasswordHash(passwordHashes.get(i));
+            users.get(i).setPassword(null);
+        }
+        return users;
+    }
+
     /**
      * Updates an existing user in the database. The update is carried out as a transaction.
+     * The password is hashed on the {@link PasswordHasher} pool, then the user is updated on the {@link DatabaseExecutor}.
+     * <p>
+     * If the client sends the ETag of the user in the If-Match header, the user is only updated
+     * if it wasn't changed in the meantime; otherwise PRECONDITION_FAILED is returned.
+     * </p>
      *
      * @param id the ID of the user to update.
      * @param updatedUser the User object with updated information.
-     * @return a Response indicating the outcome of the operation.
+     * @param ifMatch the If-Match header of the request.
+     * @param asyncResponse the suspended response, resumed with the outcome of the operation.
      */
     @PUT
     @Path("/{id}")
-    @Transactional
-    public Response updateUser(@PathParam("id") Long id, User updatedUser) {
+    @Consumes({MediaType.APPLICATION_JSON, UserCbor.MEDIA_TYPE})
+    @Produces({MediaType.APPLICATION_JSON, UserCbor.MEDIA_TYPE})
+    public void updateUser(@PathParam("id") Long id, User updatedUser, @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch,
+                           @Suspended AsyncResponse asyncResponse) {
         logger.info("PUT users/" + id + ": Update existing user in database.");
 
         // validate user information
-        Set<ConstraintViolation<User>> violations = validator.validate(updatedUser);
+        List<String> violations = validate(updatedUser);
         if (!violations.isEmpty()) {
             logger.info("User data is invalid.");
 
-            String violationMessages = violations.stream().map(ConstraintViolation::getMessage).collect(Collectors.joining());
+            String violationMessages = String.join("", violations);
 
-            return Response.status(Response.Status.BAD_REQUEST)
+            asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
                     .entity("Validation errors: " + violationMessages)
-                    .build();
+                    .build());
+            return;
         }
 
-        // update user in database
-        User user = userService.find(id);
+        Long expectedVersion = expectedVersion(ifMatch);
+        if (expectedVersion != null && expectedVersion < 0) {
+            asyncResponse.resume(versionConflict(id));
+            return;
+        }
+
+        // the request headers are only available on the request thread
+        boolean cbor = prefersCbor();
+        resume(asyncResponse, passwordHasher.hash(updatedUser.getPassword()).thenCompose(passwordHash -> {
+            updatedUser.setPasswordHash(passwordHash);
+
+            if (groupCommit.isEnabled()) {
+                // the email address and the version are checked within the transaction of the group
+                return groupCommit.update(id, updatedUser, expectedVersion).handle((user, failure) -> failure == null
+                        ? updated(user, id, cbor) : writeConflict(failure, id));
+            }
+
+            return database.supply(() -> {
+                User owner = userService.findByEmail(updatedUser.getEmail());
+                if (owner != null && !owner.getId().equals(id)) {
+                    return emailConflict(updatedUser.getEmail());
+                }
+
+                // update user in database
+                try {
+                    return updated(userService.update(id, updatedUser, expectedVersion), id, cbor);
+                } catch (VersionConflictException e) {
+                    return versionConflict(id);
+                } catch (RuntimeException e) {
+                    if (EmailConflictException.isCausedBy(e)) {
+                        return emailConflict(updatedUser.getEmail());
+                    }
+                    throw e;
+                }
+            });
+        }));
+    }
+
+    /**
+     * Builds the response for an updated user.
+     *
+     * @param user the updated user, or null if it doesn't exist.
+     * @param id the ID of the user to update.
+     * @return the Response with the user and its ETag, or NOT_FOUND.
+     */
+    private Response updated(User user, Long id, boolean cbor) {
         if (user == null) {
             logger.info("The user to be updated (ID = " + id + ") does not exist in the database.");
-            return Response
-                    .status(Response.Status.NOT_FOUND)
-                    .entity("There is no user with the ID " + id + ".")
-                    .build();
+            return userNotFound(id);
         }
-        user.setFirstname(updatedUser.getFirstname());
-        user.setLastname(updatedUser.getLastname());
-        user.setEmail(updatedUser.getEmail());
-        user.setBirthday(updatedUser.getBirthday());
-        user.setPassword(updatedUser.getPassword());
-        userService.update(user);
 
         logger.info("The user with the ID = " + id + " has been updated in the database.");
+        user.setPassword(null);
         return Response
                 .ok(user)
+                .tag(entityTag(user.getVersion(), null, cbor))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
                 .build();
     }
 
     /**
-     * Deletes a user from the database.
+     * Maps the failure of a single write of the {@link GroupCommit} to its response:
+     * CONFLICT for a used email address, PRECONDITION_FAILED for another version; other failures are passed on.
+     *
+     * @param failure the failure of the write.
+     * @param id the ID of the updated user, or null for a new user.
+     * @return the Response.
+     * @throws CompletionException with any other failure.
+     */
+    private Response writeConflict(Throwable failure, Long id) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        if (cause instanceof EmailConflictException) {
+            return emailConflict(((EmailConflictException) cause).getEmail());
+        }
+        if (cause instanceof VersionConflictException) {
+            return versionConflict(id);
+        }
+        throw failure instanceof CompletionException ? (CompletionException) failure : new CompletionException(cause);
+    }
+
+    /**
+     * Changes single fields of an existing user (JSON Merge Patch, RFC 7396). The update is carried out
+     * as a transaction with a single UPDATE statement, without loading the user. Only the changed fields
+     * are validated; a field set to null is removed. A changed password is hashed on the
+     * {@link PasswordHasher} pool, the update runs on the {@link DatabaseExecutor}.
+     * <p>
+     * If the client sends the ETag of the user in the If-Match header, the user is only updated
+     * if it wasn't changed in the meantime; otherwise PRECONDITION_FAILED is returned.
+     * </p>
+     *
+     * @param id the ID of the user to update.
+     * @param patch the JSON object with the changed fields.
+     * @param ifMatch the If-Match header of the request.
+     * @param asyncResponse the suspended response, resumed with the outcome of the operation.
+     */
+    @PATCH
+    @Path("/{id}")
+    @Consumes({MERGE_PATCH_JSON, MediaType.APPLICATION_JSON})
+    public void patchUser(@PathParam("id") Long id, JsonObject patch, @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch,
+                          @Suspended AsyncResponse asyncResponse) {
+        logger.info("PATCH users/" + id + ": Update fields of existing user in database.");
+
+        if (patch == null || patch.isEmpty()) {
+            logger.info("Patch is empty.");
+            asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+                    .entity("The patch doesn't contain any changes.")
+                    .build());
+            return;
+        }
+
+        // read and validate the changed fields
+        Map<String, Object> changes = new LinkedHashMap<>();
+        StringBuilder errors = new StringBuilder();
+        for (Map.Entry<String, JsonValue> field : patch.entrySet()) {
+            String name = field.getKey();
+            JsonValue value = field.getValue();
+            if (!PATCHABLE_FIELDS.contains(name)) {
+                errors.append("The field ").append(name).append(" can't be changed.");
+                continue;
+            }
+
+            Object newValue;
+            if (value.getValueType() == JsonValue.ValueType.NULL) {
+                newValue = null;
+            } else if (value.getValueType() != JsonValue.ValueType.STRING) {
+                errors.append("The field ").append(name).append(" has to be a string.");
+                continue;
+            } else if (name.equals("birthday")) {
+                try {
+                    newValue = LocalDate.parse(((JsonString) value).getString());
+                } catch (DateTimeParseException e) {
+                    errors.append("The birthday has to be a valid date (yyyy-MM-dd).");
+                    continue;
+                }
+            } else {
+                newValue = ((JsonString) value).getString();
+            }
+
+            long start = System.nanoTime();
+            List<String> violations = validator.validateValue(name, newValue);
+            metrics.validation().record(System.nanoTime() - start, !violations.isEmpty());
+            violations.forEach(errors::append);
+            changes.put(name, newValue);
+        }
+        if (errors.length() > 0) {
+            logger.info("User data is invalid.");
+            asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Validation errors: " + errors)
+                    .build());
+            return;
+        }
+
+        Long expectedVersion = expectedVersion(ifMatch);
+        if (expectedVersion != null && expectedVersion < 0) {
+            asyncResponse.resume(versionConflict(id));
+            return;
+        }
+
+        // the password is stored as hash
+        CompletableFuture<Map<String, Object>> hashedChanges = !changes.containsKey("password")
+                ? CompletableFuture.completedFuture(changes)
+                : passwordHasher.hash((String) changes.remove("password")).thenApply(passwordHash -> {
+                    changes.put("passwordHash", passwordHash);
+                    return changes;
+                });
+
+        resume(asyncResponse, hashedChanges.thenCompose(userChanges -> database.supply(() -> {
+            if (userChanges.get("email") != null) {
+                User owner = userService.findByEmail((String) userChanges.get("email"));
+                if (owner != null && !owner.getId().equals(id)) {
+                    return emailConflict((String) userChanges.get("email"));
+                }
+            }
+
+            // update fields in database
+            boolean updated;
+            try {
+                updated = userService.patch(id, userChanges, expectedVersion);
+            } catch (VersionConflictException e) {
+                return versionConflict(id);
+            } catch (RuntimeException e) {
+                if (EmailConflictException.isCausedBy(e)) {
+                    return emailConflict((String) userChanges.get("email"));
+                }
+                throw e;
+            }
+            if (!updated) {
+                logger.info("The user to be updated (ID = " + id + ") does not exist in the database.");
+                return userNotFound(id);
+            }
+
+            logger.info("The user with the ID = " + id + " has been updated in the database.");
+            Response.ResponseBuilder response = Response.noContent();
+            if (expectedVersion != null) {
+                response.tag(entityTag(expectedVersion + 1, null, false));
+            }
+            return response.build();
+        })));
+    }
+
+    /**
+     * Checks whether the given password is the password of a user. The check runs on the
+     * {@link PasswordHasher} pool and the request completes asynchronously; if the pool is
+     * saturated, SERVICE_UNAVAILABLE is returned immediately.
+     *
+     * @param id the ID of the user.
+     * @param body the JSON object with the password to check, e.g. {"password": "..."}.
+     * @param asyncResponse the suspended response, resumed with {"valid": true|false}.
+     */
+    @POST
+    @Path("/{id}/verify-password")
+    // slows down guessing passwords
+    @RateLimit(perSecond = 1, burst = 10)
+    public void verifyPassword(@PathParam("id") Long id, JsonObject body, @Suspended AsyncResponse asyncResponse) {
+        logger.info("POST users/" + id + "/verify-password: Verify password of user.");
+
+        JsonValue password = body == null ? null : body.get("password");
+        if (password == null || password.getValueType() != JsonValue.ValueType.STRING) {
+            asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+                    .entity("The password is mandatory.")
+                    .build());
+            return;
+        }
+
+        resume(asyncResponse, database.supply(() -> userService.findPasswordHash(id)).thenCompose(passwordHash -> {
+            if (passwordHash == null) {
+                logger.info("User doesn't exist in database.");
+                return CompletableFuture.completedFuture(userNotFound(id));
+            }
+
+            return passwordHasher.verify(((JsonString) password).getString(), passwordHash)
+                    .thenApply(valid -> Response
+                            .ok(Json.createObjectBuilder().add("valid", valid).build())
+                            .build());
+        }));
+    }
+
+    /**
+     * Deletes a user from the database with a single statement. The deletion is carried out as a transaction.
      *
      * @param id the ID of the user to delete.
-     * @return a Response indicating the outcome of the operation.
+     * @param asyncResponse the suspended response, resumed with the outcome of the operation.
      */
     @DELETE
     @Path("/{id}")
-    public Response deleteUser(@PathParam("id") Long id) {
+    public void deleteUser(@PathParam("id") Long id, @Suspended AsyncResponse asyncResponse) {
         logger.info("DELETE users/" + id + ": Delete user from database.");
 
-        // find user
-        User user = userService.find(id);
-        if (user == null) {
-            logger.info("The user to be deleted (ID = " + id + ") does not exist in the database.");
+        resume(asyncResponse, database.supply(() -> {
+            // delete user from database
+            if (!userService.delete(id)) {
+                logger.info("The user to be deleted (ID = " + id + ") does not exist in the database.");
+                return userNotFound(id);
+            }
+
+            logger.info("The user with the ID = " + id + " has been removed from database.");
             return Response
-                    .status(Response.Status.NOT_FOUND)
-                    .entity("There is no user with the ID " + id + ".")
+                    .noContent()
                     .build();
+        }));
+    }
+
+    /**
+     * Deletes several users from the database with a single statement. The deletion is carried out as a transaction.
+     *
+     * @param ids the IDs of the users to delete, as comma-separated list and/or repeated parameter.
+     * @param asyncResponse the suspended response, resumed with the number of deleted users
+     *                      or a BAD_REQUEST status if the IDs are invalid.
+     */
+    @DELETE
+    public void deleteUsers(@QueryParam("ids") List<String> ids, @Suspended AsyncResponse asyncResponse) {
+        logger.info("DELETE users?ids=" + ids + ": Delete users from database.");
+
+        Set<Long> userIds = new LinkedHashSet<>();
+        try {
+            for (String value : ids) {
+                for (String id : value.split(",")) {
+                    if (!id.isBlank()) {
+                        userIds.add(Long.parseLong(id.trim()));
+                    }
+                }
+            }
+        } catch (NumberFormatException e) {
+            logger.info("User IDs are invalid.");
+            asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+                    .entity("The IDs must be numbers.")
+                    .build());
+            return;
+        }
+        if (userIds.isEmpty() || userIds.size() > MAX_DELETE_SIZE) {
+            logger.info("Number of user IDs is invalid.");
+            asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Between 1 and " + MAX_DELETE_SIZE + " IDs must be given.")
+                    .build());
+            return;
         }
 
-        // delete user from database
-        userService.delete(id);
+        resume(asyncResponse, database.supply(() -> {
+            // delete users from database
+            int deleted = userService.deleteAll(userIds);
+
+            logger.info(deleted + " users have been removed from database.");
+            return Response
+                    .ok(new DeleteResult(userIds.size(), deleted))
+                    .build();
+        }));
+    }
+
+    /**
+     * Validates a user and records the time it took in the metrics.
+     *
+     * @param user the user.
+     * @return the messages of the violated constraints.
+     */
+    private List<String> validate(User user) {
+        long start = System.nanoTime();
+        List<String> violations = validator.validate(user);
+        metrics.validation().record(System.nanoTime() - start, !violations.isEmpty());
+        return violations;
+    }
+
+    /**
+     * Resumes a suspended request with the response computed by the given stage. If the stage fails because
+     * a pool is saturated or a shared load took too long, or takes longer than {@value #ASYNC_TIMEOUT_SECONDS} seconds, the request is answered
+     * with SERVICE_UNAVAILABLE.
+     *
+     * @param asyncResponse the suspended response.
+     * @param response the stage computing the response.
+     */
+    private void resume(AsyncResponse asyncResponse, CompletionStage<Response> response) {
+        resume(asyncResponse, response, ASYNC_TIMEOUT_SECONDS);
+    }
+
+    /**
+     * Resumes a suspended request with the response computed by the given stage, like
+     * {@link #resume(AsyncResponse, CompletionStage)} but with the given timeout.
+     *
+     * @param asyncResponse the suspended response.
+     * @param response the stage computing the response.
+     * @param timeoutSeconds the maximum time in seconds the request may take, 0 for no limit.
+     */
+    private void resume(AsyncResponse asyncResponse, CompletionStage<Response> response, long timeoutSeconds) {
+        asyncResponse.setTimeoutHandler(timedOut -> timedOut.resume(serviceUnavailable()));
+        asyncResponse.setTimeout(timeoutSeconds, TimeUnit.SECONDS);
+        response.whenComplete((result, failure) -> {
+            if (failure == null) {
+                asyncResponse.resume(result);
+                return;
+            }
+
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+            if (cause instanceof RejectedExecutionException || cause instanceof TimeoutException) {
+                logger.info("Request rejected, the server is busy.");
+                asyncResponse.resume(serviceUnavailable());
+            } else {
+                // logged and answered with INTERNAL_SERVER_ERROR by the UnhandledExceptionMapper
+                asyncResponse.resume(cause);
+            }
+        });
+    }
+
+    /**
+     * Creates the SERVICE_UNAVAILABLE response for a request that was rejected because the server is busy.
+     *
+     * @return the Response.
+     */
+    private static Response serviceUnavailable() {
+        return Response
+                .status(Response.Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, 1)
+                .entity("The server is busy, please try again later.")
+                .build();
+    }
+
+    /**
+     * Creates the NOT_FOUND response for a user that does not exist.
+     *
+     * @param id the ID of the user.
+     * @return the Response.
+     */
+    private static Response userNotFound(Long id) {
+        return Response
+                .status(Response.Status.NOT_FOUND)
+                .entity("There is no user with the ID " + id + ".")
+                .build();
+    }
+
+    /**
+     * Creates the CONFLICT response for an email address that is already used by another user.
+     *
+     * @param email the email address.
+     * @return the Response.
+     */
+    private Response emailConflict(String email) {
+        logger.info("The email address is already used by another user.");
+        return Response
+                .status(Response.Status.CONFLICT)
+                .entity("There is already a user with the email address " + User.normalizeEmail(email) + ".")
+                .build();
+    }
+
+    /**
+     * Creates the PRECONDITION_FAILED response for a user that was changed in the meantime.
+     *
+     * @param id the ID of the user.
+     * @return the Response.
+     */
+    private Response versionConflict(Long id) {
+        logger.info("The user to be updated (ID = " + id + ") has been modified in the meantime.");
+        return Response
+                .status(Response.Status.PRECONDITION_FAILED)
+                .entity("The user with the ID " + id + " has been modified in the meantime.")
+                .build();
+    }
 
-        logger.info("The user with the ID = " + id + " has been removed from database.");
+    /**
+     * Creates the GONE response for a consumer of the change feed that has to start over.
+     *
+     * @param since the sequence number of the consumer.
+     * @return the Response.
+     */
+    private Response changesGone(long since) {
+        logger.info("Changes after " + since + " have been removed from the change log.");
         return Response
-                .noContent()
+                .status(Response.Status.GONE)
+                .entity("The changes after " + since + " are no longer available, start over with since=0.")
                 .build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Reads the expected version of a user from the If-Match header. The ETag of any representation of the
+     * user is accepted, as they all start with the version.
+     *
+     * @param ifMatch the If-Match header, e.g. "3", "3-cbor" (with quotes) or *.
+     * @return the expected version, null if any version is expected, or -1 if the header can't match any version.
+     */
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+
+        String tag = ifMatch.trim();
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            return -1L;
+        }
+        int end = tag.indexOf('-', 1);
+        try {
+            return Long.parseLong(tag.substring(1, end < 0 ? tag.length() - 1 : end));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * Checks whether an If-None-Match header matches the current ETag of a representation of a user.
+     *
+     * @param ifNoneMatch the If-None-Match header, e.g. "3", W/"3", "2", "3" or *.
+     * @param current the ETag of the current representation.
+     * @return true if one of the tags matches.
+     */
+    private static boolean matchesAny(String ifNoneMatch, EntityTag current) {
+        if (ifNoneMatch.trim().equals("*")) {
+            return true;
+        }
+
+        String expected = '"' + current.getValue() + '"';
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            // If-None-Match uses the weak comparison
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(expected)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates the strong ETag of a representation of a user: its version, followed by the selected fields and
+     * the media type if they differ from the whole user as JSON, e.g. "3", "3-cbor" or "3-id.firstname-cbor".
+     *
+     * @param version the version of the user.
+     * @param projection the selected fields, or null for all fields.
+     * @param cbor whether the representation is CBOR instead of JSON.
+     * @return the ETag.
+     */
+    private static EntityTag entityTag(Long version, UserFields projection, boolean cbor) {
+        StringBuilder tag = new StringBuilder(String.valueOf(version));
+        if (projection != null) {
+            tag.append('-').append(String.join(".", projection.getNames()));
+        }
+        if (cbor) {
+            tag.append("-cbor");
+        }
+        return new EntityTag(tag.toString());
+    }
+
+    /**
+     * A user or a page of users serialized once, so the requests sharing a load ({@link SingleFlight})
+     * also share the bytes of the response instead of serializing the same entity each.
+     */
+    private static final class SharedBody {
+        /** The body of a user that does not exist. */
+        static final SharedBody NOT_FOUND = new SharedBody(null, null, null, false);
+
+        private final Object entity;
+        private final byte[] bytes;
+        private final Long tag;
+        private final boolean cbor;
+
+        /**
+         * Creates the body of a loaded entity, serialized later by {@link #serialize()}.
+         *
+         * @param entity the user, partial user or list of them.
+         * @param tag the version of a user or the cursor of the next page.
+         * @param cbor whether to serialize as CBOR instead of JSON.
+         */
+        SharedBody(Object entity, Long tag, boolean cbor) {
+            this(entity, null, tag, cbor);
+        }
+
+        private SharedBody(Object entity, byte[] bytes, Long tag, boolean cbor) {
+            this.entity = entity;
+            this.bytes = bytes;
+            this.tag = tag;
+            this.cbor = cbor;
+        }
+
+        /**
+         * Serializes the entity, outside of the database access.
+         *
+         * @return the serialized body.
+         */
+        SharedBody serialize() {
+            if (!cbor) {
+                return new SharedBody(null, JSONB.toJson(entity).getBytes(StandardCharsets.UTF_8), tag, false);
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream(256);
+            CborWriter writer = new CborWriter(output);
+            try {
+                if (entity instanceof List) {
+                    List<?> users = (List<?>) entity;
+                    writer.writeArrayStart(users.size());
+                    for (Object user : users) {
+                        UserCbor.write(writer, user);
+                    }
+                } else {
+                    UserCbor.write(writer, entity);
+                }
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return new SharedBody(null, output.toByteArray(), tag, true);
+        }
+
+        byte[] getBytes() {
+            return bytes;
+        }
+
+        MediaType getMediaType() {
+            return cbor ? MediaType.valueOf(UserCbor.MEDIA_TYPE) : MediaType.APPLICATION_JSON_TYPE;
+        }
+
+        Long getTag() {
+            return tag;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.task.ums.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A limit for the number of requests processed at once, which adapts to the observed latency
+ * with additive increase and multiplicative decrease (AIMD), like the congestion window of TCP:
+ * <ul>
+ *     <li>A response that came in time while at least half of the limit was used raises the limit by 1 / limit,
+ *     i.e. by one after a full limit of such responses.</li>
+ *     <li>A response that signals overload, i.e. its endpoint got much slower than usual because requests queue up,
+ *     lowers the limit by the backoff factor. The limit is lowered at most once per latency of that response,
+ *     as the responses of requests admitted before the decrease still report the same overload.</li>
+ * </ul>
+ * Admission and release only use compare-and-set; the limit is a double stored as its bits.
+ */
+public final class AdaptiveConcurrencyLimit {
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong limit;
+    private final AtomicLong nextDecrease;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoff;
+    private final LongSupplier clock;
+
+    /**
+     * @param initialLimit the limit until the first adaptation.
+     * @param minLimit the lowest limit.
+     * @param maxLimit the highest limit.
+     * @param backoff the factor the limit is multiplied with on overload, e.g. 0.9.
+     * @param clock the time source in nanoseconds, e.g. System::nanoTime.
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double backoff, LongSupplier clock) {
+        if (minLimit < 1 || maxLimit < minLimit || backoff <= 0 || backoff >= 1) {
+            throw new IllegalArgumentException("invalid concurrency limit configuration");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoff = backoff;
+        this.clock = clock;
+        this.limit = new AtomicLong(Double.doubleToLongBits(Math.max(minLimit, Math.min(maxLimit, initialLimit))));
+        this.nextDecrease = new AtomicLong(clock.getAsLong());
+    }
+
+    /**
+     * Admits a request if fewer requests than the limit are in flight.
+     * An admitted request must be {@link #release released} when its response is sent.
+     *
+     * @return true if the request is admitted.
+     */
+    public boolean tryAcquire() {
+        int limit = getLimit();
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases an admitted request and adapts the limit to its outcome.
+     *
+     * @param latencyNanos the latency of the request in nanoseconds.
+     * @param overloaded whether the latency signals overload.
+     */
+    public void release(long latencyNanos, boolean overloaded) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        if (overloaded) {
+            decrease(latencyNanos);
+        } else if (inFlightBefore * 2 >= getLimit()) {
+            increase();
+        }
+    }
+
+    private void increase() {
+        while (true) {
+            long bits = limit.get();
+            double current = Double.longBitsToDouble(bits);
+            double next = Math.min(maxLimit, current + 1 / current);
+            if (next == current || limit.compareAndSet(bits, Double.doubleToLongBits(next))) {
+                return;
+            }
+        }
+    }
+
+    private void decrease(long latencyNanos) {
+        long now = clock.getAsLong();
+        long next = nextDecrease.get();
+        if (now - next < 0 || !nextDecrease.compareAndSet(next, now + latencyNanos)) {
+            return;
+        }
+        while (true) {
+            long bits = limit.get();
+            double current = Double.longBitsToDouble(bits);
+            double lowered = Math.max(minLimit, current * backoff);
+            if (lowered == current || limit.compareAndSet(bits, Double.doubleToLongBits(lowered))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the current limit.
+     */
+    public int getLimit() {
+        return (int) Double.longBitsToDouble(limit.get());
+    }
+
+    /**
+     * @return the number of admitted requests which aren't released yet.
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
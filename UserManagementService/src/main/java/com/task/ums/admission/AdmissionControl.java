@@ -0,0 +1,104 @@
+package com.task.ums.admission;
+
+import com.task.ums.models.AdmissionStatistics;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * AdmissionControl holds the configuration and the state of the admission control:
+ * the global {@link AdaptiveConcurrencyLimit} and the {@link EndpointAdmission} of every rate limited resource method.
+ * <p>
+ * It is configured with system properties:
+ * </p>
+ * <ul>
+ *     <li>"ums.rateLimit.enabled" turns the admission control off (default true).</li>
+ *     <li>"ums.rateLimit.clientHeader" names a request header identifying the client, e.g. an API key set by a gateway;
+ *     without it (default) or if the header is missing the remote address is the client.</li>
+ *     <li>"ums.rateLimit.readsPerSecond" / "ums.rateLimit.readBurst" (default 100 / 200) are the limits of GET requests,
+ *     "ums.rateLimit.writesPerSecond" / "ums.rateLimit.writeBurst" (default 20 / 40) of all others,
+ *     unless the {@link RateLimit} annotation of the method sets them.</li>
+ *     <li>"ums.rateLimit.maxClients" (default 100000) is the number of clients per endpoint above which idle ones are forgotten.</li>
+ *     <li>"ums.concurrency.initialLimit", "ums.concurrency.minLimit" and "ums.concurrency.maxLimit" (default 200, 20, 2000)
+ *     bound the concurrency limit, "ums.concurrency.backoff" (default 0.9) is the factor it is lowered by on overload
+ *     and "ums.concurrency.latencyTolerance" (default 2.0) how much slower than usual an endpoint may get before that.</li>
+ * </ul>
+ *
+ * @see AdmissionFeature
+ */
+@ApplicationScoped
+public class AdmissionControl {
+    private final ConcurrentMap<String, EndpointAdmission> endpoints = new ConcurrentHashMap<>();
+    private final boolean enabled = Boolean.parseBoolean(System.getProperty("ums.rateLimit.enabled", "true"));
+    private final String clientHeader = System.getProperty("ums.rateLimit.clientHeader");
+    private final double readsPerSecond = Double.parseDouble(System.getProperty("ums.rateLimit.readsPerSecond", "100"));
+    private final int readBurst = Integer.getInteger("ums.rateLimit.readBurst", 200);
+    private final double writesPerSecond = Double.parseDouble(System.getProperty("ums.rateLimit.writesPerSecond", "20"));
+    private final int writeBurst = Integer.getInteger("ums.rateLimit.writeBurst", 40);
+    private final int maxClients = Integer.getInteger("ums.rateLimit.maxClients", 100000);
+    private final double latencyTolerance = Double.parseDouble(System.getProperty("ums.concurrency.latencyTolerance", "2.0"));
+    private final AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(
+            Integer.getInteger("ums.concurrency.initialLimit", 200),
+            Integer.getInteger("ums.concurrency.minLimit", 20),
+            Integer.getInteger("ums.concurrency.maxLimit", 2000),
+            Double.parseDouble(System.getProperty("ums.concurrency.backoff", "0.9")),
+            System::nanoTime);
+
+    /**
+     * Returns the admission state of a resource method, registering it on first use.
+     *
+     * @param method the HTTP method, e.g. "GET".
+     * @param path the path template, e.g. "/users/{id}".
+     * @param rateLimit the annotation of the method or its class.
+     * @return the endpoint admission.
+     */
+    public EndpointAdmission endpoint(String method, String path, RateLimit rateLimit) {
+        return endpoints.computeIfAbsent(method + " " + path, key -> {
+            boolean read = "GET".equals(method) || "HEAD".equals(method);
+            double perSecond = rateLimit.perSecond() > 0 ? rateLimit.perSecond() : read ? readsPerSecond : writesPerSecond;
+            int burst = rateLimit.burst() > 0 ? rateLimit.burst() : read ? readBurst : writeBurst;
+            TokenBuckets buckets = new TokenBuckets(perSecond, burst, maxClients, System::nanoTime);
+            return new EndpointAdmission(method, path, buckets, rateLimit.concurrencyLimited(), latencyTolerance);
+        });
+    }
+
+    /**
+     * Retrieves the state of the concurrency limit and the rejections summed over all endpoints.
+     *
+     * @return the admission statistics.
+     */
+    public AdmissionStatistics getStatistics() {
+        long rateRejected = 0;
+        long concurrencyRejected = 0;
+        long clients = 0;
+        for (EndpointAdmission endpoint : endpoints.values()) {
+            rateRejected += endpoint.getRateRejected();
+            concurrencyRejected += endpoint.getConcurrencyRejected();
+            clients += endpoint.getBuckets().getClients();
+        }
+        return new AdmissionStatistics(enabled, concurrencyLimit.getLimit(), concurrencyLimit.getInFlight(),
+                rateRejected, concurrencyRejected, clients);
+    }
+
+    /**
+     * @return the endpoint admission states ordered by method and path.
+     */
+    public Map<String, EndpointAdmission> getEndpoints() {
+        return new TreeMap<>(endpoints);
+    }
+
+    public AdaptiveConcurrencyLimit getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getClientHeader() {
+        return clientHeader;
+    }
+}
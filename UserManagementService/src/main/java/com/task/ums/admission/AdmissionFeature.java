@@ -0,0 +1,122 @@
+package com.task.ums.admission;
+
+import com.task.ums.metrics.MetricsFeature;
+import jakarta.inject.Inject;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.DynamicFeature;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.FeatureContext;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Provider;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AdmissionFeature registers a filter for every resource method annotated with {@link RateLimit} (or of an annotated class),
+ * which rejects a request before it reaches the resource when its client exceeded the rate of the endpoint
+ * or the {@link AdaptiveConcurrencyLimit} is reached. A rejected request gets an immediate
+ * "429 Too Many Requests" with a Retry-After header instead of queueing for the database or the password hashing pool,
+ * so an overloaded service keeps its latency for the requests it admits.
+ * <p>
+ * The filter runs after the filter of the {@link MetricsFeature}, so rejections show up in the request metrics.
+ * </p>
+ *
+ * @see AdmissionControl
+ */
+@Provider
+public class AdmissionFeature implements DynamicFeature {
+    private static final String START_PROPERTY = AdmissionFeature.class.getName() + ".start";
+
+    /** Retry-After of requests rejected by the concurrency limit, which doesn't know when a slot gets free. */
+    private static final long CONCURRENCY_RETRY_SECONDS = 1;
+
+    @Inject
+    private AdmissionControl admissionControl;
+
+    @Inject
+    private HttpServletRequest servletRequest;
+
+    @Override
+    public void configure(ResourceInfo resourceInfo, FeatureContext context) {
+        Method resourceMethod = resourceInfo.getResourceMethod();
+        RateLimit rateLimit = resourceMethod.getAnnotation(RateLimit.class);
+        if (rateLimit == null) {
+            rateLimit = resourceInfo.getResourceClass().getAnnotation(RateLimit.class);
+        }
+        String httpMethod = MetricsFeature.httpMethod(resourceMethod);
+        if (rateLimit == null || httpMethod == null || !admissionControl.isEnabled()) {
+            return;
+        }
+
+        EndpointAdmission endpoint = admissionControl.endpoint(httpMethod,
+                MetricsFeature.path(resourceInfo.getResourceClass(), resourceMethod), rateLimit);
+        context.register(new AdmissionFilter(endpoint), 2);
+    }
+
+    private String client(ContainerRequestContext requestContext) {
+        String header = admissionControl.getClientHeader();
+        if (header != null) {
+            String client = requestContext.getHeaderString(header);
+            if (client != null && !client.isEmpty()) {
+                return client;
+            }
+        }
+        return servletRequest.getRemoteAddr();
+    }
+
+    private static void reject(ContainerRequestContext requestContext, long retryAfterSeconds) {
+        requestContext.abortWith(Response.status(Response.Status.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+                .type(MediaType.TEXT_PLAIN_TYPE)
+                .entity("Too many requests, please try again later.")
+                .build());
+    }
+
+    /**
+     * Admits the requests of one resource method.
+     */
+    private final class AdmissionFilter implements ContainerRequestFilter, ContainerResponseFilter {
+        private final EndpointAdmission endpoint;
+        private final AdaptiveConcurrencyLimit concurrencyLimit;
+
+        private AdmissionFilter(EndpointAdmission endpoint) {
+            this.endpoint = endpoint;
+            this.concurrencyLimit = admissionControl.getConcurrencyLimit();
+        }
+
+        @Override
+        public void filter(ContainerRequestContext requestContext) {
+            long wait = endpoint.tryAcquire(client(requestContext));
+            if (wait > 0) {
+                // round up, a client retrying early would only be rejected again
+                reject(requestContext, Math.max(1, (wait + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1)));
+                return;
+            }
+            if (endpoint.isConcurrencyLimited()) {
+                if (!concurrencyLimit.tryAcquire()) {
+                    endpoint.rejectedByConcurrency();
+                    reject(requestContext, CONCURRENCY_RETRY_SECONDS);
+                    return;
+                }
+                requestContext.setProperty(START_PROPERTY, System.nanoTime());
+            }
+        }
+
+        @Override
+        public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+            Object start = requestContext.getProperty(START_PROPERTY);
+            if (start instanceof Long) {
+                requestContext.removeProperty(START_PROPERTY);
+                long latency = System.nanoTime() - (Long) start;
+                concurrencyLimit.release(latency, endpoint.recordLatency(latency));
+            }
+        }
+    }
+}
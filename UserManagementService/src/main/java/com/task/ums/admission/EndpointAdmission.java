@@ -0,0 +1,114 @@
+package com.task.ums.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The admission state of one resource method: the token buckets of its clients,
+ * the latency it usually needs and the number of rejected requests.
+ * <p>
+ * Endpoints differ by orders of magnitude in latency (a read from memory against a password hash), so overload
+ * is detected per endpoint: the average latency of the last requests (an exponential moving average over about 16)
+ * is compared with the long-term average (over about 1000). When the recent requests take more than tolerance times
+ * as long, requests wait in queues, e.g. for the database or the password hashing pool.
+ * The averages are updated without synchronization; a lost update only drops one sample.
+ * </p>
+ */
+public final class EndpointAdmission {
+    private static final double SHORT_TERM_WEIGHT = 1.0 / 16;
+    private static final double LONG_TERM_WEIGHT = 1.0 / 1024;
+    private static final int WARMUP_SAMPLES = 100;
+
+    private final String method;
+    private final String path;
+    private final TokenBuckets buckets;
+    private final boolean concurrencyLimited;
+    private final double tolerance;
+    private final AtomicLong rateRejected = new AtomicLong();
+    private final AtomicLong concurrencyRejected = new AtomicLong();
+    private final AtomicLong samples = new AtomicLong();
+    private volatile double shortTermNanos;
+    private volatile double longTermNanos;
+
+    /**
+     * @param method the HTTP method, e.g. "GET".
+     * @param path the path template, e.g. "/users/{id}".
+     * @param buckets the token buckets of the clients.
+     * @param concurrencyLimited whether the requests count toward the concurrency limit.
+     * @param tolerance the factor by which the recent latency may exceed the usual one without signalling overload.
+     */
+    public EndpointAdmission(String method, String path, TokenBuckets buckets, boolean concurrencyLimited, double tolerance) {
+        this.method = method;
+        this.path = path;
+        this.buckets = buckets;
+        this.concurrencyLimited = concurrencyLimited;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Takes a token from the bucket of a client and counts the rejection if there is none.
+     *
+     * @param client the key of the client.
+     * @return 0 if the request is admitted, otherwise the nanoseconds until the client may send the next request.
+     */
+    long tryAcquire(String client) {
+        long wait = buckets.tryAcquire(client);
+        if (wait > 0) {
+            rateRejected.incrementAndGet();
+        }
+        return wait;
+    }
+
+    void rejectedByConcurrency() {
+        concurrencyRejected.incrementAndGet();
+    }
+
+    /**
+     * Records the latency of a request.
+     *
+     * @param nanos the latency in nanoseconds.
+     * @return true if the recent requests of the endpoint are much slower than usual.
+     */
+    public boolean recordLatency(long nanos) {
+        long sample = samples.incrementAndGet();
+        if (sample == 1) {
+            shortTermNanos = nanos;
+            longTermNanos = nanos;
+            return false;
+        }
+        double shortTerm = shortTermNanos + (nanos - shortTermNanos) * SHORT_TERM_WEIGHT;
+        double longTerm = longTermNanos + (nanos - longTermNanos) * LONG_TERM_WEIGHT;
+        shortTermNanos = shortTerm;
+        longTermNanos = longTerm;
+        return sample > WARMUP_SAMPLES && shortTerm > longTerm * tolerance;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public boolean isConcurrencyLimited() {
+        return concurrencyLimited;
+    }
+
+    public TokenBuckets getBuckets() {
+        return buckets;
+    }
+
+    /**
+     * @return the number of requests rejected because the client exceeded its rate.
+     */
+    public long getRateRejected() {
+        return rateRejected.get();
+    }
+
+    /**
+     * @return the number of requests rejected because the concurrency limit was reached.
+     */
+    public long getConcurrencyRejected() {
+        return concurrencyRejected.get();
+    }
+}
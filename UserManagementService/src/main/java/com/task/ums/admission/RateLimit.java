@@ -0,0 +1,42 @@
+package com.task.ums.admission;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Puts the annotated resource method, or every resource method of the annotated class, under admission control:
+ * each client gets a token bucket per endpoint, and the requests count toward the adaptive concurrency limit.
+ * An annotation on the method replaces the one on the class.
+ *
+ * @see AdmissionFeature
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface RateLimit {
+
+    /**
+     * The sustained number of requests per second a client may send to the endpoint.
+     * 0 uses the configured default for reads ("ums.rateLimit.readsPerSecond") or writes ("ums.rateLimit.writesPerSecond").
+     *
+     * @return the requests per second.
+     */
+    double perSecond() default 0;
+
+    /**
+     * The number of requests a client may send at once after being idle.
+     * 0 uses the configured default ("ums.rateLimit.readBurst" or "ums.rateLimit.writeBurst").
+     *
+     * @return the burst size.
+     */
+    int burst() default 0;
+
+    /**
+     * Whether the requests count toward the adaptive concurrency limit. Long-running requests,
+     * e.g. imports or event streams, would distort the latency it adapts to and should only be rate limited.
+     *
+     * @return true if the requests are concurrency limited.
+     */
+    boolean concurrencyLimited() default true;
+}
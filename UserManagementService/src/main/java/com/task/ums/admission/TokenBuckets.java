@@ -0,0 +1,101 @@
+package com.task.ums.admission;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket per client, implemented as generic cell rate algorithm (GCRA):
+ * <p>
+ * Instead of a token count and a refill timestamp, a bucket only stores the theoretical arrival time of the next request,
+ * which moves forward by the emission interval (1 / rate) with every admitted request. A request is admitted
+ * while that time is at most burst - 1 intervals ahead of now, so a single {@link AtomicLong} per client
+ * is updated with one compare-and-set and no lock is shared between clients.
+ * </p>
+ * <p>
+ * A bucket whose arrival time lies in the past is full and equivalent to a missing one.
+ * Such buckets are removed when the number of clients exceeds the configured maximum, at most once per second.
+ * </p>
+ */
+public final class TokenBuckets {
+    private static final long CLEANUP_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private final ConcurrentMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong nextCleanup;
+    private final double perSecond;
+    private final int burst;
+    private final long interval;
+    private final long tolerance;
+    private final int maxClients;
+    private final LongSupplier clock;
+
+    /**
+     * @param perSecond the sustained number of requests per second and client.
+     * @param burst the number of requests a client may send at once after being idle.
+     * @param maxClients the number of clients above which full buckets are removed.
+     * @param clock the time source in nanoseconds, e.g. System::nanoTime.
+     */
+    public TokenBuckets(double perSecond, int burst, int maxClients, LongSupplier clock) {
+        if (perSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("rate and burst must be positive");
+        }
+        this.perSecond = perSecond;
+        this.burst = burst;
+        this.interval = Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / perSecond));
+        this.tolerance = interval * (burst - 1);
+        this.maxClients = maxClients;
+        this.clock = clock;
+        this.nextCleanup = new AtomicLong(clock.getAsLong());
+    }
+
+    /**
+     * Takes a token from the bucket of a client.
+     *
+     * @param client the key of the client, e.g. its address.
+     * @return 0 if the request is admitted, otherwise the nanoseconds until the client may send the next request.
+     */
+    public long tryAcquire(String client) {
+        long now = clock.getAsLong();
+        AtomicLong bucket = buckets.get(client);
+        if (bucket == null) {
+            cleanUp(now);
+            bucket = buckets.computeIfAbsent(client, key -> new AtomicLong(now));
+        }
+        while (true) {
+            long arrival = bucket.get();
+            long start = Math.max(arrival, now);
+            long wait = start - tolerance - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(arrival, start + interval)) {
+                return 0;
+            }
+        }
+    }
+
+    private void cleanUp(long now) {
+        long next = nextCleanup.get();
+        if (buckets.size() < maxClients || now - next < 0 || !nextCleanup.compareAndSet(next, now + CLEANUP_INTERVAL)) {
+            return;
+        }
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+    }
+
+    /**
+     * @return the number of clients with a bucket.
+     */
+    public int getClients() {
+        return buckets.size();
+    }
+
+    public double getPerSecond() {
+        return perSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+}
@@ -0,0 +1,35 @@
+package com.task.ums.admission;
+
+import com.task.ums.metrics.MetricsFeature;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Maps the exceptions no other mapper handles, e.g. an unexpected failure a suspended request is resumed with,
+ * to "500 Internal Server Error". Without a mapper, the server answers such a request itself and skips the
+ * response filters, so the {@link AdmissionFeature} would never release the concurrency slot of the request
+ * and the {@link MetricsFeature} wouldn't record it. A {@link WebApplicationException} keeps its own response.
+ */
+@Provider
+public class UnhandledExceptionMapper implements ExceptionMapper<Throwable> {
+    private final Logger logger = Logger.getLogger(UnhandledExceptionMapper.class.getName());
+
+    @Override
+    public Response toResponse(Throwable exception) {
+        if (exception instanceof WebApplicationException) {
+            return ((WebApplicationException) exception).getResponse();
+        }
+
+        logger.log(Level.SEVERE, "Request failed.", exception);
+        return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                .type(MediaType.TEXT_PLAIN_TYPE)
+                .entity("The request failed unexpectedly.")
+                .build();
+    }
+}
@@ -0,0 +1,13 @@
+package com.task.ums.encoding;
+
+import java.io.IOException;
+
+/**
+ * Thrown by the {@link CborReader} if the input is no valid CBOR or doesn't have the expected structure.
+ */
+public class CborException extends IOException {
+
+    public CborException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,78 @@
+package com.task.ums.encoding;
+
+import com.task.ums.models.PartialUser;
+import com.task.ums.models.User;
+import com.task.ums.models.UserView;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.MessageBodyReader;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+import jakarta.ws.rs.ext.Provider;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads and writes users and lists of users as CBOR ({@value UserCbor#MEDIA_TYPE}),
+ * selected like JSON by the "Accept" and "Content-Type" headers of a request.
+ * Lists are written element by element to the response stream.
+ *
+ * @see UserCbor
+ */
+@Provider
+@Produces(UserCbor.MEDIA_TYPE)
+@Consumes(UserCbor.MEDIA_TYPE)
+public class CborProvider implements MessageBodyWriter<Object>, MessageBodyReader<Object> {
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        // the elements of a list are checked while writing, the generic type of a Response entity is erased
+        return User.class.isAssignableFrom(type) || UserView.class.isAssignableFrom(type)
+                || PartialUser.class.isAssignableFrom(type) || Collection.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public void writeTo(Object entity, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                        MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        CborWriter writer = new CborWriter(entityStream);
+        if (entity instanceof Collection) {
+            Collection<?> users = (Collection<?>) entity;
+            writer.writeArrayStart(users.size());
+            for (Object user : users) {
+                UserCbor.write(writer, user);
+            }
+        } else {
+            UserCbor.write(writer, entity);
+        }
+        writer.flush();
+    }
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        if (type == User.class) {
+            return true;
+        }
+        return (type == List.class || type == Collection.class) && genericType instanceof ParameterizedType
+                && ((ParameterizedType) genericType).getActualTypeArguments()[0] == User.class;
+    }
+
+    @Override
+    public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                           MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException {
+        CborReader reader = new CborReader(entityStream);
+        try {
+            return User.class.equals(type) ? UserCbor.read(reader) : UserCbor.readList(reader);
+        } catch (CborException e) {
+            throw new BadRequestException("Invalid CBOR: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.task.ums.encoding;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+import static com.task.ums.encoding.CborWriter.*;
+
+/**
+ * Reads data items in the Concise Binary Object Representation (CBOR, RFC 8949) from a stream,
+ * the counterpart of the {@link CborWriter}. Items of other types, e.g. floats or byte strings, can be skipped.
+ * Malformed input is reported with a {@link CborException}.
+ */
+public final class CborReader {
+    /** Maximum length of a text string, so a forged length doesn't allocate a huge array. */
+    private static final int MAX_STRING_BYTES = 1 << 20;
+
+    /** Maximum nesting of skipped arrays and maps. */
+    private static final int MAX_DEPTH = 64;
+
+    /** Tag of a date as RFC 3339 full-date text string (RFC 8943). */
+    private static final long TAG_FULL_DATE = 1004;
+
+    private final InputStream input;
+    private final byte[] buffer = new byte[8192];
+    private int position;
+    private int limit;
+
+    /**
+     * @param input the stream to read from.
+     */
+    public CborReader(InputStream input) {
+        this.input = input;
+    }
+
+    /**
+     * Checks whether another item follows.
+     *
+     * @return true if the stream is not at its end.
+     * @throws IOException if the stream can't be read.
+     */
+    public boolean hasNext() throws IOException {
+        return fill();
+    }
+
+    /**
+     * Reads the head of an array.
+     *
+     * @return the number of items, or -1 if the array is ended by a break.
+     * @throws IOException if the stream can't be read or the next item is no array.
+     */
+    public long readArrayStart() throws IOException {
+        return readContainerStart(ARRAY, "array");
+    }
+
+    /**
+     * Reads the head of a map.
+     *
+     * @return the number of key-value pairs, or -1 if the map is ended by a break.
+     * @throws IOException if the stream can't be read or the next item is no map.
+     */
+    public long readMapStart() throws IOException {
+        return readContainerStart(MAP, "map");
+    }
+
+    private long readContainerStart(int majorType, String name) throws IOException {
+        int initial = readByte();
+        if ((initial & 0xE0) != majorType) {
+            throw new CborException("Expected " + name + " but found major type " + (initial >> 5) + ".");
+        }
+        if ((initial & 0x1F) == INDEFINITE) {
+            return -1;
+        }
+        return readArgument(initial);
+    }
+
+    /**
+     * Consumes the break that ends an array or map of unknown length, if it follows.
+     *
+     * @return true if the break was read.
+     * @throws IOException if the stream can't be read.
+     */
+    public boolean readBreak() throws IOException {
+        if (peek() == BREAK) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Consumes a null (or undefined) item, if it follows.
+     *
+     * @return true if null was read.
+     * @throws IOException if the stream can't be read.
+     */
+    public boolean readNull() throws IOException {
+        int next = peek();
+        if (next == NULL || next == (SIMPLE | 23)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads an integer.
+     *
+     * @return the integer.
+     * @throws IOException if the stream can't be read or the next item is no integer in the range of a long.
+     */
+    public long readLong() throws IOException {
+        int initial = readByte();
+        int majorType = initial & 0xE0;
+        if (majorType != UNSIGNED && majorType != NEGATIVE) {
+            throw new CborException("Expected integer but found major type " + (initial >> 5) + ".");
+        }
+        long argument = readArgument(initial);
+        return majorType == UNSIGNED ? argument : -1 - argument;
+    }
+
+    /**
+     * Reads a text string, or null.
+     *
+     * @return the text.
+     * @throws IOException if the stream can't be read or the next item is no text string.
+     */
+    public String readString() throws IOException {
+        if (readNull()) {
+            return null;
+        }
+        int initial = readByte();
+        if ((initial & 0xE0) != TEXT) {
+            throw new CborException("Expected text string but found major type " + (initial >> 5) + ".");
+        }
+        if ((initial & 0x1F) == INDEFINITE) {
+            StringBuilder text = new StringBuilder();
+            while (!readBreak()) {
+                text.append(readString());
+            }
+            return text.toString();
+        }
+        long length = readArgument(initial);
+        if (length > MAX_STRING_BYTES) {
+            throw new CborException("Text string of " + length + " bytes is too long.");
+        }
+        int bytes = (int) length;
+        if (bytes <= limit - position || bytes <= buffer.length && fill(bytes)) {
+            String text = new String(buffer, position, bytes, StandardCharsets.UTF_8);
+            position += bytes;
+            return text;
+        }
+        byte[] data = new byte[bytes];
+        for (int read = 0; read < bytes; ) {
+            if (!fill()) {
+                throw new CborException("Text string ends early.");
+            }
+            int chunk = Math.min(bytes - read, limit - position);
+            System.arraycopy(buffer, position, data, read, chunk);
+            position += chunk;
+            read += chunk;
+        }
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a date, or null: days since 1970-01-01 (tag 100) or an RFC 3339 full-date text string (tag 1004 or untagged).
+     *
+     * @return the date.
+     * @throws IOException if the stream can't be read or the next item is no date.
+     */
+    public LocalDate readDate() throws IOException {
+        if (readNull()) {
+            return null;
+        }
+        long tag = -1;
+        if ((peek() & 0xE0) == TAG) {
+            tag = readArgument(readByte());
+        }
+        if (tag != -1 && tag != TAG_EPOCH_DAYS && tag != TAG_FULL_DATE) {
+            throw new CborException("Unexpected tag " + tag + " for a date.");
+        }
+        try {
+            if (tag == TAG_EPOCH_DAYS) {
+                return LocalDate.ofEpochDay(readLong());
+            }
+            String text = readString();
+            return text == null ? null : LocalDate.parse(text);
+        } catch (DateTimeException e) {
+            throw new CborException("Invalid date: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Skips the next item including all items nested in it.
+     *
+     * @throws IOException if the stream can't be read or the item is malformed.
+     */
+    public void skip() throws IOException {
+        skip(0);
+    }
+
+    private void skip(int depth) throws IOException {
+        if (depth > MAX_DEPTH) {
+            throw new CborException("Items are nested too deeply.");
+        }
+        int initial = readByte();
+        int majorType = initial & 0xE0;
+        int info = initial & 0x1F;
+        if (majorType == SIMPLE) {
+            // simple values and floats of 1, 2, 4 or 8 bytes
+            skipBytes(info == 24 ? 1 : info == 25 ? 2 : info == 26 ? 4 : info == 27 ? 8 : 0);
+            return;
+        }
+        if (info == INDEFINITE) {
+            if (majorType == UNSIGNED || majorType == NEGATIVE || majorType == TAG) {
+                throw new CborException("Invalid indefinite length.");
+            }
+            while (!readBreak()) {
+                skip(depth + 1);
+                if (majorType == MAP) {
+                    skip(depth + 1);
+                }
+            }
+            return;
+        }
+        long argument = readArgument(initial);
+        if (majorType == BYTES || majorType == TEXT) {
+            skipBytes(argument);
+        } else if (majorType == ARRAY || majorType == MAP) {
+            long items = majorType == MAP ? argument * 2 : argument;
+            for (long i = 0; i < items; i++) {
+                skip(depth + 1);
+            }
+        } else if (majorType == TAG) {
+            skip(depth + 1);
+        }
+    }
+
+    private void skipBytes(long bytes) throws IOException {
+        while (bytes > 0) {
+            if (!fill()) {
+                throw new CborException("Item ends early.");
+            }
+            int chunk = (int) Math.min(bytes, limit - position);
+            position += chunk;
+            bytes -= chunk;
+        }
+    }
+
+    private long readArgument(int initial) throws IOException {
+        int info = initial & 0x1F;
+        if (info < 24) {
+            return info;
+        }
+        int bytes;
+        switch (info) {
+            case 24: bytes = 1; break;
+            case 25: bytes = 2; break;
+            case 26: bytes = 4; break;
+            case 27: bytes = 8; break;
+            default: throw new CborException("Invalid additional information " + info + ".");
+        }
+        long argument = 0;
+        for (int i = 0; i < bytes; i++) {
+            argument = argument << 8 | readByte();
+        }
+        if (argument < 0) {
+            throw new CborException("Integer exceeds the range of a long.");
+        }
+        return argument;
+    }
+
+    private int peek() throws IOException {
+        if (!fill()) {
+            throw new CborException("Unexpected end of CBOR data.");
+        }
+        return buffer[position] & 0xFF;
+    }
+
+    private int readByte() throws IOException {
+        int next = peek();
+        position++;
+        return next;
+    }
+
+    private boolean fill() throws IOException {
+        return position < limit || fill(1);
+    }
+
+    /**
+     * Reads from the stream until at least the given number of bytes are buffered.
+     *
+     * @return false if the stream ended before.
+     */
+    private boolean fill(int bytes) throws IOException {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        while (limit < bytes) {
+            int read = input.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                return false;
+            }
+            limit += read;
+        }
+        return true;
+    }
+}
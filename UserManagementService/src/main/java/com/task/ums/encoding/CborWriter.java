@@ -0,0 +1,237 @@
+package com.task.ums.encoding;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes data items in the Concise Binary Object Representation (CBOR, RFC 8949) to a stream.
+ * <p>
+ * Only the items needed for users are supported: integers, text strings, arrays, maps, tags, null and booleans.
+ * The items are encoded into an internal buffer, so writing a user doesn't allocate;
+ * the buffer is written to the stream when it is full and on {@link #flush()}.
+ * </p>
+ */
+public final class CborWriter {
+    static final int UNSIGNED = 0;
+    static final int NEGATIVE = 1 << 5;
+    static final int BYTES = 2 << 5;
+    static final int TEXT = 3 << 5;
+    static final int ARRAY = 4 << 5;
+    static final int MAP = 5 << 5;
+    static final int TAG = 6 << 5;
+    static final int SIMPLE = 7 << 5;
+
+    static final int FALSE = SIMPLE | 20;
+    static final int TRUE = SIMPLE | 21;
+    static final int NULL = SIMPLE | 22;
+    static final int INDEFINITE = 31;
+    static final int BREAK = SIMPLE | INDEFINITE;
+
+    /** Tag of a date as number of days since 1970-01-01 (RFC 8943). */
+    public static final long TAG_EPOCH_DAYS = 100;
+
+    private final OutputStream output;
+    private final byte[] buffer = new byte[8192];
+    private int position;
+
+    /**
+     * @param output the stream to write to.
+     */
+    public CborWriter(OutputStream output) {
+        this.output = output;
+    }
+
+    /**
+     * Writes an integer.
+     *
+     * @param value the integer.
+     * @return this writer.
+     * @throws IOException if the stream can't be written.
+     */
+    public CborWriter writeLong(long value) throws IOException {
+        // a negative integer n is encoded as -1 - n
+        return value >= 0 ? writeHead(UNSIGNED, value) : writeHead(NEGATIVE, -1 - value);
+    }
+
+    /**
+     * Writes a text string in UTF-8, or null.
+     *
+     * @param value the text.
+     * @return this writer.
+     * @throws IOException if the stream can't be written.
+     */
+    public CborWriter writeString(String value) throws IOException {
+        if (value == null) {
+            return writeNull();
+        }
+        int length = value.length();
+        int utf8Length = utf8Length(value);
+        writeHead(TEXT, utf8Length);
+        if (utf8Length == length && utf8Length <= buffer.length - position) {
+            // the common case: ASCII which fits into the buffer
+            for (int i = 0; i < length; i++) {
+                buffer[position++] = (byte) value.charAt(i);
+            }
+            return this;
+        }
+        for (int i = 0; i < length; i++) {
+            int c = value.charAt(i);
+            ensure(4);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | c >> 6);
+                buffer[position++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate((char) c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint((char) c, value.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | codePoint >> 18);
+                buffer[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                buffer[position++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate((char) c)) {
+                // an unpaired surrogate is replaced, like String.getBytes does
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xE0 | c >> 12);
+                buffer[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                buffer[position++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return this;
+    }
+
+    private static int utf8Length(String value) {
+        int length = value.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    bytes++;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    // 4 bytes for 2 chars
+                    bytes += 2;
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    bytes += 2;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes the head of an array with a known number of items.
+     *
+     * @param size the number of items that follow.
+     * @return this writer.
+     * @throws IOException if the stream can't be written.
+     */
+    public CborWriter writeArrayStart(long size) throws IOException {
+        return writeHead(ARRAY, size);
+    }
+
+    /**
+     * Writes the head of an array whose items are written until {@link #writeBreak()}, for streams of unknown length.
+     *
+     * @return this writer.
+     * @throws IOException if the stream can't be written.
+     */
+    public CborWriter writeArrayStart() throws IOException {
+        return writeByte(ARRAY | INDEFINITE);
+    }
+
+    /**
+     * Writes the head of a map with a known number of entries.
+     *
+     * @param size the number of key-value pairs that follow.
+     * @return this writer.
+     * @throws IOException if the stream can't be written.
+     */
+    public CborWriter writeMapStart(long size) throws IOException {
+        return writeHead(MAP, size);
+    }
+
+    /**
+     * Ends an array of unknown length.
+     *
+     * @return this writer.
+     * @throws IOException if the stream can't be written.
+     */
+    public CborWriter writeBreak() throws IOException {
+        return writeByte(BREAK);
+    }
+
+    /**
+     * Writes a tag, which qualifies the item that follows.
+     *
+     * @param tag the tag number, e.g. {@link #TAG_EPOCH_DAYS}.
+     * @return this writer.
+     * @throws IOException if the stream can't be written.
+     */
+    public CborWriter writeTag(long tag) throws IOException {
+        return writeHead(TAG, tag);
+    }
+
+    public CborWriter writeBoolean(boolean value) throws IOException {
+        return writeByte(value ? TRUE : FALSE);
+    }
+
+    public CborWriter writeNull() throws IOException {
+        return writeByte(NULL);
+    }
+
+    /**
+     * Writes the buffered items to the stream and flushes it.
+     *
+     * @throws IOException if the stream can't be written.
+     */
+    public void flush() throws IOException {
+        drain();
+        output.flush();
+    }
+
+    private CborWriter writeHead(int majorType, long argument) throws IOException {
+        ensure(9);
+        if (argument < 24) {
+            buffer[position++] = (byte) (majorType | argument);
+        } else if (argument < 1L << 8) {
+            buffer[position++] = (byte) (majorType | 24);
+            buffer[position++] = (byte) argument;
+        } else if (argument < 1L << 16) {
+            buffer[position++] = (byte) (majorType | 25);
+            buffer[position++] = (byte) (argument >> 8);
+            buffer[position++] = (byte) argument;
+        } else if (argument < 1L << 32) {
+            buffer[position++] = (byte) (majorType | 26);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (argument >> shift);
+            }
+        } else {
+            buffer[position++] = (byte) (majorType | 27);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (argument >> shift);
+            }
+        }
+        return this;
+    }
+
+    private CborWriter writeByte(int value) throws IOException {
+        ensure(1);
+        buffer[position++] = (byte) value;
+        return this;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.length - position < bytes) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        if (position > 0) {
+            output.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
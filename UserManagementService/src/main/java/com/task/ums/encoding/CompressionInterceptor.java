@@ -0,0 +1,249 @@
+package com.task.ums.encoding;
+
+import jakarta.ws.rs.NotSupportedException;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.ReaderInterceptor;
+import jakarta.ws.rs.ext.ReaderInterceptorContext;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compresses response bodies with gzip or deflate, as negotiated by the "Accept-Encoding" header of the request,
+ * and decompresses request bodies sent with a "Content-Encoding", e.g. large imports.
+ * <p>
+ * Lists of users are repetitive (the same field names, email domains and dates), so they shrink to a fraction.
+ * Small bodies are not worth it: the body is buffered up to the threshold, and only a body exceeding it is
+ * compressed. As the decision is made before the first byte reaches the response, streamed bodies of unknown
+ * length are compressed as well, and the headers are still changed in time. Event streams are never compressed,
+ * as every event has to reach the client when it is flushed.
+ * </p>
+ * Configuration (system properties):
+ * - "ums.compression.enabled": compress responses (default true)
+ * - "ums.compression.minBytes": size from which a body is compressed (default 1024)
+ * - "ums.compression.level": deflate level from 1 (fastest) to 9 (smallest) (default 1, see the EncodingBenchmark)
+ */
+@Provider
+public class CompressionInterceptor implements WriterInterceptor, ReaderInterceptor {
+
+    /** Encoding names of the HTTP "Content-Encoding" header. */
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+
+    private final boolean enabled = Boolean.parseBoolean(System.getProperty("ums.compression.enabled", "true"));
+    private final int minBytes = Integer.getInteger("ums.compression.minBytes", 1024);
+    private final int level = Integer.getInteger("ums.compression.level", Deflater.BEST_SPEED);
+
+    @Context
+    private HttpHeaders requestHeaders;
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException, WebApplicationException {
+        MultivaluedMap<String, Object> headers = context.getHeaders();
+        if (!enabled || headers.containsKey(HttpHeaders.CONTENT_ENCODING)
+                || MediaType.SERVER_SENT_EVENTS_TYPE.isCompatible(context.getMediaType())) {
+            context.proceed();
+            return;
+        }
+
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        String encoding = negotiate(requestHeaders.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+        if (encoding == null) {
+            context.proceed();
+            return;
+        }
+
+        OutputStream original = context.getOutputStream();
+        ThresholdOutputStream output = new ThresholdOutputStream(original, encoding, headers);
+        context.setOutputStream(output);
+        try {
+            context.proceed();
+            output.finish();
+        } finally {
+            output.release();
+            context.setOutputStream(original);
+        }
+    }
+
+    @Override
+    public Object aroundReadFrom(ReaderInterceptorContext context) throws IOException, WebApplicationException {
+        String encoding = context.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+        if (encoding == null || encoding.equalsIgnoreCase("identity")) {
+            return context.proceed();
+        }
+        InputStream input = context.getInputStream();
+        switch (encoding.trim().toLowerCase(Locale.ROOT)) {
+            case GZIP:
+            case "x-gzip":
+                context.setInputStream(new GZIPInputStream(input, 8192));
+                break;
+            case DEFLATE:
+                context.setInputStream(new InflaterInputStream(input, new Inflater(), 8192));
+                break;
+            default:
+                throw new NotSupportedException("The content encoding " + encoding + " is not supported.");
+        }
+        context.getHeaders().remove(HttpHeaders.CONTENT_ENCODING);
+        return context.proceed();
+    }
+
+    /**
+     * Chooses the encoding of a response: gzip, else deflate, unless the client doesn't accept them (q=0).
+     *
+     * @param acceptEncoding the Accept-Encoding header of the request, e.g. "gzip, deflate, br".
+     * @return "gzip", "deflate" or null for an uncompressed response.
+     */
+    public static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (coding.equals(GZIP) || coding.equals("x-gzip")) {
+                gzip = quality;
+            } else if (coding.equals(DEFLATE)) {
+                deflate = quality;
+            } else if (coding.equals("*")) {
+                any = quality;
+            }
+        }
+        gzip = gzip < 0 ? any : gzip;
+        deflate = deflate < 0 ? any : deflate;
+        if (gzip > 0 && gzip >= deflate) {
+            return GZIP;
+        }
+        return deflate > 0 ? DEFLATE : null;
+    }
+
+    /**
+     * Buffers the body until it exceeds the threshold, then sets the Content-Encoding and compresses it.
+     * A body that stays below the threshold is written uncompressed by {@link #finish()}.
+     */
+    private final class ThresholdOutputStream extends OutputStream {
+        private final OutputStream original;
+        private final String encoding;
+        private final MultivaluedMap<String, Object> headers;
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream(minBytes);
+        private DeflaterOutputStream compressor;
+        private Deflater deflater;
+
+        private ThresholdOutputStream(OutputStream original, String encoding, MultivaluedMap<String, Object> headers) {
+            this.original = original;
+            this.encoding = encoding;
+            this.headers = headers;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (compressor != null) {
+                compressor.write(b, off, len);
+                return;
+            }
+            buffer.write(b, off, len);
+            if (buffer.size() > minBytes) {
+                startCompression();
+            }
+        }
+
+        private void startCompression() throws IOException {
+            // nothing is written to the response yet, so the headers can still be changed
+            headers.putSingle(HttpHeaders.CONTENT_ENCODING, encoding);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            if (encoding.equals(GZIP)) {
+                GzipStream gzip = new GzipStream(original, level);
+                deflater = gzip.deflater();
+                compressor = gzip;
+            } else {
+                deflater = new Deflater(level);
+                compressor = new DeflaterOutputStream(original, deflater, 8192);
+            }
+            buffer.writeTo(compressor);
+            buffer = null;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // a flush before the decision would commit the headers; a compressor only flushes at its end
+            if (compressor != null) {
+                original.flush();
+            }
+        }
+
+        /**
+         * Writes the rest of the body, compressed or not, without closing the response stream.
+         */
+        private void finish() throws IOException {
+            if (compressor != null) {
+                compressor.finish();
+            } else {
+                buffer.writeTo(original);
+            }
+            original.flush();
+        }
+
+        /**
+         * Releases the native memory of the deflater, also if the body couldn't be written.
+         */
+        private void release() {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            // the container closes the response stream
+            flush();
+        }
+    }
+
+    /**
+     * A gzip stream with a configurable level, whose deflater can be released without closing the response stream.
+     */
+    private static final class GzipStream extends GZIPOutputStream {
+        private GzipStream(OutputStream out, int level) throws IOException {
+            super(out, 8192);
+            def.setLevel(level);
+        }
+
+        private Deflater deflater() {
+            return def;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.task.ums.encoding;
+
+import com.task.ums.models.PartialUser;
+import com.task.ums.models.User;
+import com.task.ums.models.UserView;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encodes users in CBOR ({@value #MEDIA_TYPE}), the compact binary alternative to JSON for clients
+ * that transfer many users, e.g. mirrors reading all users.
+ * <p>
+ * A user is a map with the same field names as in JSON, so both representations can be read by the same code
+ * of a client. Fields without value are omitted. Integers take 1 to 9 bytes instead of their decimal digits,
+ * strings have a length prefix instead of quotes and escapes, and the birthday is a number of days since 1970-01-01
+ * (tag 100, RFC 8943). The password is never written.
+ * </p>
+ */
+public final class UserCbor {
+
+    /** Media type of CBOR (RFC 8949). */
+    public static final String MEDIA_TYPE = "application/cbor";
+
+    private UserCbor() {
+    }
+
+    /**
+     * Writes a user of any of its representations as CBOR map.
+     *
+     * @param writer the writer.
+     * @param user a {@link User}, {@link UserView} or {@link PartialUser}.
+     * @throws IOException if the stream can't be written.
+     * @throws IllegalArgumentException if the object is no user.
+     */
+    public static void write(CborWriter writer, Object user) throws IOException {
+        if (user instanceof UserView) {
+            writeView(writer, (UserView) user);
+        } else if (user instanceof User) {
+            writeUser(writer, (User) user);
+        } else if (user instanceof PartialUser) {
+            writePartialUser(writer, (PartialUser) user);
+        } else {
+            throw new IllegalArgumentException("Can't write " + (user == null ? "null" : user.getClass().getName()) + " as user.");
+        }
+    }
+
+    private static void writeView(CborWriter writer, UserView user) throws IOException {
+        LocalDate birthday = user.getBirthday();
+        writer.writeMapStart(birthday == null ? 5 : 6);
+        writer.writeString("id").writeLong(user.getId());
+        writer.writeString("version").writeLong(user.getVersion());
+        writer.writeString("firstname").writeString(user.getFirstname());
+        writer.writeString("lastname").writeString(user.getLastname());
+        writer.writeString("email").writeString(user.getEmail());
+        if (birthday != null) {
+            writer.writeString("birthday");
+            writeDate(writer, birthday);
+        }
+    }
+
+    private static void writeUser(CborWriter writer, User user) throws IOException {
+        writer.writeMapStart(2 + (user.getId() != null ? 1 : 0) + (user.getVersion() != null ? 1 : 0) + (user.getEmail() != null ? 1 : 0)
+                + (user.getBirthday() != null ? 1 : 0));
+        if (user.getId() != null) {
+            writer.writeString("id").writeLong(user.getId());
+        }
+        if (user.getVersion() != null) {
+            writer.writeString("version").writeLong(user.getVersion());
+        }
+        writer.writeString("firstname").writeString(user.getFirstname());
+        writer.writeString("lastname").writeString(user.getLastname());
+        if (user.getEmail() != null) {
+            writer.writeString("email").writeString(user.getEmail());
+        }
+        if (user.getBirthday() != null) {
+            writer.writeString("birthday");
+            writeDate(writer, user.getBirthday());
+        }
+    }
+
+    private static void writePartialUser(CborWriter writer, PartialUser user) throws IOException {
+        int fields = 0;
+        for (int i = 0; i < user.getFieldCount(); i++) {
+            if (user.getFieldValue(i) != null) {
+                fields++;
+            }
+        }
+        writer.writeMapStart(fields);
+        for (int i = 0; i < user.getFieldCount(); i++) {
+            Object value = user.getFieldValue(i);
+            if (value == null) {
+                continue;
+            }
+            writer.writeString(user.getFieldName(i));
+            if (value instanceof Number) {
+                writer.writeLong(((Number) value).longValue());
+            } else if (value instanceof LocalDate) {
+                writeDate(writer, (LocalDate) value);
+            } else if (value instanceof java.sql.Date) {
+                writeDate(writer, ((java.sql.Date) value).toLocalDate());
+            } else {
+                writer.writeString(value.toString());
+            }
+        }
+    }
+
+    private static void writeDate(CborWriter writer, LocalDate date) throws IOException {
+        writer.writeTag(CborWriter.TAG_EPOCH_DAYS).writeLong(date.toEpochDay());
+    }
+
+    /**
+     * Reads a user sent by a client: a map with the fields of the JSON representation, including the password.
+     * Unknown fields are skipped.
+     *
+     * @param reader the reader.
+     * @return the user.
+     * @throws IOException if the stream can't be read or the data is no user.
+     */
+    public static User read(CborReader reader) throws IOException {
+        long fields = reader.readMapStart();
+        User user = new User();
+        for (long i = 0; fields < 0 ? !reader.readBreak() : i < fields; i++) {
+            String name = reader.readString();
+            if (name == null) {
+                throw new CborException("Field names must be text strings.");
+            }
+            if (reader.readNull()) {
+                continue;
+            }
+            switch (name) {
+                case "id":
+                    user.setId(reader.readLong());
+                    break;
+                case "version":
+                    user.setVersion(reader.readLong());
+                    break;
+                case "firstname":
+                    user.setFirstname(reader.readString());
+                    break;
+                case "lastname":
+                    user.setLastname(reader.readString());
+                    break;
+                case "email":
+                    user.setEmail(reader.readString());
+                    break;
+                case "birthday":
+                    user.setBirthday(reader.readDate());
+                    break;
+                case "password":
+                    user.setPassword(reader.readString());
+                    break;
+                default:
+                    reader.skip();
+            }
+        }
+        return user;
+    }
+
+    /**
+     * Reads an array of users sent by a client.
+     *
+     * @param reader the reader.
+     * @return the users.
+     * @throws IOException if the stream can't be read or the data is no array of users.
+     */
+    public static List<User> readList(CborReader reader) throws IOException {
+        long size = reader.readArrayStart();
+        // the size is sent by the client: don't trust it for the capacity
+        List<User> users = new ArrayList<>((int) Math.min(Math.max(size, 10), 1000));
+        for (long i = 0; size < 0 ? !reader.readBreak() : i < size; i++) {
+            users.add(read(reader));
+        }
+        return users;
+    }
+}
@@ -0,0 +1,66 @@
+package com.task.ums.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The latencies and the number of responses per status code of a REST endpoint.
+ */
+public final class EndpointMetrics {
+    private static final int MAX_STATUS = 600;
+
+    private final String method;
+    private final String path;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLongArray statuses = new AtomicLongArray(MAX_STATUS);
+
+    /**
+     * Creates the metrics of an endpoint.
+     *
+     * @param method the HTTP method, e.g. "GET".
+     * @param path the path template, e.g. "/users/{id}".
+     */
+    public EndpointMetrics(String method, String path) {
+        this.method = method;
+        this.path = path;
+    }
+
+    /**
+     * Records a response of the endpoint.
+     *
+     * @param status the status code.
+     * @param nanos the time from receiving the request to sending the response in nanoseconds.
+     */
+    public void record(int status, long nanos) {
+        latency.record(nanos);
+        statuses.incrementAndGet(status > 0 && status < MAX_STATUS ? status : 0);
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Returns the number of responses with a status code.
+     *
+     * @param status the status code, 0 for invalid codes.
+     * @return the number of responses.
+     */
+    public long getResponses(int status) {
+        return statuses.get(status);
+    }
+
+    /**
+     * @return the highest status code that can be counted.
+     */
+    public static int getMaxStatus() {
+        return MAX_STATUS - 1;
+    }
+}
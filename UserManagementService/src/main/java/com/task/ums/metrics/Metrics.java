@@ -0,0 +1,69 @@
+package com.task.ums.metrics;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Metrics is the registry of the request, service and validation metrics of the application.
+ *
+ * The metrics are registered once, e.g. per resource method when the application is deployed;
+ * recording only updates their counters.
+ *
+ * @see MetricsFeature
+ * @see TimedInterceptor
+ */
+@ApplicationScoped
+public class Metrics {
+    private final ConcurrentMap<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, OperationMetrics> services = new ConcurrentHashMap<>();
+    private final OperationMetrics validation = new OperationMetrics();
+
+    /**
+     * Returns the metrics of a REST endpoint, registering them on first use.
+     *
+     * @param method the HTTP method, e.g. "GET".
+     * @param path the path template, e.g. "/users/{id}".
+     * @return the endpoint metrics.
+     */
+    public EndpointMetrics endpoint(String method, String path) {
+        return endpoints.computeIfAbsent(method + " " + path, key -> new EndpointMetrics(method, path));
+    }
+
+    /**
+     * Returns the metrics of a service method, registering them on first use.
+     *
+     * @param method the name of the method.
+     * @return the service method metrics.
+     */
+    public OperationMetrics service(String method) {
+        OperationMetrics metrics = services.get(method);
+        return metrics != null ? metrics : services.computeIfAbsent(method, key -> new OperationMetrics());
+    }
+
+    /**
+     * Returns the metrics of the bean validation of users.
+     *
+     * @return the validation metrics.
+     */
+    public OperationMetrics validation() {
+        return validation;
+    }
+
+    /**
+     * @return the endpoint metrics ordered by method and path.
+     */
+    public Map<String, EndpointMetrics> getEndpoints() {
+        return new TreeMap<>(endpoints);
+    }
+
+    /**
+     * @return the service method metrics ordered by method name.
+     */
+    public Map<String, OperationMetrics> getServices() {
+        return new TreeMap<>(services);
+    }
+}
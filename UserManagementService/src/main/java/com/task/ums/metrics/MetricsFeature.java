@@ -0,0 +1,109 @@
+package com.task.ums.metrics;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.HttpMethod;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.DynamicFeature;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.FeatureContext;
+import jakarta.ws.rs.ext.Provider;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+
+/**
+ * MetricsFeature registers a filter for every resource method when the application is deployed,
+ * which records the latency and status code of each response in the {@link EndpointMetrics} of the method.
+ * As the metrics are bound to the filter, a request doesn't need to look them up.
+ */
+@Provider
+public class MetricsFeature implements DynamicFeature {
+    private static final String START_PROPERTY = MetricsFeature.class.getName() + ".start";
+
+    @Inject
+    private Metrics metrics;
+
+    @Override
+    public void configure(ResourceInfo resourceInfo, FeatureContext context) {
+        Method resourceMethod = resourceInfo.getResourceMethod();
+        String httpMethod = httpMethod(resourceMethod);
+        if (httpMethod == null) {
+            return;
+        }
+
+        EndpointMetrics endpoint = metrics.endpoint(httpMethod, path(resourceInfo.getResourceClass(), resourceMethod));
+        // first request filter and last response filter, so the whole processing is measured
+        context.register(new EndpointFilter(endpoint), 1);
+    }
+
+    /**
+     * Returns the HTTP method of a resource method.
+     *
+     * @param method the resource method.
+     * @return the HTTP method, e.g. "GET", or null for sub-resource locators.
+     */
+    public static String httpMethod(Method method) {
+        for (Annotation annotation : method.getAnnotations()) {
+            HttpMethod httpMethod = annotation.annotationType().getAnnotation(HttpMethod.class);
+            if (httpMethod != null) {
+                return httpMethod.value();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the path template of a resource method, the label of its endpoint.
+     *
+     * @param resourceClass the resource class.
+     * @param method the resource method.
+     * @return the path template, e.g. "/users/{id}".
+     */
+    public static String path(Class<?> resourceClass, Method method) {
+        StringBuilder path = new StringBuilder();
+        Path classPath = resourceClass.getAnnotation(Path.class);
+        if (classPath != null) {
+            appendSegment(path, classPath.value());
+        }
+        Path methodPath = method.getAnnotation(Path.class);
+        if (methodPath != null) {
+            appendSegment(path, methodPath.value());
+        }
+        return path.length() == 0 ? "/" : path.toString();
+    }
+
+    private static void appendSegment(StringBuilder path, String segment) {
+        String trimmed = segment.replaceAll("^/+|/+$", "");
+        if (!trimmed.isEmpty()) {
+            path.append('/').append(trimmed);
+        }
+    }
+
+    /**
+     * Measures the requests of one resource method.
+     */
+    private static final class EndpointFilter implements ContainerRequestFilter, ContainerResponseFilter {
+        private final EndpointMetrics endpoint;
+
+        private EndpointFilter(EndpointMetrics endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        @Override
+        public void filter(ContainerRequestContext requestContext) {
+            requestContext.setProperty(START_PROPERTY, System.nanoTime());
+        }
+
+        @Override
+        public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+            Object start = requestContext.getProperty(START_PROPERTY);
+            if (start instanceof Long) {
+                endpoint.record(responseContext.getStatus(), System.nanoTime() - (Long) start);
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.task.ums.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The latencies and the number of failures of an operation, e.g. a service method.
+ */
+public final class OperationMetrics {
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Records an execution of the operation.
+     *
+     * @param nanos the latency in nanoseconds.
+     * @param failed whether the operation failed.
+     */
+    public void record(long nanos, boolean failed) {
+        latency.record(nanos);
+        if (failed) {
+            failures.incrementAndGet();
+        }
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+}
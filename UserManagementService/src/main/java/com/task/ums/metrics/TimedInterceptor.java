@@ -0,0 +1,40 @@
+package com.task.ums.metrics;
+
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.interceptor.AroundInvoke;
+import jakarta.interceptor.Interceptor;
+import jakarta.interceptor.InvocationContext;
+
+/**
+ * Interceptor measuring the methods of beans annotated with {@link Timed}.
+ */
+@Timed
+@Interceptor
+@Priority(Interceptor.Priority.APPLICATION)
+public class TimedInterceptor {
+
+    @Inject
+    private Metrics metrics;
+
+    /**
+     * Invokes the method and records its latency; an exception counts as failure.
+     *
+     * @param context the invocation.
+     * @return the result of the method.
+     * @throws Exception the exception of the method.
+     */
+    @AroundInvoke
+    public Object time(InvocationContext context) throws Exception {
+        OperationMetrics operation = metrics.service(context.getMethod().getName());
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Object result = context.proceed();
+            failed = false;
+            return result;
+        } finally {
+            operation.record(System.nanoTime() - start, failed);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.task.ums.models;
+
+import lombok.Getter;
+
+/**
+ * The state of the admission control in front of the REST API.
+ */
+@Getter
+public class AdmissionStatistics {
+    /**
+     * Whether requests are rate and concurrency limited at all.
+     */
+    private final boolean enabled;
+
+    /**
+     * The current limit of concurrently processed requests, adapted to the observed latency.
+     */
+    private final int concurrencyLimit;
+
+    /**
+     * The number of requests being processed under the concurrency limit.
+     */
+    private final int inFlight;
+
+    /**
+     * The number of requests rejected because their client exceeded its rate.
+     */
+    private final long rateRejected;
+
+    /**
+     * The number of requests rejected because the concurrency limit was reached.
+     */
+    private final long concurrencyRejected;
+
+    /**
+     * The number of token buckets, i.e. of clients per endpoint that recently sent requests.
+     */
+    private final long clients;
+
+    public AdmissionStatistics(boolean enabled, int concurrencyLimit, int inFlight, long rateRejected,
+                               long concurrencyRejected, long clients) {
+        this.enabled = enabled;
+        this.concurrencyLimit = concurrencyLimit;
+        this.inFlight = inFlight;
+        this.rateRejected = rateRejected;
+        this.concurrencyRejected = concurrencyRejected;
+        this.clients = clients;
+    }
+}
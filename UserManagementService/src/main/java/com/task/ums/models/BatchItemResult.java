@@ -0,0 +1,41 @@
+package com.task.ums.models;
+
+import lombok.Getter;
+
+/**
+ * The outcome for a single user of a batch request.
+ *
+ * The index refers to the position of the user in the request. For created users the
+ * ID is set, for rejected users the message describes why the user wasn't created.
+ *
+ * @see BatchResult
+ */
+@Getter
+public class BatchItemResult {
+    /**
+     * The position of the user in the batch request.
+     */
+    private final int index;
+
+    /**
+     * The HTTP status for this user, e.g. 201 (created) or 400 (invalid).
+     */
+    private final int status;
+
+    /**
+     * The ID of the created user. This field is null if the user wasn't created.
+     */
+    private final Long id;
+
+    /**
+     * The reason why the user wasn't created. This field is null if the user was created.
+     */
+    private final String message;
+
+    public BatchItemResult(int index, int status, Long id, String message) {
+        this.index = index;
+        this.status = status;
+        this.id = id;
+        this.message = message;
+    }
+}
@@ -0,0 +1,35 @@
+package com.task.ums.models;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * The response of a batch request, containing the number of created and failed users
+ * and the outcome for every user in the order of the request.
+ *
+ * @see BatchItemResult
+ */
+@Getter
+public class BatchResult {
+    /**
+     * The number of users created in the database.
+     */
+    private final int created;
+
+    /**
+     * The number of users that were rejected.
+     */
+    private final int failed;
+
+    /**
+     * The outcome for every user of the request.
+     */
+    private final List<BatchItemResult> items;
+
+    public BatchResult(int created, int failed, List<BatchItemResult> items) {
+        this.created = created;
+        this.failed = failed;
+        this.items = items;
+    }
+}
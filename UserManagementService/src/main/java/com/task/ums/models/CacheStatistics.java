@@ -0,0 +1,64 @@
+package com.task.ums.models;
+
+import lombok.Getter;
+
+/**
+ * The counters of the user cache, used to size the cache from production data.
+ */
+@Getter
+public class CacheStatistics {
+    /**
+     * The number of users currently held in the cache.
+     */
+    private final long size;
+
+    /**
+     * The maximum number of users held in the cache.
+     */
+    private final long maxSize;
+
+    /**
+     * The number of lookups answered from the cache.
+     */
+    private final long hits;
+
+    /**
+     * The number of lookups that had to load the user from the database.
+     */
+    private final long misses;
+
+    /**
+     * The number of users removed because the cache was full.
+     */
+    private final long evictions;
+
+    /**
+     * The number of users removed because their time to live was over.
+     */
+    private final long expirations;
+
+    /**
+     * The number of users removed because they were updated or deleted.
+     */
+    private final long invalidations;
+
+    public CacheStatistics(long size, long maxSize, long hits, long misses, long evictions, long expirations, long invalidations) {
+        this.size = size;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.expirations = expirations;
+        this.invalidations = invalidations;
+    }
+
+    /**
+     * The share of lookups answered from the cache (0-1).
+     *
+     * @return the hit rate.
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
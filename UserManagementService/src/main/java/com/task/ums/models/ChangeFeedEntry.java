@@ -0,0 +1,43 @@
+package com.task.ums.models;
+
+import jakarta.json.JsonObject;
+import lombok.Getter;
+
+/**
+ * A change of a user as delivered by the change feed, see {@link UserChangeEntry}.
+ */
+@Getter
+public class ChangeFeedEntry {
+    /**
+     * The sequence number of the change.
+     */
+    private final long seq;
+
+    /**
+     * The kind of change: CREATED, UPDATED or DELETED.
+     */
+    private final String type;
+
+    /**
+     * The ID of the changed user.
+     */
+    private final long userId;
+
+    /**
+     * Whether the user contains only the changed fields.
+     */
+    private final boolean partial;
+
+    /**
+     * The new state of the user, or null for a deleted user.
+     */
+    private final JsonObject user;
+
+    public ChangeFeedEntry(long seq, String type, long userId, boolean partial, JsonObject user) {
+        this.seq = seq;
+        this.type = type;
+        this.userId = userId;
+        this.partial = partial;
+        this.user = user;
+    }
+}
@@ -0,0 +1,32 @@
+package com.task.ums.models;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * A page of the change feed.
+ */
+@Getter
+public class ChangeFeedPage {
+    /**
+     * The changes in the order of their sequence numbers.
+     */
+    private final List<ChangeFeedEntry> changes;
+
+    /**
+     * The sequence number to pass as "since" for the next page.
+     */
+    private final long next;
+
+    /**
+     * Whether there are more changes after this page.
+     */
+    private final boolean more;
+
+    public ChangeFeedPage(List<ChangeFeedEntry> changes, long next, boolean more) {
+        this.changes = changes;
+        this.next = next;
+        this.more = more;
+    }
+}
@@ -0,0 +1,61 @@
+package com.task.ums.models;
+
+import lombok.Getter;
+
+/**
+ * The concurrency, throughput and waiting times of the executor running the database work of requests.
+ */
+@Getter
+public class DatabaseExecutorStatistics {
+    /**
+     * Whether the tasks run on virtual threads (otherwise on the managed executor of the container).
+     */
+    private final boolean virtualThreads;
+
+    /**
+     * Whether the work of requests runs on their worker threads instead of separate threads (blocking mode).
+     */
+    private final boolean blocking;
+
+    /**
+     * The maximum number of tasks accessing the database at the same time.
+     */
+    private final int maxConcurrency;
+
+    /**
+     * The number of tasks currently accessing the database.
+     */
+    private final int active;
+
+    /**
+     * The number of tasks currently waiting for access to the database.
+     */
+    private final int waiting;
+
+    /**
+     * The number of finished tasks.
+     */
+    private final long completed;
+
+    /**
+     * The number of tasks rejected because they waited too long for access to the database.
+     */
+    private final long rejected;
+
+    /**
+     * The average time a task waited for access to the database, in milliseconds.
+     */
+    private final double averageWaitMillis;
+
+    public DatabaseExecutorStatistics(boolean virtualThreads, boolean blocking, int maxConcurrency, int active,
+                                      int waiting, long completed, long rejected, double averageWaitMillis) {
+        this.virtualThreads = virtualThreads;
+        this.blocking = blocking;
+        this.maxConcurrency = maxConcurrency;
+        this.active = active;
+        this.waiting = waiting;
+        this.completed = completed;
+        this.rejected = rejected;
+        this.averageWaitMillis = averageWaitMillis;
+    }
+}
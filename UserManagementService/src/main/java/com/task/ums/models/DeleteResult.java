@@ -0,0 +1,24 @@
+package com.task.ums.models;
+
+import lombok.Getter;
+
+/**
+ * The response of a bulk delete request.
+ */
+@Getter
+public class DeleteResult {
+    /**
+     * The number of distinct user IDs in the request.
+     */
+    private final int requested;
+
+    /**
+     * The number of users removed from the database.
+     */
+    private final int deleted;
+
+    public DeleteResult(int requested, int deleted) {
+        this.requested = requested;
+        this.deleted = deleted;
+    }
+}
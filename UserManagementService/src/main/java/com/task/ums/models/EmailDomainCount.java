@@ -0,0 +1,24 @@
+package com.task.ums.models;
+
+import lombok.Getter;
+
+/**
+ * An email domain with the estimated number of users whose email address belongs to it.
+ */
+@Getter
+public class EmailDomainCount {
+    /**
+     * The domain, e.g. "example.com".
+     */
+    private final String domain;
+
+    /**
+     * The estimated number of users; it may be slightly too high, but never too low.
+     */
+    private final long users;
+
+    public EmailDomainCount(String domain, long users) {
+        this.domain = domain;
+        this.users = users;
+    }
+}
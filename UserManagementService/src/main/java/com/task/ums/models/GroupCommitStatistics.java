@@ -0,0 +1,86 @@
+package com.task.ums.models;
+
+import lombok.Getter;
+
+/**
+ * The queue, group sizes and waiting times of the writes merged into shared transactions.
+ */
+@Getter
+public class GroupCommitStatistics {
+    /**
+     * Whether concurrent writes are merged (otherwise every write has its own transaction).
+     */
+    private final boolean enabled;
+
+    /**
+     * The maximum time a write waits for further writes of its group, in milliseconds.
+     */
+    private final double windowMillis;
+
+    /**
+     * The maximum number of writes per transaction.
+     */
+    private final int maxBatchSize;
+
+    /**
+     * The number of writes currently waiting for their group.
+     */
+    private final int queueDepth;
+
+    /**
+     * The number of committed groups.
+     */
+    private final long groups;
+
+    /**
+     * The number of writes in the committed groups.
+     */
+    private final long writes;
+
+    /**
+     * The number of groups whose transaction failed, so their writes were applied one by one.
+     */
+    private final long fallbacks;
+
+    /**
+     * The number of writes rejected because the queue was full.
+     */
+    private final long rejected;
+
+    /**
+     * The average number of writes per group.
+     */
+    private final double averageBatchSize;
+
+    /**
+     * The largest number of writes in a group.
+     */
+    private final int largestBatchSize;
+
+    /**
+     * The average time a write waited in the queue, in milliseconds.
+     */
+    private final double averageQueueWaitMillis;
+
+    /**
+     * The 99th percentile of the time a write waited in the queue, in milliseconds.
+     */
+    private final double p99QueueWaitMillis;
+
+    public GroupCommitStatistics(boolean enabled, double windowMillis, int maxBatchSize, int queueDepth, long groups,
+                                 long writes, long fallbacks, long rejected, double averageBatchSize, int largestBatchSize,
+                                 double averageQueueWaitMillis, double p99QueueWaitMillis) {
+        this.enabled = enabled;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.queueDepth = queueDepth;
+        this.groups = groups;
+        this.writes = writes;
+        this.fallbacks = fallbacks;
+        this.rejected = rejected;
+        this.averageBatchSize = averageBatchSize;
+        this.largestBatchSize = largestBatchSize;
+        this.averageQueueWaitMillis = averageQueueWaitMillis;
+        this.p99QueueWaitMillis = p99QueueWaitMillis;
+    }
+}
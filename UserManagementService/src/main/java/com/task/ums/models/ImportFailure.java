@@ -0,0 +1,26 @@
+package com.task.ums.models;
+
+import lombok.Getter;
+
+/**
+ * A line of an import that couldn't be imported.
+ *
+ * @see ImportResult
+ */
+@Getter
+public class ImportFailure {
+    /**
+     * The number of the line, starting with 1.
+     */
+    private final long line;
+
+    /**
+     * The reason why the line wasn't imported.
+     */
+    private final String message;
+
+    public ImportFailure(long line, String message) {
+        this.line = line;
+        this.message = message;
+    }
+}
@@ -0,0 +1,61 @@
+package com.task.ums.models;
+
+import lombok.Getter;
+
+/**
+ * The progress of a running import of users.
+ */
+@Getter
+public class ImportProgress {
+    /**
+     * The ID of the import, in the order the imports were started.
+     */
+    private final long id;
+
+    /**
+     * Where the users are read from: "request" or the name of the file.
+     */
+    private final String source;
+
+    /**
+     * The number of bytes read so far.
+     */
+    private final long bytesRead;
+
+    /**
+     * The size of the input in bytes, or -1 if it isn't known (request body).
+     */
+    private final long totalBytes;
+
+    /**
+     * The number of lines read so far.
+     */
+    private final long lines;
+
+    /**
+     * The number of users created so far.
+     */
+    private final long imported;
+
+    /**
+     * The number of lines that failed so far.
+     */
+    private final long failed;
+
+    /**
+     * The time since the start of the import in milliseconds.
+     */
+    private final long elapsedMillis;
+
+    public ImportProgress(long id, String source, long bytesRead, long totalBytes, long lines, long imported, long failed,
+                          long elapsedMillis) {
+        this.id = id;
+        this.source = source;
+        this.bytesRead = bytesRead;
+        this.totalBytes = totalBytes;
+        this.lines = lines;
+        this.imported = imported;
+        this.failed = failed;
+        this.elapsedMillis = elapsedMillis;
+    }
+}
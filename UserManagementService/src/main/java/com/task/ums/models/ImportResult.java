@@ -0,0 +1,54 @@
+package com.task.ums.models;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * The response of an import of users: the number of read, imported and failed lines,
+ * and the failed lines with their reasons (up to a maximum).
+ *
+ * @see ImportFailure
+ */
+@Getter
+public class ImportResult {
+    /**
+     * The number of lines read, including empty lines.
+     */
+    private final long lines;
+
+    /**
+     * The number of users created in the database.
+     */
+    private final long imported;
+
+    /**
+     * The number of lines that weren't imported.
+     */
+    private final long failed;
+
+    /**
+     * The failed lines in the order of the input, at most the first 1000.
+     */
+    private final List<ImportFailure> failures;
+
+    /**
+     * Whether more lines failed than are listed.
+     */
+    private final boolean failuresTruncated;
+
+    /**
+     * The duration of the import in milliseconds.
+     */
+    private final long durationMillis;
+
+    public ImportResult(long lines, long imported, long failed, List<ImportFailure> failures, boolean failuresTruncated,
+                        long durationMillis) {
+        this.lines = lines;
+        this.imported = imported;
+        this.failed = failed;
+        this.failures = failures;
+        this.failuresTruncated = failuresTruncated;
+        this.durationMillis = durationMillis;
+    }
+}
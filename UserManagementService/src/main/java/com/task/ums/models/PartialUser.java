@@ -0,0 +1,94 @@
+package com.task.ums.models;
+
+import java.util.AbstractMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The selected fields of a user, as returned for a request with a sparse fieldset ({@code ?fields=}).
+ *
+ * A partial user is a read-only map from the names of the selected fields to their values, so JSON-B
+ * writes it as object with only these fields. Fields without value are omitted like for a {@link User}.
+ * The ID and version are always known, so the response can carry a cursor and an ETag,
+ * but they are only written if they were selected.
+ */
+public class PartialUser extends AbstractMap<String, Object> {
+    /**
+     * The ID of the user.
+     */
+    private final long id;
+
+    /**
+     * The version of the user.
+     */
+    private final long version;
+
+    /**
+     * The names of the selected fields, in the order they are written.
+     */
+    private final String[] names;
+
+    /**
+     * The values of the selected fields, in the order of the names.
+     */
+    private final Object[] values;
+
+    public PartialUser(long id, long version, String[] names, Object[] values) {
+        this.id = id;
+        this.version = version;
+        this.names = names;
+        this.values = values;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the number of selected fields.
+     */
+    public int getFieldCount() {
+        return names.length;
+    }
+
+    /**
+     * @param index the index of the field, in the order they are written.
+     * @return the name of the field.
+     */
+    public String getFieldName(int index) {
+        return names[index];
+    }
+
+    /**
+     * Returns the value of a field as selected, e.g. a date as {@link java.time.LocalDate}, for binary formats.
+     *
+     * @param index the index of the field, in the order they are written.
+     * @return the value or null if the field has no value.
+     */
+    public Object getFieldValue(int index) {
+        return values[index];
+    }
+
+    /**
+     * Returns the selected fields with a value, in the order they are written.
+     *
+     * @return the fields and their values.
+     */
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        Set<Map.Entry<String, Object>> entries = new LinkedHashSet<>();
+        for (int i = 0; i < names.length; i++) {
+            if (values[i] != null) {
+                // dates are written in ISO format, as for a User
+                Object value = values[i] instanceof Number ? values[i] : values[i].toString();
+                entries.add(new SimpleImmutableEntry<>(names[i], value));
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,42 @@
+package com.task.ums.models;
+
+import lombok.Getter;
+
+/**
+ * The partitions of the users table: how many users every partition holds and how often all partitions were read.
+ */
+@Getter
+public class PartitionStatistics {
+    /**
+     * The number of partitions, 0 if the users aren't partitioned.
+     */
+    private final int partitions;
+
+    /**
+     * The number of users per partition.
+     */
+    private final long[] users;
+
+    /**
+     * The number of reads sent to all partitions and merged by ID (scatter-gather).
+     */
+    private final long scatterGathers;
+
+    /**
+     * The number of users moved to another partition when the application started.
+     */
+    private final long rebalancedUsers;
+
+    /**
+     * The number of JTA transactions that failed after partitions were committed; their changes were published once more.
+     */
+    private final long partialCommits;
+
+    public PartitionStatistics(int partitions, long[] users, long scatterGathers, long rebalancedUsers, long partialCommits) {
+        this.partitions = partitions;
+        this.users = users;
+        this.scatterGathers = scatterGathers;
+        this.rebalancedUsers = rebalancedUsers;
+        this.partialCommits = partialCommits;
+    }
+}
@@ -0,0 +1,67 @@
+package com.task.ums.models;
+
+import lombok.Getter;
+
+/**
+ * The queue depth, throughput and latency of the password hashing pool.
+ */
+@Getter
+public class PasswordHasherStatistics {
+    /**
+     * The number of hashing threads.
+     */
+    private final int threads;
+
+    /**
+     * The maximum number of waiting tasks.
+     */
+    private final int queueCapacity;
+
+    /**
+     * The number of tasks currently waiting.
+     */
+    private final int queueDepth;
+
+    /**
+     * The number of tasks currently running.
+     */
+    private final int active;
+
+    /**
+     * The number of finished hash and verify tasks.
+     */
+    private final long completed;
+
+    /**
+     * The number of tasks rejected because the queue was full.
+     */
+    private final long rejected;
+
+    /**
+     * The average time a task waited in the queue, in milliseconds.
+     */
+    private final double averageWaitMillis;
+
+    /**
+     * The average time a task took to run, in milliseconds.
+     */
+    private final double averageWorkMillis;
+
+    /**
+     * The longest time from submitting to finishing a task, in milliseconds.
+     */
+    private final double maxLatencyMillis;
+
+    public PasswordHasherStatistics(int threads, int queueCapacity, int queueDepth, int active, long completed, long rejected,
+                                    double averageWaitMillis, double averageWorkMillis, double maxLatencyMillis) {
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        this.queueDepth = queueDepth;
+        this.active = active;
+        this.completed = completed;
+        this.rejected = rejected;
+        this.averageWaitMillis = averageWaitMillis;
+        this.averageWorkMillis = averageWorkMillis;
+        this.maxLatencyMillis = maxLatencyMillis;
+    }
+}
@@ -0,0 +1,33 @@
+package com.task.ums.models;
+
+import lombok.Getter;
+
+/**
+ * The size of the user read model, used to plan its memory.
+ */
+@Getter
+public class ReadModelStatistics {
+    /**
+     * The number of users in the read model.
+     */
+    private final long users;
+
+    /**
+     * The estimated heap used by the read model in bytes.
+     */
+    private final long estimatedBytes;
+
+    public ReadModelStatistics(long users, long estimatedBytes) {
+        this.users = users;
+        this.estimatedBytes = estimatedBytes;
+    }
+
+    /**
+     * The estimated heap used per user in bytes.
+     *
+     * @return the bytes per user.
+     */
+    public long getEstimatedBytesPerUser() {
+        return users == 0 ? 0 : estimatedBytes / users;
+    }
+}
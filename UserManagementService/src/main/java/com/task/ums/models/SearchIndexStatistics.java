@@ -0,0 +1,39 @@
+package com.task.ums.models;
+
+import lombok.Getter;
+
+/**
+ * The size of the user search index, used to plan its memory.
+ */
+@Getter
+public class SearchIndexStatistics {
+    /**
+     * The number of indexed users.
+     */
+    private final long users;
+
+    /**
+     * The number of distinct name tokens.
+     */
+    private final long terms;
+
+    /**
+     * The estimated heap used by the index in bytes.
+     */
+    private final long estimatedBytes;
+
+    public SearchIndexStatistics(long users, long terms, long estimatedBytes) {
+        this.users = users;
+        this.terms = terms;
+        this.estimatedBytes = estimatedBytes;
+    }
+
+    /**
+     * The estimated heap used per indexed user in bytes.
+     *
+     * @return the bytes per user.
+     */
+    public long getEstimatedBytesPerUser() {
+        return users == 0 ? 0 : estimatedBytes / users;
+    }
+}
@@ -0,0 +1,61 @@
+package com.task.ums.models;
+
+import lombok.Getter;
+
+/**
+ * The calls and loads of the coalesced reads: how many requests shared the database load of another request.
+ */
+@Getter
+public class SingleFlightStatistics {
+    /**
+     * Whether identical reads are coalesced.
+     */
+    private final boolean enabled;
+
+    /**
+     * The number of loads currently in flight.
+     */
+    private final int inFlight;
+
+    /**
+     * The number of reads requested.
+     */
+    private final long calls;
+
+    /**
+     * The number of loads started, i.e. the reads that went to the database.
+     */
+    private final long loads;
+
+    /**
+     * The number of reads that joined a load in flight instead of starting their own.
+     */
+    private final long coalesced;
+
+    /**
+     * The number of failed loads; each failed all the reads waiting for it.
+     */
+    private final long failures;
+
+    /**
+     * The number of reads that gave up waiting for their load.
+     */
+    private final long timeouts;
+
+    /**
+     * The share of coalesced reads among all reads, from 0 to 1.
+     */
+    private final double coalescingRatio;
+
+    public SingleFlightStatistics(boolean enabled, int inFlight, long calls, long loads, long coalesced, long failures,
+                                  long timeouts, double coalescingRatio) {
+        this.enabled = enabled;
+        this.inFlight = inFlight;
+        this.calls = calls;
+        this.loads = loads;
+        this.coalesced = coalesced;
+        this.failures = failures;
+        this.timeouts = timeouts;
+        this.coalescingRatio = coalescingRatio;
+    }
+}
@@ -1,5 +1,6 @@
 package com.task.ums.models;
 
+import jakarta.json.bind.annotation.JsonbTransient;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotEmpty;
@@ -8,7 +9,9 @@ import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Locale;
 
 /**
  * Represents a User entity for the User Management Service.
@@ -18,7 +21,8 @@ import java.time.LocalDate;
  *
  * Annotations are used to define the table structure and validation rules:
  * - `@Entity` marks this class as a JPA entity.
- * - `@Table(name = "users")` specifies the table name in the database.
+ * - `@Table(name = "users")` specifies the table name in the database and the unique index on the email address.
+ * - `@NamedQuery` defines the queries that are precompiled when the persistence unit is started.
  * - Lombok's `@Getter` and `@Setter` generate getter and setter methods for all fields.
  * - Validation annotations such as `@NotNull`, `@NotEmpty`, `@Email`, and `@Size`
  *   ensure that the fields meet the specified constraints.
@@ -26,13 +30,28 @@ import java.time.LocalDate;
 @Entity
 @Getter
 @Setter
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "ux_users_email", columnList = "email", unique = true))
+@NamedQuery(name = User.FIND_BY_EMAIL, query = "SELECT u FROM User u WHERE u.email = :email")
+@NamedQuery(name = User.FIND_EXISTING_EMAILS, query = "SELECT u.email FROM User u WHERE u.email IN :emails")
 public class User {
     /**
-     * The unique identifier for a user. This field is auto-generated by the database.
+     * Name of the query that finds a user by its (normalized) email address.
+     */
+    public static final String FIND_BY_EMAIL = "User.findByEmail";
+
+    /**
+     * Name of the query that selects which of the given (normalized) email addresses are already used.
+     */
+    public static final String FIND_EXISTING_EMAILS = "User.findExistingEmails";
+
+    /**
+     * The unique identifier for a user. This field is generated from the database sequence "users_seq".
+     * The IDs are allocated in blocks of 50, so new users don't need a round trip for their ID
+     * and their inserts can be batched.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -51,9 +70,11 @@ public class User {
 
     /**
      * The email address of the user. This field is mandatory and must be in a valid email format.
+     * It is stored in lower case, so the unique index on this column is case-insensitive.
      */
     @NotNull(message = "The email address is mandatory.")
     @Email(message = "The email has to be in a valid format.")
+    @Column(nullable = false)
     private String email;
 
     /**
@@ -63,8 +84,62 @@ public class User {
 
     /**
      * The password of the user. This field is mandatory and must be between 6 and 20 characters in length.
+     * It is only accepted as input and is never stored or returned; the database holds its hash.
      */
     @NotNull(message = "The password is mandatory.")
     @Size(min = 6, max = 20, message = "The password must have a valid length (6-20 characters).")
+    @Transient
     private String password;
+
+    /**
+     * The PBKDF2 hash of the password, computed by the {@link com.task.ums.services.PasswordHasher}.
+     * This field is never returned to clients.
+     */
+    @JsonbTransient
+    @Column(name = "password_hash", nullable = false)
+    private String passwordHash;
+
+    /**
+     * The version of the user. This field is incremented by JPA with every update
+     * and is used for optimistic locking and as ETag of the user.
+     */
+    @Version
+    private Long version;
+
+    /**
+     * The time the user was created, set when the user is persisted unless it is restored from an export.
+     * It is used for the statistics and isn't returned to clients.
+     */
+    @JsonbTransient
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    /**
+     * Sets the email address of the user in its normalized (lower case) form.
+     *
+     * @param email the email address.
+     */
+    public void setEmail(String email) {
+        this.email = normalizeEmail(email);
+    }
+
+    /**
+     * Normalizes an email address for storage and lookup, so that addresses differing only in case are equal.
+     *
+     * @param email the email address, may be null.
+     * @return the email address in lower case.
+     */
+    public static String normalizeEmail(String email) {
+        return email == null ? null : email.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Sets the creation time of a new user before it is inserted.
+     */
+    @PrePersist
+    void onPersist() {
+        if (createdAt == null) {
+            createdAt = Instant.now();
+        }
+    }
 }
@@ -0,0 +1,57 @@
+package com.task.ums.models;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * An entry of the append-only change log of users, written in the same transaction as the change itself.
+ *
+ * The entries are numbered by a database sequence, so consumers can read all changes after the
+ * sequence number of the last change they have seen. The data of an entry is the new state of the
+ * user as JSON object: complete for created and replaced users, only the changed fields for patched
+ * users ({@code partial}), and none for deleted users. Password hashes are never logged.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "user_changes", indexes = @Index(name = "ix_user_changes_user", columnList = "userId"))
+public class UserChangeEntry {
+    /**
+     * The sequence number of the change, generated from the database sequence "user_changes_seq".
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_changes_seq")
+    @SequenceGenerator(name = "user_changes_seq", sequenceName = "user_changes_seq", allocationSize = 50)
+    private Long seq;
+
+    /**
+     * The ID of the changed user.
+     */
+    private long userId;
+
+    /**
+     * The kind of change: CREATED, UPDATED or DELETED.
+     */
+    @Column(nullable = false, length = 10)
+    private String type;
+
+    /**
+     * Whether the data contains only the changed fields instead of the complete state of the user.
+     */
+    private boolean partial;
+
+    /**
+     * The new state of the user as JSON object, or null for a deleted user.
+     */
+    @Column(length = 4000)
+    private String data;
+
+    /**
+     * The time of the change.
+     */
+    @Column(nullable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,30 @@
+package com.task.ums.models;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The persistent state of the change log of users (a single row).
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "user_changes_state")
+public class UserChangeLogState {
+    /**
+     * The ID of the only row.
+     */
+    public static final int ID = 1;
+
+    @Id
+    private int id = ID;
+
+    /**
+     * The highest sequence number of the deletions removed from the log after their retention period.
+     * Consumers that have read up to an older sequence number may have missed a deletion and have to start over.
+     */
+    private long purgedUpTo;
+}
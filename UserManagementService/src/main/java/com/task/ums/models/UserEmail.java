@@ -0,0 +1,30 @@
+package com.task.ums.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The owner of an email address if the users table is partitioned: the row is stored in the partition the address
+ * routes to, whichever partition stores the user, so the primary key keeps the addresses unique across partitions.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "user_emails")
+public class UserEmail {
+    /**
+     * The email address in lower case.
+     */
+    @Id
+    private String email;
+
+    /**
+     * The ID of the user using the email address.
+     */
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+}
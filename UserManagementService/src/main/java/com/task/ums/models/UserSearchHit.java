@@ -0,0 +1,36 @@
+package com.task.ums.models;
+
+import lombok.Getter;
+
+/**
+ * A user found by a name search, with the score used to rank the hits.
+ */
+@Getter
+public class UserSearchHit {
+    /**
+     * The ID of the user.
+     */
+    private final long id;
+
+    /**
+     * The first name of the user.
+     */
+    private final String firstname;
+
+    /**
+     * The last name of the user.
+     */
+    private final String lastname;
+
+    /**
+     * How well the name matches the query; higher is better.
+     */
+    private final double score;
+
+    public UserSearchHit(long id, String firstname, String lastname, double score) {
+        this.id = id;
+        this.firstname = firstname;
+        this.lastname = lastname;
+        this.score = score;
+    }
+}
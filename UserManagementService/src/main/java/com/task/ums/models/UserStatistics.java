@@ -0,0 +1,59 @@
+package com.task.ums.models;
+
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregated statistics of all users for dashboards, maintained incrementally with every change.
+ */
+@Getter
+public class UserStatistics {
+    /**
+     * The number of users.
+     */
+    private final long users;
+
+    /**
+     * The number of existing users by the day (UTC, yyyy-MM-dd) they were created, oldest day first.
+     */
+    private final Map<String, Long> signupsPerDay;
+
+    /**
+     * The number of users without a creation time, i.e. created before it was recorded.
+     */
+    private final long signupsWithoutDate;
+
+    /**
+     * The number of users by decade of their birth year, e.g. "1980-1989", oldest decade first.
+     */
+    private final Map<String, Long> birthYears;
+
+    /**
+     * The number of users without a birthday.
+     */
+    private final long withoutBirthday;
+
+    /**
+     * The email domains with the most users, most users first (estimated).
+     */
+    private final List<EmailDomainCount> topEmailDomains;
+
+    /**
+     * The time the statistics were last rebuilt from the database.
+     */
+    private final Instant rebuiltAt;
+
+    public UserStatistics(long users, Map<String, Long> signupsPerDay, long signupsWithoutDate, Map<String, Long> birthYears,
+                          long withoutBirthday, List<EmailDomainCount> topEmailDomains, Instant rebuiltAt) {
+        this.users = users;
+        this.signupsPerDay = signupsPerDay;
+        this.signupsWithoutDate = signupsWithoutDate;
+        this.birthYears = birthYears;
+        this.withoutBirthday = withoutBirthday;
+        this.topEmailDomains = topEmailDomains;
+        this.rebuiltAt = rebuiltAt;
+    }
+}
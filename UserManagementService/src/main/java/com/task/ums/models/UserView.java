@@ -0,0 +1,77 @@
+package com.task.ums.models;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+/**
+ * The state of a user as served by the read model: a compact, immutable record with the fields a client
+ * can read, written as JSON like a {@link User}. The password hash isn't part of it.
+ *
+ * The ID, version and birthday are stored as primitives, so a view takes 48 bytes plus its three strings.
+ */
+@Getter
+public final class UserView {
+    private static final int NO_BIRTHDAY = Integer.MIN_VALUE;
+
+    /**
+     * The ID of the user.
+     */
+    private final long id;
+
+    /**
+     * The version of the user, used as ETag.
+     */
+    private final long version;
+
+    /**
+     * The first name of the user.
+     */
+    private final String firstname;
+
+    /**
+     * The last name of the user.
+     */
+    private final String lastname;
+
+    /**
+     * The email address of the user in normalized form.
+     */
+    private final String email;
+
+    /**
+     * The birthday of the user as epoch day, or {@link #NO_BIRTHDAY} if absent.
+     */
+    @Getter(AccessLevel.NONE)
+    private final int birthdayEpochDay;
+
+    public UserView(long id, long version, String firstname, String lastname, String email, LocalDate birthday) {
+        this.id = id;
+        this.version = version;
+        this.firstname = firstname;
+        this.lastname = lastname;
+        this.email = email;
+        this.birthdayEpochDay = birthday == null ? NO_BIRTHDAY : (int) birthday.toEpochDay();
+    }
+
+    /**
+     * Creates the view of a user entity.
+     *
+     * @param user the user, with ID and version.
+     * @return the view.
+     */
+    public static UserView of(User user) {
+        return new UserView(user.getId(), user.getVersion() == null ? 0 : user.getVersion(),
+                user.getFirstname(), user.getLastname(), user.getEmail(), user.getBirthday());
+    }
+
+    /**
+     * The birthday of the user.
+     *
+     * @return the birthday or null if absent.
+     */
+    public LocalDate getBirthday() {
+        return birthdayEpochDay == NO_BIRTHDAY ? null : LocalDate.ofEpochDay(birthdayEpochDay);
+    }
+}
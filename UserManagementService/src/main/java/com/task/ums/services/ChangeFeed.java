@@ -0,0 +1,160 @@
+package com.task.ums.services;
+
+import com.task.ums.models.ChangeFeedEntry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ChangeFeed pushes the changes of the {@link UserChangeLog} to subscribers over Server-Sent Events.
+ *
+ * Every subscriber has its own cursor, the sequence number of the last change sent to it. After every
+ * committed change, a single dispatcher reads the log once from the lowest cursor and sends each
+ * subscriber the changes after its cursor, so a new subscriber catches up and then follows the log
+ * in order. The sequence number is sent as event ID, so a reconnecting client resumes with "Last-Event-ID".
+ */
+@ApplicationScoped
+public class ChangeFeed {
+    /** Number of changes read from the log at once. */
+    static final int DISPATCH_BATCH_SIZE = 500;
+
+    private final Logger logger = Logger.getLogger(ChangeFeed.class.getName());
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean dispatchPending = new AtomicBoolean();
+
+    @Inject
+    private UserChangeLog changeLog;
+
+    @Inject
+    private DatabaseExecutor database;
+
+    /**
+     * Registers the feed for the committed changes of the log.
+     */
+    @PostConstruct
+    public void start() {
+        changeLog.addListener(this::dispatchLater);
+    }
+
+    /**
+     * Closes the streams of all subscribers.
+     */
+    @PreDestroy
+    public void stop() {
+        subscribers.forEach(subscriber -> subscriber.sink.close());
+        subscribers.clear();
+    }
+
+    /**
+     * Subscribes a client to the changes after the given sequence number.
+     *
+     * @param sink the event stream of the client.
+     * @param sse the factory for events.
+     * @param since the sequence number of the last change the client has seen.
+     */
+    public void subscribe(SseEventSink sink, Sse sse, long since) {
+        subscribers.add(new Subscriber(sink, sse, since));
+        dispatchLater();
+    }
+
+    /**
+     * Returns the number of open subscriptions.
+     *
+     * @return the number of subscribers.
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Schedules a dispatch on the database executor, unless one is already waiting.
+     */
+    private void dispatchLater() {
+        if (!dispatchPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            database.offload(() -> {
+                dispatch();
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            dispatchPending.set(false);
+            logger.warning("Change feed dispatch rejected, the changes are sent with the next one.");
+        }
+    }
+
+    private synchronized void dispatch() {
+        dispatchPending.set(false);
+        try {
+            while (true) {
+                subscribers.removeIf(subscriber -> subscriber.sink.isClosed());
+                long from = subscribers.stream().mapToLong(subscriber -> subscriber.cursor).min().orElse(Long.MAX_VALUE);
+                if (from == Long.MAX_VALUE) {
+                    return;
+                }
+
+                List<ChangeFeedEntry> changes = database.call(() -> changeLog.read(from, DISPATCH_BATCH_SIZE));
+                for (Subscriber subscriber : subscribers) {
+                    for (ChangeFeedEntry change : changes) {
+                        subscriber.send(change);
+                    }
+                }
+                if (changes.size() < DISPATCH_BATCH_SIZE) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            // the changes are sent with the next dispatch
+            logger.log(Level.WARNING, "Change feed dispatch failed.", e);
+        }
+    }
+
+    /**
+     * A client subscribed to the change feed.
+     */
+    private static final class Subscriber {
+        private final SseEventSink sink;
+        private final Sse sse;
+        private volatile long cursor;
+
+        private Subscriber(SseEventSink sink, Sse sse, long cursor) {
+            this.sink = sink;
+            this.sse = sse;
+            this.cursor = cursor;
+        }
+
+        private void send(ChangeFeedEntry change) {
+            if (change.getSeq() <= cursor || sink.isClosed()) {
+                return;
+            }
+
+            OutboundSseEvent event = sse.newEventBuilder()
+                    .id(Long.toString(change.getSeq()))
+                    .name("change")
+                    .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                    .data(ChangeFeedEntry.class, change)
+                    .build();
+            cursor = change.getSeq();
+            sink.send(event).whenComplete((result, failure) -> {
+                if (failure != null) {
+                    sink.close();
+                }
+            });
+        }
+    }
+}
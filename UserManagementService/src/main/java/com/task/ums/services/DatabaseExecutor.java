@@ -0,0 +1,219 @@
+package com.task.ums.services;
+
+import com.task.ums.models.DatabaseExecutorStatistics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ContextService;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * DatabaseExecutor runs the blocking work of asynchronous requests, so the worker threads of the
+ * application server are released while a request waits for the database.
+ *
+ * The tasks run on virtual threads if the JVM supports them (Java 21+), otherwise on the managed
+ * executor of the container. The number of tasks accessing the database at the same time is bounded,
+ * so a burst of requests waits here instead of exhausting the connection pool. A task that can't
+ * get access within the acquire timeout fails with a {@link RejectedExecutionException}.
+ *
+ * For comparison, the work of requests can run on the worker thread of the request instead (blocking mode):
+ * {@link #supply(Supplier)} and {@link #offloadRequest(Supplier)} then return a completed future, so the request
+ * is answered like a synchronous one. Background work ({@link #offload(Supplier)}) is never run on the caller.
+ *
+ * Configuration (system properties):
+ * - "ums.db.maxConcurrency": maximum number of tasks accessing the database at the same time
+ *   (default 20, the default size of the connection pool)
+ * - "ums.db.acquireTimeoutMillis": maximum time a task waits for access to the database (default 1000)
+ * - "ums.db.virtualThreads": use virtual threads if available (default true)
+ * - "ums.db.blocking": run the work of requests on their worker threads (blocking mode, default false)
+ */
+@ApplicationScoped
+public class DatabaseExecutor {
+    private final Logger logger = Logger.getLogger(DatabaseExecutor.class.getName());
+
+    private final int maxConcurrency;
+    private final long acquireTimeoutNanos;
+    private final boolean preferVirtualThreads;
+    private final boolean blocking;
+    private final Semaphore permits;
+    private ExecutorService virtualThreads;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    @Resource
+    private ManagedExecutorService managedExecutor;
+
+    @Resource
+    private ContextService contextService;
+
+    /**
+     * Creates the executor configured by the system properties.
+     */
+    public DatabaseExecutor() {
+        this(Integer.getInteger("ums.db.maxConcurrency", 20),
+                Long.getLong("ums.db.acquireTimeoutMillis", 1000),
+                Boolean.parseBoolean(System.getProperty("ums.db.virtualThreads", "true")),
+                Boolean.getBoolean("ums.db.blocking"));
+    }
+
+    /**
+     * Creates an executor. The virtual threads are started by {@link #start()}.
+     *
+     * @param maxConcurrency the maximum number of tasks accessing the database at the same time.
+     * @param acquireTimeoutMillis the maximum time a task waits for access to the database.
+     * @param virtualThreads whether to use virtual threads if available.
+     */
+    public DatabaseExecutor(int maxConcurrency, long acquireTimeoutMillis, boolean virtualThreads) {
+        this(maxConcurrency, acquireTimeoutMillis, virtualThreads, false);
+    }
+
+    /**
+     * Creates an executor. The virtual threads are started by {@link #start()}.
+     *
+     * @param maxConcurrency the maximum number of tasks accessing the database at the same time.
+     * @param acquireTimeoutMillis the maximum time a task waits for access to the database.
+     * @param virtualThreads whether to use virtual threads if available.
+     * @param blocking whether the work of requests runs on the calling thread instead of separate threads.
+     */
+    public DatabaseExecutor(int maxConcurrency, long acquireTimeoutMillis, boolean virtualThreads, boolean blocking) {
+        this.blocking = blocking;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.acquireTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+        this.preferVirtualThreads = virtualThreads;
+        this.permits = new Semaphore(this.maxConcurrency, true);
+    }
+
+    /**
+     * Creates the virtual thread executor if the JVM supports it. The factory method is looked up
+     * at runtime, because the application is compiled for Java 11.
+     */
+    @PostConstruct
+    public void start() {
+        if (!preferVirtualThreads) {
+            return;
+        }
+        try {
+            virtualThreads = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            logger.info("Database work runs on virtual threads.");
+        } catch (ReflectiveOperationException e) {
+            logger.info("Virtual threads are not available, database work runs on the managed executor.");
+        }
+    }
+
+    /**
+     * Stops the virtual thread executor.
+     */
+    @PreDestroy
+    public void stop() {
+        if (virtualThreads != null) {
+            virtualThreads.shutdown();
+        }
+    }
+
+    /**
+     * Runs a task of a request accessing the database asynchronously, as soon as the number of concurrent tasks
+     * allows it. In blocking mode, the task runs on the calling thread.
+     *
+     * @param task the task.
+     * @param <T> the type of the result.
+     * @return the future result; fails with {@link RejectedExecutionException} if the task waited too long.
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> task) {
+        return offloadRequest(() -> call(task));
+    }
+
+    /**
+     * Runs a blocking task of a request that doesn't access the database asynchronously, without bounding its
+     * concurrency. In blocking mode, the task runs on the calling thread.
+     *
+     * @param task the task.
+     * @param <T> the type of the result.
+     * @return the future result.
+     */
+    public <T> CompletableFuture<T> offloadRequest(Supplier<T> task) {
+        if (!blocking) {
+            return offload(task);
+        }
+        try {
+            return CompletableFuture.completedFuture(task.get());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Runs a blocking task that doesn't access the database asynchronously, without bounding its concurrency,
+     * also in blocking mode (e.g. background work).
+     *
+     * @param task the task.
+     * @param <T> the type of the result.
+     * @return the future result.
+     */
+    public <T> CompletableFuture<T> offload(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(contextService != null ? contextService.contextualSupplier(task) : task, executor());
+    }
+
+    /**
+     * Runs a task accessing the database on the calling thread, as soon as the number of concurrent tasks allows it.
+     *
+     * @param task the task.
+     * @param <T> the type of the result.
+     * @return the result.
+     * @throws RejectedExecutionException if the task waited too long.
+     */
+    public <T> T call(Supplier<T> task) {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                rejected.increment();
+                throw new RejectedExecutionException("No database access within " + acquireTimeoutNanos / 1_000_000 + " ms.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejected.increment();
+            throw new RejectedExecutionException(e);
+        }
+        waitNanos.add(System.nanoTime() - start);
+
+        try {
+            return task.get();
+        } finally {
+            permits.release();
+            completed.increment();
+        }
+    }
+
+    /**
+     * Returns the concurrency, throughput and waiting times of the executor.
+     *
+     * @return the statistics.
+     */
+    public DatabaseExecutorStatistics getStatistics() {
+        long count = completed.sum();
+        return new DatabaseExecutorStatistics(virtualThreads != null, blocking, maxConcurrency,
+                maxConcurrency - permits.availablePermits(), permits.getQueueLength(), count, rejected.sum(),
+                count == 0 ? 0 : waitNanos.sum() / count / 1_000_000.0);
+    }
+
+    private Executor executor() {
+        if (virtualThreads != null) {
+            return virtualThreads;
+        }
+        return managedExecutor != null ? managedExecutor : ForkJoinPool.commonPool();
+    }
+}
@@ -0,0 +1,61 @@
+package com.task.ums.services;
+
+import com.task.ums.models.User;
+
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * Reported by the {@link UserService} for a write of a user whose email address is already used by another user.
+ *
+ * A concurrent write can take the address between the check and the commit; the unique index "ux_users_email",
+ * or the primary key of the owner rows "user_emails" if the users are partitioned ({@link UserPartitions}),
+ * then rejects the commit, which is recognized by {@link #isCausedBy(Throwable)}.
+ */
+public class EmailConflictException extends RuntimeException {
+    private final String email;
+
+    /**
+     * Creates the exception for the given email address.
+     *
+     * @param email the email address.
+     */
+    public EmailConflictException(String email) {
+        super("There is already a user with the email address " + User.normalizeEmail(email) + ".");
+        this.email = email;
+    }
+
+    /**
+     * @return the email address that is already used.
+     */
+    public String getEmail() {
+        return email;
+    }
+
+    /**
+     * Checks whether a failed write was rejected by the unique index on the email address,
+     * e.g. when the transaction of a concurrent write with the same address committed first.
+     *
+     * @param failure the failure of the write, e.g. an EJBException or a PersistenceException.
+     * @return true if a cause is an {@link EmailConflictException} or the violation of the index "ux_users_email"
+     *         or of the table "user_emails".
+     */
+    public static boolean isCausedBy(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof EmailConflictException) {
+                return true;
+            }
+            // SQL state class 23: integrity constraint violation
+            if (cause instanceof SQLException && ((SQLException) cause).getSQLState() != null
+                    && ((SQLException) cause).getSQLState().startsWith("23")
+                    && mentionsEmailIndex(String.valueOf(cause.getMessage()).toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean mentionsEmailIndex(String message) {
+        return message.contains("ux_users_email") || message.contains("user_emails");
+    }
+}
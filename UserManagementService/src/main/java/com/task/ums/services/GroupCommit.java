@@ -0,0 +1,342 @@
+package com.task.ums.services;
+
+import com.task.ums.metrics.LatencyHistogram;
+import com.task.ums.models.GroupCommitStatistics;
+import com.task.ums.models.User;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * GroupCommit merges concurrent creates and updates of users into shared transactions, so a burst of
+ * sign-ups pays the commit of the database once per group instead of once per user.
+ *
+ * The writes are queued and drained by a single writer: it takes the first write, collects the writes
+ * arriving within the window after it (up to the maximum group size) and applies them in one transaction
+ * ({@link UserService#writeAll(List)}). While the writer commits a group, the next one fills up, so the groups
+ * grow with the load and a single write waits at most the window. Every caller gets its own result or its own
+ * failure ({@link EmailConflictException}, {@link VersionConflictException}). If the transaction of a group
+ * fails as a whole, e.g. because of a conflicting concurrent change, its writes are applied again one by one.
+ *
+ * If the queue is full, new writes are rejected immediately with a {@link RejectedExecutionException}. If the writer
+ * can't be started, the queued writes are rejected with its failure and never committed.
+ * Disabled, every write is applied in its own transaction.
+ *
+ * Configuration (system properties):
+ * - "ums.groupCommit.enabled": merge concurrent writes (default false)
+ * - "ums.groupCommit.windowMillis": maximum time a write waits for further writes of its group (default 2)
+ * - "ums.groupCommit.maxBatchSize": maximum number of writes per transaction (default 100)
+ * - "ums.groupCommit.queueCapacity": maximum number of queued writes (default 10000)
+ */
+@ApplicationScoped
+public class GroupCommit {
+    private final Logger logger = Logger.getLogger(GroupCommit.class.getName());
+
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final BlockingQueue<Pending> queue;
+    private final AtomicBoolean writing = new AtomicBoolean();
+
+    private final LongAdder groups = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final AtomicInteger largestBatch = new AtomicInteger();
+    private final int[] batchSizeBounds;
+    private final AtomicLongArray batchSizeCounts;
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+
+    @Inject
+    private UserService userService;
+
+    @Inject
+    private DatabaseExecutor database;
+
+    /**
+     * Creates the group commit configured by the system properties.
+     */
+    public GroupCommit() {
+        this(Boolean.parseBoolean(System.getProperty("ums.groupCommit.enabled", "false")),
+                Long.getLong("ums.groupCommit.windowMillis", 2),
+                Integer.getInteger("ums.groupCommit.maxBatchSize", 100),
+                Integer.getInteger("ums.groupCommit.queueCapacity", 10000));
+    }
+
+    /**
+     * Creates a group commit.
+     *
+     * @param enabled whether concurrent writes are merged; if false, every write has its own transaction.
+     * @param windowMillis the maximum time a write waits for further writes of its group.
+     * @param maxBatchSize the maximum number of writes per transaction.
+     * @param queueCapacity the maximum number of queued writes.
+     */
+    public GroupCommit(boolean enabled, long windowMillis, int maxBatchSize, int queueCapacity) {
+        this.enabled = enabled;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, windowMillis));
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.queue = new LinkedBlockingQueue<>(Math.max(1, queueCapacity));
+
+        // powers of two up to the maximum group size
+        List<Integer> bounds = new ArrayList<>();
+        for (int bound = 1; bound < this.maxBatchSize; bound *= 2) {
+            bounds.add(bound);
+        }
+        bounds.add(this.maxBatchSize);
+        this.batchSizeBounds = bounds.stream().mapToInt(Integer::intValue).toArray();
+        this.batchSizeCounts = new AtomicLongArray(batchSizeBounds.length);
+    }
+
+    /**
+     * Creates a user together with the other writes of its group.
+     *
+     * @param user the user to create, with the hashed password.
+     * @return the future created user; fails with an {@link EmailConflictException} if the email address is used,
+     *         or with a {@link RejectedExecutionException} if the queue is full.
+     */
+    public CompletableFuture<User> create(User user) {
+        return submit(UserWrite.create(user));
+    }
+
+    /**
+     * Replaces the state of an existing user together with the other writes of its group.
+     *
+     * @param id the ID of the user to update.
+     * @param changes the new user data (all fields except the ID and version, with the hashed password).
+     * @param expectedVersion the version the user must have, or null to update any version.
+     * @return the future updated user, or null if the user doesn't exist; fails with an {@link EmailConflictException}
+     *         or a {@link VersionConflictException}, or with a {@link RejectedExecutionException} if the queue is full.
+     */
+    public CompletableFuture<User> update(Long id, User changes, Long expectedVersion) {
+        return submit(UserWrite.update(id, changes, expectedVersion));
+    }
+
+    private CompletableFuture<User> submit(UserWrite write) {
+        Pending pending = new Pending(write);
+        if (!enabled) {
+            return database.supply(() -> {
+                userService.writeAll(List.of(write));
+                return pending;
+            }).thenCompose(Pending::outcome);
+        }
+
+        if (!queue.offer(pending)) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(new RejectedExecutionException("The queue of writes is full."));
+        }
+        if (writing.compareAndSet(false, true)) {
+            try {
+                database.offload(() -> {
+                    write();
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                // no writer runs: fail the queued writes, including this one, instead of leaving them to be
+                // committed by a later writer after their callers were answered
+                writing.set(false);
+                List<Pending> stranded = new ArrayList<>();
+                queue.drainTo(stranded);
+                rejected.add(stranded.size());
+                stranded.forEach(queued -> queued.future.completeExceptionally(e));
+            }
+        }
+        return pending.future;
+    }
+
+    /**
+     * Commits the queued writes group by group until the queue is empty.
+     */
+    private void write() {
+        List<Pending> group = new ArrayList<>(maxBatchSize);
+        try {
+            while (true) {
+                Pending first = queue.poll();
+                if (first == null) {
+                    writing.set(false);
+                    // a write queued after the poll didn't start a writer, as this one was still running
+                    if (queue.isEmpty() || !writing.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+
+                // the writes queued while the previous group was committed are taken without waiting
+                group.add(first);
+                long deadline = first.queued + windowNanos;
+                while (group.size() < maxBatchSize) {
+                    Pending next = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+                commit(group);
+                group = new ArrayList<>(maxBatchSize);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            RejectedExecutionException failure = new RejectedExecutionException("The writer was interrupted.", e);
+            group.forEach(pending -> pending.future.completeExceptionally(failure));
+            writing.set(false);
+        } catch (RuntimeException | Error e) {
+            writing.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * Applies a group of writes in one transaction, or one by one if the transaction fails,
+     * and completes the callers outside of the writer.
+     */
+    private void commit(List<Pending> group) {
+        long start = System.nanoTime();
+        List<UserWrite> groupWrites = new ArrayList<>(group.size());
+        for (Pending pending : group) {
+            queueWait.record(start - pending.queued);
+            groupWrites.add(pending.write);
+        }
+        groups.increment();
+        writes.add(group.size());
+        largestBatch.accumulateAndGet(group.size(), Math::max);
+        batchSizeCounts.incrementAndGet(bucket(group.size()));
+
+        try {
+            database.call(() -> {
+                userService.writeAll(groupWrites);
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            groupWrites.forEach(write -> write.fail(e));
+        } catch (RuntimeException e) {
+            if (group.size() == 1) {
+                groupWrites.get(0).fail(e);
+            } else {
+                fallbacks.increment();
+                logger.info("Group of " + group.size() + " writes failed (" + e + "), applying its writes one by one.");
+                for (UserWrite write : groupWrites) {
+                    write.reset();
+                    try {
+                        database.call(() -> {
+                            userService.writeAll(List.of(write));
+                            return null;
+                        });
+                    } catch (RuntimeException single) {
+                        write.fail(single);
+                    }
+                }
+            }
+        }
+
+        try {
+            database.offload(() -> {
+                group.forEach(Pending::complete);
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            group.forEach(Pending::complete);
+        }
+    }
+
+    private int bucket(int batchSize) {
+        for (int i = 0; i < batchSizeBounds.length; i++) {
+            if (batchSize <= batchSizeBounds[i]) {
+                return i;
+            }
+        }
+        return batchSizeBounds.length - 1;
+    }
+
+    /**
+     * Checks whether concurrent writes are merged.
+     *
+     * @return true if enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the upper bounds of the buckets counting the group sizes.
+     *
+     * @return the bounds, ascending; the last one is the maximum group size.
+     */
+    public int[] getBatchSizeBounds() {
+        return batchSizeBounds.clone();
+    }
+
+    /**
+     * Returns the number of groups per bucket of {@link #getBatchSizeBounds()}, i.e. with a size greater than
+     * the previous bound and at most the bound.
+     *
+     * @return the counts.
+     */
+    public long[] getBatchSizeCounts() {
+        long[] counts = new long[batchSizeCounts.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = batchSizeCounts.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the times the writes waited in the queue until their group was committed.
+     *
+     * @return the snapshot of the waiting times.
+     */
+    public LatencyHistogram.Snapshot getQueueWait() {
+        return queueWait.snapshot();
+    }
+
+    /**
+     * Returns the queue depth, the number of groups and writes and the group sizes.
+     *
+     * @return the statistics.
+     */
+    public GroupCommitStatistics getStatistics() {
+        long groupCount = groups.sum();
+        long writeCount = writes.sum();
+        LatencyHistogram.Snapshot wait = queueWait.snapshot();
+        return new GroupCommitStatistics(enabled, windowNanos / 1e6, maxBatchSize, queue.size(), groupCount, writeCount,
+                fallbacks.sum(), rejected.sum(), groupCount == 0 ? 0 : (double) writeCount / groupCount, largestBatch.get(),
+                wait.getCount() == 0 ? 0 : wait.getSumNanos() / wait.getCount() / 1e6,
+                wait.getValueAtQuantile(0.99) / 1e6);
+    }
+
+    /**
+     * A queued write and the future of its caller.
+     */
+    private static final class Pending {
+        private final UserWrite write;
+        private final long queued = System.nanoTime();
+        private final CompletableFuture<User> future = new CompletableFuture<>();
+
+        private Pending(UserWrite write) {
+            this.write = write;
+        }
+
+        private void complete() {
+            if (write.getFailure() != null) {
+                future.completeExceptionally(write.getFailure());
+            } else {
+                future.complete(write.getResult());
+            }
+        }
+
+        private CompletableFuture<User> outcome() {
+            complete();
+            return future;
+        }
+    }
+}
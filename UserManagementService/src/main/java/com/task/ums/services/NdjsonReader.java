@@ -0,0 +1,133 @@
+package com.task.ums.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * NdjsonReader splits newline-delimited JSON into lines without holding more than one line in memory.
+ *
+ * Input is read from a stream in small chunks, or from a file that is memory-mapped window by window,
+ * so large files are read without copying them through the heap. Lines longer than the
+ * maximum are reported as such and skipped, so a broken file can't exhaust the memory.
+ */
+final class NdjsonReader {
+    /** Size of the chunks read from a stream. */
+    static final int STREAM_CHUNK_SIZE = 64 * 1024;
+
+    /** Size of the windows of a file mapped at once. */
+    static final long FILE_WINDOW_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * Receives the lines of the input.
+     */
+    interface LineHandler {
+        /**
+         * Handles a line.
+         *
+         * @param number the number of the line, starting with 1.
+         * @param line the line without line terminator, or null if it is longer than the maximum.
+         */
+        void accept(long number, String line);
+    }
+
+    private final int maxLineBytes;
+    private final LineHandler handler;
+    private byte[] line = new byte[256];
+    private int length;
+    private boolean tooLong;
+    private long number;
+
+    private NdjsonReader(int maxLineBytes, LineHandler handler) {
+        this.maxLineBytes = maxLineBytes;
+        this.handler = handler;
+    }
+
+    /**
+     * Reads the lines of a stream.
+     *
+     * @param input the stream.
+     * @param maxLineBytes the maximum length of a line in bytes.
+     * @param handler receives the lines.
+     * @param progress receives the number of bytes read so far after every chunk.
+     * @return the number of lines.
+     * @throws IOException if the stream can't be read.
+     */
+    static long read(InputStream input, int maxLineBytes, LineHandler handler, LongConsumer progress) throws IOException {
+        NdjsonReader reader = new NdjsonReader(maxLineBytes, handler);
+        byte[] chunk = new byte[STREAM_CHUNK_SIZE];
+        long total = 0;
+        int read;
+        while ((read = input.read(chunk)) != -1) {
+            for (int i = 0; i < read; i++) {
+                reader.accept(chunk[i]);
+            }
+            total += read;
+            progress.accept(total);
+        }
+        return reader.finish();
+    }
+
+    /**
+     * Reads the lines of a file, which is memory-mapped in windows of {@value #FILE_WINDOW_SIZE} bytes.
+     *
+     * @param file the file.
+     * @param maxLineBytes the maximum length of a line in bytes.
+     * @param handler receives the lines.
+     * @param progress receives the number of bytes read so far after every window.
+     * @return the number of lines.
+     * @throws IOException if the file can't be read.
+     */
+    static long read(Path file, int maxLineBytes, LineHandler handler, LongConsumer progress) throws IOException {
+        NdjsonReader reader = new NdjsonReader(maxLineBytes, handler);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += FILE_WINDOW_SIZE) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(FILE_WINDOW_SIZE, size - position));
+                while (window.hasRemaining()) {
+                    reader.accept(window.get());
+                }
+                progress.accept(position + window.capacity());
+            }
+        }
+        return reader.finish();
+    }
+
+    private void accept(byte b) {
+        if (b == '\n') {
+            emit();
+        } else if (length < maxLineBytes) {
+            if (length == line.length) {
+                line = Arrays.copyOf(line, Math.min(line.length * 2, maxLineBytes));
+            }
+            line[length++] = b;
+        } else {
+            tooLong = true;
+        }
+    }
+
+    private long finish() {
+        if (length > 0 || tooLong) {
+            emit();
+        }
+        return number;
+    }
+
+    private void emit() {
+        number++;
+        if (tooLong) {
+            handler.accept(number, null);
+        } else {
+            int end = length > 0 && line[length - 1] == '\r' ? length - 1 : length;
+            handler.accept(number, new String(line, 0, end, StandardCharsets.UTF_8));
+        }
+        length = 0;
+        tooLong = false;
+    }
+}
@@ -0,0 +1,285 @@
+package com.task.ums.services;
+
+import com.task.ums.models.PasswordHasherStatistics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * PasswordHasher hashes and verifies passwords with PBKDF2 (HMAC-SHA256) on a dedicated, bounded thread pool,
+ * so the expensive key derivation never runs on the request threads of the application server.
+ *
+ * Hashes are stored in the format {@code $pbkdf2-sha256$<iterations>$<salt>$<hash>} (Base64), so the
+ * work factor can be raised later without invalidating existing hashes.
+ *
+ * If the queue of the pool is full, new tasks are rejected immediately with a
+ * {@link RejectedExecutionException} (admission control) instead of piling up.
+ *
+ * Configuration (system properties):
+ * - "ums.password.iterations": PBKDF2 iterations for new hashes (default 310000)
+ * - "ums.password.threads": number of hashing threads (default: number of processors)
+ * - "ums.password.queueCapacity": maximum number of waiting tasks (default 256)
+ */
+@ApplicationScoped
+public class PasswordHasher {
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "$pbkdf2-sha256$";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private final SecureRandom random = new SecureRandom();
+    private final int iterations;
+    private final int threads;
+    private final int queueCapacity;
+    private ThreadPoolExecutor executor;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder workNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    @Resource
+    private ManagedThreadFactory threadFactory;
+
+    /**
+     * Creates the hasher configured by the system properties.
+     */
+    public PasswordHasher() {
+        this(Integer.getInteger("ums.password.iterations", 310000),
+                Integer.getInteger("ums.password.threads", Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger("ums.password.queueCapacity", 256));
+    }
+
+    /**
+     * Creates a hasher. The thread pool is started by {@link #start()}.
+     *
+     * @param iterations the PBKDF2 iterations for new hashes.
+     * @param threads the number of hashing threads.
+     * @param queueCapacity the maximum number of waiting tasks.
+     */
+    public PasswordHasher(int iterations, int threads, int queueCapacity) {
+        this.iterations = iterations;
+        this.threads = Math.max(1, threads);
+        this.queueCapacity = Math.max(1, queueCapacity);
+    }
+
+    /**
+     * Starts the thread pool, using the managed thread factory of the container if available.
+     */
+    @PostConstruct
+    public void start() {
+        ThreadFactory factory = threadFactory != null ? threadFactory : Executors.defaultThreadFactory();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), factory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Stops the thread pool.
+     */
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    /**
+     * Hashes a password with a new random salt on the hashing pool.
+     *
+     * @param password the password.
+     * @return the future hash; fails with {@link RejectedExecutionException} if the pool is saturated.
+     */
+    public CompletableFuture<String> hash(String password) {
+        return submit(() -> hashNow(password));
+    }
+
+    /**
+     * Checks a password against a stored hash on the hashing pool.
+     *
+     * @param password the password to check.
+     * @param storedHash the stored hash.
+     * @return the future result; fails with {@link RejectedExecutionException} if the pool is saturated.
+     */
+    public CompletableFuture<Boolean> verify(String password, String storedHash) {
+        return submit(() -> verifyNow(password, storedHash));
+    }
+
+    /**
+     * Hashes many passwords on the hashing pool and waits for the results. At most as many passwords
+     * as there are hashing threads are submitted at once, so a large batch doesn't fill the queue.
+     * This method blocks and must not be called on a request thread.
+     *
+     * @param passwords the passwords.
+     * @return the hashes in the order of the passwords.
+     */
+    public List<String> hashAll(List<String> passwords) {
+        List<String> hashes = new ArrayList<>(passwords.size());
+        List<CompletableFuture<String>> window = new ArrayList<>(threads);
+        for (String password : passwords) {
+            window.add(hash(password));
+            if (window.size() == threads) {
+                collect(window, hashes);
+            }
+        }
+        collect(window, hashes);
+        return hashes;
+    }
+
+    /**
+     * Hashes a password with a new random salt on the calling thread.
+     *
+     * @param password the password.
+     * @return the hash.
+     */
+    public String hashNow(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = pbkdf2(password, salt, iterations);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+
+    /**
+     * Checks a password against a stored hash on the calling thread, in constant time.
+     *
+     * @param password the password to check.
+     * @param storedHash the stored hash.
+     * @return true if the password matches, false otherwise or if the hash can't be read.
+     */
+    public boolean verifyNow(String password, String storedHash) {
+        if (password == null || storedHash == null || !storedHash.startsWith(PREFIX)) {
+            return false;
+        }
+
+        String[] parts = storedHash.substring(PREFIX.length()).split("\\$");
+        if (parts.length != 3) {
+            return false;
+        }
+        try {
+            int storedIterations = Integer.parseInt(parts[0]);
+            byte[] salt = Base64.getDecoder().decode(parts[1]);
+            byte[] expected = Base64.getDecoder().decode(parts[2]);
+            return MessageDigest.isEqual(expected, pbkdf2(password, salt, storedIterations));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether a string is a hash in the format of this hasher, e.g. a hash restored from an export.
+     *
+     * @param storedHash the string to check.
+     * @return true if the string is a hash that can be verified.
+     */
+    public static boolean isHash(String storedHash) {
+        if (storedHash == null || !storedHash.startsWith(PREFIX)) {
+            return false;
+        }
+
+        String[] parts = storedHash.substring(PREFIX.length()).split("\\$");
+        if (parts.length != 3) {
+            return false;
+        }
+        try {
+            return Integer.parseInt(parts[0]) > 0
+                    && Base64.getDecoder().decode(parts[1]).length > 0
+                    && Base64.getDecoder().decode(parts[2]).length > 0;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the queue depth, throughput and latency of the hashing pool.
+     *
+     * @return the statistics.
+     */
+    public PasswordHasherStatistics getStatistics() {
+        long count = completed.sum();
+        return new PasswordHasherStatistics(threads, queueCapacity, executor.getQueue().size(), executor.getActiveCount(),
+                count, rejected.sum(),
+                count == 0 ? 0 : waitNanos.sum() / count / 1_000_000.0,
+                count == 0 ? 0 : workNanos.sum() / count / 1_000_000.0,
+                maxLatencyNanos.get() / 1_000_000.0);
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        long submitted = System.nanoTime();
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                long started = System.nanoTime();
+                T result = null;
+                RuntimeException failure = null;
+                try {
+                    result = task.get();
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+
+                // record before completing, so the statistics include every completed future
+                long finished = System.nanoTime();
+                completed.increment();
+                waitNanos.add(started - submitted);
+                workNanos.add(finished - started);
+                maxLatencyNanos.accumulateAndGet(finished - submitted, Math::max);
+                if (failure == null) {
+                    future.complete(result);
+                } else {
+                    future.completeExceptionally(failure);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private static void collect(List<CompletableFuture<String>> futures, List<String> results) {
+        for (CompletableFuture<String> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            } catch (ExecutionException e) {
+                throw new CompletionException(e.getCause());
+            }
+        }
+        futures.clear();
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available.", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
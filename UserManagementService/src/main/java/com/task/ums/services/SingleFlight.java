@@ -0,0 +1,211 @@
+package com.task.ums.services;
+
+import com.task.ums.models.SingleFlightStatistics;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * SingleFlight coalesces concurrent identical reads: while the result for a key is being loaded, further callers
+ * asking for the same key don't start their own load but wait for the one in flight and share its result.
+ * During a spike of requests for the same hot user or page, the database is then queried once per key and
+ * round trip instead of once per request.
+ *
+ * Only loads in flight are shared, nothing is cached: the key is removed before its result is handed out, so
+ * a caller arriving afterwards starts a new load. A failed load fails every caller waiting for it, and the next
+ * caller tries again. When the change of a user commits, the loads in flight of the user and of the pages that may
+ * contain it are dropped ({@link #onChange}): a caller arriving afterwards, e.g. the GET following the same client's
+ * PUT, starts a new load instead of joining one that may have read the user before the change. Keys of users and
+ * pages are therefore built with {@link #userKey} and {@link #pageKey}.
+ *
+ * Every caller waits at most the timeout and then fails with a {@link TimeoutException}; the load itself continues
+ * and still completes the other callers.
+ *
+ * Configuration (system properties):
+ * - "ums.singleFlight.enabled": coalesce identical reads (default true)
+ * - "ums.singleFlight.timeoutMillis": maximum time a caller waits for a result (default 5000)
+ */
+@ApplicationScoped
+public class SingleFlight {
+    private static final String USER = "user";
+    private static final String PAGE = "page";
+
+    private final boolean enabled;
+    private final long timeoutMillis;
+    private final ConcurrentMap<Object, CompletableFuture<?>> flights = new ConcurrentHashMap<>();
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    /**
+     * Creates the single flight configured by the system properties.
+     */
+    public SingleFlight() {
+        this(Boolean.parseBoolean(System.getProperty("ums.singleFlight.enabled", "true")),
+                Long.getLong("ums.singleFlight.timeoutMillis", 5000));
+    }
+
+    /**
+     * Creates a single flight.
+     *
+     * @param enabled whether identical reads are coalesced; if false, every caller loads on its own.
+     * @param timeoutMillis the maximum time a caller waits for a result.
+     */
+    public SingleFlight(boolean enabled, long timeoutMillis) {
+        this.enabled = enabled;
+        this.timeoutMillis = Math.max(1, timeoutMillis);
+    }
+
+    /**
+     * Returns the result for a key, loaded by this caller or shared with the load in flight for the same key.
+     * The key must identify the result completely (e.g. the ID, the selected fields and the media type),
+     * and results of the same key must have the same type.
+     *
+     * @param key the key, with equals and hashCode.
+     * @param load starts loading the result; only called if no load for the key is in flight.
+     * @param <T> the type of the result.
+     * @return the future result; fails like the load, or with a {@link TimeoutException} after the timeout.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> execute(Object key, Supplier<? extends CompletableFuture<T>> load) {
+        calls.increment();
+        if (!enabled) {
+            loads.increment();
+            return start(load);
+        }
+
+        CompletableFuture<T> flight = new CompletableFuture<>();
+        CompletableFuture<T> existing = (CompletableFuture<T>) flights.putIfAbsent(key, flight);
+        if (existing != null) {
+            return waitFor(existing);
+        }
+
+        // registered before the load starts, so callers arriving meanwhile join even if it completes synchronously
+        loads.increment();
+        start(load).whenComplete((result, failure) -> {
+            flights.remove(key, flight);
+            if (failure == null) {
+                flight.complete(result);
+            } else {
+                failures.increment();
+                flight.completeExceptionally(failure instanceof CompletionException && failure.getCause() != null
+                        ? failure.getCause() : failure);
+            }
+        });
+        return waitFor(flight);
+    }
+
+    /**
+     * Returns the key of a read of one user.
+     *
+     * @param id the ID of the user.
+     * @param variant the rest of the key, e.g. the selected fields and the media type.
+     * @return the key.
+     */
+    public static List<Object> userKey(long id, Object... variant) {
+        return key(USER, id, variant);
+    }
+
+    /**
+     * Returns the key of a read of a page of users.
+     *
+     * @param after the ID the page starts after, 0 for the first page.
+     * @param variant the rest of the key, e.g. the page size, the selected fields and the media type.
+     * @return the key.
+     */
+    public static List<Object> pageKey(long after, Object... variant) {
+        return key(PAGE, after, variant);
+    }
+
+    private static List<Object> key(String kind, long id, Object... variant) {
+        List<Object> key = new ArrayList<>(2 + variant.length);
+        key.add(kind);
+        key.add(id);
+        Collections.addAll(key, variant);
+        return Collections.unmodifiableList(key);
+    }
+
+    /**
+     * Drops the loads in flight of a user whose change was committed, and of the pages after smaller IDs,
+     * which may contain the user. Callers already waiting keep their load; later callers start a new one.
+     *
+     * @param change the committed change.
+     */
+    public void onChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) UserChange change) {
+        if (!enabled || flights.isEmpty()) {
+            return;
+        }
+
+        long id = change.getId();
+        flights.keySet().removeIf(key -> affectedBy(key, id));
+    }
+
+    private static boolean affectedBy(Object key, long id) {
+        if (!(key instanceof List) || ((List<?>) key).size() < 2 || !(((List<?>) key).get(1) instanceof Long)) {
+            return false;
+        }
+        Object kind = ((List<?>) key).get(0);
+        long keyId = (Long) ((List<?>) key).get(1);
+        return USER.equals(kind) ? keyId == id : PAGE.equals(kind) && keyId < id;
+    }
+
+    private static <T> CompletableFuture<T> start(Supplier<? extends CompletableFuture<T>> load) {
+        try {
+            return load.get();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Bounds the wait of a single caller, without completing the shared flight for the other callers.
+     */
+    private <T> CompletableFuture<T> waitFor(CompletableFuture<T> flight) {
+        if (flight.isDone()) {
+            return flight.copy();
+        }
+        CompletableFuture<T> result = flight.copy().orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        result.whenComplete((value, failure) -> {
+            if (failure instanceof TimeoutException) {
+                timeouts.increment();
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Checks whether identical reads are coalesced.
+     *
+     * @return true if enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the number of calls, loads and failures and the share of coalesced calls.
+     *
+     * @return the statistics.
+     */
+    public SingleFlightStatistics getStatistics() {
+        long callCount = calls.sum();
+        long loadCount = loads.sum();
+        long coalesced = Math.max(0, callCount - loadCount);
+        return new SingleFlightStatistics(enabled, flights.size(), callCount, loadCount, coalesced, failures.sum(),
+                timeouts.sum(), callCount == 0 ? 0 : (double) coalesced / callCount);
+    }
+}
@@ -0,0 +1,246 @@
+package com.task.ums.services;
+
+import com.task.ums.models.CacheStatistics;
+import com.task.ums.models.User;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * UserCache is a size-bounded, concurrent read-through cache for users, used by the {@link UserService}.
+ *
+ * The cache is split into segments with their own lock, each evicting its least recently used
+ * entry when it is full. Entries can expire after a time to live. Only immutable
+ * {@link UserSnapshot}s are cached; every lookup returns a new detached User object.
+ *
+ * Configuration (system properties):
+ * - "ums.cache.maxSize": maximum number of cached users (default 10000, 0 disables the cache)
+ * - "ums.cache.ttlSeconds": time to live of an entry in seconds (default 0, i.e. no expiry)
+ */
+@ApplicationScoped
+public class UserCache {
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    /**
+     * Creates the cache configured by the system properties.
+     */
+    public UserCache() {
+        this(Integer.getInteger("ums.cache.maxSize", 10000),
+                TimeUnit.SECONDS.toMillis(Long.getLong("ums.cache.ttlSeconds", 0)),
+                System::nanoTime);
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxSize the maximum number of cached users, 0 disables the cache.
+     * @param ttlMillis the time to live of an entry in milliseconds, 0 for no expiry.
+     * @param clock the source of the current time in nanoseconds.
+     */
+    public UserCache(int maxSize, long ttlMillis, LongSupplier clock) {
+        this.maxSize = Math.max(0, maxSize);
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.clock = clock;
+        int segmentSize = (this.maxSize + SEGMENTS - 1) / SEGMENTS;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    /**
+     * Returns the user with the given ID from the cache, or loads and caches it if it isn't cached.
+     *
+     * @param id the ID of the user.
+     * @param loader loads the user from the database, returns null if the user doesn't exist.
+     * @return a new detached User object, or null if the user doesn't exist.
+     */
+    public User get(Long id, Function<Long, User> loader) {
+        if (maxSize == 0 || id == null) {
+            return loader.apply(id);
+        }
+
+        Segment segment = segmentFor(id);
+        long generation;
+        segment.lock.lock();
+        try {
+            CacheEntry entry = segment.get(id);
+            if (entry != null) {
+                if (ttlNanos == 0 || clock.getAsLong() - entry.expiresAt < 0) {
+                    hits.increment();
+                    return entry.snapshot.toUser();
+                }
+                segment.remove(id);
+                expirations.increment();
+            }
+            generation = segment.generation;
+        } finally {
+            segment.lock.unlock();
+        }
+
+        // load outside the lock, so other lookups in this segment are not blocked by the database
+        misses.increment();
+        User user = loader.apply(id);
+        if (user == null) {
+            return null;
+        }
+
+        UserSnapshot snapshot = UserSnapshot.of(user);
+        segment.lock.lock();
+        try {
+            // don't cache the user if an entry of this segment was invalidated while loading
+            if (segment.generation == generation) {
+                segment.put(id, new CacheEntry(snapshot, clock.getAsLong() + ttlNanos));
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+        return snapshot.toUser();
+    }
+
+    /**
+     * Returns the cached snapshot of the user with the given ID without loading it.
+     *
+     * @param id the ID of the user.
+     * @return the snapshot, or null if the user isn't cached.
+     */
+    public UserSnapshot peek(Long id) {
+        if (maxSize == 0 || id == null) {
+            return null;
+        }
+
+        Segment segment = segmentFor(id);
+        segment.lock.lock();
+        try {
+            CacheEntry entry = segment.get(id);
+            if (entry == null || (ttlNanos != 0 && clock.getAsLong() - entry.expiresAt >= 0)) {
+                return null;
+            }
+            hits.increment();
+            return entry.snapshot;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the user with the given ID from the cache. If a transaction is active, the user is
+     * removed again after its completion, so a lookup during the transaction can't cache the old state.
+     *
+     * @param id the ID of the user.
+     */
+    public void invalidate(Long id) {
+        if (maxSize == 0 || id == null) {
+            return;
+        }
+
+        remove(id);
+        if (transactionRegistry != null && transactionRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    remove(id);
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the current counters of the cache.
+     *
+     * @return the cache statistics.
+     */
+    public CacheStatistics getStatistics() {
+        long size = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return new CacheStatistics(size, maxSize, hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), invalidations.sum());
+    }
+
+    private void remove(Long id) {
+        Segment segment = segmentFor(id);
+        segment.lock.lock();
+        try {
+            segment.generation++;
+            if (segment.remove(id) != null) {
+                invalidations.increment();
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    private Segment segmentFor(Long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return segments[(int) (hash >>> 60)];
+    }
+
+    /**
+     * A cached snapshot and the time it expires.
+     */
+    private static final class CacheEntry {
+        private final UserSnapshot snapshot;
+        private final long expiresAt;
+
+        private CacheEntry(UserSnapshot snapshot, long expiresAt) {
+            this.snapshot = snapshot;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * A part of the cache in access order that removes its least recently used entry when it is full.
+     */
+    private final class Segment extends LinkedHashMap<Long, CacheEntry> {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int capacity;
+        private long generation;
+
+        private Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, CacheEntry> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
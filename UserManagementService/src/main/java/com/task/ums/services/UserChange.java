@@ -0,0 +1,115 @@
+package com.task.ums.services;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * CDI event fired by the {@link UserService} for every created, updated or deleted user.
+ *
+ * Observers that keep derived data (e.g. the {@link UserSearchIndex}) listen with
+ * {@code @Observes(during = TransactionPhase.AFTER_SUCCESS)}, so they only see committed changes.
+ * A created or replaced user carries its complete new state; a patched user carries only
+ * the changed fields and its new version; a deleted user carries neither. Observers receiving the changes
+ * of concurrent transactions out of order compare the versions to ignore outdated ones.
+ */
+public final class UserChange {
+
+    /**
+     * The kind of change.
+     */
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final Type type;
+    private final long id;
+    private final Long version;
+    private final UserSnapshot user;
+    private final Map<String, Object> fields;
+
+    private UserChange(Type type, long id, Long version, UserSnapshot user, Map<String, Object> fields) {
+        this.type = type;
+        this.id = id;
+        this.version = version;
+        this.user = user;
+        this.fields = fields;
+    }
+
+    /**
+     * Creates the event for a new user.
+     *
+     * @param user the state of the new user.
+     * @return the event.
+     */
+    public static UserChange created(UserSnapshot user) {
+        return new UserChange(Type.CREATED, user.getId(), user.getVersion(), user, null);
+    }
+
+    /**
+     * Creates the event for a user whose fields were all replaced.
+     *
+     * @param user the new state of the user.
+     * @return the event.
+     */
+    public static UserChange updated(UserSnapshot user) {
+        return new UserChange(Type.UPDATED, user.getId(), user.getVersion(), user, null);
+    }
+
+    /**
+     * Creates the event for a user of which only single fields were changed.
+     *
+     * @param id the ID of the user.
+     * @param version the new version of the user.
+     * @param fields the new values by field name.
+     * @return the event.
+     */
+    public static UserChange patched(long id, long version, Map<String, Object> fields) {
+        return new UserChange(Type.UPDATED, id, version, null, Collections.unmodifiableMap(new LinkedHashMap<>(fields)));
+    }
+
+    /**
+     * Creates the event for a deleted user.
+     *
+     * @param id the ID of the user.
+     * @return the event.
+     */
+    public static UserChange deleted(long id) {
+        return new UserChange(Type.DELETED, id, null, null, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * The version of the user after the change, or null if the user was deleted.
+     *
+     * @return the version.
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * The complete new state of the user, or null if the user was patched or deleted.
+     *
+     * @return the user.
+     */
+    public UserSnapshot getUser() {
+        return user;
+    }
+
+    /**
+     * The changed fields of a patched user, or null if the complete state is known or the user was deleted.
+     *
+     * @return the new values by field name.
+     */
+    public Map<String, Object> getFields() {
+        return fields;
+    }
+}
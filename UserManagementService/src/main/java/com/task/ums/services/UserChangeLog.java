@@ -0,0 +1,271 @@
+package com.task.ums.services;
+
+import com.task.ums.models.ChangeFeedEntry;
+import com.task.ums.models.UserChangeEntry;
+import com.task.ums.models.UserChangeLogState;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.DependsOn;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.enterprise.event.Observes;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonBuilderFactory;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonReaderFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import java.io.StringReader;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * UserChangeLog is the append-only log of all changes of users, for consumers mirroring the users.
+ *
+ * Every {@link UserChange} fired by the {@link UserService} is written as {@link UserChangeEntry} in the
+ * same transaction, numbered by a database sequence. Sequence numbers are assigned before commit, so
+ * a transaction may commit after a later one; entries are therefore only read up to the lowest
+ * sequence number that is still in flight, and a consumer never skips a change.
+ *
+ * The log is kept bounded by compaction and retention:
+ * - an entry is removed as soon as a newer complete entry (created, replaced or deleted) of the same user exists,
+ *   so the log holds about one entry per user and replaying it from the start yields the current state
+ * - deletions are removed after the retention period; consumers that have read up to an older
+ *   sequence number get no more changes and have to replay the log from the start
+ *
+ * Configuration (system properties):
+ * - "ums.changes.retentionHours": retention period of deletions in hours (default 168)
+ */
+@Singleton
+@Startup
+@DependsOn("UserSnapshotStore")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class UserChangeLog {
+    // the factories are created once: every Json.create* call looks up the JSON-P provider again
+    private static final JsonBuilderFactory JSON_BUILDERS = Json.createBuilderFactory(Map.of());
+    private static final JsonReaderFactory JSON_READERS = Json.createReaderFactory(Map.of());
+
+    private final Logger logger = Logger.getLogger(UserChangeLog.class.getName());
+
+    private final long retentionMillis = TimeUnit.HOURS.toMillis(Long.getLong("ums.changes.retentionHours", 168));
+
+    // sequence numbers of uncommitted entries, guarded by itself
+    private final NavigableSet<Long> inFlight = new TreeSet<>();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private volatile long purgedUpTo;
+
+    @PersistenceContext(unitName = "UserPU")
+    private EntityManager em;
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    /**
+     * Reads the persistent state of the log, after a snapshot was restored into it ({@link UserSnapshotStore}).
+     */
+    @PostConstruct
+    public void start() {
+        UserChangeLogState state = em.find(UserChangeLogState.class, UserChangeLogState.ID);
+        if (state == null) {
+            state = new UserChangeLogState();
+            em.persist(state);
+        }
+        purgedUpTo = state.getPurgedUpTo();
+    }
+
+    /**
+     * Appends a change to the log, within the transaction of the change.
+     *
+     * @param change the change.
+     */
+    public void onChange(@Observes UserChange change) {
+        UserChangeEntry entry = new UserChangeEntry();
+        entry.setUserId(change.getId());
+        entry.setType(change.getType().name());
+        entry.setPartial(change.getUser() == null && change.getType() != UserChange.Type.DELETED);
+        entry.setData(toJson(change));
+        entry.setCreatedAt(Instant.now());
+
+        // the sequence number is assigned by persist; it must be in flight before any reader can see a later one
+        long seq;
+        synchronized (inFlight) {
+            em.persist(entry);
+            seq = entry.getSeq();
+            inFlight.add(seq);
+        }
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                synchronized (inFlight) {
+                    inFlight.remove(seq);
+                }
+                if (status == Status.STATUS_COMMITTED) {
+                    listeners.forEach(Runnable::run);
+                }
+            }
+        });
+    }
+
+    /**
+     * Registers an action that is run after every committed change, e.g. to push the change to subscribers.
+     * The action runs on the committing thread and must return quickly.
+     *
+     * @param listener the action.
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Checks whether a consumer can continue reading after the given sequence number,
+     * i.e. it can't have missed a deletion removed after its retention period.
+     *
+     * @param since the sequence number of the last change the consumer has read, 0 to start from the beginning.
+     * @return true if the consumer can continue, false if it has to start over from 0.
+     */
+    public boolean canResume(long since) {
+        return since == 0 || since >= purgedUpTo;
+    }
+
+    /**
+     * Reads the committed changes after the given sequence number.
+     *
+     * @param since the sequence number of the last change the consumer has read, 0 to start from the beginning.
+     * @param limit the maximum number of changes.
+     * @return the changes in the order of their sequence numbers.
+     */
+    public List<ChangeFeedEntry> read(long since, int limit) {
+        List<UserChangeEntry> entries = em.createQuery("SELECT e FROM UserChangeEntry e WHERE e.seq > :since "
+                        + "AND e.seq < :watermark ORDER BY e.seq", UserChangeEntry.class)
+                .setParameter("since", since)
+                .setParameter("watermark", getWatermark())
+                .setHint("org.hibernate.readOnly", true)
+                .setMaxResults(limit)
+                .getResultList();
+
+        List<ChangeFeedEntry> changes = new ArrayList<>(entries.size());
+        for (UserChangeEntry entry : entries) {
+            changes.add(new ChangeFeedEntry(entry.getSeq(), entry.getType(), entry.getUserId(), entry.isPartial(),
+                    entry.getData() == null ? null : parse(entry.getData())));
+        }
+        return changes;
+    }
+
+    /**
+     * Returns the sequence number of the latest committed change, where a new subscriber without
+     * a sequence number of its own starts.
+     *
+     * @return the sequence number, 0 if the log is empty.
+     */
+    public long getHead() {
+        Long head = em.createQuery("SELECT MAX(e.seq) FROM UserChangeEntry e WHERE e.seq < :watermark", Long.class)
+                .setParameter("watermark", getWatermark())
+                .getSingleResult();
+        return head == null ? 0 : head;
+    }
+
+    /**
+     * Compacts the log and removes the deletions after their retention period. Runs every 5 minutes.
+     */
+    @Schedule(hour = "*", minute = "*/5", persistent = false)
+    public void compact() {
+        long start = System.nanoTime();
+        long watermark = getWatermark();
+
+        // a complete entry supersedes all older entries of the same user
+        int compacted = em.createQuery("DELETE FROM UserChangeEntry e WHERE e.seq < :watermark AND EXISTS ("
+                        + "SELECT n.seq FROM UserChangeEntry n WHERE n.userId = e.userId AND n.seq > e.seq "
+                        + "AND n.seq < :watermark AND n.partial = false)")
+                .setParameter("watermark", watermark)
+                .executeUpdate();
+
+        Long purged = em.createQuery("SELECT MAX(e.seq) FROM UserChangeEntry e WHERE e.type = 'DELETED' "
+                        + "AND e.createdAt < :cutoff AND e.seq < :watermark", Long.class)
+                .setParameter("cutoff", Instant.now().minusMillis(retentionMillis))
+                .setParameter("watermark", watermark)
+                .getSingleResult();
+        int removed = 0;
+        if (purged != null) {
+            removed = em.createQuery("DELETE FROM UserChangeEntry e WHERE e.type = 'DELETED' AND e.seq <= :purged")
+                    .setParameter("purged", purged)
+                    .executeUpdate();
+            em.find(UserChangeLogState.class, UserChangeLogState.ID).setPurgedUpTo(purged);
+            purgedUpTo = purged;
+        }
+        logger.info("Change log compacted (" + compacted + " superseded entries, " + removed + " expired deletions) in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms.");
+    }
+
+    private long getWatermark() {
+        synchronized (inFlight) {
+            return inFlight.isEmpty() ? Long.MAX_VALUE : inFlight.first();
+        }
+    }
+
+    /**
+     * Builds the data of the log entry of a change, without the password hash.
+     *
+     * @param change the change.
+     * @return the JSON of the changed state, or null for a deletion.
+     */
+    static String toJson(UserChange change) {
+        JsonObjectBuilder json = JSON_BUILDERS.createObjectBuilder();
+        if (change.getUser() != null) {
+            UserSnapshot user = change.getUser();
+            json.add("id", user.getId());
+            add(json, "firstname", user.getFirstname());
+            add(json, "lastname", user.getLastname());
+            add(json, "email", user.getEmail());
+            add(json, "birthday", user.getBirthday());
+            if (user.getVersion() != null) {
+                json.add("version", user.getVersion());
+            }
+        } else if (change.getFields() != null) {
+            json.add("id", change.getId());
+            for (Map.Entry<String, Object> field : change.getFields().entrySet()) {
+                if (!field.getKey().equals("passwordHash")) {
+                    add(json, field.getKey(), field.getValue());
+                }
+            }
+            json.add("version", change.getVersion());
+        } else {
+            return null;
+        }
+        return json.build().toString();
+    }
+
+    private static void add(JsonObjectBuilder json, String name, Object value) {
+        if (value == null) {
+            json.addNull(name);
+        } else {
+            // strings and dates (ISO format, as for a User)
+            json.add(name, value.toString());
+        }
+    }
+
+    private static JsonObject parse(String data) {
+        try (JsonReader reader = JSON_READERS.createReader(new StringReader(data))) {
+            return reader.readObject();
+        }
+    }
+}
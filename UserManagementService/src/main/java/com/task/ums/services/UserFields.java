@@ -0,0 +1,182 @@
+package com.task.ums.services;
+
+import com.task.ums.models.PartialUser;
+import com.task.ums.models.UserView;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A sparse fieldset of users: the fields selected by a request with {@code ?fields=id,firstname,lastname}.
+ *
+ * The fieldset is turned into a JPQL projection, so only the selected columns are read from the
+ * database and no entity is loaded into the persistence context. The ID and version are always
+ * selected as well, for the paging cursor and the ETag.
+ */
+public final class UserFields {
+    /**
+     * The fields that can be selected, in the order they are written. The password hash can't be selected.
+     */
+    public static final List<String> SELECTABLE = List.of("id", "firstname", "lastname", "email", "birthday", "version");
+
+    private final String[] names;
+    private final String select;
+
+    private UserFields(String[] names) {
+        this.names = names;
+
+        StringBuilder select = new StringBuilder("u.id, u.version");
+        for (String name : names) {
+            if (!name.equals("id") && !name.equals("version")) {
+                select.append(", u.").append(name);
+            }
+        }
+        this.select = select.toString();
+    }
+
+    /**
+     * Parses the value of a {@code fields} query parameter.
+     *
+     * @param fields the comma separated names of the fields, may be null.
+     * @return the fieldset, or null if no fields are given (the whole user is requested).
+     * @throws IllegalArgumentException if a field is unknown or no field is selected.
+     */
+    public static UserFields parse(String fields) {
+        if (fields == null) {
+            return null;
+        }
+
+        Set<String> requested = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!SELECTABLE.contains(name)) {
+                throw new IllegalArgumentException("The field " + name + " can't be selected, the fields are: "
+                        + String.join(",", SELECTABLE) + ".");
+            }
+            requested.add(name);
+        }
+        if (requested.isEmpty()) {
+            throw new IllegalArgumentException("At least one field has to be selected, the fields are: "
+                    + String.join(",", SELECTABLE) + ".");
+        }
+
+        List<String> names = new ArrayList<>(requested.size());
+        for (String name : SELECTABLE) {
+            if (requested.contains(name)) {
+                names.add(name);
+            }
+        }
+        return new UserFields(names.toArray(new String[0]));
+    }
+
+    /**
+     * Returns the select clause of the projection for the entity alias "u": ID, version and the selected columns.
+     *
+     * @return the select clause, e.g. "u.id, u.version, u.firstname".
+     */
+    public String getSelect() {
+        return select;
+    }
+
+    /**
+     * Returns the names of the selected fields, in the order they are written.
+     *
+     * @return the names.
+     */
+    public List<String> getNames() {
+        return List.of(names);
+    }
+
+    /**
+     * Creates a partial user from a row selected with {@link #getSelect()}.
+     *
+     * @param row the ID, the version and the selected columns.
+     * @return the partial user.
+     */
+    public PartialUser toPartialUser(Object[] row) {
+        Object[] values = new Object[names.length];
+        int column = 2;
+        for (int i = 0; i < names.length; i++) {
+            switch (names[i]) {
+                case "id":
+                    values[i] = row[0];
+                    break;
+                case "version":
+                    values[i] = row[1];
+                    break;
+                default:
+                    values[i] = row[column++];
+            }
+        }
+        return new PartialUser((Long) row[0], (Long) row[1], names, values);
+    }
+
+    /**
+     * Creates a partial user from a cached snapshot.
+     *
+     * @param snapshot the snapshot of the user.
+     * @return the partial user.
+     */
+    public PartialUser toPartialUser(UserSnapshot snapshot) {
+        Object[] values = new Object[names.length];
+        for (int i = 0; i < names.length; i++) {
+            switch (names[i]) {
+                case "id":
+                    values[i] = snapshot.getId();
+                    break;
+                case "firstname":
+                    values[i] = snapshot.getFirstname();
+                    break;
+                case "lastname":
+                    values[i] = snapshot.getLastname();
+                    break;
+                case "email":
+                    values[i] = snapshot.getEmail();
+                    break;
+                case "birthday":
+                    values[i] = snapshot.getBirthday();
+                    break;
+                default:
+                    values[i] = snapshot.getVersion();
+            }
+        }
+        return new PartialUser(snapshot.getId(), snapshot.getVersion(), names, values);
+    }
+
+    /**
+     * Creates a partial user from the read model.
+     *
+     * @param view the view of the user.
+     * @return the partial user.
+     */
+    public PartialUser toPartialUser(UserView view) {
+        Object[] values = new Object[names.length];
+        for (int i = 0; i < names.length; i++) {
+            switch (names[i]) {
+                case "id":
+                    values[i] = view.getId();
+                    break;
+                case "firstname":
+                    values[i] = view.getFirstname();
+                    break;
+                case "lastname":
+                    values[i] = view.getLastname();
+                    break;
+                case "email":
+                    values[i] = view.getEmail();
+                    break;
+                case "birthday":
+                    values[i] = view.getBirthday();
+                    break;
+                default:
+                    values[i] = view.getVersion();
+            }
+        }
+        return new PartialUser(view.getId(), view.getVersion(), names, values);
+    }
+}
@@ -0,0 +1,434 @@
+package com.task.ums.services;
+
+import com.task.ums.models.ImportFailure;
+import com.task.ums.models.ImportProgress;
+import com.task.ums.models.ImportResult;
+import com.task.ums.models.User;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.json.JsonException;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonBuilderFactory;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonReaderFactory;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * UserImportExport moves the whole users table as newline-delimited JSON (NDJSON), one user per line,
+ * e.g. for backups and migrations. Neither direction holds more than a batch of users in memory.
+ *
+ * The export scrolls the users from the database and writes every user without its password hash, as the export
+ * endpoint isn't authenticated; with "ums.export.passwordHashes" the hashes are written as well, so the users of an
+ * export can be imported again with their passwords (e.g. for a migration). The import reads the lines incrementally from a stream or a
+ * memory-mapped file and inserts them in batches, each in its own transaction. A line is imported
+ * with a "password" (hashed like for a new user) or a "passwordHash" from an export, and keeps the "createdAt"
+ * of an export; "id" and "version" are ignored. Invalid lines and lines with an email address already in use
+ * are reported and skipped, the import goes on. Lines that fail when inserting their batch are inserted one by one.
+ *
+ * Configuration (system properties):
+ * - "ums.import.batchSize": number of users inserted per transaction (default 500)
+ * - "ums.import.dir": directory of the files that can be imported by name (default: none, file imports are disabled)
+ * - "ums.export.passwordHashes": whether the export includes the password hashes (default false)
+ */
+@ApplicationScoped
+public class UserImportExport {
+    /** Maximum length of a line in bytes. */
+    static final int MAX_LINE_BYTES = 64 * 1024;
+
+    /** Maximum number of failed lines listed in the result. */
+    static final int MAX_REPORTED_FAILURES = 1000;
+
+    /** Number of users fetched from the database at once by the export. */
+    static final int EXPORT_CHUNK_SIZE = 500;
+
+    /** Number of attempts to get a database connection for a batch if the database is busy. */
+    static final int DATABASE_ATTEMPTS = 10;
+
+    // shared, a provider lookup per line would cost more than parsing the line
+    private static final JsonBuilderFactory JSON_BUILDERS = Json.createBuilderFactory(Map.of());
+    private static final JsonReaderFactory JSON_READERS = Json.createReaderFactory(Map.of());
+
+    private final Logger logger = Logger.getLogger(UserImportExport.class.getName());
+
+    private final int batchSize = Math.max(1, Integer.getInteger("ums.import.batchSize", 500));
+    private final String importDir = System.getProperty("ums.import.dir");
+    private final boolean exportPasswordHashes = Boolean.getBoolean("ums.export.passwordHashes");
+    private final AtomicLong importIds = new AtomicLong();
+    private final Map<Long, Import> running = new ConcurrentHashMap<>();
+
+    @Inject
+    private UserService userService;
+
+    @Inject
+    private UserValidator validator;
+
+    @Inject
+    private PasswordHasher passwordHasher;
+
+    @Inject
+    private DatabaseExecutor database;
+
+    /**
+     * Writes all users ordered by ID as NDJSON to the given stream, holding a database connection while writing.
+     * This method blocks and must not be called on a request thread.
+     *
+     * @param output the stream.
+     * @return the number of users written.
+     * @throws IOException if the stream can't be written.
+     */
+    public long export(OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        long count;
+        try {
+            count = database.call(() -> userService.forEach(EXPORT_CHUNK_SIZE, user -> {
+                try {
+                    writer.write(toJson(user, exportPasswordHashes));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        logger.info(count + " users exported.");
+        return count;
+    }
+
+    /**
+     * Imports the users of an NDJSON stream. This method blocks and must not be called on a request thread.
+     *
+     * @param input the stream.
+     * @return the numbers of imported and failed lines and the reasons of the failures.
+     * @throws IOException if the stream can't be read.
+     */
+    public ImportResult importStream(InputStream input) throws IOException {
+        Import run = start("request", -1);
+        try {
+            NdjsonReader.read(input, MAX_LINE_BYTES, run::line, run.bytesRead::set);
+            return run.finish();
+        } finally {
+            running.remove(run.id);
+        }
+    }
+
+    /**
+     * Imports the users of an NDJSON file in the import directory. The file is memory-mapped.
+     * This method blocks and must not be called on a request thread.
+     *
+     * @param name the name of the file, relative to the import directory.
+     * @return the numbers of imported and failed lines and the reasons of the failures.
+     * @throws IllegalArgumentException if file imports are disabled or the name is outside of the import directory.
+     * @throws NoSuchFileException if the file doesn't exist.
+     * @throws IOException if the file can't be read.
+     */
+    public ImportResult importFile(String name) throws IOException {
+        if (importDir == null) {
+            throw new IllegalArgumentException("File imports are disabled, the import directory (ums.import.dir) isn't configured.");
+        }
+        Path dir = Paths.get(importDir).toAbsolutePath().normalize();
+        Path file = dir.resolve(name).normalize();
+        if (!file.startsWith(dir) || file.equals(dir)) {
+            throw new IllegalArgumentException("The file " + name + " isn't in the import directory.");
+        }
+        if (!Files.isRegularFile(file)) {
+            throw new NoSuchFileException(name);
+        }
+
+        Import run = start(name, Files.size(file));
+        try {
+            NdjsonReader.read(file, MAX_LINE_BYTES, run::line, run.bytesRead::set);
+            return run.finish();
+        } finally {
+            running.remove(run.id);
+        }
+    }
+
+    /**
+     * Returns the progress of the running imports.
+     *
+     * @return the progress of every running import, oldest first.
+     */
+    public List<ImportProgress> getProgress() {
+        return running.values().stream()
+                .map(Import::progress)
+                .sorted((a, b) -> Long.compare(a.getId(), b.getId()))
+                .collect(Collectors.toList());
+    }
+
+    private Import start(String source, long totalBytes) {
+        Import run = new Import(importIds.incrementAndGet(), source, totalBytes);
+        running.put(run.id, run);
+        logger.info("Import " + run.id + " of " + source + " started.");
+        return run;
+    }
+
+    /**
+     * Writes a user as one line of JSON, with its password hash only if requested.
+     */
+    private static String toJson(User user, boolean withPasswordHash) {
+        JsonObjectBuilder json = JSON_BUILDERS.createObjectBuilder();
+        json.add("id", user.getId());
+        add(json, "firstname", user.getFirstname());
+        add(json, "lastname", user.getLastname());
+        add(json, "email", user.getEmail());
+        if (user.getBirthday() != null) {
+            json.add("birthday", user.getBirthday().toString());
+        }
+        if (withPasswordHash) {
+            add(json, "passwordHash", user.getPasswordHash());
+        }
+        if (user.getCreatedAt() != null) {
+            json.add("createdAt", user.getCreatedAt().toString());
+        }
+        if (user.getVersion() != null) {
+            json.add("version", user.getVersion());
+        }
+        return json.build().toString();
+    }
+
+    private static void add(JsonObjectBuilder json, String name, String value) {
+        if (value != null) {
+            json.add(name, value);
+        }
+    }
+
+    /**
+     * Runs a database operation, waiting and trying again if the database is busy,
+     * so a long import yields to the requests instead of failing.
+     */
+    private <T> T callDatabase(Supplier<T> task) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return database.call(task);
+            } catch (RejectedExecutionException e) {
+                if (attempt == DATABASE_ATTEMPTS) {
+                    throw e;
+                }
+                try {
+                    TimeUnit.MILLISECONDS.sleep(100L * attempt);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * A user read from a line of the import, waiting for its batch to be inserted.
+     */
+    private static final class Pending {
+        private final long line;
+        private final User user;
+
+        private Pending(long line, User user) {
+            this.line = line;
+            this.user = user;
+        }
+    }
+
+    /**
+     * A running import: the current batch and the counters.
+     */
+    private final class Import {
+        private final long id;
+        private final String source;
+        private final long totalBytes;
+        private final long started = System.nanoTime();
+        private final AtomicLong bytesRead = new AtomicLong();
+        private final AtomicLong lines = new AtomicLong();
+        private final AtomicLong imported = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final List<ImportFailure> failures = new ArrayList<>();
+        private final List<Pending> batch = new ArrayList<>(batchSize);
+
+        private Import(long id, String source, long totalBytes) {
+            this.id = id;
+            this.source = source;
+            this.totalBytes = totalBytes;
+        }
+
+        private void line(long number, String text) {
+            lines.set(number);
+            if (text == null) {
+                fail(number, "The line is longer than " + MAX_LINE_BYTES + " bytes.");
+                return;
+            }
+            if (text.isBlank()) {
+                return;
+            }
+
+            JsonObject json;
+            try (JsonReader reader = JSON_READERS.createReader(new StringReader(text))) {
+                json = reader.readObject();
+            } catch (JsonException | IllegalStateException e) {
+                fail(number, "The line isn't a JSON object.");
+                return;
+            }
+
+            User user = new User();
+            String error = read(json, user);
+            if (error != null) {
+                fail(number, error);
+                return;
+            }
+            batch.add(new Pending(number, user));
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        /**
+         * Reads and validates the user of a line.
+         *
+         * @return the reason why the user is invalid, or null if it is valid.
+         */
+        private String read(JsonObject json, User user) {
+            for (String name : List.of("firstname", "lastname", "email", "birthday", "password", "passwordHash", "createdAt")) {
+                JsonValue value = json.get(name);
+                if (value != null && value.getValueType() != JsonValue.ValueType.NULL
+                        && value.getValueType() != JsonValue.ValueType.STRING) {
+                    return "The field " + name + " has to be a string.";
+                }
+            }
+            user.setFirstname(json.getString("firstname", null));
+            user.setLastname(json.getString("lastname", null));
+            user.setEmail(json.getString("email", null));
+            user.setPassword(json.getString("password", null));
+            if (json.get("birthday") instanceof JsonString) {
+                try {
+                    user.setBirthday(LocalDate.parse(json.getString("birthday")));
+                } catch (DateTimeParseException e) {
+                    return "The birthday has to be a valid date (yyyy-MM-dd).";
+                }
+            }
+            if (json.get("createdAt") instanceof JsonString) {
+                try {
+                    user.setCreatedAt(Instant.parse(json.getString("createdAt")));
+                } catch (DateTimeParseException e) {
+                    return "The creation time has to be a valid instant (yyyy-MM-ddTHH:mm:ssZ).";
+                }
+            }
+
+            List<String> violations;
+            String passwordHash = json.getString("passwordHash", null);
+            if (user.getPassword() == null && passwordHash != null) {
+                // restored from an export: the password itself is unknown
+                if (!PasswordHasher.isHash(passwordHash)) {
+                    return "The password hash has an unknown format.";
+                }
+                user.setPasswordHash(passwordHash);
+                violations = new ArrayList<>(validator.validateValue("firstname", user.getFirstname()));
+                violations.addAll(validator.validateValue("lastname", user.getLastname()));
+                violations.addAll(validator.validateValue("email", user.getEmail()));
+            } else {
+                violations = validator.validate(user);
+            }
+            return violations.isEmpty() ? null : "Validation errors: " + String.join("", violations);
+        }
+
+        /**
+         * Inserts the current batch in one transaction, after rejecting the users with an email address in use.
+         */
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            Set<String> usedEmails = new HashSet<>(callDatabase(() -> userService.findExistingEmails(
+                    batch.stream().map(pending -> pending.user.getEmail()).collect(Collectors.toList()))));
+            List<Pending> accepted = new ArrayList<>(batch.size());
+            for (Pending pending : batch) {
+                if (!usedEmails.add(User.normalizeEmail(pending.user.getEmail()))) {
+                    fail(pending.line, "There is already a user with the email address " + pending.user.getEmail() + ".");
+                } else {
+                    accepted.add(pending);
+                }
+            }
+            batch.clear();
+
+            List<User> toHash = accepted.stream().map(pending -> pending.user)
+                    .filter(user -> user.getPasswordHash() == null)
+                    .collect(Collectors.toList());
+            List<String> hashes = passwordHasher.hashAll(toHash.stream().map(User::getPassword).collect(Collectors.toList()));
+            for (int i = 0; i < toHash.size(); i++) {
+                toHash.get(i).setPasswordHash(hashes.get(i));
+                toHash.get(i).setPassword(null);
+            }
+
+            List<User> users = accepted.stream().map(pending -> pending.user).collect(Collectors.toList());
+            try {
+                callDatabase(() -> userService.createAll(users, batchSize));
+                imported.addAndGet(users.size());
+            } catch (RuntimeException e) {
+                logger.info("Import " + id + ": batch failed (" + e + "), inserting its users one by one.");
+                for (Pending pending : accepted) {
+                    // the IDs assigned in the rolled back transaction are discarded
+                    pending.user.setId(null);
+                    pending.user.setVersion(null);
+                    try {
+                        callDatabase(() -> userService.create(pending.user));
+                        imported.incrementAndGet();
+                    } catch (RuntimeException single) {
+                        fail(pending.line, "The user couldn't be inserted: " + single.getMessage());
+                    }
+                }
+            }
+        }
+
+        private void fail(long line, String message) {
+            failed.incrementAndGet();
+            if (failures.size() < MAX_REPORTED_FAILURES) {
+                failures.add(new ImportFailure(line, message));
+            }
+        }
+
+        private ImportResult finish() {
+            flush();
+            long durationMillis = (System.nanoTime() - started) / 1_000_000;
+            logger.info("Import " + id + " of " + source + " finished: " + imported.get() + " users imported, "
+                    + failed.get() + " lines failed in " + durationMillis + " ms.");
+            return new ImportResult(lines.get(), imported.get(), failed.get(), failures,
+                    failed.get() > failures.size(), durationMillis);
+        }
+
+        private ImportProgress progress() {
+            return new ImportProgress(id, source, bytesRead.get(), totalBytes, lines.get(), imported.get(), failed.get(),
+                    (System.nanoTime() - started) / 1_000_000);
+        }
+    }
+}
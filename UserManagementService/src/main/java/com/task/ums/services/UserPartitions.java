@@ -0,0 +1,883 @@
+package com.task.ums.services;
+
+import com.task.ums.models.PartitionStatistics;
+import com.task.ums.models.User;
+import com.task.ums.models.UserEmail;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.Persistence;
+import jakarta.persistence.RollbackException;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * UserPartitions spreads the users table over several databases (partitions), so the write throughput and
+ * the size of the table aren't bounded by a single database. Every partition has its own entity manager factory
+ * of the persistence unit "UserPartitionPU", on an embedded H2 database or on a datasource of the server.
+ *
+ * A user is stored in the partition its ID routes to. The IDs are generated by the sequence "users_seq" of every
+ * partition in blocks of {@value #ID_BLOCK_SIZE} (the allocation size of the sequence), and the sequences of N
+ * partitions hand out interleaved blocks: partition p the blocks p, p + N, p + 2N, ... So the partition of a user
+ * follows from its ID alone ((id - 1) / 50 mod N), without a shared ID generator. A new user is created in the
+ * partition selected by the hash of its email address.
+ *
+ * The email addresses are unique across the partitions: every address has an owner row ({@link UserEmail}) in the
+ * partition its hash selects, inserted in the same transaction as the user. A changed address is claimed in its
+ * partition and the previous one released ({@link #changeEmail(String, String, long)}), so a concurrent sign-up or
+ * change with the same address meets the primary key of the same row, even if the users live in different
+ * partitions, e.g. after an update changed the address or a rebalancing moved the user. The owner rows are rebuilt
+ * from the users after a rebalancing and when their number doesn't match the users at startup
+ * ({@link #indexEmails()}), e.g. for users stored before the owner rows existed.
+ *
+ * Point operations use the entity manager of one partition, joined to the current JTA transaction: the local
+ * transaction of the partition is committed just before the JTA transaction and rolled back with it. There is no
+ * atomic commit across partitions: if the commit of a partition fails, the partitions committed before keep their
+ * changes. Neither is the commit of the partitions atomic with the JTA transaction, which writes the change log
+ * ({@link UserChangeLog}) and publishes the changes to the derived data: if it fails after partitions were
+ * committed, the changes of the users are lost for them. This is logged as error and counted, and the committed
+ * state of the users is published once more in a new transaction ({@link UserService#republish(Map)}), so the
+ * change log and the derived data catch up. Lists are read from all partitions in parallel and merged by ID (scatter-gather); these reads see the
+ * committed state, not the changes of the current transaction.
+ *
+ * When the number of partitions changes, the users are moved to their new partitions when the partitions are
+ * opened ({@link #rebalance(int)}), before they are used, and the sequences are moved past the highest ID.
+ *
+ * Configuration (system properties):
+ * - "ums.partitions.count": number of partitions (default 0: the users stay in the persistence unit "UserPU")
+ * - "ums.partitions.url": JDBC URL of the partitions, "{n}" is replaced by the number of the partition
+ *   (default "jdbc:h2:mem:ums-partition-{n};DB_CLOSE_DELAY=-1")
+ * - "ums.partitions.dataSource": JNDI name of the non-JTA datasources of the partitions, "{n}" is replaced by the
+ *   number of the partition; used instead of the URL if set
+ * - "ums.partitions.rebalanceFrom": number of partitions the users were stored in before; if it differs from the
+ *   number of partitions, the users are moved to their new partitions at startup (default 0 = no rebalancing)
+ */
+@ApplicationScoped
+public class UserPartitions {
+    /** Number of IDs the sequences allocate at once, and thereby the number of consecutive IDs in one partition. */
+    static final int ID_BLOCK_SIZE = UserSnapshotStore.ID_ALLOCATION_SIZE;
+
+    /** Number of users read from a partition at once when rebalancing. */
+    static final int REBALANCE_CHUNK_SIZE = 1000;
+
+    private static final String PERSISTENCE_UNIT = "UserPartitionPU";
+    private static final String INSERT_USER =
+            "INSERT INTO users (id, firstname, lastname, email, birthday, password_hash, version, created_at) VALUES (?1, ?2, ?3, ?4, ?5, ?6, ?7, ?8)";
+    private static final String INSERT_EMAIL = "INSERT INTO user_emails (email, user_id) VALUES (?1, ?2)";
+
+    private final Logger logger = Logger.getLogger(UserPartitions.class.getName());
+
+    private final int count;
+    private final String url;
+    private final String dataSource;
+    private final int rebalanceFrom;
+    private List<EntityManagerFactory> factories;
+
+    /** The key of the partition transactions in the resources of a JTA transaction. */
+    private final Object transactionKey = new Object();
+    private final ThreadLocal<PartitionTransaction> localTransaction = new ThreadLocal<>();
+
+    private final LongAdder scatterGathers = new LongAdder();
+    private final LongAdder rebalanced = new LongAdder();
+    private final LongAdder partialCommits = new LongAdder();
+
+    @Resource
+    private TransactionSynchronizationRegistry registry;
+
+    @Inject
+    private DatabaseExecutor database;
+
+    @Inject
+    private UserService userService;
+
+    /**
+     * Creates the partitions configured by the system properties. They are opened by {@link #start()}.
+     */
+    public UserPartitions() {
+        this(Integer.getInteger("ums.partitions.count", 0),
+                System.getProperty("ums.partitions.url", "jdbc:h2:mem:ums-partition-{n};DB_CLOSE_DELAY=-1"),
+                System.getProperty("ums.partitions.dataSource"),
+                Integer.getInteger("ums.partitions.rebalanceFrom", 0));
+    }
+
+    /**
+     * Creates partitions. They are opened by {@link #start()}.
+     *
+     * @param count the number of partitions, 0 to keep the users in the persistence unit "UserPU".
+     * @param url the JDBC URL of the partitions, "{n}" is replaced by the number of the partition.
+     * @param dataSource the JNDI name of the datasources of the partitions, "{n}" is replaced by the number
+     *                   of the partition; null to use the URL.
+     * @param rebalanceFrom the number of partitions the users were stored in before, 0 if they don't need to be moved.
+     */
+    public UserPartitions(int count, String url, String dataSource, int rebalanceFrom) {
+        this.count = Math.max(0, count);
+        this.url = url;
+        this.dataSource = dataSource == null || dataSource.isBlank() ? null : dataSource;
+        this.rebalanceFrom = Math.max(0, rebalanceFrom);
+    }
+
+    /**
+     * Creates partitions on the given, already opened entity manager factories, one per partition.
+     *
+     * @param factories the entity manager factories of the partitions.
+     */
+    public UserPartitions(List<EntityManagerFactory> factories) {
+        this(factories.size(), null, null, 0);
+        this.factories = List.copyOf(factories);
+    }
+
+    /**
+     * Opens the partitions, moves the users to their partitions if the number of partitions changed,
+     * and aligns the ID sequences of the partitions.
+     */
+    @PostConstruct
+    public void start() {
+        if (count == 0 || factories != null) {
+            return;
+        }
+
+        List<EntityManagerFactory> opened = new ArrayList<>(count);
+        for (int partition = 0; partition < count; partition++) {
+            opened.add(open(partition));
+        }
+        factories = opened;
+        if (rebalanceFrom > 0 && rebalanceFrom != count) {
+            rebalance(rebalanceFrom);
+        } else if (!emailsIndexed()) {
+            indexEmails();
+        }
+        alignSequences();
+        logger.info("The users are stored in " + count + " partitions.");
+    }
+
+    /**
+     * Closes the partitions.
+     */
+    @PreDestroy
+    public void stop() {
+        if (factories != null) {
+            factories.forEach(EntityManagerFactory::close);
+        }
+    }
+
+    /**
+     * Checks whether the users are stored in partitions.
+     *
+     * @return true if partitioned, false if the users are stored in the persistence unit "UserPU".
+     */
+    public boolean isPartitioned() {
+        return count > 0;
+    }
+
+    /**
+     * Returns the number of partitions.
+     *
+     * @return the number of partitions, 0 if not partitioned.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Selects the partition storing a user.
+     *
+     * @param id the ID of the user.
+     * @return the number of the partition.
+     */
+    public int partitionOf(long id) {
+        return (int) Math.floorMod((id - 1) / ID_BLOCK_SIZE, (long) count);
+    }
+
+    /**
+     * Selects the partition a new user is created in. Its ID is generated by this partition, so it routes here.
+     *
+     * @param email the email address of the new user.
+     * @return the number of the partition.
+     */
+    public int partitionOfEmail(String email) {
+        return email == null ? 0 : Math.floorMod(User.normalizeEmail(email).hashCode(), count);
+    }
+
+    /**
+     * Claims an email address for a user in the current transaction, by persisting its owner row in the partition
+     * of the address. The row is inserted with the next flush, so the inserts of new users can still be batched;
+     * if another user owns the address, the flush or the commit fails with the violation of the primary key of
+     * "user_emails" ({@link EmailConflictException#isCausedBy(Throwable)}).
+     *
+     * @param email the email address.
+     * @param id the ID of the user.
+     */
+    public void claimEmail(String email, long id) {
+        UserEmail owner = new UserEmail();
+        owner.setEmail(User.normalizeEmail(email));
+        owner.setUserId(id);
+        entityManager(partitionOfEmail(owner.getEmail())).persist(owner);
+    }
+
+    /**
+     * Releases the email address of a user in the current transaction, by deleting its owner row.
+     *
+     * @param email the email address.
+     * @param id the ID of the user; the row of another owner is kept.
+     */
+    public void releaseEmail(String email, long id) {
+        String normalized = User.normalizeEmail(email);
+        entityManager(partitionOfEmail(normalized)).createQuery("DELETE FROM UserEmail e WHERE e.email = :email AND e.userId = :id")
+                .setParameter("email", normalized)
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    /**
+     * Moves the email address of a user to a new address in the current transaction, see {@link #claimEmail}
+     * and {@link #releaseEmail}. Nothing happens if the address doesn't change.
+     *
+     * @param previous the previous email address.
+     * @param email the new email address.
+     * @param id the ID of the user.
+     */
+    public void changeEmail(String previous, String email, long id) {
+        if (User.normalizeEmail(previous).equals(User.normalizeEmail(email))) {
+            return;
+        }
+        claimEmail(email, id);
+        releaseEmail(previous, id);
+    }
+
+    /**
+     * Returns the entity manager of a partition in the current transaction. The local transaction of the partition
+     * is started with the first call and completed together with the JTA transaction of the caller, or with the
+     * transaction of {@link #inTransaction(Supplier)}.
+     *
+     * @param partition the number of the partition.
+     * @return the entity manager.
+     * @throws IllegalStateException if no transaction is active.
+     */
+    public EntityManager entityManager(int partition) {
+        return currentTransaction().entityManager(partition);
+    }
+
+    /**
+     * Returns the entity managers of all partitions in the current transaction, see {@link #entityManager(int)}.
+     *
+     * @return the entity managers, by partition.
+     */
+    public List<EntityManager> entityManagers() {
+        PartitionTransaction transaction = currentTransaction();
+        List<EntityManager> managers = new ArrayList<>(count);
+        for (int partition = 0; partition < count; partition++) {
+            managers.add(transaction.entityManager(partition));
+        }
+        return managers;
+    }
+
+    /**
+     * Remembers a change of a user in the partitions used by the current JTA transaction, so it can be published
+     * once more if the JTA transaction fails after the partitions were committed.
+     *
+     * @param change the change, fired within the transaction.
+     */
+    public void onChange(@Observes UserChange change) {
+        if (count == 0 || localTransaction.get() != null || registry == null || registry.getTransactionKey() == null) {
+            return;
+        }
+        PartitionTransaction transaction = (PartitionTransaction) registry.getResource(transactionKey);
+        if (transaction != null) {
+            // a created user stays created, whatever happens to it later in the transaction
+            transaction.changes.merge(change.getId(), change.getType(),
+                    (first, next) -> first == UserChange.Type.CREATED ? first : next);
+        }
+    }
+
+    /**
+     * Runs a task in a transaction of the partitions without a JTA transaction, e.g. outside of the application server.
+     * The partitions used by the task are committed when it returns and rolled back when it fails.
+     * If the calling thread is already in such a transaction, the task joins it.
+     *
+     * @param task the task.
+     * @param <T> the type of the result.
+     * @return the result of the task.
+     */
+    public <T> T inTransaction(Supplier<T> task) {
+        if (localTransaction.get() != null) {
+            return task.get();
+        }
+
+        PartitionTransaction transaction = new PartitionTransaction();
+        localTransaction.set(transaction);
+        try {
+            T result = task.get();
+            transaction.commit();
+            return result;
+        } catch (RuntimeException | Error e) {
+            transaction.rollback();
+            throw e;
+        } finally {
+            localTransaction.remove();
+            transaction.close();
+        }
+    }
+
+    /**
+     * Runs a query on all partitions in parallel and merges the results by ID (scatter-gather).
+     * Every partition is read with its own entity manager outside of the current transaction.
+     *
+     * @param query the query, returning the results of one partition ordered by ID.
+     * @param id the ID of a result.
+     * @param limit the maximum number of results.
+     * @param <T> the type of the results.
+     * @return at most {@code limit} results of all partitions, ordered by ID.
+     */
+    public <T> List<T> gather(Function<EntityManager, List<T>> query, Function<T, Long> id, int limit) {
+        scatterGathers.increment();
+        List<CompletableFuture<List<T>>> futures = new ArrayList<>(count);
+        for (EntityManagerFactory factory : factories) {
+            futures.add(database.offload(() -> read(factory, query)));
+        }
+        List<Iterator<T>> results = new ArrayList<>(count);
+        for (CompletableFuture<List<T>> future : futures) {
+            results.add(join(future).iterator());
+        }
+
+        List<T> merged = new ArrayList<>();
+        Iterator<T> iterator = new MergingIterator<>(results, id);
+        while (merged.size() < limit && iterator.hasNext()) {
+            merged.add(iterator.next());
+        }
+        return merged;
+    }
+
+    /**
+     * Streams a query from all partitions at once and passes the results merged by ID to the given action,
+     * without loading all results. The persistence contexts are cleared after every chunk.
+     *
+     * @param query the query, returning the results of one partition ordered by ID.
+     * @param id the ID of a result.
+     * @param chunkSize the number of results after which the persistence contexts are cleared.
+     * @param action the action to perform for each result.
+     * @param <T> the type of the results.
+     * @return the number of results passed to the action.
+     */
+    public <T> long forEach(Function<EntityManager, Stream<T>> query, Function<T, Long> id, int chunkSize, Consumer<T> action) {
+        scatterGathers.increment();
+        List<EntityManager> managers = new ArrayList<>(count);
+        List<Stream<T>> streams = new ArrayList<>(count);
+        try {
+            List<Iterator<T>> results = new ArrayList<>(count);
+            for (EntityManagerFactory factory : factories) {
+                EntityManager manager = factory.createEntityManager();
+                managers.add(manager);
+                Stream<T> stream = query.apply(manager);
+                streams.add(stream);
+                results.add(stream.iterator());
+            }
+
+            long processed = 0;
+            Iterator<T> iterator = new MergingIterator<>(results, id);
+            while (iterator.hasNext()) {
+                action.accept(iterator.next());
+                if (++processed % chunkSize == 0) {
+                    managers.forEach(EntityManager::clear);
+                }
+            }
+            return processed;
+        } finally {
+            streams.forEach(Stream::close);
+            managers.forEach(EntityManager::close);
+        }
+    }
+
+    /**
+     * Moves every user to the partition its ID routes to with the current number of partitions, e.g. after the
+     * number of partitions changed. The users are copied to their new partition before they are deleted from the
+     * old one, in chunks, so an interrupted rebalancing can be repeated. It must not run while users are changed.
+     *
+     * @param previousCount the number of partitions the users were stored in; partitions beyond the current
+     *                      number of partitions are emptied.
+     * @return the number of moved users.
+     */
+    public long rebalance(int previousCount) {
+        long start = System.nanoTime();
+        int total = Math.max(previousCount, count);
+        List<EntityManagerFactory> all = new ArrayList<>(factories);
+        try {
+            for (int partition = count; partition < total; partition++) {
+                all.add(open(partition));
+            }
+            long moved = 0;
+            for (int partition = 0; partition < total; partition++) {
+                moved += drain(all, partition);
+            }
+            rebalanced.add(moved);
+            logger.info("Rebalanced the users from " + previousCount + " to " + count + " partitions: " + moved
+                    + " users moved in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+            // the partition of an email address depends on the number of partitions as well
+            indexEmails();
+            return moved;
+        } finally {
+            all.subList(count, all.size()).forEach(EntityManagerFactory::close);
+        }
+    }
+
+    /**
+     * Moves the users of a partition that route to another partition.
+     */
+    private long drain(List<EntityManagerFactory> all, int partition) {
+        long moved = 0;
+        long after = 0;
+        EntityManager source = all.get(partition).createEntityManager();
+        try {
+            while (true) {
+                List<User> users = source.createQuery("SELECT u FROM User u WHERE u.id > :after ORDER BY u.id", User.class)
+                        .setParameter("after", after)
+                        .setMaxResults(REBALANCE_CHUNK_SIZE)
+                        .getResultList();
+                source.clear();
+                if (users.isEmpty()) {
+                    return moved;
+                }
+                after = users.get(users.size() - 1).getId();
+
+                Map<Integer, List<User>> targets = new TreeMap<>();
+                for (User user : users) {
+                    int target = partitionOf(user.getId());
+                    if (target != partition) {
+                        targets.computeIfAbsent(target, key -> new ArrayList<>()).add(user);
+                    }
+                }
+                for (Map.Entry<Integer, List<User>> target : targets.entrySet()) {
+                    List<Long> ids = copy(all.get(target.getKey()), target.getValue());
+                    inLocalTransaction(source, () -> source.createQuery("DELETE FROM User u WHERE u.id IN :ids")
+                            .setParameter("ids", ids)
+                            .executeUpdate());
+                    moved += ids.size();
+                }
+            }
+        } finally {
+            source.close();
+        }
+    }
+
+    /**
+     * Inserts users with their IDs into a partition, skipping those already copied by an interrupted rebalancing.
+     *
+     * @return the IDs of the users.
+     */
+    private static List<Long> copy(EntityManagerFactory factory, List<User> users) {
+        List<Long> ids = users.stream().map(User::getId).collect(Collectors.toList());
+        EntityManager target = factory.createEntityManager();
+        try {
+            inLocalTransaction(target, () -> {
+                Set<Long> existing = Set.copyOf(target.createQuery("SELECT u.id FROM User u WHERE u.id IN :ids", Long.class)
+                        .setParameter("ids", ids)
+                        .getResultList());
+                for (User user : users) {
+                    if (!existing.contains(user.getId())) {
+                        target.createNativeQuery(INSERT_USER)
+                                .setParameter(1, user.getId())
+                                .setParameter(2, user.getFirstname())
+                                .setParameter(3, user.getLastname())
+                                .setParameter(4, user.getEmail())
+                                .setParameter(5, user.getBirthday())
+                                .setParameter(6, user.getPasswordHash())
+                                .setParameter(7, user.getVersion())
+                                .setParameter(8, user.getCreatedAt())
+                                .executeUpdate();
+                    }
+                }
+                return null;
+            });
+        } finally {
+            target.close();
+        }
+        return ids;
+    }
+
+    /**
+     * Rebuilds the owner rows of the email addresses from the users of all partitions, in chunks.
+     * If an address is used by several users, e.g. stored before the owner rows existed, the user with the lowest ID
+     * keeps it and the others are logged. It must not run while users are changed.
+     *
+     * @return the number of owner rows.
+     */
+    public long indexEmails() {
+        long start = System.nanoTime();
+        for (EntityManagerFactory factory : factories) {
+            EntityManager manager = factory.createEntityManager();
+            try {
+                inLocalTransaction(manager, () -> manager.createQuery("DELETE FROM UserEmail e").executeUpdate());
+            } finally {
+                manager.close();
+            }
+        }
+
+        // the partitions are read one after the other, so a duplicate address in a later partition has a higher ID
+        long indexed = 0;
+        for (EntityManagerFactory factory : factories) {
+            EntityManager source = factory.createEntityManager();
+            try {
+                long after = 0;
+                while (true) {
+                    List<Object[]> users = source.createQuery("SELECT u.id, u.email FROM User u WHERE u.id > :after ORDER BY u.id", Object[].class)
+                            .setParameter("after", after)
+                            .setMaxResults(REBALANCE_CHUNK_SIZE)
+                            .getResultList();
+                    if (users.isEmpty()) {
+                        break;
+                    }
+                    after = (Long) users.get(users.size() - 1)[0];
+
+                    Map<Integer, List<Object[]>> targets = new TreeMap<>();
+                    for (Object[] user : users) {
+                        targets.computeIfAbsent(partitionOfEmail((String) user[1]), key -> new ArrayList<>()).add(user);
+                    }
+                    for (Map.Entry<Integer, List<Object[]>> target : targets.entrySet()) {
+                        indexed += insertEmails(factories.get(target.getKey()), target.getValue());
+                    }
+                }
+            } finally {
+                source.close();
+            }
+        }
+        logger.info("Indexed " + indexed + " email addresses of the users in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+        return indexed;
+    }
+
+    /**
+     * Inserts the owner rows of users (ID and email address) into a partition, skipping the addresses already owned.
+     *
+     * @return the number of inserted rows.
+     */
+    private long insertEmails(EntityManagerFactory factory, List<Object[]> users) {
+        List<String> emails = users.stream().map(user -> (String) user[1]).collect(Collectors.toList());
+        EntityManager target = factory.createEntityManager();
+        try {
+            return inLocalTransaction(target, () -> {
+                Set<String> owned = new HashSet<>(target.createQuery("SELECT e.email FROM UserEmail e WHERE e.email IN :emails", String.class)
+                        .setParameter("emails", emails)
+                        .getResultList());
+                long inserted = 0;
+                for (Object[] user : users) {
+                    if (!owned.add((String) user[1])) {
+                        logger.warning("The email address " + user[1] + " of user " + user[0] + " is used by another user.");
+                        continue;
+                    }
+                    target.createNativeQuery(INSERT_EMAIL)
+                            .setParameter(1, user[1])
+                            .setParameter(2, user[0])
+                            .executeUpdate();
+                    inserted++;
+                }
+                return inserted;
+            });
+        } finally {
+            target.close();
+        }
+    }
+
+    /**
+     * Checks whether there are as many owner rows of email addresses as users.
+     */
+    private boolean emailsIndexed() {
+        long users = 0;
+        long emails = 0;
+        for (EntityManagerFactory factory : factories) {
+            users += read(factory, manager -> manager.createQuery("SELECT COUNT(u) FROM User u", Long.class).getSingleResult());
+            emails += read(factory, manager -> manager.createQuery("SELECT COUNT(e) FROM UserEmail e", Long.class).getSingleResult());
+        }
+        return users == emails;
+    }
+
+    /**
+     * Restarts the ID sequence of every partition at its next block after the highest ID of all partitions,
+     * and lets it skip the blocks of the other partitions.
+     */
+    public void alignSequences() {
+        long maxId = 0;
+        for (EntityManagerFactory factory : factories) {
+            Long max = read(factory, manager -> manager.createQuery("SELECT MAX(u.id) FROM User u", Long.class).getSingleResult());
+            maxId = Math.max(maxId, max == null ? 0 : max);
+        }
+
+        long nextBlock = maxId == 0 ? 0 : (maxId - 1) / ID_BLOCK_SIZE + 1;
+        for (int partition = 0; partition < count; partition++) {
+            long block = nextBlock + Math.floorMod(partition - nextBlock, (long) count);
+            // the sequence returns the last ID of a block, the IDs before it are handed out first
+            String alter = "ALTER SEQUENCE users_seq RESTART WITH " + (block + 1) * ID_BLOCK_SIZE
+                    + " INCREMENT BY " + (long) count * ID_BLOCK_SIZE;
+            EntityManager manager = factories.get(partition).createEntityManager();
+            try {
+                inLocalTransaction(manager, () -> manager.createNativeQuery(alter).executeUpdate());
+            } finally {
+                manager.close();
+            }
+        }
+    }
+
+    /**
+     * Counts the users per partition and returns them with the scatter-gather reads and the moved users.
+     *
+     * @return the statistics.
+     */
+    public PartitionStatistics getStatistics() {
+        long[] users = new long[count];
+        for (int partition = 0; partition < count; partition++) {
+            users[partition] = read(factories.get(partition),
+                    manager -> manager.createQuery("SELECT COUNT(u) FROM User u", Long.class).getSingleResult());
+        }
+        return new PartitionStatistics(count, users, scatterGathers.sum(), rebalanced.sum(), partialCommits.sum());
+    }
+
+    private EntityManagerFactory open(int partition) {
+        String number = String.valueOf(partition);
+        if (dataSource != null) {
+            return Persistence.createEntityManagerFactory(PERSISTENCE_UNIT,
+                    Map.of("jakarta.persistence.nonJtaDataSource", dataSource.replace("{n}", number)));
+        }
+        return Persistence.createEntityManagerFactory(PERSISTENCE_UNIT,
+                Map.of("jakarta.persistence.jdbc.url", url.replace("{n}", number)));
+    }
+
+    private PartitionTransaction currentTransaction() {
+        PartitionTransaction transaction = localTransaction.get();
+        if (transaction != null) {
+            return transaction;
+        }
+        if (registry == null || registry.getTransactionKey() == null) {
+            throw new IllegalStateException("The partitions of the users can only be used in a transaction.");
+        }
+
+        transaction = (PartitionTransaction) registry.getResource(transactionKey);
+        if (transaction == null) {
+            transaction = new PartitionTransaction();
+            registry.putResource(transactionKey, transaction);
+            registry.registerInterposedSynchronization(transaction);
+        }
+        return transaction;
+    }
+
+    private static <T> T read(EntityManagerFactory factory, Function<EntityManager, T> query) {
+        EntityManager manager = factory.createEntityManager();
+        try {
+            return query.apply(manager);
+        } finally {
+            manager.close();
+        }
+    }
+
+    private static <T> T inLocalTransaction(EntityManager manager, Supplier<T> task) {
+        EntityTransaction transaction = manager.getTransaction();
+        transaction.begin();
+        try {
+            T result = task.get();
+            transaction.commit();
+            return result;
+        } catch (RuntimeException | Error e) {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw e;
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * The local transactions of the partitions used in one JTA transaction, or in {@link #inTransaction(Supplier)}.
+     */
+    private final class PartitionTransaction implements Synchronization {
+        private final EntityManager[] managers = new EntityManager[count];
+        /** The kinds of the changes of users, by ID; only remembered in a JTA transaction. */
+        private final Map<Long, UserChange.Type> changes = new LinkedHashMap<>();
+        private int committed;
+
+        private EntityManager entityManager(int partition) {
+            EntityManager manager = managers[partition];
+            if (manager == null) {
+                manager = factories.get(partition).createEntityManager();
+                manager.getTransaction().begin();
+                managers[partition] = manager;
+            }
+            return manager;
+        }
+
+        private void commit() {
+            for (int partition = 0; partition < managers.length; partition++) {
+                EntityManager manager = managers[partition];
+                if (manager == null) {
+                    continue;
+                }
+                try {
+                    EntityTransaction transaction = manager.getTransaction();
+                    if (transaction.getRollbackOnly()) {
+                        throw new RollbackException("The transaction of partition " + partition + " was marked for rollback.");
+                    }
+                    transaction.commit();
+                    committed++;
+                } catch (RuntimeException e) {
+                    if (committed > 0) {
+                        logger.warning("The commit of partition " + partition + " failed after " + committed
+                                + " partitions were committed; their changes are kept.");
+                    }
+                    throw e;
+                }
+            }
+        }
+
+        private void rollback() {
+            for (EntityManager manager : managers) {
+                if (manager != null && manager.getTransaction().isActive()) {
+                    try {
+                        manager.getTransaction().rollback();
+                    } catch (RuntimeException e) {
+                        logger.log(Level.WARNING, "The transaction of a partition could not be rolled back.", e);
+                    }
+                }
+            }
+        }
+
+        private void close() {
+            for (EntityManager manager : managers) {
+                if (manager != null && manager.isOpen()) {
+                    manager.close();
+                }
+            }
+        }
+
+        @Override
+        public void beforeCompletion() {
+            if (!registry.getRollbackOnly()) {
+                commit();
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status != Status.STATUS_COMMITTED) {
+                rollback();
+                if (committed > 0) {
+                    lost();
+                }
+            }
+            close();
+        }
+
+        /**
+         * Publishes the changes of the partitions once more after the JTA transaction failed,
+         * on another thread, as the JTA transaction of this thread is still completing.
+         */
+        private void lost() {
+            partialCommits.increment();
+            logger.severe("The JTA transaction failed after " + committed + " partitions were committed; the changes of the users "
+                    + changes.keySet() + " are kept but were neither logged nor published, they are published once more.");
+            if (changes.isEmpty()) {
+                return;
+            }
+            Map<Long, UserChange.Type> lost = Map.copyOf(changes);
+            CompletableFuture<Object> republished;
+            try {
+                republished = database.offload(() -> {
+                    userService.republish(lost);
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                republished = CompletableFuture.failedFuture(e);
+            }
+            republished.whenComplete((result, failure) -> {
+                if (failure != null) {
+                    logger.log(Level.SEVERE, "The changes of the users " + lost.keySet() + " could not be published once more;"
+                            + " the change log and the derived data miss them until the users are changed again.", failure);
+                }
+            });
+        }
+    }
+
+    /**
+     * Merges iterators ordered by ID into one iterator ordered by ID.
+     */
+    private static final class MergingIterator<T> implements Iterator<T> {
+        private final Function<T, Long> id;
+        private final PriorityQueue<Head<T>> heads;
+
+        private MergingIterator(List<Iterator<T>> iterators, Function<T, Long> id) {
+            this.id = id;
+            this.heads = new PriorityQueue<>(Math.max(1, iterators.size()), Comparator.comparingLong(head -> head.id));
+            iterators.forEach(this::advance);
+        }
+
+        private void advance(Iterator<T> iterator) {
+            if (iterator.hasNext()) {
+                T value = iterator.next();
+                heads.add(new Head<>(value, id.apply(value), iterator));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            Head<T> head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            advance(head.iterator);
+            return head.value;
+        }
+    }
+
+    /**
+     * The next result of one partition.
+     */
+    private static final class Head<T> {
+        private final T value;
+        private final long id;
+        private final Iterator<T> iterator;
+
+        private Head(T value, long id, Iterator<T> iterator) {
+            this.value = value;
+            this.id = id;
+            this.iterator = iterator;
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package com.task.ums.services;
+
+import com.task.ums.models.ReadModelStatistics;
+import com.task.ums.models.User;
+import com.task.ums.models.UserView;
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.DependsOn;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * UserReadModel holds the readable state of all users in memory and serves the GET requests for users,
+ * so reads don't load entities through JPA (the write side stays with the {@link UserService}).
+ *
+ * The users are stored as compact {@link UserView} records in an array sorted by ID, with the IDs in a
+ * parallel {@code long[]}: a lookup by ID is a binary search without boxing, and a page after an ID is a
+ * range of the arrays. Deleted users leave a gap that is compacted away once a quarter of the slots are gaps.
+ * Email addresses are looked up in an open-addressing table of IDs. Lookups by ID and email address are
+ * optimistic reads of a {@link StampedLock}, so concurrent readers don't contend with each other.
+ *
+ * The model is built from the database when the application starts, after the {@link UserSnapshotStore}
+ * has restored the users, and is updated by the {@link UserChange} events of committed transactions. The
+ * events are observed on the thread committing the change before the write request is answered, so a client
+ * reads its own writes. A patched user is reloaded from the database, because the event only has the changed
+ * fields. To stay consistent when events of concurrent transactions arrive out of order, a user is only replaced
+ * by a newer version and only inserted by its creation.
+ *
+ * Memory footprint: per user 48 bytes for the record, its three strings (about 40 bytes plus the characters each),
+ * 12 to 18 bytes in the sorted arrays and 16 to 32 bytes in the email table, about 200 bytes for typical users
+ * (measured for 1 million users; {@link #getStatistics()} estimates it conservatively).
+ *
+ * Configuration (system properties):
+ * - "ums.readModel.enabled": serve the GET requests from the read model (default true); if false, they are read with JPA
+ */
+@Singleton
+@Startup
+@DependsOn("UserSnapshotStore")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class UserReadModel {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** Minimum number of gaps before the arrays are compacted. */
+    static final int MIN_COMPACTION_GAPS = 1024;
+
+    private final Logger logger = Logger.getLogger(UserReadModel.class.getName());
+
+    private final boolean enabled;
+    private final StampedLock lock = new StampedLock();
+
+    // sorted by ID; a null view is the gap of a deleted user; guarded by the lock
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private UserView[] views = new UserView[INITIAL_CAPACITY];
+    private int size;
+    private int gaps;
+    // estimated bytes of the strings of all users, kept up to date by put and remove; guarded by the lock
+    private long stringBytes;
+
+    // open addressing with linear probing over the IDs by email address, 0 is an empty slot
+    private long[] emailSlots = new long[INITIAL_CAPACITY * 2];
+    private int emailCount;
+
+    @Inject
+    private UserService userService;
+
+    /**
+     * Creates the read model configured by the system properties.
+     */
+    public UserReadModel() {
+        this(Boolean.parseBoolean(System.getProperty("ums.readModel.enabled", "true")));
+    }
+
+    /**
+     * Creates a read model.
+     *
+     * @param enabled whether the GET requests are served from the read model.
+     */
+    public UserReadModel(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Builds the read model from all users in the database.
+     */
+    @PostConstruct
+    public void build() {
+        if (!enabled) {
+            logger.info("The read model is disabled, users are read with JPA.");
+            return;
+        }
+
+        long start = System.nanoTime();
+        // the users arrive ordered by ID, so every insert is an append
+        long count = userService.forEach(1000, user -> put(UserView.of(user), true));
+        logger.info("Read model built for " + count + " users in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+    }
+
+    /**
+     * Checks whether the GET requests are served from the read model.
+     *
+     * @return true if the read model is enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Applies a committed change of a user.
+     *
+     * @param change the change.
+     */
+    public void onChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) UserChange change) {
+        if (!enabled) {
+            return;
+        }
+
+        if (change.getType() == UserChange.Type.DELETED) {
+            remove(change.getId());
+        } else if (change.getUser() != null) {
+            put(view(change.getUser()), change.getType() == UserChange.Type.CREATED);
+        } else {
+            try {
+                User user = userService.findCommitted(change.getId());
+                if (user == null) {
+                    remove(change.getId());
+                } else {
+                    put(UserView.of(user), false);
+                }
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "The patched user " + change.getId() + " could not be reloaded, the read model is stale.", e);
+            }
+        }
+    }
+
+    /**
+     * Finds a user by ID.
+     *
+     * @param id the ID of the user.
+     * @return the user or null if not found.
+     */
+    public UserView get(long id) {
+        long stamp = lock.tryOptimisticRead();
+        UserView view = find(id);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                view = find(id);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return view;
+    }
+
+    /**
+     * Finds a user by email address. Email addresses are compared case-insensitively.
+     *
+     * @param email the email address.
+     * @return the user or null if not found.
+     */
+    public UserView findByEmail(String email) {
+        String normalized = User.normalizeEmail(email);
+        if (normalized == null) {
+            return null;
+        }
+
+        long stamp = lock.tryOptimisticRead();
+        UserView view = findEmail(normalized);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                view = findEmail(normalized);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return view;
+    }
+
+    /**
+     * Returns one page of users ordered by ID (keyset pagination).
+     *
+     * @param after the ID of the last user of the previous page, or null for the first page.
+     * @param limit the maximum number of users.
+     * @return at most {@code limit} users with an ID greater than {@code after}.
+     */
+    public List<UserView> page(Long after, int limit) {
+        List<UserView> page = new ArrayList<>(Math.min(limit, 1024));
+        long stamp = lock.readLock();
+        try {
+            int i = Arrays.binarySearch(ids, 0, size, after == null ? 0 : after);
+            for (i = i >= 0 ? i + 1 : -(i + 1); i < size && page.size() < limit; i++) {
+                if (views[i] != null) {
+                    page.add(views[i]);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return page;
+    }
+
+    /**
+     * Passes all users ordered by ID to the given action. The users are copied out page by page,
+     * so the action runs without holding the lock and sees every user that existed during the whole iteration.
+     *
+     * @param chunkSize the number of users copied at once.
+     * @param action the action to perform for each user.
+     * @return the number of users passed to the action.
+     */
+    public long forEach(int chunkSize, Consumer<UserView> action) {
+        long count = 0;
+        Long after = null;
+        while (true) {
+            List<UserView> chunk = page(after, chunkSize);
+            chunk.forEach(action);
+            count += chunk.size();
+            if (chunk.size() < chunkSize) {
+                return count;
+            }
+            after = chunk.get(chunk.size() - 1).getId();
+        }
+    }
+
+    /**
+     * Adds a user or replaces an older version of it.
+     *
+     * @param view the user.
+     * @param insert whether the user may be added; if false, only an existing user is replaced.
+     */
+    public void put(UserView view, boolean insert) {
+        long stamp = lock.writeLock();
+        try {
+            int i = Arrays.binarySearch(ids, 0, size, view.getId());
+            if (i >= 0 && views[i] != null) {
+                UserView old = views[i];
+                if (view.getVersion() <= old.getVersion()) {
+                    return;
+                }
+                stringBytes += stringBytes(view) - stringBytes(old);
+                if (!old.getEmail().equals(view.getEmail())) {
+                    removeEmail(old.getEmail(), old.getId());
+                    views[i] = view;
+                    addEmail(view.getEmail(), view.getId());
+                } else {
+                    views[i] = view;
+                }
+                return;
+            }
+            if (!insert) {
+                return;
+            }
+
+            ensureEmailCapacity();
+            if (i >= 0) {
+                // the gap of a deleted user with the same ID
+                views[i] = view;
+                gaps--;
+            } else {
+                insertAt(-(i + 1), view);
+            }
+            stringBytes += stringBytes(view);
+            addEmail(view.getEmail(), view.getId());
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes a user. Unknown IDs are ignored.
+     *
+     * @param id the ID of the user.
+     */
+    public void remove(long id) {
+        long stamp = lock.writeLock();
+        try {
+            int i = Arrays.binarySearch(ids, 0, size, id);
+            if (i < 0 || views[i] == null) {
+                return;
+            }
+            removeEmail(views[i].getEmail(), id);
+            stringBytes -= stringBytes(views[i]);
+            views[i] = null;
+            gaps++;
+            if (gaps >= MIN_COMPACTION_GAPS && gaps * 4 >= size) {
+                compact();
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Returns the size and the estimated memory footprint of the read model, without iterating over the users.
+     *
+     * @return the statistics.
+     */
+    public ReadModelStatistics getStatistics() {
+        long stamp = lock.readLock();
+        try {
+            long users = size - gaps;
+            long estimatedBytes = users * 48 + stringBytes + ids.length * 8L + views.length * 4L + emailSlots.length * 8L;
+            return new ReadModelStatistics(users, estimatedBytes);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Finds a user by ID. Called with the lock or optimistically; the arrays are read once, so a
+     * concurrent change can give a wrong result but never an exception.
+     */
+    private UserView find(long id) {
+        long[] ids = this.ids;
+        UserView[] views = this.views;
+        int size = Math.min(this.size, Math.min(ids.length, views.length));
+        int i = Arrays.binarySearch(ids, 0, size, id);
+        return i >= 0 ? views[i] : null;
+    }
+
+    /**
+     * Finds a user by normalized email address. Called with the lock or optimistically, like {@link #find(long)}.
+     */
+    private UserView findEmail(String email) {
+        long[] slots = emailSlots;
+        int mask = slots.length - 1;
+        for (int i = hash(email) & mask, probes = 0; slots[i] != 0 && probes < slots.length; i = (i + 1) & mask, probes++) {
+            UserView view = find(slots[i]);
+            if (view != null && view.getEmail().equals(email)) {
+                return view;
+            }
+        }
+        return null;
+    }
+
+    private void insertAt(int index, UserView view) {
+        if (size == ids.length) {
+            int capacity = ids.length + (ids.length >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            views = Arrays.copyOf(views, capacity);
+        }
+        // users are created with increasing IDs, so this is an append or a short move at the end
+        System.arraycopy(ids, index, ids, index + 1, size - index);
+        System.arraycopy(views, index, views, index + 1, size - index);
+        ids[index] = view.getId();
+        views[index] = view;
+        size++;
+    }
+
+    private void compact() {
+        int to = 0;
+        for (int from = 0; from < size; from++) {
+            if (views[from] != null) {
+                ids[to] = ids[from];
+                views[to] = views[from];
+                to++;
+            }
+        }
+        Arrays.fill(views, to, size, null);
+        size = to;
+        gaps = 0;
+    }
+
+    private void ensureEmailCapacity() {
+        if ((emailCount + 1) * 2 <= emailSlots.length) {
+            return;
+        }
+
+        long[] slots = new long[emailSlots.length * 2];
+        int mask = slots.length - 1;
+        for (int i = 0; i < size; i++) {
+            if (views[i] != null) {
+                int slot = hash(views[i].getEmail()) & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = ids[i];
+            }
+        }
+        emailSlots = slots;
+    }
+
+    private void addEmail(String email, long id) {
+        int mask = emailSlots.length - 1;
+        int slot = hash(email) & mask;
+        while (emailSlots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        emailSlots[slot] = id;
+        emailCount++;
+    }
+
+    /**
+     * Removes the ID of a user from the email table, moving the following entries of the probe sequence
+     * back into the freed slot (no tombstones).
+     */
+    private void removeEmail(String email, long id) {
+        int mask = emailSlots.length - 1;
+        int hole = hash(email) & mask;
+        while (emailSlots[hole] != id) {
+            if (emailSlots[hole] == 0) {
+                return;
+            }
+            hole = (hole + 1) & mask;
+        }
+
+        for (int slot = (hole + 1) & mask; emailSlots[slot] != 0; slot = (slot + 1) & mask) {
+            UserView other = find(emailSlots[slot]);
+            int home = hash(other.getEmail()) & mask;
+            // move the entry if its home slot isn't between the hole and its slot (cyclically)
+            boolean reachable = hole <= slot ? home > hole && home <= slot : home > hole || home <= slot;
+            if (!reachable) {
+                emailSlots[hole] = emailSlots[slot];
+                hole = slot;
+            }
+        }
+        emailSlots[hole] = 0;
+        emailCount--;
+    }
+
+    private static int hash(String email) {
+        int h = email.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static long stringBytes(UserView view) {
+        return stringBytes(view.getFirstname()) + stringBytes(view.getLastname()) + stringBytes(view.getEmail());
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0 : 40 + value.length();
+    }
+
+    private static UserView view(UserSnapshot user) {
+        return new UserView(user.getId(), user.getVersion() == null ? 0 : user.getVersion(),
+                user.getFirstname(), user.getLastname(), user.getEmail(), user.getBirthday());
+    }
+}
@@ -0,0 +1,414 @@
+package com.task.ums.services;
+
+import com.task.ums.models.SearchIndexStatistics;
+import com.task.ums.models.UserSearchHit;
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.DependsOn;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * UserSearchIndex is an in-memory prefix index over the first and last names of all users,
+ * used for typeahead searches without scanning the users table.
+ *
+ * The names are split into tokens (lower case, without diacritics), which are kept in a sorted
+ * term dictionary with the IDs of the users containing them. A query token matches every term
+ * it is a prefix of, so a search is a range lookup in the dictionary.
+ *
+ * The index is built from the database when the application starts, after the {@link UserSnapshotStore} has
+ * restored the users, and is kept in sync by observing the {@link UserChange} events of committed transactions.
+ * As these may arrive out of order, a user is only replaced by a newer version, and only added by its creation.
+ *
+ * Memory footprint: per user about 128 bytes for the entry (map node, boxed key, entry object,
+ * token array) plus its two name strings, and 8 bytes per token in the postings. Terms are
+ * shared between users with the same name, so for typical names this amounts to about 250 bytes per user.
+ */
+@Singleton
+@Startup
+@DependsOn("UserSnapshotStore")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class UserSearchIndex {
+    /** Maximum number of candidates ranked per query, bounds the latency of very short prefixes. */
+    static final int MAX_CANDIDATES = 10000;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final Logger logger = Logger.getLogger(UserSearchIndex.class.getName());
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final NavigableMap<String, Postings> terms = new TreeMap<>();
+    private long postingCount;
+
+    @Inject
+    private UserService userService;
+
+    /**
+     * Builds the index from all users in the database.
+     */
+    @PostConstruct
+    public void build() {
+        long start = System.nanoTime();
+        long count = userService.forEach(1000, user -> put(user.getId(), user.getVersion(), user.getFirstname(), user.getLastname()));
+        logger.info("Search index built for " + count + " users in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+    }
+
+    /**
+     * Applies a committed change of a user to the index.
+     *
+     * @param change the change.
+     */
+    public void onChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) UserChange change) {
+        if (change.getType() == UserChange.Type.DELETED) {
+            remove(change.getId());
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(change.getId());
+            if (entry == null ? change.getType() != UserChange.Type.CREATED : change.getVersion() <= entry.version) {
+                // an outdated change, or an update of a user deleted meanwhile
+                return;
+            }
+            if (change.getUser() != null) {
+                putLocked(change.getId(), change.getVersion(), change.getUser().getFirstname(), change.getUser().getLastname());
+            } else {
+                // a patch changes the version even if the names stay the same
+                String firstname = change.getFields().containsKey("firstname")
+                        ? (String) change.getFields().get("firstname") : entry.firstname;
+                String lastname = change.getFields().containsKey("lastname")
+                        ? (String) change.getFields().get("lastname") : entry.lastname;
+                putLocked(change.getId(), change.getVersion(), firstname, lastname);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a user to the index or replaces an older version of it.
+     *
+     * @param id the ID of the user.
+     * @param version the version of the user; if the index has the same or a newer version, the user is ignored.
+     * @param firstname the first name of the user.
+     * @param lastname the last name of the user.
+     */
+    public void put(long id, long version, String firstname, String lastname) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(id);
+            if (entry == null || version > entry.version) {
+                putLocked(id, version, firstname, lastname);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a user from the index. Unknown IDs are ignored.
+     *
+     * @param id the ID of the user.
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the users whose names match the query. Every token of the query must be a prefix of
+     * a token of the first or last name. The best matches are returned first: exact tokens before
+     * prefixes, then shorter names, then lower IDs.
+     *
+     * @param query the search text, e.g. "max mu".
+     * @param limit the maximum number of hits.
+     * @return the best matching users.
+     */
+    public List<UserSearchHit> search(String query, int limit) {
+        String[] queryTokens = tokenize(query);
+        if (queryTokens.length == 0 || limit <= 0) {
+            return List.of();
+        }
+        // the longest token is the most selective one
+        Arrays.sort(queryTokens, Comparator.comparingInt(String::length).reversed());
+
+        PriorityQueue<Candidate> best = new PriorityQueue<>(limit + 1, Candidate.RANKING.reversed());
+        lock.readLock().lock();
+        try {
+            int examined = 0;
+            for (Map.Entry<String, Postings> term : prefixRange(queryTokens[0]).entrySet()) {
+                Postings postings = term.getValue();
+                for (int i = 0; i < postings.size && examined < MAX_CANDIDATES; i++) {
+                    long id = postings.ids[i];
+                    Entry entry = entries.get(id);
+                    // a user with several matching tokens is only ranked for the first of them
+                    if (!isFirstMatch(entry, queryTokens[0], term.getKey())) {
+                        continue;
+                    }
+                    examined++;
+
+                    double score = score(entry, queryTokens);
+                    // once the top k are full, only a better candidate is allocated and replaces the worst
+                    if (score > 0 && (best.size() < limit || Candidate.ranksBefore(score, entry, id, best.peek()))) {
+                        best.add(new Candidate(id, entry, score));
+                        if (best.size() > limit) {
+                            best.poll();
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Candidate> ranked = new ArrayList<>(best);
+        ranked.sort(Candidate.RANKING);
+        List<UserSearchHit> hits = new ArrayList<>(ranked.size());
+        for (Candidate candidate : ranked) {
+            hits.add(new UserSearchHit(candidate.id, candidate.entry.firstname, candidate.entry.lastname, candidate.score));
+        }
+        return hits;
+    }
+
+    /**
+     * Returns the size of the index and an estimate of its memory footprint.
+     *
+     * @return the index statistics.
+     */
+    public SearchIndexStatistics getStatistics() {
+        lock.readLock().lock();
+        try {
+            long users = entries.size();
+            long nameBytes = 0;
+            for (Entry entry : entries.values()) {
+                nameBytes += stringBytes(entry.firstname) + stringBytes(entry.lastname);
+            }
+            long termBytes = 0;
+            for (String term : terms.keySet()) {
+                termBytes += stringBytes(term) + 40 + 32; // tree node and postings object
+            }
+            long estimatedBytes = users * 128 + nameBytes + postingCount * 8 + termBytes;
+            return new SearchIndexStatistics(users, terms.size(), estimatedBytes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void putLocked(long id, long version, String firstname, String lastname) {
+        removeLocked(id);
+
+        List<String> tokens = new ArrayList<>();
+        Collections.addAll(tokens, tokenize(firstname));
+        Collections.addAll(tokens, tokenize(lastname));
+        String[] canonical = new String[tokens.size()];
+        for (int i = 0; i < canonical.length; i++) {
+            String token = tokens.get(i);
+            Map.Entry<String, Postings> term = terms.ceilingEntry(token);
+            if (term == null || !term.getKey().equals(token)) {
+                terms.put(token, new Postings());
+                term = terms.ceilingEntry(token);
+            }
+            canonical[i] = term.getKey();
+            if (term.getValue().add(id)) {
+                postingCount++;
+            }
+        }
+        entries.put(id, new Entry(version, firstname, lastname, canonical));
+    }
+
+    private void removeLocked(long id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+
+        for (String token : entry.tokens) {
+            Postings postings = terms.get(token);
+            if (postings != null && postings.remove(id)) {
+                postingCount--;
+                if (postings.size == 0) {
+                    terms.remove(token);
+                }
+            }
+        }
+    }
+
+    private NavigableMap<String, Postings> prefixRange(String prefix) {
+        return terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    /**
+     * Checks whether the given term is the first (lowest) token of the user starting with the prefix.
+     */
+    private static boolean isFirstMatch(Entry entry, String prefix, String term) {
+        for (String token : entry.tokens) {
+            if (token.startsWith(prefix) && token.compareTo(term) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Scores how well the tokens of a user match the query: an exact token counts 2,
+     * a prefix 1 plus the matched share of the token. Returns 0 if a query token doesn't match.
+     */
+    private static double score(Entry entry, String[] queryTokens) {
+        double score = 0;
+        for (String queryToken : queryTokens) {
+            double best = 0;
+            for (String token : entry.tokens) {
+                if (token.equals(queryToken)) {
+                    best = 2;
+                    break;
+                }
+                if (token.startsWith(queryToken)) {
+                    best = Math.max(best, 1 + (double) queryToken.length() / token.length());
+                }
+            }
+            if (best == 0) {
+                return 0;
+            }
+            score += best;
+        }
+        return score;
+    }
+
+    /**
+     * Splits a name or query into lower case tokens without diacritics.
+     *
+     * @param text the text, may be null.
+     * @return the tokens.
+     */
+    static String[] tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return new String[0];
+        }
+
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        return Arrays.stream(SEPARATORS.split(normalized))
+                .filter(token -> !token.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0 : 40 + value.length();
+    }
+
+    /**
+     * The version, names and tokens of an indexed user.
+     */
+    private static final class Entry {
+        private final long version;
+        private final String firstname;
+        private final String lastname;
+        private final String[] tokens;
+        private final int nameLength;
+
+        private Entry(long version, String firstname, String lastname, String[] tokens) {
+            this.version = version;
+            this.firstname = firstname;
+            this.lastname = lastname;
+            this.tokens = tokens;
+            this.nameLength = (firstname == null ? 0 : firstname.length()) + (lastname == null ? 0 : lastname.length());
+        }
+    }
+
+    /**
+     * The sorted IDs of the users containing a term.
+     */
+    private static final class Postings {
+        private long[] ids = new long[2];
+        private int size;
+
+        private boolean add(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return false;
+            }
+            index = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+            return true;
+        }
+
+        private boolean remove(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            if (size > 0 && size < ids.length / 4) {
+                ids = Arrays.copyOf(ids, ids.length / 2);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A matching user and its score.
+     */
+    private static final class Candidate {
+        private static final Comparator<Candidate> RANKING = Comparator
+                .comparingDouble((Candidate candidate) -> candidate.score).reversed()
+                .thenComparingInt(candidate -> candidate.entry.nameLength)
+                .thenComparingLong(candidate -> candidate.id);
+
+        private final long id;
+        private final Entry entry;
+        private final double score;
+
+        private Candidate(long id, Entry entry, double score) {
+            this.id = id;
+            this.entry = entry;
+            this.score = score;
+        }
+
+        /**
+         * Checks whether a user with the given score ranks before the candidate, like {@link #RANKING}.
+         */
+        private static boolean ranksBefore(double score, Entry entry, long id, Candidate candidate) {
+            if (score != candidate.score) {
+                return score > candidate.score;
+            }
+            if (entry.nameLength != candidate.entry.nameLength) {
+                return entry.nameLength < candidate.entry.nameLength;
+            }
+            return id < candidate.id;
+        }
+    }
+}
@@ -1,78 +1,714 @@
 package com.task.ums.services;
 
+import com.task.ums.metrics.Timed;
+import com.task.ums.models.PartialUser;
 import com.task.ums.models.User;
 import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * UserService is a stateless session bean that provides methods to perform CRUD operations
  * on User entities. It interacts with the database using JPA (Java Persistence API).
  *
  * The following operations are supported:
- * - Retrieve all users
+ * - Retrieve all users (as a list, page by page or as a stream)
  * - Retrieve a user by ID
+ * - Retrieve a user by email address
+ * - Retrieve only selected fields of users ({@link UserFields}) for all of the above
  * - Create a new user
- * - Update an existing user
+ * - Create many users at once
+ * - Update an existing user (completely or single fields)
+ * - Create and update many users in one transaction (group commit)
  * - Delete a user by ID
+ * - Delete many users by their IDs
  *
  * This service class uses an EntityManager to manage persistence and is associated with
- * the persistence unit "UserPU".
+ * the persistence unit "UserPU". If the users table is partitioned ({@link UserPartitions}), the users are
+ * stored in the partitions instead: operations on one user go to the partition its ID routes to, lists are
+ * read from all partitions in parallel and merged by ID. The email addresses are then kept unique across the
+ * partitions by their owner rows, claimed and released with every write of a user. Users looked up by ID are
+ * served from the {@link UserCache}, which is invalidated whenever a user is updated or deleted. Every change is published as
+ * {@link UserChange} event, so derived data can be updated after the transaction is committed.
+ * The latency of every method is recorded in the metrics ({@link Timed}).
  */
 @Stateless
+@Timed
 public class UserService {
+    /**
+     * The fields of a user that can be changed with {@link #patch(Long, Map, Long)}.
+     */
+    public static final Set<String> PATCHABLE_FIELDS = Set.of("firstname", "lastname", "email", "birthday", "passwordHash");
+
     @PersistenceContext(unitName = "UserPU")
     private EntityManager em;
 
+    @Inject
+    private UserCache cache;
+
+    @Inject
+    private Event<UserChange> events;
+
+    @Inject
+    private UserPartitions partitions;
+
     /**
      * Retrieves a list of all User entities from the database.
      *
      * @return a List of User objects.
      */
     public List<User> findAll() {
+        if (partitions.isPartitioned()) {
+            return partitions.gather(manager -> manager.createQuery("SELECT u FROM User u ORDER BY u.id", User.class)
+                    .getResultList(), User::getId, Integer.MAX_VALUE);
+        }
         return em.createQuery("SELECT u FROM User u", User.class).getResultList();
     }
 
     /**
-     * Finds a User entity by its primary key (ID).
+     * Retrieves one page of User entities ordered by ID (keyset pagination).
+     * Only users with an ID greater than the given cursor are returned.
+     *
+     * @param after the ID of the last user of the previous page, or null for the first page.
+     * @param limit the maximum number of users to return.
+     * @return a List of at most {@code limit} User objects.
+     */
+    public List<User> findPage(Long after, int limit) {
+        if (partitions.isPartitioned()) {
+            // the page is made of the first users of the pages of all partitions
+            return partitions.gather(manager -> page(manager, after, limit), User::getId, limit);
+        }
+        return page(em, after, limit);
+    }
+
+    /**
+     * Retrieves the selected fields of one page of users ordered by ID (keyset pagination).
+     * Only the selected columns are read and no entity is loaded into the persistence context.
+     *
+     * @param after the ID of the last user of the previous page, or null for the first page.
+     * @param limit the maximum number of users to return.
+     * @param fields the fields to select.
+     * @return a List of at most {@code limit} partial users.
+     */
+    public List<PartialUser> findPage(Long after, int limit, UserFields fields) {
+        if (partitions.isPartitioned()) {
+            return partitions.gather(manager -> page(manager, after, limit, fields), PartialUser::getId, limit);
+        }
+        return page(em, after, limit, fields);
+    }
+
+    private static List<User> page(EntityManager manager, Long after, int limit) {
+        return manager.createQuery("SELECT u FROM User u WHERE u.id > :after ORDER BY u.id", User.class)
+                .setParameter("after", after == null ? 0L : after)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private static List<PartialUser> page(EntityManager manager, Long after, int limit, UserFields fields) {
+        List<Object[]> rows = manager.createQuery("SELECT " + fields.getSelect() + " FROM User u WHERE u.id > :after ORDER BY u.id", Object[].class)
+                .setParameter("after", after == null ? 0L : after)
+                .setMaxResults(limit)
+                .getResultList();
+        List<PartialUser> users = new ArrayList<>(rows.size());
+        rows.forEach(row -> users.add(fields.toPartialUser(row)));
+        return users;
+    }
+
+    /**
+     * Passes all User entities ordered by ID to the given action without loading the whole table.
+     * The result is scrolled from the database and the persistence context is cleared
+     * after every chunk, so the memory footprint does not grow with the number of users.
+     *
+     * @param chunkSize the number of users fetched and kept in the persistence context at once.
+     * @param action the action to perform for each user.
+     * @return the number of users passed to the action.
+     */
+    public long forEach(int chunkSize, Consumer<User> action) {
+        if (partitions.isPartitioned()) {
+            return partitions.forEach(manager -> scroll(manager, chunkSize), User::getId, chunkSize, action);
+        }
+
+        long count = 0;
+        try (Stream<User> users = scroll(em, chunkSize)) {
+            Iterator<User> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                action.accept(iterator.next());
+                if (++count % chunkSize == 0) {
+                    em.clear();
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Passes the selected fields of all users ordered by ID to the given action without loading the whole table.
+     * Only the selected columns are scrolled from the database and no entity is loaded into the persistence context.
+     *
+     * @param chunkSize the number of rows fetched from the database at once.
+     * @param fields the fields to select.
+     * @param action the action to perform for each user.
+     * @return the number of users passed to the action.
+     */
+    public long forEach(int chunkSize, UserFields fields, Consumer<PartialUser> action) {
+        if (partitions.isPartitioned()) {
+            return partitions.forEach(manager -> scroll(manager, chunkSize, fields), PartialUser::getId, chunkSize, action);
+        }
+
+        long count = 0;
+        try (Stream<PartialUser> users = scroll(em, chunkSize, fields)) {
+            Iterator<PartialUser> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                action.accept(iterator.next());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Stream<User> scroll(EntityManager manager, int chunkSize) {
+        return manager.createQuery("SELECT u FROM User u ORDER BY u.id", User.class)
+                .setHint("org.hibernate.fetchSize", chunkSize)
+                .setHint("org.hibernate.readOnly", true)
+                .getResultStream();
+    }
+
+    private static Stream<PartialUser> scroll(EntityManager manager, int chunkSize, UserFields fields) {
+        return manager.createQuery("SELECT " + fields.getSelect() + " FROM User u ORDER BY u.id", Object[].class)
+                .setHint("org.hibernate.fetchSize", chunkSize)
+                .getResultStream()
+                .map(fields::toPartialUser);
+    }
+
+    /**
+     * Finds a user by its primary key (ID). The user is read from the cache if possible.
      *
      * @param id the ID of the User entity to find.
+     * @return a detached copy of the User entity found or null if not found.
+     */
+    public User find(Long id) { return cache.get(id, key -> entityManager(key).find(User.class, key)); }
+
+    /**
+     * Finds a user by its ID in a new transaction, bypassing the cache, e.g. to read the committed state
+     * of a user after a transaction changing it has completed.
+     *
+     * @param id the ID of the user.
+     * @return a detached copy of the User entity found or null if not found.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public User findCommitted(Long id) { return entityManager(id).find(User.class, id); }
+
+    /**
+     * Finds the selected fields of a user by its ID without loading the entity.
+     * The fields are taken from the cache if the user is cached.
+     *
+     * @param id the ID of the user.
+     * @param fields the fields to select.
+     * @return the partial user or null if not found.
+     */
+    public PartialUser find(Long id, UserFields fields) {
+        UserSnapshot cached = cache.peek(id);
+        if (cached != null) {
+            return fields.toPartialUser(cached);
+        }
+
+        List<Object[]> rows = entityManager(id).createQuery("SELECT " + fields.getSelect() + " FROM User u WHERE u.id = :id", Object[].class)
+                .setParameter("id", id)
+                .getResultList();
+        return rows.isEmpty() ? null : fields.toPartialUser(rows.get(0));
+    }
+
+    /**
+     * Finds the version of a user without loading the entity. The version is read from the cache if possible.
+     *
+     * @param id the ID of the user.
+     * @return the version of the user or null if the user doesn't exist.
+     */
+    public Long findVersion(Long id) {
+        UserSnapshot cached = cache.peek(id);
+        if (cached != null) {
+            return cached.getVersion();
+        }
+
+        List<Long> versions = entityManager(id).createQuery("SELECT u.version FROM User u WHERE u.id = :id", Long.class)
+                .setParameter("id", id)
+                .getResultList();
+        return versions.isEmpty() ? null : versions.get(0);
+    }
+
+    /**
+     * Finds a user by its email address using the unique index on the email column.
+     * Email addresses are compared case-insensitively. If the users are partitioned, every partition is searched.
+     *
+     * @param email the email address of the user.
      * @return the User entity found or null if not found.
      */
-    public User find(Long id) { return em.find(User.class, id); }
+    public User findByEmail(String email) {
+        for (EntityManager manager : entityManagers()) {
+            List<User> users = manager.createNamedQuery(User.FIND_BY_EMAIL, User.class)
+                    .setParameter("email", User.normalizeEmail(email))
+                    .getResultList();
+            if (!users.isEmpty()) {
+                return users.get(0);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the selected fields of a user by its email address without loading the entity.
+     * Email addresses are compared case-insensitively.
+     *
+     * @param email the email address of the user.
+     * @param fields the fields to select.
+     * @return the partial user or null if not found.
+     */
+    public PartialUser findByEmail(String email, UserFields fields) {
+        for (EntityManager manager : entityManagers()) {
+            List<Object[]> rows = manager.createQuery("SELECT " + fields.getSelect() + " FROM User u WHERE u.email = :email", Object[].class)
+                    .setParameter("email", User.normalizeEmail(email))
+                    .getResultList();
+            if (!rows.isEmpty()) {
+                return fields.toPartialUser(rows.get(0));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Selects which of the given email addresses are already used by a user, with a single query.
+     *
+     * @param emails the email addresses to check.
+     * @return the used email addresses in normalized form.
+     */
+    public Set<String> findExistingEmails(Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return Set.of();
+        }
+
+        Set<String> normalized = new HashSet<>();
+        emails.forEach(email -> normalized.add(User.normalizeEmail(email)));
+        Set<String> existing = new HashSet<>();
+        for (EntityManager manager : entityManagers()) {
+            existing.addAll(manager.createNamedQuery(User.FIND_EXISTING_EMAILS, String.class)
+                    .setParameter("emails", normalized)
+                    .getResultList());
+        }
+        return existing;
+    }
+
+    /**
+     * Finds the password hash of a user without loading the entity. The hash is read from the cache if possible.
+     *
+     * @param id the ID of the user.
+     * @return the password hash or null if the user doesn't exist.
+     */
+    public String findPasswordHash(Long id) {
+        UserSnapshot cached = cache.peek(id);
+        if (cached != null) {
+            return cached.getPasswordHash();
+        }
+
+        List<String> hashes = entityManager(id).createQuery("SELECT u.passwordHash FROM User u WHERE u.id = :id", String.class)
+                .setParameter("id", id)
+                .getResultList();
+        return hashes.isEmpty() ? null : hashes.get(0);
+    }
 
     /**
      * Persists a new User entity in the database.
      *
-     * @param user the User entity to create.
+     * @param user the User entity to create, with the hashed password.
      * @return the created User entity.
      */
     public User create(User user) {
-        em.persist(user);
+        entityManagerForEmail(user.getEmail()).persist(user);
+        claimEmail(user);
+        events.fire(UserChange.created(UserSnapshot.of(user)));
         return user;
     }
 
     /**
-     * Merges the state of the given User entity into the current persistence context.
+     * Persists several new User entities in the database within the current transaction.
+     * The inserts are flushed in chunks so they can be sent to the database as JDBC batches,
+     * and the persistence context is cleared after every chunk.
      *
-     * @param user the User entity to update.
-     * @return the updated User entity.
+     * @param users the User entities to create.
+     * @param chunkSize the number of users flushed together.
+     * @return the created User entities.
      */
-    public User update(User user) {
-        return em.merge(user);
+    public List<User> createAll(List<User> users, int chunkSize) {
+        int count = 0;
+        for (User user : users) {
+            entityManagerForEmail(user.getEmail()).persist(user);
+            claimEmail(user);
+            events.fire(UserChange.created(UserSnapshot.of(user)));
+            if (++count % chunkSize == 0) {
+                for (EntityManager manager : entityManagers()) {
+                    manager.flush();
+                    manager.clear();
+                }
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Replaces the state of an existing user with the given user data. The managed entity is changed
+     * directly, so the change is written by a single UPDATE when the persistence context is flushed.
+     * The change is flushed immediately, so a concurrent modification is detected by its version.
+     *
+     * @param id the ID of the user to update.
+     * @param changes the new user data (all fields except the ID and version, with the hashed password).
+     * @param expectedVersion the version the user must have, or null to update any version.
+     * @return the updated User entity or null if the user doesn't exist.
+     * @throws VersionConflictException if the version of the user doesn't match the expected version.
+     */
+    public User update(Long id, User changes, Long expectedVersion) {
+        cache.invalidate(id);
+        EntityManager manager = entityManager(id);
+        User user = manager.find(User.class, id);
+        if (user == null) {
+            return null;
+        }
+        if (expectedVersion != null && !expectedVersion.equals(user.getVersion())) {
+            throw new VersionConflictException(id, null);
+        }
+
+        String previousEmail = user.getEmail();
+        user.setFirstname(changes.getFirstname());
+        user.setLastname(changes.getLastname());
+        user.setEmail(changes.getEmail());
+        user.setBirthday(changes.getBirthday());
+        user.setPasswordHash(changes.getPasswordHash());
+        changeEmail(previousEmail, user);
+        try {
+            manager.flush();
+        } catch (OptimisticLockException e) {
+            throw new VersionConflictException(id, e);
+        }
+        events.fire(UserChange.updated(UserSnapshot.of(user)));
+        return user;
     }
 
     /**
-     * Removes a User entity identified by its primary key (ID) from the database.
+     * Applies several creates and updates of users in the current transaction, so they are committed together
+     * (group commit). The email addresses and the users to update are read with one query each. A write whose
+     * email address is used by another user, in the database or by an earlier write, or whose user has another
+     * version than expected, fails alone and the other writes are applied. Every write gets its outcome.
+     * <p>
+     * Email addresses given up by an updated user stay reserved until the transaction is committed,
+     * as the inserts are flushed before the updates.
+     * </p>
+     *
+     * @param writes the writes, applied in this order.
+     * @throws jakarta.persistence.PersistenceException if the changes can't be flushed, e.g. because
+     *         a concurrent transaction committed a conflicting change; no write is applied then.
+     */
+    public void writeAll(List<UserWrite> writes) {
+        Set<String> emails = new HashSet<>();
+        Set<Long> ids = new HashSet<>();
+        for (UserWrite write : writes) {
+            emails.add(User.normalizeEmail(write.getUser().getEmail()));
+            if (!write.isCreate()) {
+                ids.add(write.getId());
+            }
+        }
+
+        // the users using the email addresses, by address
+        Map<String, Long> owners = new HashMap<>();
+        for (EntityManager manager : entityManagers()) {
+            for (Object[] row : manager.createQuery("SELECT u.email, u.id FROM User u WHERE u.email IN :emails", Object[].class)
+                    .setParameter("emails", emails)
+                    .getResultList()) {
+                owners.put((String) row[0], (Long) row[1]);
+            }
+        }
+        Map<Long, User> users = new HashMap<>();
+        if (!ids.isEmpty()) {
+            ids.forEach(cache::invalidate);
+            byPartition(ids).forEach((manager, group) -> manager.createQuery("SELECT u FROM User u WHERE u.id IN :ids", User.class)
+                    .setParameter("ids", group)
+                    .getResultList()
+                    .forEach(user -> users.put(user.getId(), user)));
+        }
+
+        List<User> updated = new ArrayList<>();
+        for (UserWrite write : writes) {
+            User changes = write.getUser();
+            String email = User.normalizeEmail(changes.getEmail());
+            Long owner = owners.get(email);
+            if (write.isCreate()) {
+                if (owner != null) {
+                    write.fail(new EmailConflictException(email));
+                    continue;
+                }
+                entityManagerForEmail(email).persist(changes);
+                claimEmail(changes);
+                owners.put(email, changes.getId());
+                events.fire(UserChange.created(UserSnapshot.of(changes)));
+                write.succeed(changes);
+                continue;
+            }
+
+            User user = users.get(write.getId());
+            if (user == null) {
+                write.succeed(null);
+                continue;
+            }
+            // a user updated earlier in the group gets a new version with this transaction
+            if (write.getExpectedVersion() != null
+                    && (updated.contains(user) || !write.getExpectedVersion().equals(user.getVersion()))) {
+                write.fail(new VersionConflictException(write.getId(), null));
+                continue;
+            }
+            if (owner != null && !owner.equals(user.getId())) {
+                write.fail(new EmailConflictException(email));
+                continue;
+            }
+            String previousEmail = user.getEmail();
+            user.setFirstname(changes.getFirstname());
+            user.setLastname(changes.getLastname());
+            user.setEmail(changes.getEmail());
+            user.setBirthday(changes.getBirthday());
+            user.setPasswordHash(changes.getPasswordHash());
+            changeEmail(previousEmail, user);
+            owners.put(email, user.getId());
+            if (!updated.contains(user)) {
+                updated.add(user);
+            }
+            write.succeed(user);
+        }
+
+        // the versions of the updated users are incremented by the flush
+        entityManagers().forEach(EntityManager::flush);
+        updated.forEach(user -> events.fire(UserChange.updated(UserSnapshot.of(user))));
+    }
+
+    /**
+     * Changes single fields of an existing user with one UPDATE statement, without loading the user.
+     * The version of the user is incremented; without an expected version, the new version is selected afterwards.
+     *
+     * @param id the ID of the user to update.
+     * @param changes the new values by field name, see {@link #PATCHABLE_FIELDS}.
+     * @param expectedVersion the version the user must have, or null to update any version.
+     * @return true if the user was updated, false if the user doesn't exist.
+     * @throws VersionConflictException if the version of the user doesn't match the expected version.
+     */
+    public boolean patch(Long id, Map<String, Object> changes, Long expectedVersion) {
+        if (!PATCHABLE_FIELDS.containsAll(changes.keySet())) {
+            throw new IllegalArgumentException("Only the fields " + PATCHABLE_FIELDS + " can be patched.");
+        }
+
+        if (changes.containsKey("email")) {
+            changes = new LinkedHashMap<>(changes);
+            changes.put("email", User.normalizeEmail((String) changes.get("email")));
+        }
+
+        cache.invalidate(id);
+        String previousEmail = partitions.isPartitioned() && changes.containsKey("email") ? lockEmail(id) : null;
+        StringBuilder jpql = new StringBuilder("UPDATE User u SET u.version = u.version + 1");
+        for (String field : changes.keySet()) {
+            jpql.append(", u.").append(field).append(" = :").append(field);
+        }
+        jpql.append(" WHERE u.id = :id");
+        if (expectedVersion != null) {
+            jpql.append(" AND u.version = :version");
+        }
+
+        Query query = entityManager(id).createQuery(jpql.toString()).setParameter("id", id);
+        changes.forEach(query::setParameter);
+        if (expectedVersion != null) {
+            query.setParameter("version", expectedVersion);
+        }
+        if (query.executeUpdate() == 1) {
+            // the new version orders the change for the observers; without an expected version it is read back
+            // from the updated row, which this transaction has locked
+            long version = expectedVersion != null ? expectedVersion + 1 : entityManager(id)
+                    .createQuery("SELECT u.version FROM User u WHERE u.id = :id", Long.class)
+                    .setParameter("id", id)
+                    .getSingleResult();
+            if (previousEmail != null) {
+                partitions.changeEmail(previousEmail, (String) changes.get("email"), id);
+            }
+            events.fire(UserChange.patched(id, version, changes));
+            return true;
+        }
+
+        // nothing updated: the user doesn't exist or has another version
+        if (expectedVersion != null && findVersion(id) != null) {
+            throw new VersionConflictException(id, null);
+        }
+        return false;
+    }
+
+    /**
+     * Removes a User entity identified by its primary key (ID) from the database
+     * with a single DELETE statement, without loading the user.
      *
      * @param id the ID of the User entity to delete.
+     * @return true if the user was deleted, false if the user doesn't exist.
+     */
+    public boolean delete(Long id) {
+        cache.invalidate(id);
+        String email = partitions.isPartitioned() ? lockEmail(id) : null;
+        boolean deleted = entityManager(id).createQuery("DELETE FROM User u WHERE u.id = :id")
+                .setParameter("id", id)
+                .executeUpdate() == 1;
+        if (deleted) {
+            if (email != null) {
+                partitions.releaseEmail(email, id);
+            }
+            events.fire(UserChange.deleted(id));
+        }
+        return deleted;
+    }
+
+    /**
+     * Removes several User entities identified by their IDs from the database with a single DELETE statement.
+     * The IDs of the existing users are selected first in the same transaction, so a change is only reported
+     * for the users actually deleted.
+     *
+     * @param ids the IDs of the User entities to delete.
+     * @return the number of deleted users.
+     */
+    public int deleteAll(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        ids.forEach(cache::invalidate);
+        int deleted = 0;
+        for (Map.Entry<EntityManager, Collection<Long>> group : byPartition(ids).entrySet()) {
+            Map<Long, String> emails = new LinkedHashMap<>();
+            if (partitions.isPartitioned()) {
+                // the email addresses of the users are released in their partitions
+                group.getKey().createQuery("SELECT u.id, u.email FROM User u WHERE u.id IN :ids", Object[].class)
+                        .setParameter("ids", group.getValue())
+                        .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                        .getResultList()
+                        .forEach(row -> emails.put((Long) row[0], (String) row[1]));
+            }
+            List<Long> existing = partitions.isPartitioned()
+                    ? new ArrayList<>(emails.keySet())
+                    : group.getKey().createQuery("SELECT u.id FROM User u WHERE u.id IN :ids", Long.class)
+                            .setParameter("ids", group.getValue())
+                            .getResultList();
+            if (existing.isEmpty()) {
+                continue;
+            }
+            deleted += group.getKey().createQuery("DELETE FROM User u WHERE u.id IN :ids")
+                    .setParameter("ids", existing)
+                    .executeUpdate();
+            emails.forEach((id, email) -> partitions.releaseEmail(email, id));
+            existing.forEach(id -> events.fire(UserChange.deleted(id)));
+        }
+        return deleted;
+    }
+
+    /**
+     * Publishes the committed state of users as changes once more, in a new transaction, e.g. after the partitions
+     * committed their changes but the transaction that published them failed ({@link UserPartitions}).
+     * A user that no longer exists is published as deleted, a created one as created, any other as updated.
+     *
+     * @param changes the kinds of the lost changes, by user ID.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void republish(Map<Long, UserChange.Type> changes) {
+        changes.forEach((id, type) -> {
+            cache.invalidate(id);
+            User user = entityManager(id).find(User.class, id);
+            if (user == null) {
+                events.fire(UserChange.deleted(id));
+            } else if (type == UserChange.Type.CREATED) {
+                events.fire(UserChange.created(UserSnapshot.of(user)));
+            } else {
+                events.fire(UserChange.updated(UserSnapshot.of(user)));
+            }
+        });
+    }
+
+    /**
+     * Claims the email address of a new user if the users are partitioned, see {@link UserPartitions#claimEmail}.
      */
-    public void delete(Long id) {
-        User user = em.find(User.class, id);
-        if (user != null) {
-            em.remove(user);
+    private void claimEmail(User user) {
+        if (partitions.isPartitioned()) {
+            partitions.claimEmail(user.getEmail(), user.getId());
+        }
+    }
+
+    /**
+     * Moves the owner row of a changed email address if the users are partitioned, see {@link UserPartitions#changeEmail}.
+     */
+    private void changeEmail(String previousEmail, User user) {
+        if (partitions.isPartitioned()) {
+            partitions.changeEmail(previousEmail, user.getEmail(), user.getId());
+        }
+    }
+
+    /**
+     * Reads the email address of a user and locks the user until the end of the transaction,
+     * so a concurrent change can't replace the address before its owner row is released.
+     */
+    private String lockEmail(Long id) {
+        List<String> emails = entityManager(id).createQuery("SELECT u.email FROM User u WHERE u.id = :id", String.class)
+                .setParameter("id", id)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+        return emails.isEmpty() ? null : emails.get(0);
+    }
+
+    /**
+     * Returns the entity manager of the partition storing a user, or the one of "UserPU" if the users aren't partitioned.
+     */
+    private EntityManager entityManager(Long id) {
+        return partitions.isPartitioned() ? partitions.entityManager(partitions.partitionOf(id)) : em;
+    }
+
+    /**
+     * Returns the entity manager of the partition a new user with the given email address is created in.
+     */
+    private EntityManager entityManagerForEmail(String email) {
+        return partitions.isPartitioned() ? partitions.entityManager(partitions.partitionOfEmail(email)) : em;
+    }
+
+    /**
+     * Returns the entity managers of all partitions, or the one of "UserPU" if the users aren't partitioned.
+     */
+    private List<EntityManager> entityManagers() {
+        return partitions.isPartitioned() ? partitions.entityManagers() : List.of(em);
+    }
+
+    /**
+     * Groups user IDs by the entity manager of their partition.
+     */
+    private Map<EntityManager, Collection<Long>> byPartition(Collection<Long> ids) {
+        if (!partitions.isPartitioned()) {
+            return Map.of(em, ids);
+        }
+        Map<EntityManager, Collection<Long>> groups = new LinkedHashMap<>();
+        for (Long id : ids) {
+            groups.computeIfAbsent(entityManager(id), manager -> new ArrayList<>()).add(id);
         }
+        return groups;
     }
 }
@@ -0,0 +1,96 @@
+package com.task.ums.services;
+
+import com.task.ums.models.User;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * An immutable copy of the state of a {@link User} entity.
+ *
+ * Snapshots are held by the {@link UserCache} instead of the entities themselves, so cached
+ * data is never attached to a persistence context and can't be modified by callers.
+ * Every reader gets its own detached User object via {@link #toUser()}. Only the hash of the
+ * password is part of a snapshot, never the password itself.
+ */
+public final class UserSnapshot {
+    private final Long id;
+    private final String firstname;
+    private final String lastname;
+    private final String email;
+    private final LocalDate birthday;
+    private final String passwordHash;
+    private final Long version;
+    private final Instant createdAt;
+
+    private UserSnapshot(User user) {
+        this.id = user.getId();
+        this.firstname = user.getFirstname();
+        this.lastname = user.getLastname();
+        this.email = user.getEmail();
+        this.birthday = user.getBirthday();
+        this.passwordHash = user.getPasswordHash();
+        this.version = user.getVersion();
+        this.createdAt = user.getCreatedAt();
+    }
+
+    /**
+     * Creates a snapshot of the current state of the given user.
+     *
+     * @param user the user to copy.
+     * @return the snapshot.
+     */
+    public static UserSnapshot of(User user) {
+        return new UserSnapshot(user);
+    }
+
+    /**
+     * Creates a new, detached User object with the state of this snapshot.
+     *
+     * @return the User object.
+     */
+    public User toUser() {
+        User user = new User();
+        user.setId(id);
+        user.setFirstname(firstname);
+        user.setLastname(lastname);
+        user.setEmail(email);
+        user.setBirthday(birthday);
+        user.setPasswordHash(passwordHash);
+        user.setVersion(version);
+        user.setCreatedAt(createdAt);
+        return user;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getFirstname() {
+        return firstname;
+    }
+
+    public String getLastname() {
+        return lastname;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public LocalDate getBirthday() {
+        return birthday;
+    }
+
+    public String getPasswordHash() {
+        return passwordHash;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,389 @@
+package com.task.ums.services;
+
+import com.task.ums.models.User;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.zip.CRC32;
+
+/**
+ * UserSnapshotFile is the binary file format of a snapshot of the users table, written and read sequentially with NIO.
+ *
+ * Layout (big endian):
+ * - header: magic "UMSS" (int), format version (int), creation time in epoch milliseconds (long)
+ * - blocks of up to {@value #BLOCK_SIZE} bytes: payload length (int), number of users (int), payload, CRC32 of the payload (int)
+ * - end: an empty block header (payload length 0, no users) followed by the total number of users (long)
+ *
+ * A user is stored as ID (long), version (long), birthday (int, epoch day or {@link Integer#MIN_VALUE} if absent),
+ * creation time (long, epoch milliseconds or {@link Long#MIN_VALUE} if absent; since version 2), then first name,
+ * last name, email address and password hash, each as length (int, -1 if absent) and UTF-8 bytes.
+ * Snapshots of version 1 can still be read.
+ *
+ * A snapshot is written to a temporary file which replaces the previous snapshot only when it is complete,
+ * so a crash while writing never leaves a truncated snapshot behind. A truncated or damaged snapshot
+ * is detected by the checksums and the total number of users.
+ */
+public final class UserSnapshotFile {
+    /** Magic number at the beginning of a snapshot ("UMSS"). */
+    static final int MAGIC = 0x554D5353;
+
+    /** Version of the format. */
+    static final int FORMAT_VERSION = 2;
+
+    /** Maximum size of the payload of a block in bytes. */
+    static final int BLOCK_SIZE = 1024 * 1024;
+
+    private static final int HEADER_BYTES = 16;
+    private static final int BLOCK_HEADER_BYTES = 8;
+    private static final int NO_BIRTHDAY = Integer.MIN_VALUE;
+    private static final long NO_CREATED_AT = Long.MIN_VALUE;
+
+    private UserSnapshotFile() {
+    }
+
+    /**
+     * Starts writing a snapshot. The snapshot replaces the file when it is committed.
+     *
+     * @param file the snapshot file.
+     * @return the writer.
+     * @throws IOException if the temporary file can't be created.
+     */
+    public static Writer create(Path file) throws IOException {
+        return new Writer(file);
+    }
+
+    /**
+     * Starts reading a snapshot.
+     *
+     * @param file the snapshot file.
+     * @return the reader.
+     * @throws IOException if the file can't be read or isn't a snapshot.
+     */
+    public static Reader open(Path file) throws IOException {
+        return new Reader(file);
+    }
+
+    /**
+     * Reads a whole snapshot and checks its checksums and the number of users, without keeping the users.
+     *
+     * @param file the snapshot file.
+     * @return the number of users in the snapshot.
+     * @throws IOException if the file can't be read, is truncated or is damaged.
+     */
+    public static long verify(Path file) throws IOException {
+        try (Reader reader = open(file)) {
+            while (reader.next() != null) {
+                // the checksums are checked block by block while reading
+            }
+            return reader.getCount();
+        }
+    }
+
+    /**
+     * Writes the users of a snapshot block by block.
+     */
+    public static final class Writer implements Closeable {
+        private final Path file;
+        private final Path temporary;
+        private final FileChannel channel;
+        private final ByteBuffer block = ByteBuffer.allocateDirect(BLOCK_HEADER_BYTES + BLOCK_SIZE + 4);
+        private final CRC32 crc = new CRC32();
+        private int blockCount;
+        private long count;
+        private boolean committed;
+
+        private Writer(Path file) throws IOException {
+            this.file = file;
+            this.temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            this.channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                    .putInt(MAGIC)
+                    .putInt(FORMAT_VERSION)
+                    .putLong(System.currentTimeMillis())
+                    .flip();
+            writeFully(header);
+            block.position(BLOCK_HEADER_BYTES);
+        }
+
+        /**
+         * Appends a user to the snapshot.
+         *
+         * @param user the user, with ID, version and password hash.
+         * @throws IOException if the snapshot can't be written.
+         */
+        public void write(User user) throws IOException {
+            byte[] firstname = bytes(user.getFirstname());
+            byte[] lastname = bytes(user.getLastname());
+            byte[] email = bytes(user.getEmail());
+            byte[] passwordHash = bytes(user.getPasswordHash());
+            int size = 8 + 8 + 4 + 8 + 4 * 4 + length(firstname) + length(lastname) + length(email) + length(passwordHash);
+            if (size > BLOCK_SIZE) {
+                throw new IOException("The user " + user.getId() + " is too large for a snapshot block.");
+            }
+            if (block.position() - BLOCK_HEADER_BYTES + size > BLOCK_SIZE) {
+                flushBlock();
+            }
+
+            block.putLong(user.getId());
+            block.putLong(user.getVersion() == null ? 0 : user.getVersion());
+            block.putInt(user.getBirthday() == null ? NO_BIRTHDAY : (int) user.getBirthday().toEpochDay());
+            block.putLong(user.getCreatedAt() == null ? NO_CREATED_AT : user.getCreatedAt().toEpochMilli());
+            put(firstname);
+            put(lastname);
+            put(email);
+            put(passwordHash);
+            blockCount++;
+            count++;
+        }
+
+        /**
+         * Completes the snapshot, writes it to the disk and replaces the previous snapshot with it.
+         *
+         * @return the number of users in the snapshot.
+         * @throws IOException if the snapshot can't be written.
+         */
+        public long commit() throws IOException {
+            flushBlock();
+            ByteBuffer end = ByteBuffer.allocate(BLOCK_HEADER_BYTES + 8)
+                    .putInt(0)
+                    .putInt(0)
+                    .putLong(count)
+                    .flip();
+            writeFully(end);
+            channel.force(true);
+            channel.close();
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+            return count;
+        }
+
+        /**
+         * Closes the writer. An uncommitted snapshot is discarded.
+         *
+         * @throws IOException if the temporary file can't be deleted.
+         */
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                channel.close();
+                Files.deleteIfExists(temporary);
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            if (blockCount == 0) {
+                return;
+            }
+
+            int length = block.position() - BLOCK_HEADER_BYTES;
+            crc.reset();
+            crc.update(block.duplicate().position(BLOCK_HEADER_BYTES).limit(BLOCK_HEADER_BYTES + length));
+            block.putInt((int) crc.getValue());
+            block.putInt(0, length);
+            block.putInt(4, blockCount);
+            block.flip();
+            writeFully(block);
+            block.clear().position(BLOCK_HEADER_BYTES);
+            blockCount = 0;
+        }
+
+        private void writeFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        private void put(byte[] value) {
+            if (value == null) {
+                block.putInt(-1);
+            } else {
+                block.putInt(value.length);
+                block.put(value);
+            }
+        }
+
+        private static byte[] bytes(String value) {
+            return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        private static int length(byte[] value) {
+            return value == null ? 0 : value.length;
+        }
+    }
+
+    /**
+     * Reads the users of a snapshot block by block, checking the checksum of every block.
+     */
+    public static final class Reader implements Closeable {
+        private final Path file;
+        private final FileChannel channel;
+        private final int formatVersion;
+        private final long createdAt;
+        private final ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+        private final ByteBuffer block = ByteBuffer.allocateDirect(BLOCK_SIZE + 4);
+        private final CRC32 crc = new CRC32();
+        private int remainingInBlock;
+        private long count;
+        private boolean finished;
+
+        private Reader(Path file) throws IOException {
+            this.file = file;
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            block.limit(0);
+            try {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                readFully(header);
+                if (header.getInt() != MAGIC) {
+                    throw corrupt("it isn't a user snapshot");
+                }
+                formatVersion = header.getInt();
+                if (formatVersion < 1 || formatVersion > FORMAT_VERSION) {
+                    throw corrupt("its format version " + formatVersion + " isn't supported");
+                }
+                createdAt = header.getLong();
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Returns the time the snapshot was created.
+         *
+         * @return the creation time in epoch milliseconds.
+         */
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        /**
+         * Returns the number of users read so far, after the end of the snapshot the number of users in the snapshot.
+         *
+         * @return the number of users.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Reads the next user.
+         *
+         * @return the user, detached and with its ID, version and password hash, or null at the end of the snapshot.
+         * @throws IOException if the snapshot can't be read, is truncated or is damaged.
+         */
+        public User next() throws IOException {
+            if (remainingInBlock == 0 && !nextBlock()) {
+                return null;
+            }
+
+            User user = new User();
+            try {
+                user.setId(block.getLong());
+                user.setVersion(block.getLong());
+                int birthday = block.getInt();
+                user.setBirthday(birthday == NO_BIRTHDAY ? null : LocalDate.ofEpochDay(birthday));
+                if (formatVersion >= 2) {
+                    long createdAt = block.getLong();
+                    user.setCreatedAt(createdAt == NO_CREATED_AT ? null : Instant.ofEpochMilli(createdAt));
+                }
+                user.setFirstname(string());
+                user.setLastname(string());
+                user.setEmail(string());
+                user.setPasswordHash(string());
+            } catch (BufferUnderflowException e) {
+                throw corrupt("a block has less data than users");
+            }
+            remainingInBlock--;
+            count++;
+            return user;
+        }
+
+        /**
+         * Closes the file.
+         *
+         * @throws IOException if the file can't be closed.
+         */
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private boolean nextBlock() throws IOException {
+            if (finished) {
+                return false;
+            }
+            if (block.hasRemaining()) {
+                throw corrupt("a block has more data than users");
+            }
+
+            blockHeader.clear();
+            readFully(blockHeader);
+            int length = blockHeader.getInt();
+            if (length == 0) {
+                ByteBuffer end = ByteBuffer.allocate(8);
+                readFully(end);
+                long total = end.getLong();
+                if (total != count) {
+                    throw corrupt("it has " + count + " users instead of " + total);
+                }
+                finished = true;
+                return false;
+            }
+            if (length < 0 || length > BLOCK_SIZE) {
+                throw corrupt("a block has the invalid length " + length);
+            }
+
+            int users = blockHeader.getInt();
+            block.clear().limit(length + 4);
+            readFully(block);
+            int expected = block.getInt(length);
+            block.limit(length);
+            crc.reset();
+            crc.update(block);
+            if ((int) crc.getValue() != expected) {
+                throw corrupt("the checksum of a block doesn't match");
+            }
+            block.position(0).limit(length);
+            remainingInBlock = users;
+            return users > 0 || nextBlock();
+        }
+
+        private String string() throws IOException {
+            int length = block.getInt();
+            if (length < 0) {
+                return null;
+            }
+            if (length > block.remaining()) {
+                throw corrupt("a string exceeds its block");
+            }
+            byte[] bytes = new byte[length];
+            block.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private void readFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("The snapshot " + file + " is truncated.");
+                }
+            }
+            buffer.flip();
+        }
+
+        private IOException corrupt(String reason) {
+            return new IOException("The snapshot " + file + " is damaged: " + reason + ".");
+        }
+    }
+}
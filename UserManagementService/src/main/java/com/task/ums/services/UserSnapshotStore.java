@@ -0,0 +1,315 @@
+package com.task.ums.services;
+
+import com.task.ums.models.User;
+import com.task.ums.models.UserChangeLogState;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.Timeout;
+import jakarta.ejb.TimerConfig;
+import jakarta.ejb.TimerService;
+import jakarta.ejb.TransactionManagement;
+import jakarta.ejb.TransactionManagementType;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * UserSnapshotStore saves the users table to a snapshot file ({@link UserSnapshotFile}) and restores it when
+ * the application starts, so a redeployment with the in-memory database doesn't start empty.
+ *
+ * The snapshot is restored before the application accepts requests and before the {@link UserSearchIndex} is built.
+ * The snapshot is checked completely before the first user is inserted, then the users are inserted with
+ * plain JDBC batches, committed in chunks, together with a "created" entry per user in the {@link UserChangeLog},
+ * so replaying the change log still yields all users. The ID sequences are moved past the restored IDs.
+ * The entries of the restored change log are numbered after a new epoch, the restore time in milliseconds times
+ * 1000, and the log is marked as purged up to it: consumers with a sequence number of the log before the restart
+ * have to start over instead of silently resuming in the new numbering.
+ *
+ * A new snapshot is saved periodically and when the application stops, but only if a user was changed since the
+ * last one. Saving reads the table with a single query and holds one database connection while writing.
+ * If a snapshot can't be restored, it is kept and no snapshots are saved until the next start.
+ * Snapshots are disabled if the users are partitioned ({@link UserPartitions}).
+ *
+ * Configuration (system properties):
+ * - "ums.snapshot.file": the snapshot file (default: "ums-users.snapshot" in the data directory of the server; empty disables snapshots)
+ * - "ums.snapshot.intervalMinutes": interval of the periodic snapshots in minutes (default 15, 0 = only when stopping)
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionManagement(TransactionManagementType.BEAN)
+public class UserSnapshotStore {
+    /** Number of users inserted per JDBC batch and transaction when restoring, and fetched at once when saving. */
+    static final int CHUNK_SIZE = 1000;
+
+    /** Allocation size of the ID sequences ({@link jakarta.persistence.SequenceGenerator} of User and UserChangeEntry). */
+    static final int ID_ALLOCATION_SIZE = 50;
+
+    private static final String SELECT_USERS =
+            "SELECT id, firstname, lastname, email, birthday, password_hash, version, created_at FROM users ORDER BY id";
+    private static final String INSERT_USER =
+            "INSERT INTO users (id, firstname, lastname, email, birthday, password_hash, version, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_CHANGE =
+            "INSERT INTO user_changes (seq, userId, type, partial, data, createdAt) VALUES (?, ?, 'CREATED', FALSE, ?, ?)";
+    private static final String DELETE_CHANGE_LOG_STATE = "DELETE FROM user_changes_state";
+    private static final String INSERT_CHANGE_LOG_STATE = "INSERT INTO user_changes_state (id, purgedUpTo) VALUES (?, ?)";
+
+    private final Logger logger = Logger.getLogger(UserSnapshotStore.class.getName());
+
+    private final Path file;
+    private final long intervalMinutes;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private volatile boolean saving = true;
+
+    @Resource(lookup = "java:jboss/datasources/ExampleDS")
+    private DataSource dataSource;
+
+    @Resource
+    private TimerService timerService;
+
+    @Inject
+    private UserPartitions partitions;
+
+    /**
+     * Creates the store configured by the system properties.
+     */
+    public UserSnapshotStore() {
+        this(defaultFile(), Long.getLong("ums.snapshot.intervalMinutes", 15));
+    }
+
+    /**
+     * Creates a store.
+     *
+     * @param file the snapshot file, or null to disable snapshots.
+     * @param intervalMinutes the interval of the periodic snapshots in minutes, 0 to save only when stopping.
+     */
+    public UserSnapshotStore(Path file, long intervalMinutes) {
+        this.file = file;
+        this.intervalMinutes = Math.max(0, intervalMinutes);
+    }
+
+    /**
+     * Restores the last snapshot, if there is one, and starts the periodic snapshots.
+     */
+    @PostConstruct
+    public void start() {
+        if (file == null) {
+            logger.info("User snapshots are disabled.");
+            return;
+        }
+        if (partitions.isPartitioned()) {
+            // the users table of the datasource stays empty, a snapshot of it would replace the last one
+            saving = false;
+            logger.info("User snapshots are disabled, the users are stored in " + partitions.getCount() + " partitions.");
+            return;
+        }
+
+        if (Files.exists(file)) {
+            try {
+                restore();
+            } catch (IOException | SQLException | RuntimeException e) {
+                saving = false;
+                logger.log(Level.SEVERE, "The snapshot " + file + " could not be restored, it is kept and no snapshots are saved.", e);
+            }
+        }
+        if (intervalMinutes > 0) {
+            long interval = TimeUnit.MINUTES.toMillis(intervalMinutes);
+            timerService.createIntervalTimer(interval, interval, new TimerConfig(null, false));
+        }
+    }
+
+    /**
+     * Saves a last snapshot when the application stops.
+     */
+    @PreDestroy
+    public void stop() {
+        saveIfChanged();
+    }
+
+    /**
+     * Saves a snapshot periodically.
+     */
+    @Timeout
+    public void saveIfChanged() {
+        if (file == null || !saving || !dirty.get()) {
+            return;
+        }
+        try {
+            save();
+        } catch (IOException | SQLException | RuntimeException e) {
+            logger.log(Level.WARNING, "The snapshot " + file + " could not be saved.", e);
+        }
+    }
+
+    /**
+     * Notes that the users changed since the last snapshot.
+     *
+     * @param change the committed change.
+     */
+    public void onChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) UserChange change) {
+        dirty.set(true);
+    }
+
+    /**
+     * Saves all users to the snapshot file, replacing the previous snapshot when the new one is complete.
+     *
+     * @return the number of saved users.
+     * @throws IOException if the snapshot can't be written.
+     * @throws SQLException if the users can't be read.
+     */
+    public synchronized long save() throws IOException, SQLException {
+        long start = System.nanoTime();
+        // changes while saving may be missing in the snapshot, so they mark it as changed again
+        dirty.set(false);
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            long count;
+            try (UserSnapshotFile.Writer writer = UserSnapshotFile.create(file);
+                 Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.setFetchSize(CHUNK_SIZE);
+                try (ResultSet rows = statement.executeQuery(SELECT_USERS)) {
+                    while (rows.next()) {
+                        writer.write(toUser(rows));
+                    }
+                }
+                count = writer.commit();
+            }
+            logger.info("Snapshot of " + count + " users saved to " + file + " in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+            return count;
+        } catch (IOException | SQLException | RuntimeException e) {
+            dirty.set(true);
+            throw e;
+        }
+    }
+
+    /**
+     * Inserts the users of the snapshot file into the empty users table.
+     *
+     * @return the number of restored users.
+     * @throws IOException if the snapshot can't be read or is damaged; nothing is inserted then.
+     * @throws SQLException if the users can't be inserted.
+     */
+    public synchronized long restore() throws IOException, SQLException {
+        long start = System.nanoTime();
+        long total = UserSnapshotFile.verify(file);
+        long verified = System.nanoTime();
+
+        long maxId = 0;
+        // far above the sequence numbers of the log before the restart, unless it had 1000 changes per millisecond
+        long epoch = System.currentTimeMillis() * 1000;
+        try (UserSnapshotFile.Reader reader = UserSnapshotFile.open(file);
+             Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement users = connection.prepareStatement(INSERT_USER);
+                 PreparedStatement changes = connection.prepareStatement(INSERT_CHANGE)) {
+                OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+                int chunk = 0;
+                User user;
+                while ((user = reader.next()) != null) {
+                    bind(users, user);
+                    users.addBatch();
+                    changes.setLong(1, epoch + reader.getCount());
+                    changes.setLong(2, user.getId());
+                    changes.setString(3, UserChangeLog.toJson(UserChange.created(UserSnapshot.of(user))));
+                    changes.setObject(4, now);
+                    changes.addBatch();
+                    maxId = Math.max(maxId, user.getId());
+                    if (++chunk == CHUNK_SIZE) {
+                        users.executeBatch();
+                        changes.executeBatch();
+                        connection.commit();
+                        chunk = 0;
+                    }
+                }
+                users.executeBatch();
+                changes.executeBatch();
+            }
+            try (Statement statement = connection.createStatement()) {
+                // the next block of IDs handed out by the sequences starts after the restored ones
+                statement.execute("ALTER SEQUENCE users_seq RESTART WITH " + (maxId + ID_ALLOCATION_SIZE + 1));
+                statement.execute("ALTER SEQUENCE user_changes_seq RESTART WITH " + (epoch + total + ID_ALLOCATION_SIZE + 1));
+                statement.execute(DELETE_CHANGE_LOG_STATE);
+            }
+            // read by the UserChangeLog when it starts, after the restore
+            try (PreparedStatement state = connection.prepareStatement(INSERT_CHANGE_LOG_STATE)) {
+                state.setInt(1, UserChangeLogState.ID);
+                state.setLong(2, epoch);
+                state.executeUpdate();
+            }
+            connection.commit();
+            connection.setAutoCommit(true);
+        }
+        logger.info("Snapshot of " + total + " users restored from " + file + " in " + (System.nanoTime() - start) / 1_000_000
+                + " ms (checked in " + (verified - start) / 1_000_000 + " ms).");
+        return total;
+    }
+
+    private static User toUser(ResultSet rows) throws SQLException {
+        User user = new User();
+        user.setId(rows.getLong(1));
+        user.setFirstname(rows.getString(2));
+        user.setLastname(rows.getString(3));
+        user.setEmail(rows.getString(4));
+        user.setBirthday(rows.getObject(5, LocalDate.class));
+        user.setPasswordHash(rows.getString(6));
+        user.setVersion(rows.getLong(7));
+        OffsetDateTime createdAt = rows.getObject(8, OffsetDateTime.class);
+        user.setCreatedAt(createdAt == null ? null : createdAt.toInstant());
+        return user;
+    }
+
+    private static void bind(PreparedStatement statement, User user) throws SQLException {
+        statement.setLong(1, user.getId());
+        statement.setString(2, user.getFirstname());
+        statement.setString(3, user.getLastname());
+        statement.setString(4, user.getEmail());
+        if (user.getBirthday() == null) {
+            statement.setNull(5, Types.DATE);
+        } else {
+            statement.setObject(5, user.getBirthday());
+        }
+        statement.setString(6, user.getPasswordHash());
+        statement.setLong(7, user.getVersion());
+        if (user.getCreatedAt() == null) {
+            statement.setNull(8, Types.TIMESTAMP_WITH_TIMEZONE);
+        } else {
+            statement.setObject(8, user.getCreatedAt().atOffset(ZoneOffset.UTC));
+        }
+    }
+
+    private static Path defaultFile() {
+        String file = System.getProperty("ums.snapshot.file");
+        if (file != null) {
+            return file.isBlank() ? null : Paths.get(file);
+        }
+        String dataDir = System.getProperty("jboss.server.data.dir");
+        return dataDir == null ? null : Paths.get(dataDir, "ums-users.snapshot");
+    }
+}
@@ -0,0 +1,437 @@
+package com.task.ums.services;
+
+import com.task.ums.models.EmailDomainCount;
+import com.task.ums.models.User;
+import com.task.ums.models.UserStatistics;
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.DependsOn;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * UserStatisticsTracker maintains the statistics of all users for dashboards ({@link UserStatistics}), so they
+ * are answered without scanning the users table: the number of users, users by day of creation and by decade of
+ * birth, and the email domains with the most users.
+ *
+ * The counts by day and birth year are exact arrays. The email domains are counted in a count-min sketch (a few rows of
+ * counters indexed by different hashes of the domain; the estimate is the smallest of its counters, so it can only be
+ * too high), which needs constant memory however many domains there are: with {@value #SKETCH_WIDTH} counters per row
+ * (256 KB) an estimate is too high by at most 0.02 % of all users with a probability of 98 %. The domains with the
+ * highest estimates are kept as candidates for the top list. To subtract a changed or deleted user, the tracker keeps the creation day, birth year
+ * and domain hash of every user packed into a long in an open-addressing table (32 to 64 bytes per user).
+ *
+ * The statistics are built from the database when the application starts and updated by the {@link UserChange}
+ * events of committed transactions. Reading them takes constant time. Events of concurrent transactions changing the
+ * same user may be applied out of order, and the domain candidates may miss a domain that grew while it wasn't one;
+ * {@link #rebuild()} corrects such drift. Changes committed while rebuilding are applied again to the rebuilt statistics.
+ */
+@Singleton
+@Startup
+@DependsOn("UserSnapshotStore")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class UserStatisticsTracker {
+    /** Maximum number of days of signups returned. */
+    public static final int MAX_DAYS = 366;
+
+    /** Maximum number of email domains returned, the number of candidates kept. */
+    public static final int MAX_TOP_DOMAINS = 32;
+
+    /** Latest birth year counted separately, later years are counted as this one. */
+    static final int MAX_BIRTH_YEAR = 9999;
+
+    private static final int SKETCH_DEPTH = 4;
+    private static final int SKETCH_WIDTH = 16384;
+
+    // a user is packed as created day + 1 (20 bits, 0 = unknown), birth year + 1 (14 bits, 0 = none), domain hash (30 bits)
+    private static final int DOMAIN_BITS = 30;
+    private static final int YEAR_BITS = 14;
+    private static final int MAX_CREATED_DAY = (1 << 20) - 2;
+
+    private final Logger logger = Logger.getLogger(UserStatisticsTracker.class.getName());
+
+    private final Object rebuildLock = new Object();
+
+    // guarded by this
+    private State state = new State();
+    private List<UserChange> pending;
+    private Instant rebuiltAt;
+
+    @Inject
+    private UserService userService;
+
+    /**
+     * Builds the statistics from all users in the database.
+     */
+    @PostConstruct
+    public void build() {
+        rebuild();
+    }
+
+    /**
+     * Applies a committed change of a user.
+     *
+     * @param change the change.
+     */
+    public synchronized void onChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) UserChange change) {
+        if (pending != null) {
+            pending.add(change);
+        }
+        state.apply(change);
+    }
+
+    /**
+     * Recounts the statistics from all users in the database and replaces the current ones.
+     * Concurrent rebuilds run one after the other.
+     *
+     * @return the number of counted users.
+     */
+    public long rebuild() {
+        synchronized (rebuildLock) {
+            long start = System.nanoTime();
+            synchronized (this) {
+                pending = new ArrayList<>();
+            }
+            try {
+                State rebuilt = new State();
+                long count = userService.forEach(1000, rebuilt::add);
+                synchronized (this) {
+                    pending.forEach(rebuilt::apply);
+                    state = rebuilt;
+                    rebuiltAt = Instant.now();
+                }
+                logger.info("User statistics rebuilt for " + count + " users in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+                return count;
+            } finally {
+                synchronized (this) {
+                    pending = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the current statistics.
+     *
+     * @param days the number of days of signups up to today (1-{@value #MAX_DAYS}).
+     * @param topDomains the number of email domains (1-{@value #MAX_TOP_DOMAINS}).
+     * @return the statistics.
+     * @throws IllegalArgumentException if a parameter is out of range.
+     */
+    public synchronized UserStatistics getStatistics(int days, int topDomains) {
+        if (days < 1 || days > MAX_DAYS || topDomains < 1 || topDomains > MAX_TOP_DOMAINS) {
+            throw new IllegalArgumentException("The days must be between 1 and " + MAX_DAYS
+                    + " and the domains between 1 and " + MAX_TOP_DOMAINS + ".");
+        }
+
+        Map<String, Long> signups = new LinkedHashMap<>();
+        LocalDate day = LocalDate.now(ZoneOffset.UTC).minusDays(days - 1);
+        for (int i = 0; i < days; i++, day = day.plusDays(1)) {
+            signups.put(day.toString(), state.signups((int) day.toEpochDay()));
+        }
+        return new UserStatistics(state.users.size, signups, state.signupsWithoutDate, state.birthDecades(),
+                state.withoutBirthday, state.topDomains(topDomains), rebuiltAt);
+    }
+
+    /**
+     * The counters of the statistics; replaced as a whole by a rebuild.
+     */
+    private static final class State {
+        private final UserKeys users = new UserKeys();
+        private long[] signups = new long[0];
+        private int firstSignupDay;
+        private long signupsWithoutDate;
+        private final long[] birthYears = new long[MAX_BIRTH_YEAR + 1];
+        private long withoutBirthday;
+        private final int[] sketch = new int[SKETCH_DEPTH * SKETCH_WIDTH];
+        private final String[] candidates = new String[MAX_TOP_DOMAINS];
+        private final int[] candidateHashes = new int[MAX_TOP_DOMAINS];
+
+        void add(User user) {
+            add(user.getId(), user.getCreatedAt(), user.getBirthday(), user.getEmail());
+        }
+
+        void apply(UserChange change) {
+            long id = change.getId();
+            int slot = users.find(id);
+            if (change.getType() == UserChange.Type.DELETED) {
+                if (slot >= 0) {
+                    count(users.removeAt(slot), null, -1);
+                }
+            } else if (change.getType() == UserChange.Type.CREATED) {
+                if (slot < 0) {
+                    UserSnapshot user = change.getUser();
+                    add(id, user.getCreatedAt(), user.getBirthday(), user.getEmail());
+                }
+            } else if (slot >= 0) {
+                long old = users.values[slot];
+                int year = year(old);
+                int domainHash = domainHash(old);
+                String domain = null;
+                if (change.getUser() != null) {
+                    year = birthYear(change.getUser().getBirthday());
+                    domain = domain(change.getUser().getEmail());
+                } else {
+                    Map<String, Object> fields = change.getFields();
+                    if (fields.containsKey("birthday")) {
+                        year = birthYear((LocalDate) fields.get("birthday"));
+                    }
+                    if (fields.containsKey("email")) {
+                        domain = domain((String) fields.get("email"));
+                    }
+                }
+                if (domain != null) {
+                    domainHash = domainHash(domain);
+                }
+                long updated = pack(createdDay(old), year, domainHash);
+                if (updated != old) {
+                    count(old, null, -1);
+                    users.values[slot] = updated;
+                    count(updated, domain, 1);
+                }
+            }
+        }
+
+        private void add(long id, Instant createdAt, LocalDate birthday, String email) {
+            int createdDay = createdAt == null ? -1 : (int) Math.min(MAX_CREATED_DAY, Math.max(-1,
+                    createdAt.atOffset(ZoneOffset.UTC).toLocalDate().toEpochDay()));
+            String domain = domain(email);
+            long packed = pack(createdDay, birthYear(birthday), domainHash(domain));
+            users.put(id, packed);
+            count(packed, domain, 1);
+        }
+
+        /**
+         * Adds a packed user to the counters or subtracts it; the domain is offered as candidate when adding.
+         */
+        private void count(long packed, String domain, int delta) {
+            int createdDay = createdDay(packed);
+            if (createdDay < 0) {
+                signupsWithoutDate += delta;
+            } else {
+                addSignups(createdDay, delta);
+            }
+            int year = year(packed);
+            if (year < 0) {
+                withoutBirthday += delta;
+            } else {
+                birthYears[year] += delta;
+            }
+            int hash = domainHash(packed);
+            for (int row = 0; row < SKETCH_DEPTH; row++) {
+                sketch[row * SKETCH_WIDTH + column(hash, row)] += delta;
+            }
+            if (delta > 0 && domain != null) {
+                offer(hash, domain);
+            }
+        }
+
+        private void addSignups(int day, long delta) {
+            if (signups.length == 0) {
+                signups = new long[64];
+                firstSignupDay = day;
+            } else if (day < firstSignupDay) {
+                long[] grown = new long[signups.length + firstSignupDay - day];
+                System.arraycopy(signups, 0, grown, firstSignupDay - day, signups.length);
+                signups = grown;
+                firstSignupDay = day;
+            } else if (day - firstSignupDay >= signups.length) {
+                signups = Arrays.copyOf(signups, Math.max(day - firstSignupDay + 1, signups.length * 2));
+            }
+            signups[day - firstSignupDay] += delta;
+        }
+
+        long signups(int day) {
+            int i = day - firstSignupDay;
+            return i >= 0 && i < signups.length ? signups[i] : 0;
+        }
+
+        Map<String, Long> birthDecades() {
+            Map<String, Long> decades = new LinkedHashMap<>();
+            for (int decade = 0; decade <= MAX_BIRTH_YEAR; decade += 10) {
+                long count = 0;
+                for (int year = decade; year < decade + 10; year++) {
+                    count += birthYears[year];
+                }
+                if (count > 0) {
+                    decades.put(decade + "-" + (decade + 9), count);
+                }
+            }
+            return decades;
+        }
+
+        List<EmailDomainCount> topDomains(int limit) {
+            List<EmailDomainCount> domains = new ArrayList<>(MAX_TOP_DOMAINS);
+            for (int i = 0; i < MAX_TOP_DOMAINS; i++) {
+                long estimate = candidates[i] == null ? 0 : estimate(candidateHashes[i]);
+                if (estimate > 0) {
+                    domains.add(new EmailDomainCount(candidates[i], estimate));
+                }
+            }
+            domains.sort(Comparator.comparingLong(EmailDomainCount::getUsers).reversed().thenComparing(EmailDomainCount::getDomain));
+            return domains.size() > limit ? new ArrayList<>(domains.subList(0, limit)) : domains;
+        }
+
+        /**
+         * Keeps a domain as candidate if there is room or it has a higher estimate than the weakest candidate.
+         */
+        private void offer(int hash, String domain) {
+            int free = -1;
+            int weakest = -1;
+            long weakestEstimate = Long.MAX_VALUE;
+            for (int i = 0; i < MAX_TOP_DOMAINS; i++) {
+                if (candidates[i] == null) {
+                    free = free < 0 ? i : free;
+                } else if (candidateHashes[i] == hash && candidates[i].equals(domain)) {
+                    return;
+                } else {
+                    long estimate = estimate(candidateHashes[i]);
+                    if (estimate < weakestEstimate) {
+                        weakest = i;
+                        weakestEstimate = estimate;
+                    }
+                }
+            }
+            int slot = free >= 0 ? free : estimate(hash) > weakestEstimate ? weakest : -1;
+            if (slot >= 0) {
+                candidates[slot] = domain;
+                candidateHashes[slot] = hash;
+            }
+        }
+
+        private long estimate(int hash) {
+            long estimate = Long.MAX_VALUE;
+            for (int row = 0; row < SKETCH_DEPTH; row++) {
+                estimate = Math.min(estimate, sketch[row * SKETCH_WIDTH + column(hash, row)]);
+            }
+            return estimate;
+        }
+
+        /**
+         * Hashes a domain for a row of the sketch; the rows need independent hashes (a mix of the hash and the row,
+         * not an offset), otherwise domains colliding in one row collide in all of them.
+         */
+        private static int column(int hash, int row) {
+            long h = (hash & 0xFFFFFFFFL) | ((long) row << 32);
+            h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+            h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+            return (int) (h ^ (h >>> 33)) & (SKETCH_WIDTH - 1);
+        }
+    }
+
+    /**
+     * An open-addressing hash table from user IDs to packed longs (linear probing, IDs are positive).
+     */
+    private static final class UserKeys {
+        private long[] keys = new long[1024];
+        private long[] values = new long[1024];
+        private int size;
+
+        int find(long id) {
+            int mask = keys.length - 1;
+            for (int slot = hash(id) & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == id) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        void put(long id, long value) {
+            if ((size + 1) * 2 > keys.length) {
+                long[] oldKeys = keys;
+                long[] oldValues = values;
+                keys = new long[oldKeys.length * 2];
+                values = new long[oldKeys.length * 2];
+                size = 0;
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldKeys[i] != 0) {
+                        put(oldKeys[i], oldValues[i]);
+                    }
+                }
+            }
+            int mask = keys.length - 1;
+            int slot = hash(id) & mask;
+            while (keys[slot] != 0 && keys[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == 0) {
+                size++;
+            }
+            keys[slot] = id;
+            values[slot] = value;
+        }
+
+        /**
+         * Removes an entry and moves the following entries of its probe sequence back, so no tombstones are needed.
+         */
+        long removeAt(int slot) {
+            long value = values[slot];
+            int mask = keys.length - 1;
+            int hole = slot;
+            for (int i = (slot + 1) & mask; keys[i] != 0; i = (i + 1) & mask) {
+                int home = hash(keys[i]) & mask;
+                boolean reachable = hole <= i ? home > hole && home <= i : home > hole || home <= i;
+                if (!reachable) {
+                    keys[hole] = keys[i];
+                    values[hole] = values[i];
+                    hole = i;
+                }
+            }
+            keys[hole] = 0;
+            size--;
+            return value;
+        }
+
+        private static int hash(long id) {
+            long h = id * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    private static long pack(int createdDay, int year, int domainHash) {
+        return ((long) (createdDay + 1) << (YEAR_BITS + DOMAIN_BITS)) | ((long) (year + 1) << DOMAIN_BITS) | domainHash;
+    }
+
+    private static int createdDay(long packed) {
+        return (int) (packed >>> (YEAR_BITS + DOMAIN_BITS)) - 1;
+    }
+
+    private static int year(long packed) {
+        return (int) ((packed >>> DOMAIN_BITS) & ((1 << YEAR_BITS) - 1)) - 1;
+    }
+
+    private static int domainHash(long packed) {
+        return (int) (packed & ((1 << DOMAIN_BITS) - 1));
+    }
+
+    private static int domainHash(String domain) {
+        return (domain.hashCode() * 0x9E3779B1) >>> (32 - DOMAIN_BITS);
+    }
+
+    private static int birthYear(LocalDate birthday) {
+        return birthday == null ? -1 : Math.max(0, Math.min(MAX_BIRTH_YEAR, birthday.getYear()));
+    }
+
+    private static String domain(String email) {
+        return email == null ? "" : email.substring(email.lastIndexOf('@') + 1);
+    }
+}
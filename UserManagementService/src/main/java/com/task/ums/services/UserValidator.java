@@ -0,0 +1,313 @@
+package com.task.ums.services;
+
+import com.task.ums.models.User;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.validation.Constraint;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * UserValidator checks the constraints of a {@link User} without going through the generic, reflective
+ * Bean Validation engine for every request.
+ *
+ * The checks are hand-specialized for the constraints declared on User ({@code @NotNull}, {@code @NotEmpty},
+ * {@code @Email}, {@code @Size}); their messages and size limits are read once from the annotations.
+ * A valid user is checked without any allocation. Email addresses outside the plain ASCII subset
+ * (e.g. quoted local parts, IP literals or international domains) are passed to the {@link Validator},
+ * so the result is always the same as with Bean Validation.
+ *
+ * If the constraints of User don't match the ones this class is specialized for, every call is
+ * delegated to the {@link Validator}.
+ */
+@ApplicationScoped
+public class UserValidator {
+    private static final List<String> VALID = List.of();
+    private static final int MAX_LOCAL_PART_LENGTH = 64;
+    private static final int MAX_DOMAIN_LABEL_LENGTH = 63;
+    private static final int MAX_DOMAIN_LENGTH = 255;
+
+    private static final Map<String, Set<Class<? extends Annotation>>> SPECIALIZED_CONSTRAINTS = Map.of(
+            "firstname", Set.of(NotNull.class, NotEmpty.class),
+            "lastname", Set.of(NotNull.class, NotEmpty.class),
+            "email", Set.of(NotNull.class, Email.class),
+            "password", Set.of(NotNull.class, Size.class));
+
+    private final Logger logger = Logger.getLogger(UserValidator.class.getName());
+
+    private final boolean specialized;
+    private String firstnameMandatory;
+    private String firstnameEmpty;
+    private String lastnameMandatory;
+    private String lastnameEmpty;
+    private String emailMandatory;
+    private String passwordMandatory;
+    private String passwordSize;
+    private int passwordMin;
+    private int passwordMax;
+
+    @Inject
+    private Validator validator;
+
+    /**
+     * Creates the validator, the {@link Validator} for the fallback is injected.
+     */
+    public UserValidator() {
+        this.specialized = readConstraints();
+        if (!specialized) {
+            logger.warning("The constraints of User changed, users are validated by Bean Validation only.");
+        }
+    }
+
+    /**
+     * Creates a validator.
+     *
+     * @param validator the Bean Validation validator used for the fallback.
+     */
+    public UserValidator(Validator validator) {
+        this();
+        this.validator = validator;
+    }
+
+    /**
+     * Validates all constraints of a user.
+     *
+     * @param user the user.
+     * @return the messages of the violated constraints in the order of the fields, an empty list if the user is valid.
+     */
+    public List<String> validate(User user) {
+        if (!specialized) {
+            return messages(validator.validate(user));
+        }
+
+        List<String> messages = VALID;
+        messages = checkName(messages, user.getFirstname(), firstnameMandatory, firstnameEmpty);
+        messages = checkName(messages, user.getLastname(), lastnameMandatory, lastnameEmpty);
+        messages = checkEmail(messages, user.getEmail());
+        messages = checkPassword(messages, user.getPassword());
+        return messages;
+    }
+
+    /**
+     * Validates the constraints of a single property, as done for a partial update.
+     *
+     * @param property the name of the property.
+     * @param value the new value of the property.
+     * @return the messages of the violated constraints, an empty list if the value is valid.
+     */
+    public List<String> validateValue(String property, Object value) {
+        if (!specialized || !(value == null || value instanceof String) || !SPECIALIZED_CONSTRAINTS.containsKey(property)) {
+            return messages(validator.validateValue(User.class, property, value));
+        }
+
+        String text = (String) value;
+        switch (property) {
+            case "firstname":
+                return checkName(VALID, text, firstnameMandatory, firstnameEmpty);
+            case "lastname":
+                return checkName(VALID, text, lastnameMandatory, lastnameEmpty);
+            case "email":
+                return checkEmail(VALID, text);
+            default:
+                return checkPassword(VALID, text);
+        }
+    }
+
+    private static List<String> checkName(List<String> messages, String name, String mandatory, String empty) {
+        if (name == null) {
+            // @NotEmpty rejects null as well
+            return add(add(messages, mandatory), empty);
+        }
+        return name.isEmpty() ? add(messages, empty) : messages;
+    }
+
+    private List<String> checkEmail(List<String> messages, String email) {
+        if (email == null) {
+            return add(messages, emailMandatory);
+        }
+        // @Email accepts the empty string
+        if (email.isEmpty() || isPlainEmail(email)) {
+            return messages;
+        }
+        for (ConstraintViolation<User> violation : validator.validateValue(User.class, "email", email)) {
+            messages = add(messages, violation.getMessage());
+        }
+        return messages;
+    }
+
+    private List<String> checkPassword(List<String> messages, String password) {
+        if (password == null) {
+            return add(messages, passwordMandatory);
+        }
+        return password.length() < passwordMin || password.length() > passwordMax ? add(messages, passwordSize) : messages;
+    }
+
+    /**
+     * Checks whether an email address is in the plain ASCII subset that Bean Validation accepts:
+     * dot separated atoms before a single "@", and dot separated alphanumeric labels with inner dashes after it.
+     * Returns false for every other address, including valid ones, which are then checked by the {@link Validator}.
+     */
+    static boolean isPlainEmail(String email) {
+        int at = email.indexOf('@');
+        if (at <= 0 || at > MAX_LOCAL_PART_LENGTH || email.indexOf('@', at + 1) >= 0) {
+            return false;
+        }
+
+        // local part: atoms separated by single dots
+        char previous = '.';
+        for (int i = 0; i < at; i++) {
+            char c = email.charAt(i);
+            if (c == '.' ? previous == '.' : !isAtomChar(c)) {
+                return false;
+            }
+            previous = c;
+        }
+        if (previous == '.') {
+            return false;
+        }
+
+        // domain: labels of letters and digits, with dashes only inside a label
+        int domainLength = email.length() - at - 1;
+        if (domainLength == 0 || domainLength > MAX_DOMAIN_LENGTH) {
+            return false;
+        }
+        int labelLength = 0;
+        previous = '.';
+        for (int i = at + 1; i < email.length(); i++) {
+            char c = email.charAt(i);
+            if (c == '.') {
+                if (previous == '.' || previous == '-') {
+                    return false;
+                }
+                labelLength = 0;
+            } else if (c == '-' ? previous == '.' : !isAlphanumeric(c)) {
+                return false;
+            } else if (++labelLength > MAX_DOMAIN_LABEL_LENGTH) {
+                return false;
+            }
+            previous = c;
+        }
+        return previous != '.' && previous != '-';
+    }
+
+    private static boolean isAlphanumeric(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
+    private static boolean isAtomChar(char c) {
+        return isAlphanumeric(c) || (c < 0x80 && "!#$%&'*+/=?^_`{|}~-".indexOf(c) >= 0);
+    }
+
+    private static List<String> add(List<String> messages, String message) {
+        if (messages == VALID) {
+            messages = new ArrayList<>(4);
+        }
+        messages.add(message);
+        return messages;
+    }
+
+    private static List<String> messages(Set<ConstraintViolation<User>> violations) {
+        if (violations.isEmpty()) {
+            return VALID;
+        }
+        List<String> messages = new ArrayList<>(violations.size());
+        for (ConstraintViolation<User> violation : violations) {
+            messages.add(violation.getMessage());
+        }
+        return messages;
+    }
+
+    /**
+     * Reads the messages and limits from the constraint annotations of User and checks that they are exactly
+     * the constraints this class is specialized for: no other constraints, no groups and no message templates.
+     */
+    private boolean readConstraints() {
+        if (hasConstraints(User.class.getAnnotations())) {
+            return false;
+        }
+
+        Map<String, Map<Class<? extends Annotation>, Annotation>> constraints = new HashMap<>();
+        for (Field field : User.class.getDeclaredFields()) {
+            for (Annotation annotation : field.getAnnotations()) {
+                if (isConstraint(annotation)) {
+                    if (!isPlain(annotation)) {
+                        return false;
+                    }
+                    constraints.computeIfAbsent(field.getName(), name -> new HashMap<>()).put(annotation.annotationType(), annotation);
+                }
+            }
+        }
+        for (Method method : User.class.getDeclaredMethods()) {
+            if (hasConstraints(method.getAnnotations())) {
+                return false;
+            }
+        }
+        if (!constraints.keySet().equals(SPECIALIZED_CONSTRAINTS.keySet())) {
+            return false;
+        }
+        for (Map.Entry<String, Set<Class<? extends Annotation>>> expected : SPECIALIZED_CONSTRAINTS.entrySet()) {
+            if (!constraints.get(expected.getKey()).keySet().equals(expected.getValue())) {
+                return false;
+            }
+        }
+
+        firstnameMandatory = ((NotNull) constraints.get("firstname").get(NotNull.class)).message();
+        firstnameEmpty = ((NotEmpty) constraints.get("firstname").get(NotEmpty.class)).message();
+        lastnameMandatory = ((NotNull) constraints.get("lastname").get(NotNull.class)).message();
+        lastnameEmpty = ((NotEmpty) constraints.get("lastname").get(NotEmpty.class)).message();
+        emailMandatory = ((NotNull) constraints.get("email").get(NotNull.class)).message();
+        Email email = (Email) constraints.get("email").get(Email.class);
+        passwordMandatory = ((NotNull) constraints.get("password").get(NotNull.class)).message();
+        Size size = (Size) constraints.get("password").get(Size.class);
+        passwordSize = size.message();
+        passwordMin = size.min();
+        passwordMax = size.max();
+
+        // a custom pattern on @Email would need the Validator for every address
+        return email.regexp().equals(".*") && email.flags().length == 0;
+    }
+
+    private static boolean hasConstraints(Annotation[] annotations) {
+        for (Annotation annotation : annotations) {
+            if (isConstraint(annotation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isConstraint(Annotation annotation) {
+        // repeated constraints are wrapped in their nested List annotation
+        Class<?> type = annotation.annotationType();
+        return type.isAnnotationPresent(Constraint.class)
+                || (type.getEnclosingClass() != null && type.getEnclosingClass().isAnnotationPresent(Constraint.class));
+    }
+
+    /**
+     * Checks that a constraint has a literal message and uses neither groups nor payloads.
+     */
+    private static boolean isPlain(Annotation annotation) {
+        try {
+            String message = (String) annotation.annotationType().getMethod("message").invoke(annotation);
+            Class<?>[] groups = (Class<?>[]) annotation.annotationType().getMethod("groups").invoke(annotation);
+            Class<?>[] payload = (Class<?>[]) annotation.annotationType().getMethod("payload").invoke(annotation);
+            return message.indexOf('{') < 0 && message.indexOf('$') < 0 && groups.length == 0 && payload.length == 0;
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            return false;
+        }
+    }
+}
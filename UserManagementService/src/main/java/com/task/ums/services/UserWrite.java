@@ -0,0 +1,122 @@
+package com.task.ums.services;
+
+import com.task.ums.models.User;
+
+/**
+ * A create or update of a user applied together with other writes in one transaction
+ * by {@link UserService#writeAll(java.util.List)}.
+ *
+ * Every write gets its own outcome: the created or updated user (null if the user to update doesn't exist),
+ * or the failure of this write alone, e.g. an {@link EmailConflictException} or a {@link VersionConflictException}.
+ */
+public final class UserWrite {
+    private final Long id;
+    private final User user;
+    private final Long expectedVersion;
+
+    private User result;
+    private RuntimeException failure;
+
+    private UserWrite(Long id, User user, Long expectedVersion) {
+        this.id = id;
+        this.user = user;
+        this.expectedVersion = expectedVersion;
+    }
+
+    /**
+     * Creates the write of a new user.
+     *
+     * @param user the user to create, with the hashed password.
+     * @return the write.
+     */
+    public static UserWrite create(User user) {
+        return new UserWrite(null, user, null);
+    }
+
+    /**
+     * Creates the write replacing the state of an existing user, like {@link UserService#update(Long, User, Long)}.
+     *
+     * @param id the ID of the user to update.
+     * @param changes the new user data (all fields except the ID and version, with the hashed password).
+     * @param expectedVersion the version the user must have, or null to update any version.
+     * @return the write.
+     */
+    public static UserWrite update(Long id, User changes, Long expectedVersion) {
+        return new UserWrite(id, changes, expectedVersion);
+    }
+
+    /**
+     * @return true if a new user is created, false if an existing user is updated.
+     */
+    public boolean isCreate() {
+        return id == null;
+    }
+
+    /**
+     * @return the ID of the user to update, or null for a new user.
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * @return the new user or the new data of the user to update.
+     */
+    public User getUser() {
+        return user;
+    }
+
+    /**
+     * @return the version the user to update must have, or null.
+     */
+    public Long getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    /**
+     * @return the created or updated user, or null if the user to update doesn't exist or the write failed.
+     */
+    public User getResult() {
+        return result;
+    }
+
+    /**
+     * @return the failure of this write, or null if it was applied.
+     */
+    public RuntimeException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Records that the write was applied.
+     *
+     * @param result the created or updated user, or null if the user to update doesn't exist.
+     */
+    public void succeed(User result) {
+        this.result = result;
+        this.failure = null;
+    }
+
+    /**
+     * Records that the write failed, without affecting the other writes.
+     *
+     * @param failure the reason.
+     */
+    public void fail(RuntimeException failure) {
+        this.result = null;
+        this.failure = failure;
+    }
+
+    /**
+     * Forgets the outcome and the ID and version a new user got in a transaction that was rolled back,
+     * so the write can be applied again.
+     */
+    void reset() {
+        result = null;
+        failure = null;
+        if (isCreate()) {
+            user.setId(null);
+            user.setVersion(null);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.task.ums.services;
+
+import jakarta.ejb.ApplicationException;
+
+/**
+ * Thrown by the {@link UserService} if a user was changed by someone else since it was read,
+ * i.e. the version of the user to be updated doesn't match the version in the database.
+ * The current transaction is rolled back.
+ */
+@ApplicationException(rollback = true)
+public class VersionConflictException extends RuntimeException {
+
+    /**
+     * Creates the exception for the user with the given ID.
+     *
+     * @param id the ID of the user.
+     * @param cause the exception reported by the persistence provider.
+     */
+    public VersionConflictException(Long id, Throwable cause) {
+        super("The user with the ID " + id + " was changed concurrently.", cause);
+    }
+}
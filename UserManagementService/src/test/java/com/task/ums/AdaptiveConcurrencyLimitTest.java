@@ -0,0 +1,131 @@
+package com.task.ums;
+
+import com.task.ums.admission.AdaptiveConcurrencyLimit;
+import com.task.ums.admission.EndpointAdmission;
+import com.task.ums.admission.TokenBuckets;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link AdaptiveConcurrencyLimit} class.
+ *
+ * @see AdaptiveConcurrencyLimit
+ * @see EndpointAdmission
+ **/
+public class AdaptiveConcurrencyLimitTest {
+
+    private static final long LATENCY = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final AtomicLong time = new AtomicLong();
+
+    /**
+     * Reset the clock before each test case.
+     * */
+    @BeforeEach
+    public void setup() {
+        time.set(0);
+    }
+
+    /**
+     * Test for TryAcquire and Release methods.
+     * Verify that no more requests than the limit are admitted and a released slot can be reused.
+     * */
+    @Test
+    public void test_TryAcquire() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(3, 1, 10, 0.5, time::get);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        assertEquals(3, limit.getInFlight());
+
+        limit.release(LATENCY, false);
+
+        assertEquals(2, limit.getInFlight());
+        assertTrue(limit.tryAcquire());
+    }
+
+    /**
+     * Test for Release method.
+     * Verify that the limit grows by one per limit of responses in time while it is used,
+     * and not while it is mostly unused.
+     * */
+    @Test
+    public void test_Release_Increase() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 10, 0.5, time::get);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limit.tryAcquire());
+        }
+        for (int i = 0; i < 3; i++) {
+            limit.release(LATENCY, false);
+            limit.tryAcquire();
+        }
+        limit.release(LATENCY, false);
+        limit.release(LATENCY, false);
+
+        assertEquals(5, limit.getLimit());
+
+        // two of five in flight, then a single request at a time: the limit is not used enough to grow
+        limit.release(LATENCY, false);
+        limit.release(LATENCY, false);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(LATENCY, false);
+        }
+        assertEquals(5, limit.getLimit());
+    }
+
+    /**
+     * Test for Release method.
+     * Verify that overload lowers the limit once per latency, down to the minimum.
+     * */
+    @Test
+    public void test_Release_Decrease() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8, 2, 10, 0.5, time::get);
+        for (int i = 0; i < 3; i++) {
+            limit.tryAcquire();
+        }
+
+        limit.release(LATENCY, true);
+        limit.release(LATENCY, true);
+        assertEquals(4, limit.getLimit());
+
+        time.addAndGet(LATENCY);
+        limit.release(LATENCY, true);
+        assertEquals(2, limit.getLimit());
+
+        time.addAndGet(LATENCY);
+        limit.tryAcquire();
+        limit.release(LATENCY, true);
+        assertEquals(2, limit.getLimit());
+    }
+
+    /**
+     * Test for RecordLatency method of the EndpointAdmission.
+     * Verify that only a sustained rise of the latency is reported as overload, not a single slow request.
+     * */
+    @Test
+    public void test_RecordLatency() {
+        EndpointAdmission endpoint = new EndpointAdmission("GET", "/users", new TokenBuckets(1, 1, 1, time::get), true, 2.0);
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(endpoint.recordLatency(LATENCY));
+        }
+
+        assertFalse(endpoint.recordLatency(LATENCY * 10));
+        for (int i = 0; i < 10; i++) {
+            endpoint.recordLatency(LATENCY);
+        }
+
+        boolean overloaded = false;
+        for (int i = 0; i < 20 && !overloaded; i++) {
+            overloaded = endpoint.recordLatency(LATENCY * 5);
+        }
+        assertTrue(overloaded);
+    }
+}
@@ -0,0 +1,146 @@
+package com.task.ums;
+
+import com.task.ums.admission.AdmissionControl;
+import com.task.ums.admission.AdmissionFeature;
+import com.task.ums.admission.RateLimit;
+import com.task.ums.admission.UnhandledExceptionMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.Suspended;
+import jakarta.ws.rs.core.Response;
+import org.jboss.resteasy.core.SynchronousDispatcher;
+import org.jboss.resteasy.core.SynchronousExecutionContext;
+import org.jboss.resteasy.mock.MockDispatcherFactory;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.jboss.resteasy.spi.Dispatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.lang.reflect.Field;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link AdmissionFeature} class and the {@link UnhandledExceptionMapper},
+ * with requests dispatched in-process by RESTEasy.
+ *
+ * Mocks: HttpServletRequest
+ *
+ * @see AdmissionFeature
+ * @see UnhandledExceptionMapper
+ **/
+@ExtendWith(MockitoExtension.class)
+public class AdmissionFeatureTest {
+
+    @Mock
+    private HttpServletRequest servletRequest;
+
+    private final AdmissionControl admissionControl = new AdmissionControl();
+    private Dispatcher dispatcher;
+
+    /**
+     * Register the admission feature, the exception mapper and a test resource with a dispatcher before each test case.
+     * */
+    @BeforeEach
+    public void setup() {
+        AdmissionFeature feature = new AdmissionFeature();
+        setField(feature, "admissionControl", admissionControl);
+        setField(feature, "servletRequest", servletRequest);
+        lenient().when(servletRequest.getRemoteAddr()).thenReturn("127.0.0.1");
+
+        // without the default exception mapper of RESTEasy, unmapped exceptions skip the response filters
+        System.setProperty("dev.resteasy.exception.mapper", "false");
+        dispatcher = MockDispatcherFactory.createDispatcher();
+        dispatcher.getProviderFactory().register(feature);
+        dispatcher.getProviderFactory().register(UnhandledExceptionMapper.class);
+        dispatcher.getRegistry().addSingletonResource(new TestResource());
+    }
+
+    /**
+     * Restore the default exception mapper of RESTEasy after each test case.
+     * */
+    @AfterEach
+    public void tearDown() {
+        System.clearProperty("dev.resteasy.exception.mapper");
+    }
+
+    /**
+     * Test for the admission filter.
+     * Verify that a suspended request resumed with an unmapped exception is answered with INTERNAL_SERVER_ERROR
+     * and releases its concurrency slot, like a successful request.
+     * */
+    @Test
+    public void test_Filter_UnmappedException_ReleasesSlot() throws Exception {
+        assertEquals(500, get("/test/failing").getStatus());
+        assertEquals(0, admissionControl.getConcurrencyLimit().getInFlight());
+
+        assertEquals(500, get("/test/throwing").getStatus());
+        assertEquals(0, admissionControl.getConcurrencyLimit().getInFlight());
+
+        assertEquals(200, get("/test/succeeding").getStatus());
+        assertEquals(0, admissionControl.getConcurrencyLimit().getInFlight());
+    }
+
+    /**
+     * Test for ToResponse method of the UnhandledExceptionMapper.
+     * Verify that a WebApplicationException keeps its own response.
+     * */
+    @Test
+    public void test_UnhandledExceptionMapper_WebApplicationException() throws Exception {
+        assertEquals(404, get("/test/unknown").getStatus());
+    }
+
+    /**
+     * Dispatches a GET request, with an asynchronous context for the suspended requests.
+     */
+    private MockHttpResponse get(String path) throws Exception {
+        MockHttpRequest request = MockHttpRequest.get(path);
+        MockHttpResponse response = new MockHttpResponse();
+        request.setAsynchronousContext(new SynchronousExecutionContext((SynchronousDispatcher) dispatcher, request, response));
+        dispatcher.invoke(request, response);
+        return response;
+    }
+
+    private static void setField(Object target, String name, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Resource methods under admission control.
+     */
+    @Path("/test")
+    @RateLimit
+    public static class TestResource {
+        @GET
+        @Path("/failing")
+        public void failing(@Suspended AsyncResponse asyncResponse) {
+            asyncResponse.resume(new IllegalStateException("failed"));
+        }
+
+        @GET
+        @Path("/throwing")
+        public String throwing() {
+            throw new IllegalStateException("failed");
+        }
+
+        @GET
+        @Path("/succeeding")
+        public Response succeeding() {
+            return Response.ok("ok").build();
+        }
+    }
+}
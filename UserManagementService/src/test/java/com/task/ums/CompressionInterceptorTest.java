@@ -0,0 +1,157 @@
+package com.task.ums;
+
+import com.task.ums.encoding.CompressionInterceptor;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the {@link CompressionInterceptor} class.
+ *
+ * @see CompressionInterceptor
+ **/
+@ExtendWith(MockitoExtension.class)
+public class CompressionInterceptorTest {
+
+    @Mock
+    private HttpHeaders requestHeaders;
+
+    @Mock
+    private WriterInterceptorContext context;
+
+    @InjectMocks
+    private CompressionInterceptor interceptor;
+
+    private final MultivaluedMap<String, Object> responseHeaders = new MultivaluedHashMap<>();
+
+    private final ByteArrayOutputStream response = new ByteArrayOutputStream();
+
+    private OutputStream entityStream;
+
+    /**
+     * Let the mocked context write the body to the stream set by the interceptor before each test case.
+     * */
+    @BeforeEach
+    public void setup() throws IOException {
+        entityStream = response;
+        lenient().when(context.getHeaders()).thenReturn(responseHeaders);
+        lenient().when(context.getMediaType()).thenReturn(MediaType.APPLICATION_JSON_TYPE);
+        lenient().when(context.getOutputStream()).thenAnswer(invocation -> entityStream);
+        lenient().doAnswer(invocation -> entityStream = invocation.getArgument(0)).when(context).setOutputStream(any());
+    }
+
+    /**
+     * Test for Negotiate method.
+     * Verify that gzip is preferred, deflate is the fallback, and codings with q=0 are not used.
+     * */
+    @Test
+    public void test_Negotiate() {
+        assertEquals("gzip", CompressionInterceptor.negotiate("gzip, deflate, br"));
+        assertEquals("gzip", CompressionInterceptor.negotiate("*"));
+        assertEquals("deflate", CompressionInterceptor.negotiate("deflate"));
+        assertEquals("deflate", CompressionInterceptor.negotiate("gzip;q=0.5, deflate"));
+        assertEquals("deflate", CompressionInterceptor.negotiate("GZIP;q=0, *"));
+        assertNull(CompressionInterceptor.negotiate("br, identity"));
+        assertNull(CompressionInterceptor.negotiate("gzip;q=0"));
+        assertNull(CompressionInterceptor.negotiate(null));
+    }
+
+    /**
+     * Test for AroundWriteTo method.
+     * Verify that a large body is compressed with the negotiated encoding and the headers are set.
+     * */
+    @Test
+    public void test_AroundWriteTo_Compressed() throws IOException {
+        String body = "{\"firstname\":\"Max\",\"lastname\":\"Mustermann\"},".repeat(1000);
+        when(requestHeaders.getHeaderString(HttpHeaders.ACCEPT_ENCODING)).thenReturn("gzip, deflate");
+        writeBody(body);
+
+        interceptor.aroundWriteTo(context);
+
+        assertEquals("gzip", responseHeaders.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, responseHeaders.getFirst(HttpHeaders.VARY));
+        assertTrue(response.size() < body.length() / 10);
+        assertEquals(body, read(new GZIPInputStream(new ByteArrayInputStream(response.toByteArray()))));
+        assertSame(response, entityStream);
+    }
+
+    /**
+     * Test for AroundWriteTo method.
+     * Verify that a body is compressed with deflate if the client only accepts deflate.
+     * */
+    @Test
+    public void test_AroundWriteTo_Deflate() throws IOException {
+        String body = "x".repeat(5000);
+        when(requestHeaders.getHeaderString(HttpHeaders.ACCEPT_ENCODING)).thenReturn("deflate");
+        writeBody(body);
+
+        interceptor.aroundWriteTo(context);
+
+        assertEquals("deflate", responseHeaders.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(body, read(new InflaterInputStream(new ByteArrayInputStream(response.toByteArray()))));
+    }
+
+    /**
+     * Test for AroundWriteTo method.
+     * Verify that a body below the threshold and a body for a client without compression are written unchanged.
+     * */
+    @Test
+    public void test_AroundWriteTo_Uncompressed() throws IOException {
+        when(requestHeaders.getHeaderString(HttpHeaders.ACCEPT_ENCODING)).thenReturn("gzip", (String) null);
+        writeBody("{\"id\":1}");
+
+        interceptor.aroundWriteTo(context);
+
+        assertNull(responseHeaders.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("{\"id\":1}", response.toString(StandardCharsets.UTF_8));
+
+        response.reset();
+        String body = "x".repeat(5000);
+        writeBody(body);
+
+        interceptor.aroundWriteTo(context);
+
+        assertNull(responseHeaders.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(body, response.toString(StandardCharsets.UTF_8));
+    }
+
+    private void writeBody(String body) throws IOException {
+        doAnswer(invocation -> {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            // written in pieces, like a streamed list
+            for (int i = 0; i < bytes.length; i += 100) {
+                entityStream.write(bytes, i, Math.min(100, bytes.length - i));
+            }
+            return null;
+        }).when(context).proceed();
+    }
+
+    private static String read(InputStream input) throws IOException {
+        try (input) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
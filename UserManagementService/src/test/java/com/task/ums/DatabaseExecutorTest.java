@@ -0,0 +1,160 @@
+package com.task.ums;
+
+import com.task.ums.models.DatabaseExecutorStatistics;
+import com.task.ums.services.DatabaseExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link DatabaseExecutor} class.
+ *
+ * @see DatabaseExecutor
+ **/
+public class DatabaseExecutorTest {
+
+    private DatabaseExecutor executor;
+
+    /**
+     * Start an executor with two permits before each test case.
+     * */
+    @BeforeEach
+    public void setup() {
+        executor = new DatabaseExecutor(2, 200, true);
+        executor.start();
+    }
+
+    /**
+     * Stop the executor after each test case.
+     * */
+    @AfterEach
+    public void tearDown() {
+        executor.stop();
+    }
+
+    /**
+     * Test for Supply method.
+     * Verify that the tasks run asynchronously and never more than the maximum concurrency at once.
+     * */
+    @Test
+    public void test_Supply_Bounded() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            int value = i;
+            results.add(executor.supply(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(10);
+                running.decrementAndGet();
+                return value;
+            }));
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, results.get(i).get(5, TimeUnit.SECONDS));
+        }
+        assertTrue(maxRunning.get() <= 2);
+        DatabaseExecutorStatistics statistics = executor.getStatistics();
+        assertEquals(10, statistics.getCompleted());
+        assertEquals(0, statistics.getActive());
+    }
+
+    /**
+     * Test for Supply method.
+     * Verify that a task is rejected if it waits longer than the acquire timeout.
+     * */
+    @Test
+    public void test_Supply_Rejected() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> first = executor.supply(() -> await(release));
+        CompletableFuture<Boolean> second = executor.supply(() -> await(release));
+        // the first two tasks hold both permits before the third one asks for one
+        for (int i = 0; i < 500 && executor.getStatistics().getActive() < 2; i++) {
+            sleep(10);
+        }
+
+        CompletableFuture<Boolean> third = executor.supply(() -> true);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> third.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, exception.getCause());
+        release.countDown();
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertTrue(second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, executor.getStatistics().getRejected());
+    }
+
+    /**
+     * Test for Call method.
+     * Verify that a failing task releases its permit.
+     * */
+    @Test
+    public void test_Call_ReleasesOnFailure() {
+        for (int i = 0; i < 5; i++) {
+            assertThrows(IllegalStateException.class, () -> executor.call(() -> {
+                throw new IllegalStateException();
+            }));
+        }
+
+        assertEquals("ok", executor.call(() -> "ok"));
+        assertEquals(0, executor.getStatistics().getActive());
+    }
+
+    /**
+     * Test for Supply, OffloadRequest and Offload methods - blocking mode.
+     * Verify that the work of requests runs on the calling thread and fails with a completed future,
+     * while background work still runs on another thread.
+     * */
+    @Test
+    public void test_Blocking_RunsRequestsOnCaller() throws Exception {
+        DatabaseExecutor blocking = new DatabaseExecutor(2, 200, true, true);
+        blocking.start();
+        try {
+            Thread caller = Thread.currentThread();
+
+            CompletableFuture<Thread> supplied = blocking.supply(Thread::currentThread);
+            CompletableFuture<Thread> offloaded = blocking.offloadRequest(Thread::currentThread);
+            CompletableFuture<Object> failed = blocking.supply(() -> {
+                throw new IllegalStateException();
+            });
+            CompletableFuture<Thread> background = blocking.offload(Thread::currentThread);
+
+            assertSame(caller, supplied.getNow(null));
+            assertSame(caller, offloaded.getNow(null));
+            assertTrue(failed.isCompletedExceptionally());
+            assertNotSame(caller, background.get(5, TimeUnit.SECONDS));
+            assertTrue(blocking.getStatistics().isBlocking());
+            assertEquals(0, blocking.getStatistics().getActive());
+        } finally {
+            blocking.stop();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
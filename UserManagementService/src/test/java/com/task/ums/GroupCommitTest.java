@@ -0,0 +1,219 @@
+package com.task.ums;
+
+import com.task.ums.models.GroupCommitStatistics;
+import com.task.ums.models.User;
+import com.task.ums.services.DatabaseExecutor;
+import com.task.ums.services.EmailConflictException;
+import com.task.ums.services.GroupCommit;
+import com.task.ums.services.UserService;
+import com.task.ums.services.UserWrite;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link GroupCommit} class.
+ *
+ * Mocks: UserService
+ *
+ * @see GroupCommit
+ **/
+@ExtendWith(MockitoExtension.class)
+public class GroupCommitTest {
+
+    @Mock
+    private UserService userService;
+
+    @Spy
+    private DatabaseExecutor database = new DatabaseExecutor(4, 1000, true);
+
+    @InjectMocks
+    private GroupCommit groupCommit = new GroupCommit(true, 100, 3, 100);
+
+    /** The sizes of the groups passed to the UserService. */
+    private final List<Integer> groups = Collections.synchronizedList(new ArrayList<>());
+
+    private final AtomicLong ids = new AtomicLong();
+
+    /**
+     * Start the database executor before each test case.
+     * */
+    @BeforeEach
+    public void setup() {
+        database.start();
+    }
+
+    /**
+     * Stop the database executor after each test case.
+     * */
+    @AfterEach
+    public void tearDown() {
+        database.stop();
+    }
+
+    /**
+     * Test for Create method.
+     * Verify that concurrent creates are applied together, at most the maximum group size per transaction.
+     * */
+    @Test
+    public void test_Create_Grouped() throws Exception {
+        doAnswer(invocation -> apply(invocation.getArgument(0))).when(userService).writeAll(anyList());
+
+        List<CompletableFuture<User>> results = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            results.add(groupCommit.create(newUser("user" + i + "@example.com")));
+        }
+        for (CompletableFuture<User> result : results) {
+            assertNotNull(result.get(1, TimeUnit.SECONDS).getId());
+        }
+
+        assertEquals(List.of(3, 3, 1), groups);
+        GroupCommitStatistics statistics = groupCommit.getStatistics();
+        assertEquals(3, statistics.getGroups());
+        assertEquals(7, statistics.getWrites());
+        assertEquals(3, statistics.getLargestBatchSize());
+        assertArrayEquals(new int[]{1, 2, 3}, groupCommit.getBatchSizeBounds());
+        assertArrayEquals(new long[]{1, 0, 2}, groupCommit.getBatchSizeCounts());
+        assertEquals(7, groupCommit.getQueueWait().getCount());
+    }
+
+    /**
+     * Test for Create and Update methods.
+     * Verify that a write failing alone fails only its caller, the other writes of the group succeed.
+     * */
+    @Test
+    public void test_Write_FailsAlone() throws Exception {
+        doAnswer(invocation -> {
+            List<UserWrite> writes = invocation.getArgument(0);
+            apply(writes);
+            writes.get(1).fail(new EmailConflictException("used@example.com"));
+            return null;
+        }).when(userService).writeAll(anyList());
+
+        CompletableFuture<User> first = groupCommit.create(newUser("max@example.com"));
+        CompletableFuture<User> second = groupCommit.create(newUser("used@example.com"));
+        CompletableFuture<User> third = groupCommit.update(1L, newUser("erika@example.com"), null);
+
+        assertNotNull(first.get(1, TimeUnit.SECONDS));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> second.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(EmailConflictException.class, e.getCause());
+        assertEquals(1L, third.get(1, TimeUnit.SECONDS).getId());
+        assertEquals(List.of(3), groups);
+    }
+
+    /**
+     * Test for Create method.
+     * Verify that the writes of a group whose transaction fails are applied one by one,
+     * and only the failing write fails its caller.
+     * */
+    @Test
+    public void test_Create_FailedGroupAppliedOneByOne() throws Exception {
+        doAnswer(invocation -> {
+            List<UserWrite> writes = invocation.getArgument(0);
+            if (writes.size() > 1 || writes.get(0).getUser().getFirstname().equals("Erika")) {
+                groups.add(writes.size());
+                throw new IllegalStateException("constraint violation");
+            }
+            return apply(writes);
+        }).when(userService).writeAll(anyList());
+
+        User erika = newUser("erika@example.com");
+        erika.setFirstname("Erika");
+        CompletableFuture<User> first = groupCommit.create(newUser("max@example.com"));
+        CompletableFuture<User> second = groupCommit.create(erika);
+
+        assertNotNull(first.get(1, TimeUnit.SECONDS));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> second.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertEquals(List.of(2, 1, 1), groups);
+        assertEquals(1, groupCommit.getStatistics().getFallbacks());
+    }
+
+    /**
+     * Test for Create method.
+     * Verify that a write whose writer can't be started fails and is not committed by the next writer.
+     * */
+    @Test
+    public void test_Create_WriterRejected() throws Exception {
+        doAnswer(invocation -> apply(invocation.getArgument(0))).when(userService).writeAll(anyList());
+        doThrow(new RejectedExecutionException("executor saturated")).doCallRealMethod().when(database).offload(any());
+
+        CompletableFuture<User> rejected = groupCommit.create(newUser("max@example.com"));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+
+        User erika = groupCommit.create(newUser("erika@example.com")).get(1, TimeUnit.SECONDS);
+
+        assertEquals("erika@example.com", erika.getEmail());
+        verify(userService).writeAll(argThat(writes -> writes.size() == 1 && writes.get(0).getUser() == erika));
+        assertEquals(List.of(1), groups);
+        assertEquals(1, groupCommit.getStatistics().getRejected());
+        assertEquals(0, groupCommit.getStatistics().getQueueDepth());
+    }
+
+    /**
+     * Test for Create method.
+     * Verify that every write has its own transaction if the group commit is disabled.
+     * */
+    @Test
+    public void test_Create_Disabled() throws Exception {
+        GroupCommit disabled = new GroupCommit(false, 100, 3, 100);
+        setField(disabled, "userService", userService);
+        setField(disabled, "database", database);
+        doAnswer(invocation -> apply(invocation.getArgument(0))).when(userService).writeAll(anyList());
+
+        CompletableFuture<User> first = disabled.create(newUser("max@example.com"));
+        CompletableFuture<User> second = disabled.create(newUser("erika@example.com"));
+
+        assertNotNull(first.get(1, TimeUnit.SECONDS));
+        assertNotNull(second.get(1, TimeUnit.SECONDS));
+        assertEquals(List.of(1, 1), groups);
+        assertEquals(0, disabled.getStatistics().getGroups());
+    }
+
+    private Object apply(List<UserWrite> writes) {
+        groups.add(writes.size());
+        for (UserWrite write : writes) {
+            User user = write.getUser();
+            user.setId(write.isCreate() ? ids.incrementAndGet() : write.getId());
+            write.succeed(user);
+        }
+        return null;
+    }
+
+    private static void setField(GroupCommit groupCommit, String name, Object value) {
+        try {
+            Field field = GroupCommit.class.getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(groupCommit, value);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static User newUser(String email) {
+        User user = new User();
+        user.setFirstname("Max");
+        user.setLastname("Mustermann");
+        user.setEmail(email);
+        return user;
+    }
+}
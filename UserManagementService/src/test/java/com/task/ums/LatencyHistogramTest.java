@@ -0,0 +1,67 @@
+package com.task.ums;
+
+import com.task.ums.metrics.LatencyHistogram;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link LatencyHistogram} class.
+ *
+ * @see LatencyHistogram
+ **/
+public class LatencyHistogramTest {
+
+    /**
+     * Test for Snapshot method.
+     * Verify that an empty histogram reports zeros.
+     * */
+    @Test
+    public void test_Snapshot_Empty() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getValueAtQuantile(0.99));
+    }
+
+    /**
+     * Test for Record method.
+     * Verify that the quantiles of uniformly distributed latencies have an error of at most about 3%.
+     * */
+    @Test
+    public void test_Record_Quantiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long millis = 1; millis <= 1000; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), snapshot.getMaxNanos());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500500), snapshot.getSumNanos());
+        assertEquals(500e6, snapshot.getValueAtQuantile(0.5), 500e6 * 0.035);
+        assertEquals(990e6, snapshot.getValueAtQuantile(0.99), 990e6 * 0.035);
+        assertEquals(999e6, snapshot.getValueAtQuantile(0.999), 999e6 * 0.035);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), snapshot.getValueAtQuantile(1.0));
+    }
+
+    /**
+     * Test for Record method.
+     * Verify that short, negative and very long latencies are counted.
+     * */
+    @Test
+    public void test_Record_Extremes() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(20_000);
+        histogram.record(TimeUnit.DAYS.toNanos(100));
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(3, snapshot.getCount());
+        assertTrue(snapshot.getValueAtQuantile(0.3) < 1000);
+        assertEquals(20_999, snapshot.getValueAtQuantile(0.5));
+        assertEquals(TimeUnit.DAYS.toNanos(100), snapshot.getValueAtQuantile(1.0));
+    }
+}
@@ -0,0 +1,117 @@
+package com.task.ums;
+
+import com.task.ums.models.PasswordHasherStatistics;
+import com.task.ums.services.PasswordHasher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link PasswordHasher} class.
+ *
+ * @see PasswordHasher
+ **/
+public class PasswordHasherTest {
+
+    private PasswordHasher hasher;
+
+    /**
+     * Start a hasher with few iterations before each test case.
+     * */
+    @BeforeEach
+    public void setup() {
+        hasher = new PasswordHasher(1000, 2, 4);
+        hasher.start();
+    }
+
+    /**
+     * Stop the hasher after each test case.
+     * */
+    @AfterEach
+    public void tearDown() {
+        hasher.stop();
+    }
+
+    /**
+     * Test for Hash and Verify methods.
+     * Verify that only the hashed password matches the hash.
+     * */
+    @Test
+    public void test_HashAndVerify() throws Exception {
+        String hash = hasher.hash("password123").get();
+
+        assertTrue(hash.startsWith("$pbkdf2-sha256$1000$"));
+        assertFalse(hash.contains("password123"));
+        assertTrue(hasher.verify("password123", hash).get());
+        assertFalse(hasher.verify("password124", hash).get());
+        assertEquals(3, hasher.getStatistics().getCompleted());
+    }
+
+    /**
+     * Test for Hash method.
+     * Verify that every hash uses its own salt.
+     * */
+    @Test
+    public void test_Hash_Salted() {
+        String first = hasher.hashNow("password123");
+        String second = hasher.hashNow("password123");
+
+        assertNotEquals(first, second);
+        assertTrue(hasher.verifyNow("password123", first));
+        assertTrue(hasher.verifyNow("password123", second));
+    }
+
+    /**
+     * Test for Verify method.
+     * Verify that hashes with other iterations still match and malformed hashes don't.
+     * */
+    @Test
+    public void test_Verify_OtherIterationsAndMalformed() {
+        String hash = new PasswordHasher(500, 1, 1).hashNow("password123");
+
+        assertTrue(hasher.verifyNow("password123", hash));
+        assertFalse(hasher.verifyNow("password123", "password123"));
+        assertFalse(hasher.verifyNow("password123", "$pbkdf2-sha256$x$y$z"));
+        assertFalse(hasher.verifyNow("password123", null));
+    }
+
+    /**
+     * Test for HashAll method.
+     * Verify that the hashes are returned in the order of the passwords.
+     * */
+    @Test
+    public void test_HashAll() {
+        List<String> passwords = List.of("password1", "password2", "password3", "password4", "password5");
+
+        List<String> hashes = hasher.hashAll(passwords);
+
+        assertEquals(passwords.size(), hashes.size());
+        for (int i = 0; i < passwords.size(); i++) {
+            assertTrue(hasher.verifyNow(passwords.get(i), hashes.get(i)));
+        }
+    }
+
+    /**
+     * Test for Hash method.
+     * Verify that tasks are rejected when the pool doesn't accept them.
+     * */
+    @Test
+    public void test_Hash_Rejected() {
+        hasher.stop();
+
+        CompletableFuture<String> hash = hasher.hash("password123");
+
+        ExecutionException exception = assertThrows(ExecutionException.class, hash::get);
+        assertInstanceOf(RejectedExecutionException.class, exception.getCause());
+        PasswordHasherStatistics statistics = hasher.getStatistics();
+        assertEquals(1, statistics.getRejected());
+        assertEquals(0, statistics.getCompleted());
+    }
+}
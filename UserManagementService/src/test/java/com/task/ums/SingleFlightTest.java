@@ -0,0 +1,160 @@
+package com.task.ums;
+
+import com.task.ums.models.SingleFlightStatistics;
+import com.task.ums.services.SingleFlight;
+import com.task.ums.services.UserChange;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link SingleFlight} class.
+ *
+ * @see SingleFlight
+ **/
+public class SingleFlightTest {
+
+    private final SingleFlight singleFlight = new SingleFlight(true, 200);
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    /**
+     * Test for Execute method.
+     * Verify that concurrent calls for the same key share one load, and calls for another key don't.
+     * */
+    @Test
+    public void test_Execute_Coalesced() throws Exception {
+        CompletableFuture<String> load = new CompletableFuture<>();
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            results.add(singleFlight.execute("user/1", () -> start(load)));
+        }
+        CompletableFuture<String> other = singleFlight.execute("user/2", () -> start(CompletableFuture.completedFuture("Erika")));
+
+        assertEquals(2, loads.get());
+        assertEquals("Erika", other.get(1, TimeUnit.SECONDS));
+        assertFalse(results.get(0).isDone());
+
+        load.complete("Max");
+        for (CompletableFuture<String> result : results) {
+            assertEquals("Max", result.get(1, TimeUnit.SECONDS));
+        }
+
+        SingleFlightStatistics statistics = singleFlight.getStatistics();
+        assertEquals(11, statistics.getCalls());
+        assertEquals(2, statistics.getLoads());
+        assertEquals(9, statistics.getCoalesced());
+        assertEquals(9.0 / 11, statistics.getCoalescingRatio(), 1e-9);
+        assertEquals(0, statistics.getInFlight());
+    }
+
+    /**
+     * Test for Execute method.
+     * Verify that a result is not kept: a call after the load completed loads again.
+     * */
+    @Test
+    public void test_Execute_NotCached() throws Exception {
+        assertEquals("Max", singleFlight.execute("user/1", () -> start(CompletableFuture.completedFuture("Max"))).get());
+        assertEquals("Maria", singleFlight.execute("user/1", () -> start(CompletableFuture.completedFuture("Maria"))).get());
+
+        assertEquals(2, loads.get());
+    }
+
+    /**
+     * Test for Execute method.
+     * Verify that a failed load fails every waiting call with its cause and the next call loads again.
+     * */
+    @Test
+    public void test_Execute_Failure() throws Exception {
+        CompletableFuture<String> load = new CompletableFuture<>();
+        CompletableFuture<String> first = singleFlight.execute("page/0", () -> start(load));
+        CompletableFuture<String> second = singleFlight.execute("page/0", () -> start(load));
+        load.completeExceptionally(new IllegalStateException("database down"));
+
+        for (CompletableFuture<String> result : List.of(first, second)) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(1, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        }
+        assertThrows(ExecutionException.class, () -> singleFlight.execute("page/0", () -> {
+            throw new IllegalStateException("no connection");
+        }).get(1, TimeUnit.SECONDS));
+        assertEquals("Max", singleFlight.execute("page/0", () -> start(CompletableFuture.completedFuture("Max"))).get());
+
+        assertEquals(2, singleFlight.getStatistics().getFailures());
+        assertEquals(0, singleFlight.getStatistics().getInFlight());
+    }
+
+    /**
+     * Test for Execute method.
+     * Verify that a waiting call times out without failing the shared load for the other calls.
+     * */
+    @Test
+    public void test_Execute_Timeout() throws Exception {
+        CompletableFuture<String> load = new CompletableFuture<>();
+        CompletableFuture<String> first = singleFlight.execute("user/1", () -> start(load));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> first.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        assertEquals(1, singleFlight.getStatistics().getTimeouts());
+
+        CompletableFuture<String> second = singleFlight.execute("user/1", () -> start(load));
+        load.complete("Max");
+
+        assertEquals("Max", second.get(1, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+    }
+
+    /**
+     * Test for OnChange method.
+     * Verify that a committed change drops the loads in flight of the user and of the pages that may contain it,
+     * so later calls load again while the calls already waiting keep their load.
+     * */
+    @Test
+    public void test_OnChange_DropsLoadsOfUser() throws Exception {
+        CompletableFuture<String> load = new CompletableFuture<>();
+        CompletableFuture<String> before = singleFlight.execute(SingleFlight.userKey(7L, "", false), () -> start(load));
+        singleFlight.execute(SingleFlight.userKey(8L, "", false), () -> start(new CompletableFuture<>()));
+        singleFlight.execute(SingleFlight.pageKey(0L, 20, "", false), () -> start(new CompletableFuture<>()));
+        singleFlight.execute(SingleFlight.pageKey(7L, 20, "", false), () -> start(new CompletableFuture<>()));
+
+        singleFlight.onChange(UserChange.patched(7L, 1, Map.of("firstname", "Maria")));
+
+        assertEquals(2, singleFlight.getStatistics().getInFlight());
+        CompletableFuture<String> after = singleFlight.execute(SingleFlight.userKey(7L, "", false),
+                () -> start(CompletableFuture.completedFuture("Maria")));
+        load.complete("Max");
+
+        assertEquals("Max", before.get(1, TimeUnit.SECONDS));
+        assertEquals("Maria", after.get(1, TimeUnit.SECONDS));
+        assertEquals(5, loads.get());
+    }
+
+    /**
+     * Test for Execute method.
+     * Verify that every call loads on its own if coalescing is disabled.
+     * */
+    @Test
+    public void test_Execute_Disabled() throws Exception {
+        SingleFlight disabled = new SingleFlight(false, 200);
+        CompletableFuture<String> load = new CompletableFuture<>();
+        disabled.execute("user/1", () -> start(load));
+        disabled.execute("user/1", () -> start(load));
+
+        assertEquals(2, loads.get());
+        assertEquals(0, disabled.getStatistics().getCoalesced());
+    }
+
+    private <T> CompletableFuture<T> start(CompletableFuture<T> load) {
+        loads.incrementAndGet();
+        return load;
+    }
+}
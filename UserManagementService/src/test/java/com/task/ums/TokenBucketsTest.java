@@ -0,0 +1,104 @@
+package com.task.ums;
+
+import com.task.ums.admission.TokenBuckets;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link TokenBuckets} class.
+ *
+ * @see TokenBuckets
+ **/
+public class TokenBucketsTest {
+
+    private final AtomicLong time = new AtomicLong();
+
+    /**
+     * Reset the clock before each test case.
+     * */
+    @BeforeEach
+    public void setup() {
+        time.set(1000);
+    }
+
+    /**
+     * Test for TryAcquire method.
+     * Verify that a client may send a burst, then one request per interval, and other clients are not affected.
+     * */
+    @Test
+    public void test_TryAcquire() {
+        TokenBuckets buckets = new TokenBuckets(10, 3, 100, time::get);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, buckets.tryAcquire("a"));
+        }
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), buckets.tryAcquire("a"));
+        assertEquals(0, buckets.tryAcquire("b"));
+
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(40));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(60), buckets.tryAcquire("a"));
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(60));
+        assertEquals(0, buckets.tryAcquire("a"));
+        assertTrue(buckets.tryAcquire("a") > 0);
+
+        // an idle client gets its full burst back, but not more
+        time.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, buckets.tryAcquire("a"));
+        }
+        assertTrue(buckets.tryAcquire("a") > 0);
+    }
+
+    /**
+     * Test for TryAcquire method.
+     * Verify that full buckets are removed once there are more clients than the maximum.
+     * */
+    @Test
+    public void test_TryAcquire_CleanUp() {
+        TokenBuckets buckets = new TokenBuckets(1, 1, 10, time::get);
+        for (int i = 0; i < 10; i++) {
+            buckets.tryAcquire("client" + i);
+        }
+        assertEquals(10, buckets.getClients());
+
+        time.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertEquals(0, buckets.tryAcquire("new"));
+
+        assertEquals(1, buckets.getClients());
+    }
+
+    /**
+     * Test for TryAcquire method.
+     * Verify that concurrent requests of one client are admitted exactly up to the burst.
+     * */
+    @Test
+    public void test_TryAcquire_Concurrent() throws InterruptedException {
+        TokenBuckets buckets = new TokenBuckets(1, 500, 100, time::get);
+        AtomicInteger admitted = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(8);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    if (buckets.tryAcquire("client") == 0) {
+                        admitted.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertEquals(500, admitted.get());
+    }
+}
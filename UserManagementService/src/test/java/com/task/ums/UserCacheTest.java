@@ -0,0 +1,124 @@
+package com.task.ums;
+
+import com.task.ums.models.CacheStatistics;
+import com.task.ums.models.User;
+import com.task.ums.services.UserCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link UserCache} class.
+ *
+ * @see UserCache
+ **/
+public class UserCacheTest {
+
+    private final AtomicLong time = new AtomicLong();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final Function<Long, User> loader = id -> {
+        loads.incrementAndGet();
+        User user = new User();
+        user.setId(id);
+        user.setFirstname("Max");
+        return user;
+    };
+
+    /**
+     * Reset the clock and the load counter before each test case.
+     * */
+    @BeforeEach
+    public void setup() {
+        time.set(0);
+        loads.set(0);
+    }
+
+    /**
+     * Test for Get method.
+     * Verify that the second lookup is served from the cache with a new copy of the user.
+     * */
+    @Test
+    public void test_Get_Hit() {
+        UserCache cache = new UserCache(100, 0, time::get);
+
+        User first = cache.get(1L, loader);
+        first.setFirstname("Changed");
+        User second = cache.get(1L, loader);
+
+        assertEquals(1, loads.get());
+        assertNotSame(first, second);
+        assertEquals("Max", second.getFirstname());
+        CacheStatistics statistics = cache.getStatistics();
+        assertEquals(1, statistics.getHits());
+        assertEquals(1, statistics.getMisses());
+    }
+
+    /**
+     * Test for Get method - user doesn't exist.
+     * Verify that missing users are not cached.
+     * */
+    @Test
+    public void test_Get_NonExistentUser() {
+        UserCache cache = new UserCache(100, 0, time::get);
+
+        assertNull(cache.get(1L, id -> null));
+        assertEquals(0, cache.getStatistics().getSize());
+    }
+
+    /**
+     * Test for Get method - cache is full.
+     * Verify that the size of the cache is bounded.
+     * */
+    @Test
+    public void test_Get_Eviction() {
+        UserCache cache = new UserCache(32, 0, time::get);
+
+        for (long id = 1; id <= 1000; id++) {
+            cache.get(id, loader);
+        }
+
+        CacheStatistics statistics = cache.getStatistics();
+        assertTrue(statistics.getSize() <= 32);
+        assertEquals(1000 - statistics.getSize(), statistics.getEvictions());
+    }
+
+    /**
+     * Test for Get method - time to live is over.
+     * Verify that expired users are loaded again.
+     * */
+    @Test
+    public void test_Get_Expiry() {
+        UserCache cache = new UserCache(100, 1000, time::get);
+
+        cache.get(1L, loader);
+        time.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        cache.get(1L, loader);
+
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.getStatistics().getExpirations());
+    }
+
+    /**
+     * Test for Invalidate method.
+     * Verify that an invalidated user is loaded again.
+     * */
+    @Test
+    public void test_Invalidate() {
+        UserCache cache = new UserCache(100, 0, time::get);
+
+        cache.get(1L, loader);
+        cache.invalidate(1L);
+        cache.get(1L, loader);
+
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.getStatistics().getInvalidations());
+    }
+}
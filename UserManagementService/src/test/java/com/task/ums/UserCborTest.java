@@ -0,0 +1,165 @@
+package com.task.ums;
+
+import com.task.ums.encoding.CborException;
+import com.task.ums.encoding.CborReader;
+import com.task.ums.encoding.CborWriter;
+import com.task.ums.encoding.UserCbor;
+import com.task.ums.models.PartialUser;
+import com.task.ums.models.User;
+import com.task.ums.models.UserView;
+import com.task.ums.services.UserFields;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link UserCbor} class and the {@link CborWriter} and {@link CborReader} it uses.
+ *
+ * @see UserCbor
+ **/
+public class UserCborTest {
+
+    /**
+     * Test for the CborWriter class.
+     * Verify that integers and text strings are encoded like the examples of RFC 8949, Appendix A.
+     * */
+    @Test
+    public void test_Write_Rfc8949Examples() throws IOException {
+        assertEquals("17", encode(writer -> writer.writeLong(23)));
+        assertEquals("1818", encode(writer -> writer.writeLong(24)));
+        assertEquals("1903e8", encode(writer -> writer.writeLong(1000)));
+        assertEquals("1a000f4240", encode(writer -> writer.writeLong(1000000)));
+        assertEquals("1b000000e8d4a51000", encode(writer -> writer.writeLong(1000000000000L)));
+        assertEquals("3903e7", encode(writer -> writer.writeLong(-1000)));
+        assertEquals("6161", encode(writer -> writer.writeString("a")));
+        assertEquals("62c3bc", encode(writer -> writer.writeString("\u00fc")));
+        assertEquals("63e6b0b4", encode(writer -> writer.writeString("\u6c34")));
+        assertEquals("64f0908591", encode(writer -> writer.writeString("\ud800\udd51")));
+        assertEquals("9fff", encode(writer -> writer.writeArrayStart().writeBreak()));
+        assertEquals("f6", encode(CborWriter::writeNull));
+    }
+
+    /**
+     * Test for Write and Read methods.
+     * Verify that a user sent by a client keeps all fields, and unknown fields are skipped.
+     * */
+    @Test
+    public void test_Read_User() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CborWriter writer = new CborWriter(out);
+        writer.writeMapStart(7);
+        writer.writeString("firstname").writeString("J\u00fcrgen");
+        writer.writeString("unknown").writeArrayStart(2).writeLong(1).writeMapStart(1).writeString("x").writeBoolean(true);
+        writer.writeString("lastname").writeString("Mustermann");
+        writer.writeString("email").writeString("Juergen@Example.com");
+        writer.writeString("birthday").writeTag(CborWriter.TAG_EPOCH_DAYS).writeLong(LocalDate.of(1990, 5, 17).toEpochDay());
+        writer.writeString("password").writeString("secret123");
+        writer.writeString("id").writeNull();
+        writer.flush();
+
+        User user = UserCbor.read(new CborReader(new ByteArrayInputStream(out.toByteArray())));
+
+        assertEquals("J\u00fcrgen", user.getFirstname());
+        assertEquals("Mustermann", user.getLastname());
+        assertEquals("juergen@example.com", user.getEmail());
+        assertEquals(LocalDate.of(1990, 5, 17), user.getBirthday());
+        assertEquals("secret123", user.getPassword());
+        assertNull(user.getId());
+    }
+
+    /**
+     * Test for Write and ReadList methods.
+     * Verify that a streamed list of read model views reads back as the same users.
+     * */
+    @Test
+    public void test_WriteList() throws IOException {
+        List<Object> users = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            users.add(new UserView(i, 1, "Max" + i, "Mustermann", "max" + i + "@example.com", i % 2 == 0 ? LocalDate.of(1980, 1, 1).plusDays(i) : null));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CborWriter writer = new CborWriter(out);
+        writer.writeArrayStart();
+        for (Object user : users) {
+            UserCbor.write(writer, user);
+        }
+        writer.writeBreak().flush();
+
+        List<User> read = UserCbor.readList(new CborReader(new ByteArrayInputStream(out.toByteArray())));
+
+        assertEquals(100, read.size());
+        assertEquals(7L, read.get(7).getId());
+        assertEquals(1L, read.get(7).getVersion());
+        assertEquals("max7@example.com", read.get(7).getEmail());
+        assertNull(read.get(7).getBirthday());
+        assertEquals(LocalDate.of(1980, 1, 9), read.get(8).getBirthday());
+    }
+
+    /**
+     * Test for Write method.
+     * Verify that a partial user only has the selected fields and its birthday is tagged as date.
+     * */
+    @Test
+    public void test_Write_PartialUser() throws IOException {
+        PartialUser user = UserFields.parse("id,birthday,lastname")
+                .toPartialUser(new UserView(3, 0, "Max", "Mustermann", "max@example.com", LocalDate.of(2000, 1, 1)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CborWriter writer = new CborWriter(out);
+        UserCbor.write(writer, user);
+        writer.flush();
+
+        CborReader reader = new CborReader(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(3, reader.readMapStart());
+        assertEquals("id", reader.readString());
+        assertEquals(3, reader.readLong());
+        assertEquals("lastname", reader.readString());
+        assertEquals("Mustermann", reader.readString());
+        assertEquals("birthday", reader.readString());
+        assertEquals(LocalDate.of(2000, 1, 1), reader.readDate());
+        assertFalse(reader.hasNext());
+    }
+
+    /**
+     * Test for Read method.
+     * Verify that malformed and truncated data is rejected.
+     * */
+    @Test
+    public void test_Read_Malformed() {
+        assertThrows(CborException.class, () -> UserCbor.read(reader("a16966697273746e616d65")));
+        assertThrows(CborException.class, () -> UserCbor.read(reader("8100")));
+        assertThrows(CborException.class, () -> UserCbor.read(reader("a1626964fb3ff0000000000000")));
+        assertThrows(CborException.class, () -> UserCbor.read(reader("a1686269727468646179d8641b7fffffffffffffff")));
+        assertThrows(CborException.class, () -> UserCbor.read(reader("a1626964")));
+    }
+
+    private static CborReader reader(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return new CborReader(new ByteArrayInputStream(bytes));
+    }
+
+    private interface Encoding {
+        void write(CborWriter writer) throws IOException;
+    }
+
+    private static String encode(Encoding encoding) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CborWriter writer = new CborWriter(out);
+        encoding.write(writer);
+        writer.flush();
+        StringBuilder hex = new StringBuilder();
+        for (byte b : out.toByteArray()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
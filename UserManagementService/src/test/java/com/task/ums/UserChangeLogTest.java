@@ -0,0 +1,157 @@
+package com.task.ums;
+
+import com.task.ums.models.User;
+import com.task.ums.models.UserChangeEntry;
+import com.task.ums.services.UserChange;
+import com.task.ums.services.UserChangeLog;
+import com.task.ums.services.UserSnapshot;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link UserChangeLog} class.
+ *
+ * Mocks: EntityManager, TypedQuery, TransactionSynchronizationRegistry
+ *
+ * @see UserChangeLog
+ **/
+@ExtendWith(MockitoExtension.class)
+public class UserChangeLogTest {
+
+    @Mock
+    private EntityManager em;
+
+    @Mock
+    private TypedQuery<UserChangeEntry> query;
+
+    @Mock
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    @InjectMocks
+    private UserChangeLog changeLog;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Let the Entity Manager assign sequence numbers like the database sequence before each test case.
+     * */
+    @BeforeEach
+    public void setup() {
+        lenient().doAnswer(invocation -> {
+            invocation.<UserChangeEntry>getArgument(0).setSeq(sequence.incrementAndGet());
+            return null;
+        }).when(em).persist(any(UserChangeEntry.class));
+    }
+
+    /**
+     * Test for OnChange method.
+     * Verify that a created user is logged with its complete state but without the password hash.
+     * */
+    @Test
+    public void test_OnChange_Created() {
+        User user = new User();
+        user.setId(7L);
+        user.setFirstname("Max");
+        user.setLastname("Mustermann");
+        user.setEmail("max.mustermann@example.com");
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        user.setPasswordHash("$pbkdf2-sha256$1000$salt$hash");
+        user.setVersion(0L);
+
+        changeLog.onChange(UserChange.created(UserSnapshot.of(user)));
+
+        UserChangeEntry entry = persistedEntry();
+        assertEquals(1L, entry.getSeq());
+        assertEquals(7L, entry.getUserId());
+        assertEquals("CREATED", entry.getType());
+        assertFalse(entry.isPartial());
+        assertTrue(entry.getData().contains("\"birthday\":\"2000-01-01\""));
+        assertFalse(entry.getData().contains("pbkdf2"));
+    }
+
+    /**
+     * Test for OnChange method.
+     * Verify that a patched user is logged with the changed fields only, and a deleted user without data.
+     * */
+    @Test
+    public void test_OnChange_PatchedAndDeleted() {
+        changeLog.onChange(UserChange.patched(7L, 4, Map.of("lastname", "Musterfrau", "passwordHash", "$pbkdf2-sha256$x")));
+        UserChangeEntry patched = persistedEntry();
+        assertEquals("UPDATED", patched.getType());
+        assertTrue(patched.isPartial());
+        assertEquals("{\"id\":7,\"lastname\":\"Musterfrau\",\"version\":4}", patched.getData());
+
+        clearInvocations(em);
+        changeLog.onChange(UserChange.deleted(7L));
+        UserChangeEntry deleted = persistedEntry();
+        assertEquals("DELETED", deleted.getType());
+        assertFalse(deleted.isPartial());
+        assertNull(deleted.getData());
+    }
+
+    /**
+     * Test for Read method.
+     * Verify that changes are only read below the lowest uncommitted sequence number,
+     * and that the listeners are notified after the commit.
+     * */
+    @Test
+    public void test_Read_StopsAtUncommittedChange() {
+        when(em.createQuery(anyString(), eq(UserChangeEntry.class))).thenReturn(query);
+        when(query.setParameter(anyString(), any())).thenReturn(query);
+        when(query.setHint(anyString(), any())).thenReturn(query);
+        when(query.setMaxResults(anyInt())).thenReturn(query);
+        when(query.getResultList()).thenReturn(List.of());
+        AtomicInteger notified = new AtomicInteger();
+        changeLog.addListener(notified::incrementAndGet);
+
+        changeLog.onChange(UserChange.deleted(1L));
+        changeLog.onChange(UserChange.deleted(2L));
+        ArgumentCaptor<Synchronization> synchronizations = ArgumentCaptor.forClass(Synchronization.class);
+        verify(transactionRegistry, times(2)).registerInterposedSynchronization(synchronizations.capture());
+
+        // the later change commits first: nothing may be read beyond the first one
+        synchronizations.getAllValues().get(1).afterCompletion(Status.STATUS_COMMITTED);
+        changeLog.read(0, 10);
+        verify(query).setParameter("watermark", 1L);
+
+        synchronizations.getAllValues().get(0).afterCompletion(Status.STATUS_COMMITTED);
+        changeLog.read(0, 10);
+        verify(query).setParameter("watermark", Long.MAX_VALUE);
+        assertEquals(2, notified.get());
+    }
+
+    /**
+     * Test for CanResume method.
+     * Verify that a consumer can always start from the beginning.
+     * */
+    @Test
+    public void test_CanResume() {
+        assertTrue(changeLog.canResume(0));
+        assertTrue(changeLog.canResume(42));
+    }
+
+    private UserChangeEntry persistedEntry() {
+        ArgumentCaptor<UserChangeEntry> entry = ArgumentCaptor.forClass(UserChangeEntry.class);
+        verify(em).persist(entry.capture());
+        return entry.getValue();
+    }
+}
@@ -0,0 +1,250 @@
+package com.task.ums;
+
+import com.task.ums.models.ImportFailure;
+import com.task.ums.models.ImportResult;
+import com.task.ums.models.User;
+import com.task.ums.services.DatabaseExecutor;
+import com.task.ums.services.PasswordHasher;
+import com.task.ums.services.UserImportExport;
+import com.task.ums.services.UserService;
+import com.task.ums.services.UserValidator;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link UserImportExport} class.
+ *
+ * Mocks: UserService, PasswordHasher
+ *
+ * @see UserImportExport
+ **/
+@ExtendWith(MockitoExtension.class)
+public class UserImportExportTest {
+
+    private static final String HASH = "$pbkdf2-sha256$1000$c2FsdA$aGFzaA";
+
+    private static Path importDir;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private PasswordHasher passwordHasher;
+
+    @Spy
+    private UserValidator validator = new UserValidator(Validation.buildDefaultValidatorFactory().getValidator());
+
+    @Spy
+    private DatabaseExecutor database = new DatabaseExecutor(2, 200, true);
+
+    @InjectMocks
+    private UserImportExport importExport;
+
+    /**
+     * Configure the import directory before the importer is created.
+     * */
+    @BeforeAll
+    public static void configure() throws Exception {
+        importDir = Files.createTempDirectory("ums-import");
+        System.setProperty("ums.import.dir", importDir.toString());
+    }
+
+    /**
+     * Start the database executor before each test case.
+     * */
+    @BeforeEach
+    public void setup() {
+        database.start();
+    }
+
+    /**
+     * Stop the database executor after each test case.
+     * */
+    @AfterEach
+    public void tearDown() {
+        database.stop();
+    }
+
+    /**
+     * Test for ImportStream method.
+     * Verify that valid lines are inserted in one batch, and that every invalid line is reported
+     * with its number and skipped without aborting the import.
+     * */
+    @Test
+    public void test_ImportStream_ReportsFailedLines() throws Exception {
+        when(userService.findExistingEmails(anyList())).thenReturn(Set.of("used@example.com"));
+        when(passwordHasher.hashAll(List.of("Passwort1"))).thenReturn(List.of(HASH));
+        when(userService.createAll(anyList(), anyInt())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        String input = String.join("\n",
+                "{\"firstname\":\"Max\",\"lastname\":\"Mustermann\",\"email\":\"max@example.com\",\"password\":\"Passwort1\",\"birthday\":\"2000-01-01\"}",
+                "{\"firstname\":\"Erika\",\"lastname\":\"Musterfrau\",\"email\":\"erika@example.com\",\"passwordHash\":\"" + HASH + "\"}",
+                "",
+                "{\"firstname\":\"Kaputt\"",
+                "{\"lastname\":\"Ohnevorname\",\"email\":\"ohne@example.com\",\"password\":\"Passwort1\"}",
+                "{\"firstname\":\"Max\",\"lastname\":\"Doppelt\",\"email\":\"MAX@example.com\",\"passwordHash\":\"" + HASH + "\"}",
+                "{\"firstname\":\"Anna\",\"lastname\":\"Vergeben\",\"email\":\"used@example.com\",\"passwordHash\":\"" + HASH + "\"}",
+                "{\"firstname\":\"Otto\",\"lastname\":\"Hash\",\"email\":\"otto@example.com\",\"passwordHash\":\"md5:abc\"}",
+                "{\"firstname\":\"Ida\",\"lastname\":\"Datum\",\"email\":\"ida@example.com\",\"password\":\"Passwort1\",\"birthday\":\"01.01.2000\"}");
+
+        ImportResult result = importExport.importStream(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(9, result.getLines());
+        assertEquals(2, result.getImported());
+        assertEquals(6, result.getFailed());
+        assertEquals(List.of(4L, 5L, 6L, 7L, 8L, 9L),
+                result.getFailures().stream().map(ImportFailure::getLine).sorted().collect(Collectors.toList()));
+        assertFalse(result.isFailuresTruncated());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<User>> users = ArgumentCaptor.forClass(List.class);
+        verify(userService).createAll(users.capture(), anyInt());
+        assertEquals(2, users.getValue().size());
+        assertEquals(LocalDate.of(2000, 1, 1), users.getValue().get(0).getBirthday());
+        assertTrue(users.getValue().stream().allMatch(user -> HASH.equals(user.getPasswordHash()) && user.getPassword() == null));
+    }
+
+    /**
+     * Test for ImportStream method.
+     * Verify that the users of a failed batch are inserted one by one, and only the failing user is reported.
+     * */
+    @Test
+    public void test_ImportStream_FailedBatchInsertedOneByOne() throws Exception {
+        when(userService.findExistingEmails(anyList())).thenReturn(Set.of());
+        when(userService.createAll(anyList(), anyInt())).thenThrow(new IllegalStateException("constraint violation"));
+        when(userService.create(any(User.class))).thenAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            if (user.getFirstname().equals("Erika")) {
+                throw new IllegalStateException("constraint violation");
+            }
+            return user;
+        });
+
+        String input = "{\"firstname\":\"Max\",\"lastname\":\"Mustermann\",\"email\":\"max@example.com\",\"passwordHash\":\"" + HASH + "\"}\r\n"
+                + "{\"firstname\":\"Erika\",\"lastname\":\"Musterfrau\",\"email\":\"erika@example.com\",\"passwordHash\":\"" + HASH + "\"}\r\n";
+
+        ImportResult result = importExport.importStream(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, result.getLines());
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getFailed());
+        assertEquals(2L, result.getFailures().get(0).getLine());
+        verify(userService, times(2)).create(any(User.class));
+    }
+
+    /**
+     * Test for ImportFile method.
+     * Verify that a file in the import directory is imported, and that names outside of it are rejected.
+     * */
+    @Test
+    public void test_ImportFile() throws Exception {
+        when(userService.findExistingEmails(anyList())).thenReturn(Set.of());
+        when(userService.createAll(anyList(), anyInt())).thenAnswer(invocation -> invocation.getArgument(0));
+        Files.writeString(importDir.resolve("users.ndjson"),
+                "{\"firstname\":\"Max\",\"lastname\":\"Mustermann\",\"email\":\"max@example.com\",\"passwordHash\":\"" + HASH + "\"}");
+
+        ImportResult result = importExport.importFile("users.ndjson");
+
+        assertEquals(1, result.getImported());
+        assertEquals(0, result.getFailed());
+        assertThrows(IllegalArgumentException.class, () -> importExport.importFile("../users.ndjson"));
+        assertTrue(importExport.getProgress().isEmpty());
+    }
+
+    /**
+     * Test for Export method.
+     * Verify that every user is written as one line of JSON, without its password hash by default.
+     * */
+    @Test
+    public void test_Export() throws Exception {
+        exportUsers(newExportedUser());
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(2, importExport.export(output));
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("{\"id\":7,\"firstname\":\"Max\",\"lastname\":\"Mustermann\",\"email\":\"max@example.com\","
+                + "\"birthday\":\"2000-01-01\",\"version\":3}", lines[0]);
+    }
+
+    /**
+     * Test for Export method.
+     * Verify that the password hashes are written if enabled, so the users can be imported again with their passwords.
+     * */
+    @Test
+    public void test_Export_WithPasswordHashes() throws Exception {
+        exportUsers(newExportedUser());
+        UserImportExport withHashes;
+        System.setProperty("ums.export.passwordHashes", "true");
+        try {
+            withHashes = new UserImportExport();
+        } finally {
+            System.clearProperty("ums.export.passwordHashes");
+        }
+        setField(withHashes, "userService", userService);
+        setField(withHashes, "database", database);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(2, withHashes.export(output));
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals("{\"id\":7,\"firstname\":\"Max\",\"lastname\":\"Mustermann\",\"email\":\"max@example.com\","
+                + "\"birthday\":\"2000-01-01\",\"passwordHash\":\"" + HASH + "\",\"version\":3}", lines[0]);
+    }
+
+    private void exportUsers(User user) {
+        when(userService.forEach(anyInt(), any())).thenAnswer(invocation -> {
+            Consumer<User> action = invocation.getArgument(1);
+            action.accept(user);
+            action.accept(user);
+            return 2L;
+        });
+    }
+
+    private static User newExportedUser() {
+        User user = new User();
+        user.setId(7L);
+        user.setFirstname("Max");
+        user.setLastname("Mustermann");
+        user.setEmail("max@example.com");
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        user.setPasswordHash(HASH);
+        user.setVersion(3L);
+        return user;
+    }
+
+    private static void setField(Object target, String name, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
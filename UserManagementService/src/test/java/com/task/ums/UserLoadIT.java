@@ -0,0 +1,386 @@
+package com.task.ums;
+
+import com.task.ums.metrics.LatencyHistogram;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Load test of the REST API with many concurrent clients, run by the Maven profile "loadtest"
+ * against a WildFly server with the application deployed (see README).
+ * <p>
+ * Every scenario runs a mix of requests with a fixed number of clients, each sending its next request
+ * as soon as the previous one is answered. Throughput, p50/p99 latency and the share of rejected (503 or 429)
+ * and failed requests are written to a report and compared to a stored baseline; the test fails if a
+ * value is worse than the baseline by more than the configured tolerance.
+ * </p>
+ *
+ * Configuration (system properties):
+ * - "loadtest.baseUrl": URL of the API (default http://localhost:8080/UMS-1.0/api)
+ * - "loadtest.clients": number of concurrent clients (default 1000)
+ * - "loadtest.users": number of users created before the scenarios (default 10000)
+ * - "loadtest.warmupSeconds" / "loadtest.durationSeconds": warm-up and measured time per scenario (default 10 / 30)
+ * - "loadtest.baseline": properties file with the baseline (default src/test/resources/loadtest-baseline.properties)
+ * - "loadtest.tolerance": allowed relative regression (default 0.25)
+ * - "loadtest.report": file the results are written to (default target/loadtest-report.properties)
+ * - "loadtest.updateBaseline": write the results to the baseline instead of comparing (default false)
+ * - "loadtest.groupCommit": whether the server runs with group commit, which is added to the keys of the results
+ *   (default false)
+ * - "loadtest.blocking": whether the server runs the endpoints on their worker threads without offloading
+ *   ("ums.db.blocking"), which is added to the keys of the results (default false)
+ **/
+public class UserLoadIT {
+    private static final Logger logger = Logger.getLogger(UserLoadIT.class.getName());
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+
+    private static final String BASE_URL = System.getProperty("loadtest.baseUrl", "http://localhost:8080/UMS-1.0/api");
+    private static final int CLIENTS = Integer.getInteger("loadtest.clients", 1000);
+    private static final int USERS = Integer.getInteger("loadtest.users", 10000);
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("loadtest.warmupSeconds", 10));
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("loadtest.durationSeconds", 30));
+    private static final Path BASELINE = Path.of(System.getProperty("loadtest.baseline", "src/test/resources/loadtest-baseline.properties"));
+    private static final double TOLERANCE = Double.parseDouble(System.getProperty("loadtest.tolerance", "0.25"));
+    private static final Path REPORT = Path.of(System.getProperty("loadtest.report", "target/loadtest-report.properties"));
+    private static final boolean UPDATE_BASELINE = Boolean.getBoolean("loadtest.updateBaseline");
+    private static final boolean GROUP_COMMIT = Boolean.getBoolean("loadtest.groupCommit");
+    private static final boolean BLOCKING = Boolean.getBoolean("loadtest.blocking");
+
+    /** Prefix of the email addresses of this run, so repeated runs against the same server don't conflict. */
+    private static final String RUN = UUID.randomUUID().toString().substring(0, 8);
+
+    private static HttpClient client;
+    private static long[] userIds;
+    private static final AtomicLong createdUsers = new AtomicLong();
+
+    /**
+     * The kinds of requests sent by the clients.
+     */
+    enum Operation {
+        GET_USER, LIST_PAGE, SEARCH, CREATE_USER, PATCH_USER, UPDATE_USER
+    }
+
+    /**
+     * The traffic mixes, as percentages of the operations.
+     */
+    enum Scenario {
+        READ_HEAVY(new int[]{85, 5, 5, 2, 3, 0}),
+        WRITE_HEAVY(new int[]{30, 5, 5, 35, 25, 0}),
+        LIST_HEAVY(new int[]{10, 70, 15, 0, 5, 0}),
+        /** Only creates and complete updates, the writes merged by the group commit. */
+        SIGNUP_BURST(new int[]{0, 0, 0, 80, 0, 20});
+
+        private final int[] weights;
+
+        Scenario(int[] weights) {
+            this.weights = weights;
+        }
+
+        Operation next(ThreadLocalRandom random) {
+            int value = random.nextInt(100);
+            for (int i = 0; i < weights.length; i++) {
+                value -= weights[i];
+                if (value < 0) {
+                    return Operation.values()[i];
+                }
+            }
+            return Operation.GET_USER;
+        }
+
+        String key() {
+            String key = name().toLowerCase(Locale.ROOT).replace('_', '-');
+            // the results of the server modes are kept apart, so each can be compared to its baseline
+            if (GROUP_COMMIT) {
+                key += "-group-commit";
+            }
+            return BLOCKING ? key + "-blocking" : key;
+        }
+    }
+
+    /**
+     * Create the HTTP client and the users read by the scenarios.
+     * */
+    @BeforeAll
+    public static void setup() throws Exception {
+        client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        userIds = new long[USERS];
+        int created = 0;
+        while (created < USERS) {
+            int size = Math.min(1000, USERS - created);
+            StringBuilder batch = new StringBuilder("[");
+            for (int i = 0; i < size; i++) {
+                batch.append(i == 0 ? "" : ",").append(userJson(createdUsers.incrementAndGet()));
+            }
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(BASE_URL + "/users/batch"))
+                            .header("Content-Type", "application/json")
+                            .timeout(Duration.ofMinutes(5))
+                            .POST(HttpRequest.BodyPublishers.ofString(batch.append(']').toString()))
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(201, response.statusCode(), response.body());
+
+            Matcher ids = ID.matcher(response.body());
+            while (ids.find()) {
+                userIds[created++] = Long.parseLong(ids.group(1));
+            }
+        }
+        logger.info(USERS + " users created for the load test.");
+    }
+
+    /**
+     * Runs all scenarios and compares the results to the baseline.
+     * */
+    @Test
+    public void givenManyClients_whenRunningTrafficMixes_thenNoResultRegresses() throws Exception {
+        Properties results = new Properties();
+        for (Scenario scenario : Scenario.values()) {
+            Result result = run(scenario);
+            logger.info(String.format(Locale.ROOT, "%s: %.0f requests/s, p50 %.2f ms, p99 %.2f ms, %.2f%% rejected, %.2f%% failed",
+                    scenario.key(), result.throughput, result.p50Millis, result.p99Millis, result.rejectedRate * 100, result.errorRate * 100));
+            result.store(results, scenario.key());
+        }
+
+        Files.createDirectories(REPORT.toAbsolutePath().getParent());
+        try (OutputStream out = Files.newOutputStream(REPORT)) {
+            results.store(out, "Load test with " + CLIENTS + " clients, " + DURATION.getSeconds() + " s per scenario");
+        }
+        if (UPDATE_BASELINE) {
+            // keep the baseline of the other mode (with or without group commit)
+            Properties baseline = new Properties();
+            if (Files.exists(BASELINE)) {
+                try (InputStream in = Files.newInputStream(BASELINE)) {
+                    baseline.load(in);
+                }
+            }
+            baseline.putAll(results);
+            try (OutputStream out = Files.newOutputStream(BASELINE)) {
+                baseline.store(out, "Load test baseline with " + CLIENTS + " clients, " + DURATION.getSeconds() + " s per scenario");
+            }
+            logger.info("Baseline updated: " + BASELINE);
+            return;
+        }
+
+        Properties baseline = new Properties();
+        try (InputStream in = Files.newInputStream(BASELINE)) {
+            baseline.load(in);
+        }
+        if (baseline.isEmpty()) {
+            logger.warning("The baseline " + BASELINE + " is empty, run the load test with -Dloadtest.updateBaseline=true on the reference machine.");
+        }
+        List<String> regressions = new ArrayList<>();
+        for (Scenario scenario : Scenario.values()) {
+            String key = scenario.key();
+            checkAtLeast(regressions, baseline, results, key + ".throughput");
+            checkAtMost(regressions, baseline, results, key + ".p50Millis");
+            checkAtMost(regressions, baseline, results, key + ".p99Millis");
+            checkRate(regressions, baseline, results, key + ".rejectedRate");
+            checkRate(regressions, baseline, results, key + ".errorRate");
+        }
+        assertTrue(regressions.isEmpty(), "Regressions against " + BASELINE + ":\n" + String.join("\n", regressions));
+    }
+
+    /**
+     * Runs a scenario: warms up, then measures for the configured duration.
+     */
+    private Result run(Scenario scenario) throws InterruptedException {
+        LatencyHistogram latency = new LatencyHistogram();
+        AtomicLong requests = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        AtomicBoolean measuring = new AtomicBoolean();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch stopped = new CountDownLatch(CLIENTS);
+
+        for (int i = 0; i < CLIENTS; i++) {
+            new Client(scenario, latency, requests, rejected, errors, measuring, running, stopped).sendNext();
+        }
+
+        Thread.sleep(WARMUP.toMillis());
+        measuring.set(true);
+        long start = System.nanoTime();
+        Thread.sleep(DURATION.toMillis());
+        measuring.set(false);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        running.set(false);
+        assertTrue(stopped.await(2, TimeUnit.MINUTES), "Clients didn't stop.");
+
+        LatencyHistogram.Snapshot snapshot = latency.snapshot();
+        long count = Math.max(1, requests.get());
+        return new Result(requests.get() / seconds,
+                snapshot.getValueAtQuantile(0.5) / 1e6,
+                snapshot.getValueAtQuantile(0.99) / 1e6,
+                (double) rejected.get() / count,
+                (double) errors.get() / count);
+    }
+
+    private static void checkAtLeast(List<String> regressions, Properties baseline, Properties results, String key) {
+        if (baseline.containsKey(key)) {
+            double expected = Double.parseDouble(baseline.getProperty(key));
+            double actual = Double.parseDouble(results.getProperty(key));
+            if (actual < expected * (1 - TOLERANCE)) {
+                regressions.add(key + ": " + actual + " < " + expected);
+            }
+        }
+    }
+
+    private static void checkAtMost(List<String> regressions, Properties baseline, Properties results, String key) {
+        if (baseline.containsKey(key)) {
+            double expected = Double.parseDouble(baseline.getProperty(key));
+            double actual = Double.parseDouble(results.getProperty(key));
+            if (actual > expected * (1 + TOLERANCE)) {
+                regressions.add(key + ": " + actual + " > " + expected);
+            }
+        }
+    }
+
+    /**
+     * Rates are compared absolutely, as the baseline rate is usually 0.
+     */
+    private static void checkRate(List<String> regressions, Properties baseline, Properties results, String key) {
+        if (baseline.containsKey(key)) {
+            double expected = Double.parseDouble(baseline.getProperty(key));
+            double actual = Double.parseDouble(results.getProperty(key));
+            if (actual > expected + 0.01) {
+                regressions.add(key + ": " + actual + " > " + expected);
+            }
+        }
+    }
+
+    private static String userJson(long i) {
+        return "{ \"firstname\": \"Max\", \"lastname\": \"Mustermann" + i % 100 + "\", \"email\": \"load." + RUN + "." + i
+                + "@example.com\", \"birthday\": \"2000-01-01\", \"password\": \"password123\" }";
+    }
+
+    private static HttpRequest request(Operation operation, ThreadLocalRandom random) {
+        long id = userIds[random.nextInt(userIds.length)];
+        switch (operation) {
+            case LIST_PAGE:
+                return HttpRequest.newBuilder(URI.create(BASE_URL + "/users?limit=100&after=" + id)).GET().build();
+            case SEARCH:
+                return HttpRequest.newBuilder(URI.create(BASE_URL + "/users/search?q=max+mustermann" + random.nextInt(100))).GET().build();
+            case CREATE_USER:
+                return HttpRequest.newBuilder(URI.create(BASE_URL + "/users"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(userJson(createdUsers.incrementAndGet())))
+                        .build();
+            case UPDATE_USER:
+                return HttpRequest.newBuilder(URI.create(BASE_URL + "/users/" + id))
+                        .header("Content-Type", "application/json")
+                        .PUT(HttpRequest.BodyPublishers.ofString(userJson(createdUsers.incrementAndGet())))
+                        .build();
+            case PATCH_USER:
+                return HttpRequest.newBuilder(URI.create(BASE_URL + "/users/" + id))
+                        .header("Content-Type", UserResource.MERGE_PATCH_JSON)
+                        .method("PATCH", HttpRequest.BodyPublishers.ofString("{ \"firstname\": \"Maria" + random.nextInt(100) + "\" }"))
+                        .build();
+            default:
+                return HttpRequest.newBuilder(URI.create(BASE_URL + "/users/" + id)).GET().build();
+        }
+    }
+
+    /**
+     * A client sending its next request as soon as the previous one is answered.
+     */
+    private static final class Client {
+        private final Scenario scenario;
+        private final LatencyHistogram latency;
+        private final AtomicLong requests;
+        private final AtomicLong rejected;
+        private final AtomicLong errors;
+        private final AtomicBoolean measuring;
+        private final AtomicBoolean running;
+        private final CountDownLatch stopped;
+
+        private Client(Scenario scenario, LatencyHistogram latency, AtomicLong requests, AtomicLong rejected, AtomicLong errors,
+                       AtomicBoolean measuring, AtomicBoolean running, CountDownLatch stopped) {
+            this.scenario = scenario;
+            this.latency = latency;
+            this.requests = requests;
+            this.rejected = rejected;
+            this.errors = errors;
+            this.measuring = measuring;
+            this.running = running;
+            this.stopped = stopped;
+        }
+
+        private void sendNext() {
+            if (!running.get()) {
+                stopped.countDown();
+                return;
+            }
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            HttpRequest request = request(scenario.next(random), random);
+            long start = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+                if (measuring.get()) {
+                    latency.record(System.nanoTime() - start);
+                    requests.incrementAndGet();
+                    if (response != null && (response.statusCode() == 503 || response.statusCode() == 429)) {
+                        rejected.incrementAndGet();
+                    } else if (failure != null || response.statusCode() >= 400) {
+                        errors.incrementAndGet();
+                    }
+                }
+                sendNext();
+            });
+        }
+    }
+
+    /**
+     * The measured values of a scenario.
+     */
+    private static final class Result {
+        private final double throughput;
+        private final double p50Millis;
+        private final double p99Millis;
+        private final double rejectedRate;
+        private final double errorRate;
+
+        private Result(double throughput, double p50Millis, double p99Millis, double rejectedRate, double errorRate) {
+            this.throughput = throughput;
+            this.p50Millis = p50Millis;
+            this.p99Millis = p99Millis;
+            this.rejectedRate = rejectedRate;
+            this.errorRate = errorRate;
+        }
+
+        private void store(Properties properties, String key) {
+            properties.setProperty(key + ".throughput", format(throughput));
+            properties.setProperty(key + ".p50Millis", format(p50Millis));
+            properties.setProperty(key + ".p99Millis", format(p99Millis));
+            properties.setProperty(key + ".rejectedRate", format(rejectedRate));
+            properties.setProperty(key + ".errorRate", format(errorRate));
+        }
+
+        private static String format(double value) {
+            return String.format(Locale.ROOT, "%.4f", value);
+        }
+    }
+}
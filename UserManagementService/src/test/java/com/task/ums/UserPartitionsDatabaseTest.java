@@ -0,0 +1,339 @@
+package com.task.ums;
+
+import com.task.ums.models.User;
+import com.task.ums.services.DatabaseExecutor;
+import com.task.ums.services.EmailConflictException;
+import com.task.ums.services.UserCache;
+import com.task.ums.services.UserChange;
+import com.task.ums.services.UserPartitions;
+import com.task.ums.services.UserService;
+import jakarta.enterprise.event.Event;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the {@link UserPartitions} class and the {@link UserService} on three embedded H2 databases.
+ *
+ * Mocks: Event, UserService (publishing lost changes), TransactionSynchronizationRegistry (a fake JTA transaction)
+ *
+ * @see UserPartitions
+ * @see UserService
+ **/
+@ExtendWith(MockitoExtension.class)
+public class UserPartitionsDatabaseTest {
+
+    @Mock
+    private Event<UserChange> events;
+
+    @Mock
+    private UserService republisher;
+
+    /** The JDBC URL of the partitions, unique per test case. */
+    private String url;
+
+    private DatabaseExecutor database;
+    private UserPartitions partitions;
+    private UserService userService;
+
+    /**
+     * Open three partitions on new embedded databases and create a UserService using them before each test case.
+     * */
+    @BeforeEach
+    public void setup() {
+        url = "jdbc:h2:mem:partitions-" + UUID.randomUUID() + "-{n};DB_CLOSE_DELAY=-1";
+        database = new DatabaseExecutor(4, 1000, true);
+        database.start();
+        partitions = open(3, 0);
+    }
+
+    /**
+     * Close the partitions and stop the database executor after each test case.
+     * */
+    @AfterEach
+    public void tearDown() {
+        partitions.stop();
+        database.stop();
+    }
+
+    /**
+     * Test for Create and Find methods of the UserService.
+     * Verify that every user is stored in the partition its ID routes to, which is the partition of its email address,
+     * and found there by its ID.
+     * */
+    @Test
+    public void test_PointOperations_RoutedToOnePartition() {
+        List<User> users = createUsers(30);
+
+        long[] counts = new long[3];
+        for (User user : users) {
+            int partition = partitions.partitionOf(user.getId());
+            assertEquals(partitions.partitionOfEmail(user.getEmail()), partition);
+            counts[partition]++;
+            assertEquals(user.getEmail(), partitions.inTransaction(() -> userService.find(user.getId())).getEmail());
+        }
+        for (int partition = 0; partition < 3; partition++) {
+            int current = partition;
+            List<Long> stored = partitions.inTransaction(() -> partitions.entityManager(current)
+                    .createQuery("SELECT u.id FROM User u", Long.class)
+                    .getResultList());
+            assertTrue(stored.stream().allMatch(id -> partitions.partitionOf(id) == current));
+        }
+        assertArrayEquals(counts, partitions.getStatistics().getUsers());
+    }
+
+    /**
+     * Test for FindPage and ForEach methods of the UserService.
+     * Verify that the users of all partitions are read merged by ID, page by page and as a stream.
+     * */
+    @Test
+    public void test_FindPage_MergedById() {
+        List<Long> ids = ids(createUsers(30));
+        ids.sort(null);
+
+        List<Long> pages = new ArrayList<>();
+        Long after = null;
+        for (List<User> page = userService.findPage(after, 7); !page.isEmpty(); page = userService.findPage(after, 7)) {
+            assertTrue(page.size() <= 7);
+            pages.addAll(ids(page));
+            after = page.get(page.size() - 1).getId();
+        }
+        List<Long> streamed = new ArrayList<>();
+        long count = userService.forEach(4, user -> streamed.add(user.getId()));
+
+        assertEquals(ids, pages);
+        assertEquals(ids, streamed);
+        assertEquals(30, count);
+    }
+
+    /**
+     * Test for Rebalance method.
+     * Verify that after reducing the partitions from three to two every user is moved to the partition its ID routes
+     * to, the new IDs continue after the highest one and the email addresses are still unique.
+     * */
+    @Test
+    public void test_Rebalance() {
+        List<User> users = createUsers(200);
+        partitions.stop();
+
+        partitions = open(2, 3);
+
+        assertTrue(partitions.getStatistics().getRebalancedUsers() > 0);
+        assertEquals(200, partitions.getStatistics().getUsers()[0] + partitions.getStatistics().getUsers()[1]);
+        for (User user : users) {
+            assertEquals(user.getEmail(), partitions.inTransaction(() -> userService.find(user.getId())).getEmail());
+        }
+        for (int partition = 0; partition < 2; partition++) {
+            int current = partition;
+            List<Long> stored = partitions.inTransaction(() -> partitions.entityManager(current)
+                    .createQuery("SELECT u.id FROM User u", Long.class)
+                    .getResultList());
+            assertTrue(stored.stream().allMatch(id -> partitions.partitionOf(id) == current));
+        }
+        long maxId = users.stream().mapToLong(User::getId).max().orElseThrow();
+        User created = create("new@example.com");
+        assertTrue(created.getId() > maxId);
+        assertEquals(partitions.partitionOfEmail(created.getEmail()), partitions.partitionOf(created.getId()));
+        RuntimeException e = assertThrows(RuntimeException.class, () -> create(users.get(0).getEmail()));
+        assertTrue(EmailConflictException.isCausedBy(e));
+    }
+
+    /**
+     * Test for the completion of a JTA transaction using the partitions.
+     * Verify that if the JTA transaction fails after the partitions were committed, the committed changes are kept,
+     * counted and published once more.
+     * */
+    @Test
+    public void test_JtaTransactionFailedAfterPartitionsCommitted() {
+        FakeTransaction transaction = new FakeTransaction();
+        setField(partitions, "registry", transaction);
+        setField(partitions, "userService", republisher);
+        doAnswer(invocation -> {
+            partitions.onChange(invocation.getArgument(0));
+            return null;
+        }).when(events).fire(any());
+
+        User max = userService.create(newUser("max@example.com"));
+        transaction.complete(Status.STATUS_ROLLEDBACK);
+
+        verify(republisher, timeout(1000)).republish(Map.of(max.getId(), UserChange.Type.CREATED));
+        assertEquals(1, partitions.getStatistics().getPartialCommits());
+        assertEquals("max@example.com", partitions.inTransaction(() -> userService.find(max.getId())).getEmail());
+    }
+
+    /**
+     * Test for Update, Patch and Delete methods of the UserService.
+     * Verify that an email address changed to one routing to another partition than the user's is still unique:
+     * a new user with the address is rejected, until the user gives it up.
+     * */
+    @Test
+    public void test_Email_UniqueAcrossPartitions() {
+        User max = create("max@example.com");
+        int home = partitions.partitionOf(max.getId());
+        String moved = emailOutside(home, "moved");
+        String patched = emailOutside(home, "patched");
+
+        partitions.inTransaction(() -> userService.update(max.getId(), newUser(moved.toUpperCase()), null));
+        RuntimeException e = assertThrows(RuntimeException.class, () -> create(moved));
+        assertTrue(EmailConflictException.isCausedBy(e));
+
+        partitions.inTransaction(() -> userService.patch(max.getId(), Map.of("email", patched), null));
+        assertNotNull(create(moved).getId());
+        e = assertThrows(RuntimeException.class, () -> create(patched));
+        assertTrue(EmailConflictException.isCausedBy(e));
+
+        partitions.inTransaction(() -> userService.delete(max.getId()));
+        assertNotNull(create(patched).getId());
+        assertNotNull(create("max@example.com").getId());
+    }
+
+    /**
+     * Test for IndexEmails method.
+     * Verify that the owner rows of the email addresses are rebuilt at startup if they don't match the users.
+     * */
+    @Test
+    public void test_IndexEmails_RebuiltAtStartup() {
+        User max = create("max@example.com");
+        partitions.inTransaction(() -> userService.patch(max.getId(), Map.of("email", emailOutside(partitions.partitionOf(max.getId()), "moved")), null));
+        create("erika@example.com");
+        partitions.inTransaction(() -> {
+            partitions.entityManagers().forEach(manager -> manager.createQuery("DELETE FROM UserEmail e").executeUpdate());
+            return null;
+        });
+        partitions.stop();
+
+        partitions = open(3, 0);
+
+        assertEquals(2, partitions.indexEmails());
+        RuntimeException e = assertThrows(RuntimeException.class, () -> create("erika@example.com"));
+        assertTrue(EmailConflictException.isCausedBy(e));
+    }
+
+    /**
+     * Opens the partitions of this test case and a UserService using them.
+     */
+    private UserPartitions open(int count, int rebalanceFrom) {
+        UserPartitions opened = new UserPartitions(count, url, null, rebalanceFrom);
+        setField(opened, "database", database);
+        opened.start();
+        userService = new UserService();
+        setField(userService, "cache", new UserCache(0, 0, System::nanoTime));
+        setField(userService, "events", events);
+        setField(userService, "partitions", opened);
+        return opened;
+    }
+
+    private List<User> createUsers(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(newUser("user" + i + "@example.com"));
+        }
+        return partitions.inTransaction(() -> userService.createAll(users, 50));
+    }
+
+    private User create(String email) {
+        return partitions.inTransaction(() -> userService.create(newUser(email)));
+    }
+
+    /**
+     * Returns an email address routing to another partition than the given one.
+     */
+    private String emailOutside(int partition, String name) {
+        String email = name + "@example.com";
+        for (int i = 0; partitions.partitionOfEmail(email) == partition; i++) {
+            email = name + i + "@example.com";
+        }
+        return email;
+    }
+
+    private static List<Long> ids(List<User> users) {
+        return users.stream().map(User::getId).collect(Collectors.toList());
+    }
+
+    private static User newUser(String email) {
+        User user = new User();
+        user.setFirstname("Max");
+        user.setLastname("Mustermann");
+        user.setEmail(email);
+        user.setPasswordHash("$2a$10$hash");
+        return user;
+    }
+
+    private static void setField(Object target, String name, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * A JTA transaction of the current thread, completed by the test like a transaction manager.
+     */
+    private static final class FakeTransaction implements TransactionSynchronizationRegistry {
+        private final Object key = new Object();
+        private final Map<Object, Object> resources = new HashMap<>();
+        private final List<Synchronization> synchronizations = new ArrayList<>();
+
+        /**
+         * Runs the synchronizations before the commit, then fails the commit with the given status.
+         */
+        private void complete(int status) {
+            synchronizations.forEach(Synchronization::beforeCompletion);
+            synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+        }
+
+        @Override
+        public Object getTransactionKey() {
+            return key;
+        }
+
+        @Override
+        public void putResource(Object key, Object value) {
+            resources.put(key, value);
+        }
+
+        @Override
+        public Object getResource(Object key) {
+            return resources.get(key);
+        }
+
+        @Override
+        public void registerInterposedSynchronization(Synchronization sync) {
+            synchronizations.add(sync);
+        }
+
+        @Override
+        public int getTransactionStatus() {
+            return Status.STATUS_ACTIVE;
+        }
+
+        @Override
+        public void setRollbackOnly() {
+        }
+
+        @Override
+        public boolean getRollbackOnly() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.task.ums;
+
+import com.task.ums.models.User;
+import com.task.ums.services.DatabaseExecutor;
+import com.task.ums.services.UserCache;
+import com.task.ums.services.UserChange;
+import com.task.ums.services.UserPartitions;
+import com.task.ums.services.UserService;
+import jakarta.enterprise.event.Event;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link UserPartitions} class and the routing of the {@link UserService} to the partitions.
+ *
+ * Mocks: EntityManagerFactory, EntityManager, EntityTransaction, UserCache, Event
+ *
+ * @see UserPartitions
+ * @see UserService
+ **/
+@ExtendWith(MockitoExtension.class)
+public class UserPartitionsTest {
+
+    @Mock
+    private UserCache cache;
+
+    @Mock
+    private Event<UserChange> events;
+
+    private final List<EntityManagerFactory> factories = new ArrayList<>();
+    private final List<EntityManager> managers = new ArrayList<>();
+    private final List<EntityTransaction> transactions = new ArrayList<>();
+
+    private DatabaseExecutor database;
+    private UserPartitions partitions;
+    private UserService userService;
+
+    /**
+     * Create three partitions on mocked entity manager factories and a UserService using them before each test case.
+     * */
+    @BeforeEach
+    public void setup() {
+        for (int partition = 0; partition < 3; partition++) {
+            EntityManagerFactory factory = mock(EntityManagerFactory.class);
+            EntityManager manager = mock(EntityManager.class);
+            EntityTransaction transaction = mock(EntityTransaction.class);
+            lenient().when(factory.createEntityManager()).thenReturn(manager);
+            lenient().when(manager.getTransaction()).thenReturn(transaction);
+            lenient().when(manager.isOpen()).thenReturn(true);
+            factories.add(factory);
+            managers.add(manager);
+            transactions.add(transaction);
+        }
+
+        database = new DatabaseExecutor(4, 1000, true);
+        database.start();
+        partitions = new UserPartitions(factories);
+        setField(partitions, "database", database);
+
+        userService = new UserService();
+        setField(userService, "cache", cache);
+        setField(userService, "events", events);
+        setField(userService, "partitions", partitions);
+    }
+
+    /**
+     * Stop the database executor after each test case.
+     * */
+    @AfterEach
+    public void tearDown() {
+        database.stop();
+    }
+
+    /**
+     * Test for PartitionOf method.
+     * Verify that the IDs are routed in blocks of 50, the blocks interleaved over the partitions.
+     * */
+    @Test
+    public void test_PartitionOf() {
+        assertEquals(0, partitions.partitionOf(1));
+        assertEquals(0, partitions.partitionOf(50));
+        assertEquals(1, partitions.partitionOf(51));
+        assertEquals(2, partitions.partitionOf(150));
+        assertEquals(0, partitions.partitionOf(151));
+        assertEquals(1, partitions.partitionOf(1_000_101));
+        assertEquals(partitions.partitionOfEmail("max@example.com"), partitions.partitionOfEmail("Max@Example.com"));
+    }
+
+    /**
+     * Test for Find and Create methods of the UserService.
+     * Verify that a user is read from the partition its ID routes to and created in the partition of its email
+     * address, and that only the partitions used are committed.
+     * */
+    @Test
+    public void test_PointOperations_RoutedToOnePartition() {
+        when(cache.get(eq(75L), any())).thenAnswer(invocation -> invocation.<Function<Long, User>>getArgument(1).apply(75L));
+        User found = newUser(75L, "found@example.com");
+        when(managers.get(1).find(User.class, 75L)).thenReturn(found);
+        // a user created in another partition than the one read
+        String email = "max@example.com";
+        for (int i = 0; partitions.partitionOfEmail(email) == 1; i++) {
+            email = "max" + i + "@example.com";
+        }
+        User user = newUser(null, email);
+        int target = partitions.partitionOfEmail(email);
+        doAnswer(invocation -> {
+            user.setId(target * 50L + 1);
+            return null;
+        }).when(managers.get(target)).persist(user);
+
+        assertSame(found, partitions.inTransaction(() -> userService.find(75L)));
+        partitions.inTransaction(() -> userService.create(user));
+
+        verify(managers.get(target)).persist(user);
+        for (int partition = 0; partition < 3; partition++) {
+            if (partition != 1) {
+                verify(managers.get(partition), never()).find(any(), any());
+            }
+            if (partition != target) {
+                verify(managers.get(partition), never()).persist(any());
+            }
+            if (partition != 1 && partition != target) {
+                verify(factories.get(partition), never()).createEntityManager();
+            }
+        }
+        verify(transactions.get(1)).commit();
+        verify(transactions.get(target)).commit();
+    }
+
+    /**
+     * Test for InTransaction method.
+     * Verify that the partitions used by a failing task are rolled back instead of committed, and closed.
+     * */
+    @Test
+    public void test_InTransaction_RolledBackOnFailure() {
+        when(transactions.get(2).isActive()).thenReturn(true);
+
+        assertThrows(IllegalStateException.class, () -> partitions.inTransaction(() -> {
+            partitions.entityManager(2).persist(newUser(null, "max@example.com"));
+            throw new IllegalStateException("failed");
+        }));
+
+        verify(transactions.get(2)).begin();
+        verify(transactions.get(2)).rollback();
+        verify(transactions.get(2), never()).commit();
+        verify(managers.get(2)).close();
+        verify(factories.get(0), never()).createEntityManager();
+    }
+
+    /**
+     * Test for Gather method.
+     * Verify that the results of all partitions are merged by ID and limited.
+     * */
+    @Test
+    public void test_Gather_MergedById() {
+        Map<EntityManager, List<User>> results = Map.of(
+                managers.get(0), List.of(newUser(1L, "a@example.com"), newUser(2L, "b@example.com"), newUser(151L, "c@example.com")),
+                managers.get(1), List.of(newUser(51L, "d@example.com"), newUser(52L, "e@example.com")),
+                managers.get(2), List.of());
+
+        List<User> all = partitions.gather(results::get, User::getId, Integer.MAX_VALUE);
+        List<User> page = partitions.gather(results::get, User::getId, 3);
+
+        assertEquals(List.of(1L, 2L, 51L, 52L, 151L), ids(all));
+        assertEquals(List.of(1L, 2L, 51L), ids(page));
+        managers.forEach(manager -> verify(manager, times(2)).close());
+    }
+
+    /**
+     * Test for ForEach method.
+     * Verify that the streams of all partitions are merged by ID and closed.
+     * */
+    @Test
+    public void test_ForEach_MergedById() {
+        Map<EntityManager, List<User>> results = Map.of(
+                managers.get(0), List.of(newUser(1L, "a@example.com"), newUser(151L, "b@example.com")),
+                managers.get(1), List.of(newUser(51L, "c@example.com")),
+                managers.get(2), List.of(newUser(101L, "d@example.com"), newUser(250L, "e@example.com")));
+        List<Long> seen = new ArrayList<>();
+
+        long count = partitions.forEach(manager -> results.get(manager).stream(), User::getId, 2, user -> seen.add(user.getId()));
+
+        assertEquals(5, count);
+        assertEquals(List.of(1L, 51L, 101L, 151L, 250L), seen);
+        managers.forEach(manager -> verify(manager, times(2)).clear());
+        managers.forEach(manager -> verify(manager).close());
+    }
+
+    private static List<Long> ids(List<User> users) {
+        return users.stream().map(User::getId).collect(Collectors.toList());
+    }
+
+    private static User newUser(Long id, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setFirstname("Max");
+        user.setLastname("Mustermann");
+        user.setEmail(email);
+        return user;
+    }
+
+    private static void setField(Object target, String name, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.task.ums;
+
+import com.task.ums.models.User;
+import com.task.ums.models.UserView;
+import com.task.ums.services.UserChange;
+import com.task.ums.services.UserReadModel;
+import com.task.ums.services.UserService;
+import com.task.ums.services.UserSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the {@link UserReadModel} class.
+ *
+ * @see UserReadModel
+ **/
+@ExtendWith(MockitoExtension.class)
+public class UserReadModelTest {
+
+    @Mock
+    private UserService userService;
+
+    @InjectMocks
+    private UserReadModel readModel = new UserReadModel(true);
+
+    /**
+     * Test for Get and Page methods.
+     * Verify that users inserted out of order are found by ID and paged in the order of their IDs.
+     * */
+    @Test
+    public void test_GetAndPage() {
+        for (long id : new long[]{5, 1, 3, 2, 4}) {
+            readModel.put(view(id, 0, "user" + id + "@example.com"), true);
+        }
+
+        assertEquals("user3@example.com", readModel.get(3).getEmail());
+        assertEquals(LocalDate.of(2000, 1, 3), readModel.get(3).getBirthday());
+        assertNull(readModel.get(6));
+        assertEquals(List.of(3L, 4L), ids(readModel.page(2L, 2)));
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), ids(readModel.page(null, 10)));
+        assertTrue(readModel.page(5L, 10).isEmpty());
+
+        List<Long> all = new ArrayList<>();
+        assertEquals(5, readModel.forEach(2, user -> all.add(user.getId())));
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), all);
+    }
+
+    /**
+     * Test for FindByEmail method.
+     * Verify that users are found case-insensitively and a changed email address replaces the old one.
+     * */
+    @Test
+    public void test_FindByEmail() {
+        readModel.put(view(1, 0, "max@example.com"), true);
+        readModel.put(view(2, 0, "maria@example.com"), true);
+
+        assertEquals(1L, readModel.findByEmail("Max@Example.com").getId());
+
+        readModel.put(view(1, 1, "max.mustermann@example.com"), false);
+
+        assertNull(readModel.findByEmail("max@example.com"));
+        assertEquals(1L, readModel.findByEmail("max.mustermann@example.com").getId());
+        assertEquals(2L, readModel.findByEmail("maria@example.com").getId());
+        assertNull(readModel.findByEmail(null));
+    }
+
+    /**
+     * Test for OnChange method.
+     * Verify that created, updated, patched and deleted users are applied and an older version doesn't replace a newer one.
+     * */
+    @Test
+    public void test_OnChange() {
+        User patched = user(2, 2, "new@example.com");
+        when(userService.findCommitted(2L)).thenReturn(patched);
+        when(userService.findCommitted(3L)).thenReturn(null);
+
+        readModel.onChange(UserChange.created(UserSnapshot.of(user(1, 0, "a@example.com"))));
+        readModel.onChange(UserChange.created(UserSnapshot.of(user(2, 0, "b@example.com"))));
+        readModel.onChange(UserChange.created(UserSnapshot.of(user(3, 0, "c@example.com"))));
+        readModel.onChange(UserChange.updated(UserSnapshot.of(user(1, 2, "a2@example.com"))));
+        readModel.onChange(UserChange.updated(UserSnapshot.of(user(1, 1, "a1@example.com"))));
+        readModel.onChange(UserChange.patched(2L, 1, Map.of("email", "new@example.com")));
+        readModel.onChange(UserChange.patched(3L, 1, Map.of("lastname", "Musterfrau")));
+        readModel.onChange(UserChange.deleted(1L));
+        readModel.onChange(UserChange.updated(UserSnapshot.of(user(1, 3, "a3@example.com"))));
+
+        assertNull(readModel.get(1));
+        assertEquals(2, readModel.get(2).getVersion());
+        assertEquals(2L, readModel.findByEmail("new@example.com").getId());
+        assertNull(readModel.get(3));
+        assertEquals(1, readModel.getStatistics().getUsers());
+    }
+
+    /**
+     * Test for Remove method.
+     * Verify that after removing most users the remaining ones are still found by ID, email address and page.
+     * */
+    @Test
+    public void test_Remove() {
+        for (long id = 1; id <= 5000; id++) {
+            readModel.put(view(id, 0, "user" + id + "@example.com"), true);
+        }
+        for (long id = 1; id <= 5000; id++) {
+            if (id % 5 != 0) {
+                readModel.remove(id);
+            }
+        }
+        readModel.remove(4711);
+
+        assertEquals(1000, readModel.getStatistics().getUsers());
+        assertTrue(readModel.getStatistics().getEstimatedBytesPerUser() > 0);
+        for (long id = 1; id <= 5000; id++) {
+            assertEquals(id % 5 == 0, readModel.get(id) != null);
+            UserView user = readModel.findByEmail("user" + id + "@example.com");
+            assertEquals(id % 5 == 0 ? Long.valueOf(id) : null, user == null ? null : user.getId());
+        }
+        assertEquals(List.of(4000L, 4005L, 4010L), ids(readModel.page(3999L, 3)));
+
+        readModel.put(view(3, 0, "user3@example.com"), true);
+        assertEquals(List.of(3L, 5L), ids(readModel.page(null, 2)));
+    }
+
+    /**
+     * Test for GetStatistics method.
+     * Verify that the estimated footprint follows the strings of inserted, replaced and removed users.
+     * */
+    @Test
+    public void test_GetStatistics() {
+        long empty = readModel.getStatistics().getEstimatedBytes();
+
+        readModel.put(view(1, 0, "a@example.com"), true);
+        long one = readModel.getStatistics().getEstimatedBytes();
+        // 48 bytes for the record, 40 bytes plus the characters for each string
+        assertEquals(empty + 48 + 43 + 50 + 53, one);
+
+        readModel.put(view(1, 1, "longer.address@example.com"), false);
+        assertEquals(one + 13, readModel.getStatistics().getEstimatedBytes());
+
+        readModel.remove(1);
+        assertEquals(0, readModel.getStatistics().getUsers());
+        assertEquals(empty, readModel.getStatistics().getEstimatedBytes());
+    }
+
+    private static List<Long> ids(List<UserView> users) {
+        return users.stream().map(UserView::getId).collect(Collectors.toList());
+    }
+
+    private static UserView view(long id, long version, String email) {
+        return new UserView(id, version, "Max", "Mustermann", email, LocalDate.of(2000, 1, 1).plusDays(id - 1));
+    }
+
+    private static User user(long id, long version, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setVersion(version);
+        user.setFirstname("Max");
+        user.setLastname("Mustermann");
+        user.setEmail(email);
+        return user;
+    }
+}
@@ -7,8 +7,13 @@ import io.restassured.response.Response;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.UUID;
+
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
 
 /**
  * Unit tests for the {@link UserResource} class.
@@ -17,6 +22,11 @@ import static org.hamcrest.Matchers.equalTo;
  * @see User
  **/
 public class UserResourceTest {
+    /** Email addresses have to be unique, so every test uses its own. */
+    private final String email = "max.mustermann." + UUID.randomUUID() + "@example.com";
+
+    private final String otherEmail = "maria.musterfrau." + UUID.randomUUID() + "@example.com";
+
     /** Specify the uri for rest assured. */
     @BeforeEach
     public void setUp() {
@@ -39,6 +49,35 @@ public class UserResourceTest {
                 .statusCode(200);
     }
 
+    /**
+     * Tested Method: GetAllUsers
+     * Given: Page size of 1.
+     * Result: StatusCode 200 + at most one user
+     * */
+    @Test
+    public void givenLimit_whenGetAllUsers_thenPageIsReceived() {
+        given()
+                .when()
+                .get("/users?limit=1")
+                .then()
+                .statusCode(200)
+                .body("size()", lessThanOrEqualTo(1));
+    }
+
+    /**
+     * Tested Method: GetAllUsers
+     * Given: Invalid page size.
+     * Result: StatusCode 400
+     * */
+    @Test
+    public void givenInvalidLimit_whenGetAllUsers_then400IsReceived() {
+        given()
+                .when()
+                .get("/users?limit=0")
+                .then()
+                .statusCode(400);
+    }
+
     /**
      * Tested Method: GetUserById
      * Given: User with Id 999 does not exist.
@@ -60,7 +99,7 @@ public class UserResourceTest {
      * */
     @Test
     public void whenAddUser_then201IsReceived() {
-        String newUser = "{ \"firstname\": \"Max\", \"lastname\": \"Mustermann\", \"email\": \"max.mustermann@example.com\", \"birthday\": \"2000-01-01\", \"password\": \"password123\" }";
+        String newUser = "{ \"firstname\": \"Max\", \"lastname\": \"Mustermann\", \"email\": \"" + email + "\", \"birthday\": \"2000-01-01\", \"password\": \"password123\" }";
         given()
                 .contentType(ContentType.JSON)
                 .body(newUser)
@@ -70,7 +109,7 @@ public class UserResourceTest {
                 .statusCode(201)
                 .body("firstname", equalTo("Max"))
                 .body("lastname", equalTo("Mustermann"))
-                .body("email", equalTo("max.mustermann@example.com"));
+                .body("email", equalTo(email));
     }
 
     /**
@@ -80,7 +119,7 @@ public class UserResourceTest {
      * */
     @Test
     public void givenInvalidUserWithNoLastname_whenAddUser_then400IsReceived() {
-        String newUser = "{ \"firstname\": \"Max\", \"email\": \"max.mustermann@example.com\", \"birthday\": \"2000-01-01\", \"password\": \"password123\" }";
+        String newUser = "{ \"firstname\": \"Max\", \"email\": \"" + email + "\", \"birthday\": \"2000-01-01\", \"password\": \"password123\" }";
         given()
                 .contentType(ContentType.JSON)
                 .body(newUser)
@@ -90,6 +129,79 @@ public class UserResourceTest {
                 .statusCode(400);
     }
 
+    /**
+     * Tested Method: AddUsers
+     * Given: One valid and one invalid user (email format is false).
+     * Result: StatusCode 207 + outcome for every user
+     * */
+    @Test
+    public void givenValidAndInvalidUser_whenAddUsers_then207IsReceived() {
+        String newUsers = "[{ \"firstname\": \"Max\", \"lastname\": \"Mustermann\", \"email\": \"" + email + "\", \"birthday\": \"2000-01-01\", \"password\": \"password123\" },"
+                + " { \"firstname\": \"Maria\", \"lastname\": \"Musterfrau\", \"email\": \"maria.musterfrau\", \"birthday\": \"2002-01-01\", \"password\": \"password123\" }]";
+        given()
+                .contentType(ContentType.JSON)
+                .body(newUsers)
+                .when()
+                .post("/users/batch")
+                .then()
+                .statusCode(207)
+                .body("created", equalTo(1))
+                .body("failed", equalTo(1))
+                .body("items[0].status", equalTo(201))
+                .body("items[1].status", equalTo(400));
+    }
+
+    /**
+     * Tested Method: AddUser
+     * Given: User with the same email address (in other case) exists.
+     * Result: StatusCode 409
+     * */
+    @Test
+    public void givenEmailExists_whenAddUser_then409IsReceived() {
+        String newUser = "{ \"firstname\": \"Max\", \"lastname\": \"Mustermann\", \"email\": \"" + email + "\", \"birthday\": \"2000-01-01\", \"password\": \"password123\" }";
+        given()
+                .contentType(ContentType.JSON)
+                .body(newUser)
+                .when()
+                .post("/users")
+                .then()
+                .statusCode(201);
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(newUser.replace(email, email.toUpperCase()))
+                .when()
+                .post("/users")
+                .then()
+                .statusCode(409);
+    }
+
+    /**
+     * Tested Method: GetAllUsers
+     * Given: User with the email address exists.
+     * Result: StatusCode 200 + the user
+     * */
+    @Test
+    public void givenEmailExists_whenGetUsersByEmail_thenUserIsReceived() {
+        String newUser = "{ \"firstname\": \"Max\", \"lastname\": \"Mustermann\", \"email\": \"" + email + "\", \"birthday\": \"2000-01-01\", \"password\": \"password123\" }";
+        given()
+                .contentType(ContentType.JSON)
+                .body(newUser)
+                .when()
+                .post("/users")
+                .then()
+                .statusCode(201);
+
+        given()
+                .queryParam("email", email.toUpperCase())
+                .when()
+                .get("/users")
+                .then()
+                .statusCode(200)
+                .body("size()", equalTo(1))
+                .body("[0].email", equalTo(email));
+    }
+
     /**
      * Tested Method: UpdateUser
      * Given: User with the ID exists.
@@ -98,7 +210,7 @@ public class UserResourceTest {
     @Test
     public void givenUserExists_whenUpdateUser_then200IsReceived() {
         // First add a user to update
-        String newUser = "{ \"firstname\": \"Max\", \"lastname\": \"Mustermann\", \"email\": \"max.mustermann@example.com\", \"birthday\": \"2000-01-01\", \"password\": \"password123\" }";
+        String newUser = "{ \"firstname\": \"Max\", \"lastname\": \"Mustermann\", \"email\": \"" + email + "\", \"birthday\": \"2000-01-01\", \"password\": \"password123\" }";
         Response response = given()
                 .contentType(ContentType.JSON)
                 .body(newUser)
@@ -112,7 +224,7 @@ public class UserResourceTest {
         Long userId = response.jsonPath().getLong("id");
 
         // Update the user
-        String updatedUser = "{ \"firstname\": \"Maria\", \"lastname\": \"Musterfrau\", \"email\": \"maria.musterfrau@example.com\", \"birthday\": \"2002-01-01\", \"password\": \"newpassword123\" }";
+        String updatedUser = "{ \"firstname\": \"Maria\", \"lastname\": \"Musterfrau\", \"email\": \"" + otherEmail + "\", \"birthday\": \"2002-01-01\", \"password\": \"newpassword123\" }";
         given()
                 .contentType(ContentType.JSON)
                 .body(updatedUser)
@@ -122,7 +234,7 @@ public class UserResourceTest {
                 .statusCode(200)
                 .body("firstname", equalTo("Maria"))
                 .body("lastname", equalTo("Musterfrau"))
-                .body("email", equalTo("maria.musterfrau@example.com"));
+                .body("email", equalTo(otherEmail));
     }
 
     /**
@@ -133,7 +245,7 @@ public class UserResourceTest {
     @Test
     public void givenUserExists_whenUpdateUserWithInvalidData_then200IsReceived() {
         // First add a user to update
-        String newUser = "{ \"firstname\": \"Max\", \"lastname\": \"Mustermann\", \"email\": \"max.mustermann@example.com\", \"birthday\": \"2000-01-01\", \"password\": \"password123\" }";
+        String newUser = "{ \"firstname\": \"Max\", \"lastname\": \"Mustermann\", \"email\": \"" + email + "\", \"birthday\": \"2000-01-01\", \"password\": \"password123\" }";
         Response response = given()
                 .contentType(ContentType.JSON)
                 .body(newUser)
@@ -157,6 +269,150 @@ public class UserResourceTest {
                 .statusCode(400);
     }
 
+    /**
+     * Tested Method: GetUserById
+     * Given: User exists and the client sends the ETag of its JSON representation, but selects fields.
+     * Result: StatusCode 200 with another ETag and "Vary: Accept"
+     * */
+    @Test
+    public void givenETagOfOtherRepresentation_whenGetUserFields_then200IsReceived() {
+        String newUser = "{ \"firstname\": \"Max\", \"lastname\": \"Mustermann\", \"email\": \"" + email + "\", \"birthday\": \"2000-01-01\", \"password\": \"password123\" }";
+        Response response = given()
+                .contentType(ContentType.JSON)
+                .body(newUser)
+                .when()
+                .post("/users")
+                .then()
+                .statusCode(201)
+                .extract()
+                .response();
+
+        Long userId = response.jsonPath().getLong("id");
+        String eTag = response.header("ETag");
+
+        given()
+                .header("If-None-Match", eTag)
+                .when()
+                .get("/users/" + userId + "?fields=id,firstname")
+                .then()
+                .statusCode(200)
+                .header("ETag", not(equalTo(eTag)))
+                .header("Vary", equalTo("Accept"));
+    }
+
+    /**
+     * Tested Method: GetUserById
+     * Given: User exists and the client sends its current ETag.
+     * Result: StatusCode 304
+     * */
+    @Test
+    public void givenCurrentETag_whenGetUser_then304IsReceived() {
+        String newUser = "{ \"firstname\": \"Max\", \"lastname\": \"Mustermann\", \"email\": \"" + email + "\", \"birthday\": \"2000-01-01\", \"password\": \"password123\" }";
+        Response response = given()
+                .contentType(ContentType.JSON)
+                .body(newUser)
+                .when()
+                .post("/users")
+                .then()
+                .statusCode(201)
+                .extract()
+                .response();
+
+        Long userId = response.jsonPath().getLong("id");
+        String eTag = response.header("ETag");
+
+        given()
+                .header("If-None-Match", eTag)
+                .when()
+                .get("/users/" + userId)
+                .then()
+                .statusCode(304);
+    }
+
+    /**
+     * Tested Method: UpdateUser
+     * Given: User exists, but the client sends an outdated ETag.
+     * Result: StatusCode 412
+     * */
+    @Test
+    public void givenOutdatedETag_whenUpdateUser_then412IsReceived() {
+        String newUser = "{ \"firstname\": \"Max\", \"lastname\": \"Mustermann\", \"email\": \"" + email + "\", \"birthday\": \"2000-01-01\", \"password\": \"password123\" }";
+        Response response = given()
+                .contentType(ContentType.JSON)
+                .body(newUser)
+                .when()
+                .post("/users")
+                .then()
+                .statusCode(201)
+                .extract()
+                .response();
+
+        Long userId = response.jsonPath().getLong("id");
+
+        String updatedUser = "{ \"firstname\": \"Maria\", \"lastname\": \"Musterfrau\", \"email\": \"" + otherEmail + "\", \"birthday\": \"2002-01-01\", \"password\": \"newpassword123\" }";
+        given()
+                .contentType(ContentType.JSON)
+                .header("If-Match", "\"999\"")
+                .body(updatedUser)
+                .when()
+                .put("/users/" + userId)
+                .then()
+                .statusCode(412);
+    }
+
+    /**
+     * Tested Method: PatchUser
+     * Given: User exists.
+     * Result: StatusCode 204 + only the changed field is updated
+     * */
+    @Test
+    public void givenUserExists_whenPatchUser_then204IsReceived() {
+        String newUser = "{ \"firstname\": \"Max\", \"lastname\": \"Mustermann\", \"email\": \"" + email + "\", \"birthday\": \"2000-01-01\", \"password\": \"password123\" }";
+        Response response = given()
+                .contentType(ContentType.JSON)
+                .body(newUser)
+                .when()
+                .post("/users")
+                .then()
+                .statusCode(201)
+                .extract()
+                .response();
+
+        Long userId = response.jsonPath().getLong("id");
+
+        given()
+                .contentType("application/merge-patch+json")
+                .body("{ \"lastname\": \"Musterfrau\" }")
+                .when()
+                .patch("/users/" + userId)
+                .then()
+                .statusCode(204);
+
+        given()
+                .when()
+                .get("/users/" + userId)
+                .then()
+                .statusCode(200)
+                .body("firstname", equalTo("Max"))
+                .body("lastname", equalTo("Musterfrau"));
+    }
+
+    /**
+     * Tested Method: PatchUser
+     * Given: New field value is invalid (password is too short).
+     * Result: StatusCode 400
+     * */
+    @Test
+    public void givenInvalidField_whenPatchUser_then400IsReceived() {
+        given()
+                .contentType("application/merge-patch+json")
+                .body("{ \"password\": \"123\" }")
+                .when()
+                .patch("/users/1")
+                .then()
+                .statusCode(400);
+    }
+
     /**
      * Tested Method: DeleteUser
      * Given: User exists.
@@ -165,7 +421,7 @@ public class UserResourceTest {
     @Test
     public void givenUserExists_whenDeleteUser_then201IsReceived() {
         // First add a user to delete
-        String newUser = "{ \"firstname\": \"Max\", \"lastname\": \"Mustermann\", \"email\": \"max.mustermann@example.com\", \"birthday\": \"2000-01-01\", \"password\": \"password123\" }";
+        String newUser = "{ \"firstname\": \"Max\", \"lastname\": \"Mustermann\", \"email\": \"" + email + "\", \"birthday\": \"2000-01-01\", \"password\": \"password123\" }";
         Response response = given()
                 .contentType(ContentType.JSON)
                 .body(newUser)
@@ -186,6 +442,35 @@ public class UserResourceTest {
                 .statusCode(204);
     }
 
+    /**
+     * Tested Method: DeleteUsers
+     * Given: One user exists, the other doesn't.
+     * Result: StatusCode 200 + number of deleted users
+     * */
+    @Test
+    public void givenUsers_whenDeleteUsers_then200IsReceived() {
+        String newUser = "{ \"firstname\": \"Max\", \"lastname\": \"Mustermann\", \"email\": \"" + email + "\", \"birthday\": \"2000-01-01\", \"password\": \"password123\" }";
+        Response response = given()
+                .contentType(ContentType.JSON)
+                .body(newUser)
+                .when()
+                .post("/users")
+                .then()
+                .statusCode(201)
+                .extract()
+                .response();
+
+        Long userId = response.jsonPath().getLong("id");
+
+        given()
+                .when()
+                .delete("/users?ids=" + userId + ",999")
+                .then()
+                .statusCode(200)
+                .body("requested", equalTo(2))
+                .body("deleted", equalTo(1));
+    }
+
     /**
      * Tested Method: UpdateUser
      * Given: User doesn't exist.
@@ -204,6 +489,47 @@ public class UserResourceTest {
                 .body(equalTo("There is no user with the ID 999."));
     }
 
+    /**
+     * Tested Method: VerifyPassword
+     * Given: User exists.
+     * Result: StatusCode 200 + valid only for the correct password, the password is never returned
+     * */
+    @Test
+    public void givenUserExists_whenVerifyPassword_thenOnlyCorrectPasswordIsValid() {
+        String newUser = "{ \"firstname\": \"Max\", \"lastname\": \"Mustermann\", \"email\": \"" + email + "\", \"birthday\": \"2000-01-01\", \"password\": \"password123\" }";
+        Response response = given()
+                .contentType(ContentType.JSON)
+                .body(newUser)
+                .when()
+                .post("/users")
+                .then()
+                .statusCode(201)
+                .body("password", nullValue())
+                .body("passwordHash", nullValue())
+                .extract()
+                .response();
+
+        Long userId = response.jsonPath().getLong("id");
+
+        given()
+                .contentType(ContentType.JSON)
+                .body("{ \"password\": \"password123\" }")
+                .when()
+                .post("/users/" + userId + "/verify-password")
+                .then()
+                .statusCode(200)
+                .body("valid", equalTo(true));
+
+        given()
+                .contentType(ContentType.JSON)
+                .body("{ \"password\": \"wrongpassword\" }")
+                .when()
+                .post("/users/" + userId + "/verify-password")
+                .then()
+                .statusCode(200)
+                .body("valid", equalTo(false));
+    }
+
     /**
      * Tested Method: DeleteUser
      * Given: User doesn't exist.
@@ -0,0 +1,131 @@
+package com.task.ums;
+
+import com.task.ums.models.User;
+import com.task.ums.models.UserSearchHit;
+import com.task.ums.services.UserChange;
+import com.task.ums.services.UserSearchIndex;
+import com.task.ums.services.UserSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link UserSearchIndex} class.
+ *
+ * @see UserSearchIndex
+ **/
+public class UserSearchIndexTest {
+
+    private UserSearchIndex index;
+
+    /**
+     * Initialize the index with some users before each test case.
+     * */
+    @BeforeEach
+    public void setup() {
+        index = new UserSearchIndex();
+        index.put(1L, 0, "Max", "Mustermann");
+        index.put(2L, 0, "Maria", "Musterfrau");
+        index.put(3L, 0, "Maximilian", "Müller");
+        index.put(4L, 0, "Timo", "Truthahn");
+    }
+
+    /**
+     * Test for Search method.
+     * Verify that a prefix finds all users with a matching name token, exact tokens first.
+     * */
+    @Test
+    public void test_Search_Prefix() {
+        List<UserSearchHit> hits = index.search("max", 10);
+
+        assertEquals(2, hits.size());
+        assertEquals(1L, hits.get(0).getId());
+        assertEquals(3L, hits.get(1).getId());
+    }
+
+    /**
+     * Test for Search method.
+     * Verify that every query token has to match and diacritics and case are ignored.
+     * */
+    @Test
+    public void test_Search_SeveralTokens() {
+        List<UserSearchHit> hits = index.search("MAX mul", 10);
+
+        assertEquals(1, hits.size());
+        assertEquals(3L, hits.get(0).getId());
+        assertEquals("Müller", hits.get(0).getLastname());
+    }
+
+    /**
+     * Test for Search method.
+     * Verify that the number of hits is limited.
+     * */
+    @Test
+    public void test_Search_Limit() {
+        List<UserSearchHit> hits = index.search("m", 2);
+
+        assertEquals(2, hits.size());
+    }
+
+    /**
+     * Test for Search method - no match.
+     * */
+    @Test
+    public void test_Search_NoMatch() {
+        assertTrue(index.search("xyz", 10).isEmpty());
+        assertTrue(index.search("  ", 10).isEmpty());
+    }
+
+    /**
+     * Test for OnChange method.
+     * Verify that patched names are re-indexed and deleted users are removed.
+     * */
+    @Test
+    public void test_OnChange() {
+        index.onChange(UserChange.patched(4L, 1, Map.of("lastname", "Mustermann")));
+        index.onChange(UserChange.deleted(1L));
+
+        List<UserSearchHit> hits = index.search("mustermann", 10);
+
+        assertEquals(1, hits.size());
+        assertEquals(4L, hits.get(0).getId());
+        assertEquals("Timo", hits.get(0).getFirstname());
+        assertTrue(index.search("truthahn", 10).isEmpty());
+        assertEquals(3, index.getStatistics().getUsers());
+    }
+
+    /**
+     * Test for OnChange method - changes out of order.
+     * Verify that a change with an older or the same version than the indexed one is ignored, whether it carries
+     * the complete user or only patched fields, and that an update doesn't add a deleted user again.
+     * */
+    @Test
+    public void test_OnChange_OutOfOrder() {
+        index.onChange(UserChange.patched(4L, 2, Map.of("lastname", "Trutz")));
+        index.onChange(UserChange.patched(4L, 1, Map.of("firstname", "Tim")));
+        index.onChange(UserChange.updated(UserSnapshot.of(user(4L, 2L, "Tom", "Truthahn"))));
+        index.onChange(UserChange.deleted(1L));
+        index.onChange(UserChange.updated(UserSnapshot.of(user(1L, 1L, "Max", "Mustermann"))));
+
+        List<UserSearchHit> hits = index.search("ti tr", 10);
+
+        assertEquals(1, hits.size());
+        assertEquals("Timo", hits.get(0).getFirstname());
+        assertEquals("Trutz", hits.get(0).getLastname());
+        assertTrue(index.search("mustermann", 10).isEmpty());
+        assertEquals(3, index.getStatistics().getUsers());
+    }
+
+    private static User user(long id, long version, String firstname, String lastname) {
+        User user = new User();
+        user.setId(id);
+        user.setVersion(version);
+        user.setFirstname(firstname);
+        user.setLastname(lastname);
+        return user;
+    }
+}
@@ -0,0 +1,175 @@
+package com.task.ums;
+
+import com.task.ums.models.User;
+import com.task.ums.services.UserCache;
+import com.task.ums.services.UserChange;
+import com.task.ums.services.UserPartitions;
+import com.task.ums.services.UserService;
+import com.task.ums.services.UserWrite;
+import jakarta.enterprise.event.Event;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Counts the SQL statements of the update paths of the {@link UserService} on an embedded H2 database,
+ * using the statistics of Hibernate: PUT as it was (a find, then a merge in another transaction), PUT as it is
+ * and PATCH with and without an expected version.
+ *
+ * Mocks: Event
+ *
+ * @see UserService
+ **/
+@ExtendWith(MockitoExtension.class)
+public class UserServiceStatementsTest {
+
+    @Mock
+    private Event<UserChange> events;
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private Statistics statistics;
+    private UserService userService;
+    private User max;
+
+    /**
+     * Create a UserService on a new embedded database with one user before each test case.
+     * */
+    @BeforeEach
+    public void setup() {
+        emf = Persistence.createEntityManagerFactory("UserPU", Map.of(
+                "jakarta.persistence.transactionType", "RESOURCE_LOCAL",
+                "jakarta.persistence.jdbc.url", "jdbc:h2:mem:statements-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "hibernate.generate_statistics", "true"));
+        em = emf.createEntityManager();
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        userService = new UserService();
+        setField(userService, "em", em);
+        setField(userService, "cache", new UserCache(0, 0, System::nanoTime));
+        setField(userService, "events", events);
+        setField(userService, "partitions", new UserPartitions(0, null, null, 0));
+        max = inTransaction(() -> userService.create(newUser("max@example.com")));
+    }
+
+    /**
+     * Close the database after each test case.
+     * */
+    @AfterEach
+    public void tearDown() {
+        em.close();
+        emf.close();
+    }
+
+    /**
+     * Test for the PUT path before PATCH existed.
+     * Verify that the user was selected twice: once to copy its fields and once more by the merge before its UPDATE.
+     * */
+    @Test
+    public void test_Statements_MergedPut() {
+        statistics.clear();
+
+        User user = inTransaction(() -> userService.find(max.getId()));
+        user.setFirstname("Maria");
+        inTransaction(() -> em.merge(user));
+
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getEntityUpdateCount());
+    }
+
+    /**
+     * Test for Update method.
+     * Verify that a replaced user is selected once and written by one UPDATE.
+     * */
+    @Test
+    public void test_Statements_Update() {
+        statistics.clear();
+
+        inTransaction(() -> userService.update(max.getId(), newUser("maria@example.com"), null));
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getEntityUpdateCount());
+    }
+
+    /**
+     * Test for WriteAll method, the path of PUT through the group commit.
+     * Verify that a replaced user costs a check of its email address, a SELECT and one UPDATE.
+     * */
+    @Test
+    public void test_Statements_WriteAll() {
+        statistics.clear();
+
+        inTransaction(() -> {
+            userService.writeAll(List.of(UserWrite.update(max.getId(), newUser("maria@example.com"), null)));
+            return null;
+        });
+
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getEntityUpdateCount());
+    }
+
+    /**
+     * Test for Patch method.
+     * Verify that a patch with the expected version is a single UPDATE, and one without selects the new version
+     * afterwards for the change event.
+     * */
+    @Test
+    public void test_Statements_Patch() {
+        statistics.clear();
+        inTransaction(() -> userService.patch(max.getId(), Map.of("firstname", "Maria"), max.getVersion()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        inTransaction(() -> userService.patch(max.getId(), Map.of("firstname", "Erika"), null));
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals("Erika", inTransaction(() -> userService.find(max.getId())).getFirstname());
+    }
+
+    private <T> T inTransaction(Supplier<T> operation) {
+        em.getTransaction().begin();
+        try {
+            T result = operation.get();
+            em.getTransaction().commit();
+            return result;
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.clear();
+        }
+    }
+
+    private static User newUser(String email) {
+        User user = new User();
+        user.setFirstname("Max");
+        user.setLastname("Mustermann");
+        user.setEmail(email);
+        user.setPasswordHash("$2a$10$hash");
+        return user;
+    }
+
+    private static void setField(Object target, String name, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -1,8 +1,22 @@
 package com.task.ums;
 
+import com.task.ums.models.PartialUser;
 import com.task.ums.models.User;
+import com.task.ums.services.EmailConflictException;
+import com.task.ums.services.UserCache;
+import com.task.ums.services.UserChange;
+import com.task.ums.services.UserFields;
+import com.task.ums.services.UserPartitions;
 import com.task.ums.services.UserService;
+import com.task.ums.services.UserSnapshot;
+import com.task.ums.services.UserWrite;
+import com.task.ums.services.VersionConflictException;
+import jakarta.ejb.EJBException;
+import jakarta.enterprise.event.Event;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PersistenceException;
+import jakarta.persistence.Query;
 import jakarta.persistence.TypedQuery;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,9 +25,14 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -21,11 +40,12 @@ import static org.mockito.Mockito.*;
 /**
  * Unit tests for the {@link UserService} class.
  *
- * Mocks: TypedQuery, EntityManager, UserService
+ * Mocks: TypedQuery, Query, EntityManager, UserCache, Event, UserPartitions, UserService
  *
  * @see UserService
  * @see TypedQuery
  * @see EntityManager
+ * @see UserCache
  **/
 @ExtendWith(MockitoExtension.class)
 public class UserServiceTest {
@@ -33,9 +53,27 @@ public class UserServiceTest {
     @Mock
     private TypedQuery<User> query;
 
+    @Mock
+    private TypedQuery<Long> versionQuery;
+
+    @Mock
+    private TypedQuery<Object[]> projectionQuery;
+
+    @Mock
+    private Query updateQuery;
+
     @Mock
     private EntityManager em;
 
+    @Mock
+    private UserCache cache;
+
+    @Mock
+    private Event<UserChange> events;
+
+    @Mock
+    private UserPartitions partitions;
+
     @InjectMocks
     private UserService userService;
 
@@ -80,12 +118,72 @@ public class UserServiceTest {
         verify(em, times(1)).createQuery("SELECT u FROM User u", User.class);
     }
 
+    /**
+     * Test for FindPage method.
+     * Verify that the page is queried after the cursor and limited to the page size.
+     * */
+    @Test
+    public void test_FindPage() {
+        when(em.createQuery("SELECT u FROM User u WHERE u.id > :after ORDER BY u.id", User.class)).thenReturn(query);
+        when(query.setParameter("after", 1L)).thenReturn(query);
+        when(query.setMaxResults(10)).thenReturn(query);
+        when(query.getResultList()).thenReturn(List.of(user));
+
+        List<User> result = userService.findPage(1L, 10);
+
+        assertEquals(1, result.size());
+        verify(query, times(1)).setParameter("after", 1L);
+        verify(query, times(1)).setMaxResults(10);
+    }
+
+    /**
+     * Test for FindPage method with a sparse fieldset.
+     * Verify that only the selected columns are queried and only the selected fields are returned.
+     * */
+    @Test
+    public void test_FindPage_Fields() {
+        UserFields fields = UserFields.parse("lastname, firstname");
+        when(em.createQuery("SELECT u.id, u.version, u.firstname, u.lastname FROM User u WHERE u.id > :after ORDER BY u.id",
+                Object[].class)).thenReturn(projectionQuery);
+        when(projectionQuery.setParameter("after", 0L)).thenReturn(projectionQuery);
+        when(projectionQuery.setMaxResults(10)).thenReturn(projectionQuery);
+        when(projectionQuery.getResultList()).thenReturn(List.<Object[]>of(new Object[]{1L, 3L, "Max", "Mustermann"}));
+
+        List<PartialUser> result = userService.findPage(null, 10, fields);
+
+        assertEquals(1, result.size());
+        assertEquals(1L, result.get(0).getId());
+        assertEquals(3L, result.get(0).getVersion());
+        assertEquals(List.of("firstname", "lastname"), new ArrayList<>(result.get(0).keySet()));
+        assertEquals("Mustermann", result.get(0).get("lastname"));
+        verify(em, never()).find(any(), any());
+    }
+
+    /**
+     * Test for ForEach method.
+     * Verify that every user is passed to the action and the Entity Manager is cleared after every chunk.
+     * */
+    @Test
+    public void test_ForEach() {
+        when(em.createQuery("SELECT u FROM User u ORDER BY u.id", User.class)).thenReturn(query);
+        when(query.setHint(anyString(), any())).thenReturn(query);
+        when(query.getResultStream()).thenReturn(Stream.of(user, user, user, user, user));
+
+        List<User> result = new ArrayList<>();
+        long count = userService.forEach(2, result::add);
+
+        assertEquals(5, count);
+        assertEquals(5, result.size());
+        verify(em, times(2)).clear();
+    }
+
     /**
      * Test for FindUser method.
      * Verify the invocation of the Entity Manager for find.
      * */
     @Test
     public void test_FindUser() {
+        when(cache.get(eq(1L), any())).thenAnswer(invocation -> invocation.<Function<Long, User>>getArgument(1).apply(1L));
         when(em.find(User.class, 1L)).thenReturn(user);
 
         User result = userService.find(1L);
@@ -95,6 +193,90 @@ public class UserServiceTest {
         verify(em, times(1)).find(User.class, 1L);
     }
 
+    /**
+     * Test for FindUser method with a sparse fieldset.
+     * Verify that a cached user is projected without querying the database.
+     * */
+    @Test
+    public void test_FindUser_Fields_Cached() {
+        user.setVersion(2L);
+        when(cache.peek(1L)).thenReturn(UserSnapshot.of(user));
+
+        PartialUser result = userService.find(1L, UserFields.parse("id,email"));
+
+        assertEquals(2L, result.getVersion());
+        assertEquals(List.of(1L, "max.mustermann@example.com"), new ArrayList<>(result.values()));
+        verifyNoInteractions(em);
+    }
+
+    /**
+     * Test for Parse method of the fieldset.
+     * Verify that unknown fields, the password and empty fieldsets are rejected.
+     * */
+    @Test
+    public void test_ParseFields_Invalid() {
+        assertNull(UserFields.parse(null));
+        assertThrows(IllegalArgumentException.class, () -> UserFields.parse("id,password"));
+        assertThrows(IllegalArgumentException.class, () -> UserFields.parse("passwordHash"));
+        assertThrows(IllegalArgumentException.class, () -> UserFields.parse(" , "));
+    }
+
+    /**
+     * Test for FindVersion method.
+     * Verify that only the version is queried if the user isn't cached.
+     * */
+    @Test
+    public void test_FindVersion() {
+        when(em.createQuery("SELECT u.version FROM User u WHERE u.id = :id", Long.class)).thenReturn(versionQuery);
+        when(versionQuery.setParameter("id", 1L)).thenReturn(versionQuery);
+        when(versionQuery.getResultList()).thenReturn(List.of(3L));
+
+        Long result = userService.findVersion(1L);
+
+        assertEquals(3L, result);
+        verify(em, never()).find(User.class, 1L);
+    }
+
+    /**
+     * Test for FindVersion method - user doesn't exist.
+     * */
+    @Test
+    public void test_FindVersion_NonExistentUser() {
+        when(em.createQuery("SELECT u.version FROM User u WHERE u.id = :id", Long.class)).thenReturn(versionQuery);
+        when(versionQuery.setParameter("id", 1L)).thenReturn(versionQuery);
+        when(versionQuery.getResultList()).thenReturn(List.of());
+
+        assertNull(userService.findVersion(1L));
+    }
+
+    /**
+     * Test for FindByEmail method.
+     * Verify that the named query is used with the normalized email address.
+     * */
+    @Test
+    public void test_FindByEmail() {
+        when(em.createNamedQuery(User.FIND_BY_EMAIL, User.class)).thenReturn(query);
+        when(query.setParameter("email", "max.mustermann@example.com")).thenReturn(query);
+        when(query.getResultList()).thenReturn(List.of(user));
+
+        User result = userService.findByEmail("Max.Mustermann@Example.com");
+
+        assertNotNull(result);
+        assertEquals(1L, result.getId());
+    }
+
+    /**
+     * Test for FindByEmail method - user doesn't exist.
+     * */
+    @Test
+    public void test_FindByEmail_NonExistentUser() {
+        when(em.createNamedQuery(User.FIND_BY_EMAIL, User.class)).thenReturn(query);
+        when(query.setParameter("email", "nobody@example.com")).thenReturn(query);
+        when(query.getResultList()).thenReturn(List.of());
+
+        assertNull(userService.findByEmail("nobody@example.com"));
+    }
+
     /**
      * Test for CreateUser method.
      * Verify the invocation of the Entity Manager for persist.
@@ -104,46 +286,277 @@ public class UserServiceTest {
         userService.create(user);
 
         verify(em, times(1)).persist(user);
+        verify(events, times(1)).fire(any(UserChange.class));
+    }
+
+    /**
+     * Test for CreateAllUsers method.
+     * Verify that every user is persisted and the Entity Manager is flushed and cleared after every chunk.
+     * */
+    @Test
+    public void test_CreateAllUsers() {
+        List<User> users = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            User newUser = new User();
+            newUser.setId(id); // assigned by persist
+            users.add(newUser);
+        }
+
+        List<User> result = userService.createAll(users, 2);
+
+        assertEquals(5, result.size());
+        verify(em, times(5)).persist(any(User.class));
+        verify(em, times(2)).flush();
+        verify(em, times(2)).clear();
+        verify(events, times(5)).fire(any(UserChange.class));
     }
 
     /**
      * Test for UpdateUser method.
-     * Verify the invocation of the Entity Manager for merge.
+     * Verify that the managed entity is changed and flushed without a merge.
      * */
     @Test
     public void test_UpdateUser() {
-        when(em.merge(user)).thenReturn(user);
+        user.setVersion(1L);
+        when(em.find(User.class, 1L)).thenReturn(user);
 
-        User result = userService.update(user);
+        User changes = new User();
+        changes.setFirstname("Maria");
+        User result = userService.update(1L, changes, 1L);
 
         assertNotNull(result);
-        assertEquals("Max", result.getFirstname());
-        verify(em, times(1)).merge(user);
+        assertEquals("Maria", result.getFirstname());
+        verify(em, times(1)).flush();
+        verify(em, never()).merge(any(User.class));
+        verify(cache, times(1)).invalidate(1L);
+    }
+
+    /**
+     * Test for UpdateUser method - user doesn't exist.
+     * */
+    @Test
+    public void test_UpdateUser_NonExistentUser() {
+        when(em.find(User.class, 1L)).thenReturn(null);
+
+        assertNull(userService.update(1L, new User(), null));
+        verify(em, never()).flush();
+    }
+
+    /**
+     * Test for UpdateUser method - user was changed concurrently.
+     * Verify that a different version is reported as version conflict.
+     * */
+    @Test
+    public void test_UpdateUser_VersionConflict() {
+        user.setVersion(2L);
+        when(em.find(User.class, 1L)).thenReturn(user);
+
+        assertThrows(VersionConflictException.class, () -> userService.update(1L, new User(), 1L));
+        assertEquals("Max", user.getFirstname());
+    }
+
+    /**
+     * Test for UpdateUser method - user was changed concurrently after it was read.
+     * Verify that the optimistic lock failure is reported as version conflict.
+     * */
+    @Test
+    public void test_UpdateUser_OptimisticLockFailure() {
+        when(em.find(User.class, 1L)).thenReturn(user);
+        doThrow(new OptimisticLockException()).when(em).flush();
+
+        assertThrows(VersionConflictException.class, () -> userService.update(1L, new User(), null));
+    }
+
+    /**
+     * Test for WriteAll method.
+     * Verify that the creates and updates of a group are applied in one flush, and that a write with a used
+     * email address or another version fails alone.
+     * */
+    @Test
+    public void test_WriteAll() {
+        user.setVersion(1L);
+        User used = new User();
+        used.setEmail("used@example.com");
+        User changes = new User();
+        changes.setFirstname("Maria");
+        changes.setEmail("max.mustermann@example.com");
+        User outdated = new User();
+        outdated.setEmail("max.mustermann@example.com");
+        User created = new User();
+        created.setEmail("new@example.com");
+        User taken = new User();
+        taken.setEmail("new@example.com");
+        List<UserWrite> writes = List.of(UserWrite.create(used), UserWrite.create(created),
+                UserWrite.update(1L, changes, 1L), UserWrite.update(1L, outdated, 1L), UserWrite.update(1L, taken, null));
+
+        when(em.createQuery("SELECT u.email, u.id FROM User u WHERE u.email IN :emails", Object[].class)).thenReturn(projectionQuery);
+        when(projectionQuery.setParameter(eq("emails"), any())).thenReturn(projectionQuery);
+        when(projectionQuery.getResultList()).thenReturn(List.<Object[]>of(new Object[]{"used@example.com", 2L}));
+        when(em.createQuery("SELECT u FROM User u WHERE u.id IN :ids", User.class)).thenReturn(query);
+        when(query.setParameter(eq("ids"), any())).thenReturn(query);
+        when(query.getResultList()).thenReturn(List.of(user));
+        doAnswer(invocation -> {
+            invocation.<User>getArgument(0).setId(3L);
+            return null;
+        }).when(em).persist(any(User.class));
+
+        userService.writeAll(writes);
+
+        assertInstanceOf(EmailConflictException.class, writes.get(0).getFailure());
+        assertEquals(3L, writes.get(1).getResult().getId());
+        assertSame(user, writes.get(2).getResult());
+        assertEquals("Maria", user.getFirstname());
+        // the version of the user changes with the first update
+        assertInstanceOf(VersionConflictException.class, writes.get(3).getFailure());
+        // the email address is used by the user created before
+        assertInstanceOf(EmailConflictException.class, writes.get(4).getFailure());
+        verify(em, times(1)).persist(any(User.class));
+        verify(em, times(1)).flush();
+        verify(events, times(2)).fire(any(UserChange.class));
+        verify(cache, times(1)).invalidate(1L);
+    }
+
+    /**
+     * Test for PatchUser method.
+     * Verify that only the changed fields are updated with a single statement.
+     * */
+    @Test
+    public void test_PatchUser() {
+        when(em.createQuery("UPDATE User u SET u.version = u.version + 1, u.firstname = :firstname WHERE u.id = :id AND u.version = :version"))
+                .thenReturn(updateQuery);
+        when(updateQuery.setParameter(anyString(), any())).thenReturn(updateQuery);
+        when(updateQuery.executeUpdate()).thenReturn(1);
+
+        boolean result = userService.patch(1L, Map.of("firstname", "Maria"), 3L);
+
+        assertTrue(result);
+        verify(updateQuery, times(1)).setParameter("firstname", "Maria");
+        verify(updateQuery, times(1)).setParameter("version", 3L);
+        verify(em, never()).find(User.class, 1L);
+        verify(cache, times(1)).invalidate(1L);
+        verify(events, times(1)).fire(argThat(change -> change.getVersion() == 4L && change.getFields().containsKey("firstname")));
+    }
+
+    /**
+     * Test for PatchUser method - user doesn't exist.
+     * */
+    @Test
+    public void test_PatchUser_NonExistentUser() {
+        when(em.createQuery("UPDATE User u SET u.version = u.version + 1, u.lastname = :lastname WHERE u.id = :id"))
+                .thenReturn(updateQuery);
+        when(updateQuery.setParameter(anyString(), any())).thenReturn(updateQuery);
+        when(updateQuery.executeUpdate()).thenReturn(0);
+
+        assertFalse(userService.patch(1L, Map.of("lastname", "Musterfrau"), null));
+    }
+
+    /**
+     * Test for PatchUser method - user was changed concurrently.
+     * Verify that a different version is reported as version conflict.
+     * */
+    @Test
+    public void test_PatchUser_VersionConflict() {
+        when(em.createQuery("UPDATE User u SET u.version = u.version + 1, u.lastname = :lastname WHERE u.id = :id AND u.version = :version"))
+                .thenReturn(updateQuery);
+        when(updateQuery.setParameter(anyString(), any())).thenReturn(updateQuery);
+        when(updateQuery.executeUpdate()).thenReturn(0);
+        when(em.createQuery("SELECT u.version FROM User u WHERE u.id = :id", Long.class)).thenReturn(versionQuery);
+        when(versionQuery.setParameter("id", 1L)).thenReturn(versionQuery);
+        when(versionQuery.getResultList()).thenReturn(List.of(4L));
+
+        assertThrows(VersionConflictException.class, () -> userService.patch(1L, Map.of("lastname", "Musterfrau"), 3L));
+    }
+
+    /**
+     * Test for PatchUser method - field can't be changed.
+     * */
+    @Test
+    public void test_PatchUser_InvalidField() {
+        assertThrows(IllegalArgumentException.class, () -> userService.patch(1L, Map.of("id", 2L), null));
     }
 
     /**
      * Test for DeleteUser method - success.
-     * Verify the invocation of the Entity Manager for remove.
+     * Verify that the user is deleted with a single statement without loading it.
      * */
     @Test
     public void test_DeleteUser() {
-        when(em.find(User.class, 1L)).thenReturn(user);
+        when(em.createQuery("DELETE FROM User u WHERE u.id = :id")).thenReturn(updateQuery);
+        when(updateQuery.setParameter("id", 1L)).thenReturn(updateQuery);
+        when(updateQuery.executeUpdate()).thenReturn(1);
 
-        userService.delete(1L);
+        assertTrue(userService.delete(1L));
+        verify(events, times(1)).fire(any(UserChange.class));
 
-        verify(em, times(1)).remove(user);
+        verify(em, never()).find(User.class, 1L);
+        verify(em, never()).remove(any(User.class));
+        verify(cache, times(1)).invalidate(1L);
     }
 
     /**
      * Test for DeleteUser method - failure.
-     * Verify the invocation of the Entity Manager for remove.
+     * Verify that a missing user is reported by the affected row count.
      * */
     @Test
     public void test_DeleteUser_NonExistentUser() {
-        when(em.find(User.class, 1L)).thenReturn(null);
+        when(em.createQuery("DELETE FROM User u WHERE u.id = :id")).thenReturn(updateQuery);
+        when(updateQuery.setParameter("id", 1L)).thenReturn(updateQuery);
+        when(updateQuery.executeUpdate()).thenReturn(0);
+
+        assertFalse(userService.delete(1L));
+        verify(events, never()).fire(any(UserChange.class));
+    }
+
+    /**
+     * Test for DeleteAllUsers method.
+     * Verify that the existing users are deleted with a single statement and only their deletion is reported.
+     * */
+    @Test
+    public void test_DeleteAllUsers() {
+        List<Long> ids = List.of(1L, 2L, 3L);
+        TypedQuery<Long> idQuery = mock(TypedQuery.class);
+        when(em.createQuery("SELECT u.id FROM User u WHERE u.id IN :ids", Long.class)).thenReturn(idQuery);
+        when(idQuery.setParameter("ids", ids)).thenReturn(idQuery);
+        when(idQuery.getResultList()).thenReturn(List.of(1L, 3L));
+        when(em.createQuery("DELETE FROM User u WHERE u.id IN :ids")).thenReturn(updateQuery);
+        when(updateQuery.setParameter("ids", List.of(1L, 3L))).thenReturn(updateQuery);
+        when(updateQuery.executeUpdate()).thenReturn(2);
+
+        assertEquals(2, userService.deleteAll(ids));
+        verify(cache, times(3)).invalidate(anyLong());
+        verify(events, times(2)).fire(any(UserChange.class));
+    }
 
-        userService.delete(1L);
+    /**
+     * Test for DeleteAllUsers method - failure.
+     * Verify that nothing is deleted or reported if none of the users exist.
+     * */
+    @Test
+    public void test_DeleteAllUsers_NonExistentUsers() {
+        List<Long> ids = List.of(1L, 2L);
+        TypedQuery<Long> idQuery = mock(TypedQuery.class);
+        when(em.createQuery("SELECT u.id FROM User u WHERE u.id IN :ids", Long.class)).thenReturn(idQuery);
+        when(idQuery.setParameter("ids", ids)).thenReturn(idQuery);
+        when(idQuery.getResultList()).thenReturn(List.of());
+
+        assertEquals(0, userService.deleteAll(ids));
+        verify(em, never()).createQuery("DELETE FROM User u WHERE u.id IN :ids");
+        verify(events, never()).fire(any(UserChange.class));
+    }
+
+    /**
+     * Test for IsCausedBy method of the EmailConflictException.
+     * Verify that a commit rejected by the unique index on the email address is recognized through the causes of the
+     * failure, and other constraint violations are not.
+     * */
+    @Test
+    public void test_EmailConflictException_IsCausedBy() {
+        SQLException duplicate = new SQLException("Unique index or primary key violation: \"PUBLIC.UX_USERS_EMAIL ON PUBLIC.USERS(EMAIL)\"", "23505");
+        SQLException other = new SQLException("Referential integrity constraint violation", "23503");
 
-        verify(em, times(0)).remove(any(User.class));
+        assertTrue(EmailConflictException.isCausedBy(new EJBException(new PersistenceException(duplicate))));
+        assertTrue(EmailConflictException.isCausedBy(new EmailConflictException("max.mustermann@example.com")));
+        assertFalse(EmailConflictException.isCausedBy(new EJBException(new PersistenceException(other))));
+        assertFalse(EmailConflictException.isCausedBy(new IllegalStateException("failed")));
     }
 }
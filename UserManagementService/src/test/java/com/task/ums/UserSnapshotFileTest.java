@@ -0,0 +1,117 @@
+package com.task.ums;
+
+import com.task.ums.models.User;
+import com.task.ums.services.UserSnapshotFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link UserSnapshotFile} class.
+ *
+ * @see UserSnapshotFile
+ **/
+public class UserSnapshotFileTest {
+
+    private static final int USERS = 20000;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Test for Create and Open methods.
+     * Verify that the users of a snapshot spanning several blocks are read back unchanged and in order.
+     * */
+    @Test
+    public void test_WriteAndRead() throws IOException {
+        Path file = directory.resolve("users.snapshot");
+        write(file);
+
+        assertEquals(USERS, UserSnapshotFile.verify(file));
+        try (UserSnapshotFile.Reader reader = UserSnapshotFile.open(file)) {
+            for (int i = 1; i <= USERS; i++) {
+                User user = reader.next();
+                assertEquals(i, user.getId());
+                assertEquals(i % 3, user.getVersion());
+                assertEquals(i % 2 == 0 ? LocalDate.of(2000, 1, 1).plusDays(i) : null, user.getBirthday());
+                assertEquals(i % 7 == 0 ? null : Instant.ofEpochMilli(1_700_000_000_000L + i), user.getCreatedAt());
+                assertEquals("Jürgen" + i, user.getFirstname());
+                assertEquals(i % 5 == 0 ? "" : "Mustermann", user.getLastname());
+                assertEquals("user" + i + "@example.com", user.getEmail());
+                assertEquals("$pbkdf2-sha256$1000$c2FsdA$aGFzaA", user.getPasswordHash());
+            }
+            assertNull(reader.next());
+            assertEquals(USERS, reader.getCount());
+        }
+        assertFalse(Files.exists(directory.resolve("users.snapshot.tmp")));
+    }
+
+    /**
+     * Test for Verify method.
+     * Verify that a damaged or truncated snapshot is detected.
+     * */
+    @Test
+    public void test_Verify_Damaged() throws IOException {
+        Path file = directory.resolve("users.snapshot");
+        write(file);
+        long size = Files.size(file);
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[(int) (size / 2)] ^= 1;
+        Path damaged = Files.write(directory.resolve("damaged.snapshot"), bytes);
+        assertThrows(IOException.class, () -> UserSnapshotFile.verify(damaged));
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 1);
+        }
+        assertThrows(IOException.class, () -> UserSnapshotFile.verify(file));
+    }
+
+    /**
+     * Test for Close method.
+     * Verify that an uncommitted snapshot doesn't replace the previous one.
+     * */
+    @Test
+    public void test_Close_Uncommitted() throws IOException {
+        Path file = directory.resolve("users.snapshot");
+        write(file);
+
+        try (UserSnapshotFile.Writer writer = UserSnapshotFile.create(file)) {
+            writer.write(user(1));
+        }
+
+        assertEquals(USERS, UserSnapshotFile.verify(file));
+        assertFalse(Files.exists(directory.resolve("users.snapshot.tmp")));
+    }
+
+    private static void write(Path file) throws IOException {
+        try (UserSnapshotFile.Writer writer = UserSnapshotFile.create(file)) {
+            for (int i = 1; i <= USERS; i++) {
+                writer.write(user(i));
+            }
+            assertEquals(USERS, writer.commit());
+        }
+    }
+
+    private static User user(int i) {
+        User user = new User();
+        user.setId((long) i);
+        user.setVersion((long) (i % 3));
+        user.setBirthday(i % 2 == 0 ? LocalDate.of(2000, 1, 1).plusDays(i) : null);
+        user.setFirstname("Jürgen" + i);
+        user.setLastname(i % 5 == 0 ? "" : "Mustermann");
+        user.setEmail("user" + i + "@example.com");
+        user.setPasswordHash("$pbkdf2-sha256$1000$c2FsdA$aGFzaA");
+        user.setCreatedAt(i % 7 == 0 ? null : Instant.ofEpochMilli(1_700_000_000_000L + i));
+        return user;
+    }
+}
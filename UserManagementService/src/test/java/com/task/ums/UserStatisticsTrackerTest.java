@@ -0,0 +1,172 @@
+package com.task.ums;
+
+import com.task.ums.models.EmailDomainCount;
+import com.task.ums.models.User;
+import com.task.ums.models.UserStatistics;
+import com.task.ums.services.UserChange;
+import com.task.ums.services.UserService;
+import com.task.ums.services.UserSnapshot;
+import com.task.ums.services.UserStatisticsTracker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the {@link UserStatisticsTracker} class.
+ *
+ * @see UserStatisticsTracker
+ **/
+@ExtendWith(MockitoExtension.class)
+public class UserStatisticsTrackerTest {
+
+    private static final Instant NOW = Instant.now();
+
+    @Mock
+    private UserService userService;
+
+    @InjectMocks
+    private UserStatisticsTracker tracker;
+
+    private final List<User> database = new ArrayList<>();
+
+    /**
+     * Initialize the database with some users and build the statistics before each test case.
+     * */
+    @BeforeEach
+    public void setup() {
+        database.add(user(1, "max@example.com", LocalDate.of(1985, 5, 1), NOW));
+        database.add(user(2, "maria@example.com", LocalDate.of(1989, 12, 31), NOW.minus(1, ChronoUnit.DAYS)));
+        database.add(user(3, "timo@test.org", LocalDate.of(1990, 1, 1), NOW));
+        database.add(user(4, "erika@example.com", null, null));
+        when(userService.forEach(anyInt(), any())).thenAnswer(invocation -> {
+            Consumer<User> action = invocation.getArgument(1);
+            database.forEach(action);
+            return (long) database.size();
+        });
+        tracker.build();
+    }
+
+    /**
+     * Test for Build and GetStatistics methods.
+     * Verify that the users are counted by day of creation, decade of birth and email domain.
+     * */
+    @Test
+    public void test_Build() {
+        UserStatistics statistics = tracker.getStatistics(2, 10);
+
+        assertEquals(4, statistics.getUsers());
+        assertEquals(Map.of(day(NOW.minus(1, ChronoUnit.DAYS)), 1L, day(NOW), 2L), statistics.getSignupsPerDay());
+        assertEquals(1, statistics.getSignupsWithoutDate());
+        assertEquals(Map.of("1980-1989", 2L, "1990-1999", 1L), statistics.getBirthYears());
+        assertEquals(1, statistics.getWithoutBirthday());
+        assertEquals(List.of("example.com", "test.org"), domains(statistics));
+        assertEquals(3, statistics.getTopEmailDomains().get(0).getUsers());
+        assertNotNull(statistics.getRebuiltAt());
+    }
+
+    /**
+     * Test for OnChange method.
+     * Verify that created, updated, patched and deleted users change the counts and unknown users are ignored.
+     * */
+    @Test
+    public void test_OnChange() {
+        tracker.onChange(UserChange.created(UserSnapshot.of(user(5, "jan@test.org", LocalDate.of(2001, 2, 3), NOW))));
+        tracker.onChange(UserChange.updated(UserSnapshot.of(user(1, "max@test.org", LocalDate.of(1985, 5, 1), NOW))));
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("birthday", null);
+        fields.put("email", "maria@test.org");
+        tracker.onChange(UserChange.patched(2, 1, fields));
+        tracker.onChange(UserChange.deleted(4));
+        tracker.onChange(UserChange.deleted(99));
+        tracker.onChange(UserChange.patched(98, 1, Map.of("email", "x@example.com")));
+
+        UserStatistics statistics = tracker.getStatistics(1, 10);
+
+        assertEquals(4, statistics.getUsers());
+        assertEquals(Map.of(day(NOW), 3L), statistics.getSignupsPerDay());
+        assertEquals(0, statistics.getSignupsWithoutDate());
+        assertEquals(Map.of("1980-1989", 1L, "1990-1999", 1L, "2000-2009", 1L), statistics.getBirthYears());
+        assertEquals(1, statistics.getWithoutBirthday());
+        assertEquals(List.of("test.org"), domains(statistics));
+        assertEquals(4, statistics.getTopEmailDomains().get(0).getUsers());
+    }
+
+    /**
+     * Test for Rebuild method.
+     * Verify that counts which drifted from the database are corrected.
+     * */
+    @Test
+    public void test_Rebuild() {
+        // a change the database doesn't have, e.g. applied out of order
+        tracker.onChange(UserChange.created(UserSnapshot.of(user(6, "ghost@example.com", null, NOW))));
+        assertEquals(5, tracker.getStatistics(1, 1).getUsers());
+
+        assertEquals(4, tracker.rebuild());
+
+        UserStatistics statistics = tracker.getStatistics(1, 1);
+        assertEquals(4, statistics.getUsers());
+        assertEquals(3, statistics.getTopEmailDomains().get(0).getUsers());
+    }
+
+    /**
+     * Test for GetStatistics method.
+     * Verify that the domains with most users are found among many small domains, and invalid limits are rejected.
+     * */
+    @Test
+    public void test_GetStatistics_TopDomains() {
+        long id = 10;
+        for (int i = 0; i < 5000; i++) {
+            tracker.onChange(UserChange.created(UserSnapshot.of(user(id++, "user@domain" + i + ".com", null, NOW))));
+            if (i % 10 == 0) {
+                tracker.onChange(UserChange.created(UserSnapshot.of(user(id++, "user" + i + "@big.com", null, NOW))));
+            }
+        }
+
+        List<EmailDomainCount> top = tracker.getStatistics(1, 3).getTopEmailDomains();
+
+        assertEquals(List.of("big.com", "example.com"), List.of(top.get(0).getDomain(), top.get(1).getDomain()));
+        assertTrue(top.get(0).getUsers() >= 500);
+        assertThrows(IllegalArgumentException.class, () -> tracker.getStatistics(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> tracker.getStatistics(30, 33));
+    }
+
+    private static List<String> domains(UserStatistics statistics) {
+        List<String> domains = new ArrayList<>();
+        statistics.getTopEmailDomains().forEach(domain -> domains.add(domain.getDomain()));
+        return domains;
+    }
+
+    private static String day(Instant instant) {
+        return instant.atOffset(ZoneOffset.UTC).toLocalDate().toString();
+    }
+
+    private static User user(long id, String email, LocalDate birthday, Instant createdAt) {
+        User user = new User();
+        user.setId(id);
+        user.setVersion(0L);
+        user.setFirstname("Max");
+        user.setLastname("Mustermann");
+        user.setEmail(email);
+        user.setBirthday(birthday);
+        user.setCreatedAt(createdAt);
+        return user;
+    }
+}
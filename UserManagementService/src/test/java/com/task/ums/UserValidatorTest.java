@@ -0,0 +1,178 @@
+package com.task.ums;
+
+import com.task.ums.models.User;
+import com.task.ums.services.UserValidator;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Conformance tests of the {@link UserValidator} against Bean Validation (Hibernate Validator).
+ * The messages are compared without their order, because Bean Validation doesn't define one.
+ *
+ * @see UserValidator
+ **/
+public class UserValidatorTest {
+
+    private static final String[] NAMES = {null, "", " ", "Max", "ä"};
+    private static final String[] PASSWORDS = {null, "", "12345", "123456", "12345678901234567890", "123456789012345678901"};
+    private static final String[] EMAILS = {
+            null, "", "max@example.com", "max.mustermann@example.com", "Max@Example.COM", "max+tag@mail.example-domain.de",
+            "a@b", "a!#$%&'*+/=?^_`{|}~-z@example.com", "max@localhost", "max@123.example", "max@a-b-c.de",
+            "max", "@example.com", "max@", "max@@example.com", "max@ex@ample.com", "max.@example.com", ".max@example.com",
+            "ma..x@example.com", "max@example..com", "max@.example.com", "max@example.com.", "max@-example.com",
+            "max@example-.com", "max@exa_mple.com", "max@exa!mple.com", "max mustermann@example.com", "max@exam ple.com",
+            "\"max mustermann\"@example.com", "\"max@home\"@example.com", "max@[127.0.0.1]", "max@[IPv6:::1]", "max@[300.0.0.1]",
+            "müller@example.com", "max@müller.de", "max@xn--mller-kva.de", "max(comment)@example.com",
+            "a".repeat(64) + "@example.com", "a".repeat(65) + "@example.com",
+            "max@" + "a".repeat(63) + ".com", "max@" + "a".repeat(64) + ".com",
+            "max@" + ("a".repeat(62) + ".").repeat(4) + "com", "max@" + ("a".repeat(63) + ".").repeat(4) + "com"
+    };
+
+    private ValidatorFactory factory;
+    private Validator beanValidator;
+    private UserValidator validator;
+
+    /**
+     * Create the Bean Validation validator and the UserValidator using it before each test case.
+     * */
+    @BeforeEach
+    public void setup() {
+        factory = Validation.buildDefaultValidatorFactory();
+        beanValidator = factory.getValidator();
+        validator = new UserValidator(beanValidator);
+    }
+
+    /**
+     * Close the validator factory after each test case.
+     * */
+    @AfterEach
+    public void tearDown() {
+        factory.close();
+    }
+
+    /**
+     * Test for Validate method.
+     * Verify that every combination of names and passwords gives the same messages as Bean Validation.
+     * */
+    @Test
+    public void test_Validate_NamesAndPasswords() {
+        for (String firstname : NAMES) {
+            for (String lastname : NAMES) {
+                for (String password : PASSWORDS) {
+                    assertConforms(newUser(firstname, lastname, "max@example.com", password));
+                }
+            }
+        }
+    }
+
+    /**
+     * Test for Validate and ValidateValue methods.
+     * Verify that valid and invalid email addresses, including the ones outside the fast path,
+     * give the same messages as Bean Validation.
+     * */
+    @Test
+    public void test_Validate_Emails() {
+        for (String email : EMAILS) {
+            User user = newUser("Max", "Mustermann", null, "123456");
+            // bypass the normalization of the setter, so upper case addresses are validated too
+            setField(user, "email", email);
+
+            assertConforms(user);
+            assertEquals(sorted(messages(beanValidator.validateValue(User.class, "email", email))),
+                    sorted(validator.validateValue("email", email)), "email: " + email);
+        }
+    }
+
+    /**
+     * Test for ValidateValue method.
+     * Verify that every patchable field gives the same messages as Bean Validation.
+     * */
+    @Test
+    public void test_ValidateValue() {
+        for (String name : NAMES) {
+            assertValueConforms("firstname", name);
+            assertValueConforms("lastname", name);
+        }
+        for (String password : PASSWORDS) {
+            assertValueConforms("password", password);
+        }
+        assertValueConforms("birthday", LocalDate.of(1990, 1, 1));
+        assertValueConforms("birthday", null);
+    }
+
+    /**
+     * Test for Validate method.
+     * Verify that a valid user is checked without Bean Validation and without allocating a result.
+     * */
+    @Test
+    public void test_Validate_ValidUserUsesFastPath() {
+        Validator fallback = mock(Validator.class);
+        UserValidator fastValidator = new UserValidator(fallback);
+        User user = newUser("Max", "Mustermann", "max.mustermann@example.com", "123456");
+
+        List<String> first = fastValidator.validate(user);
+        List<String> second = fastValidator.validate(user);
+
+        assertTrue(first.isEmpty());
+        assertSame(first, second);
+        verifyNoInteractions(fallback);
+    }
+
+    private void assertConforms(User user) {
+        List<String> expected = sorted(messages(beanValidator.validate(user)));
+        List<String> actual = validator.validate(user);
+
+        assertEquals(expected, sorted(actual), "user: " + user.getFirstname() + ", " + user.getLastname() + ", "
+                + user.getEmail() + ", " + user.getPassword());
+    }
+
+    private void assertValueConforms(String property, Object value) {
+        List<String> expected = sorted(messages(beanValidator.validateValue(User.class, property, value)));
+        assertEquals(expected, sorted(validator.validateValue(property, value)), property + ": " + value);
+    }
+
+    private static User newUser(String firstname, String lastname, String email, String password) {
+        User user = new User();
+        user.setFirstname(firstname);
+        user.setLastname(lastname);
+        user.setEmail(email);
+        user.setPassword(password);
+        return user;
+    }
+
+    private static void setField(User user, String name, Object value) {
+        try {
+            Field field = User.class.getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(user, value);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static List<String> messages(Set<? extends ConstraintViolation<?>> violations) {
+        return violations.stream().map(ConstraintViolation::getMessage).collect(Collectors.toList());
+    }
+
+    private static List<String> sorted(List<String> messages) {
+        List<String> sorted = new ArrayList<>(messages);
+        sorted.sort(null);
+        return sorted;
+    }
+}